@@ -0,0 +1,477 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Streams rows from a CSV or JSON file into a table using JDBC batches.
+ *
+ * The file is parsed record by record (never loaded into memory as a whole). Rows are bound into one
+ * PreparedStatement and sent with addBatch/executeBatch in chunks of the configured size, and every
+ * chunk is committed on its own, so a failure only rolls back the chunk that was in flight.
+ *
+ * Supported formats (chosen by file extension):
+ * - .csv / .txt : comma separated, first line is the header with column names; quoted fields may contain
+ *   commas, quotes ("") and line breaks.
+ * - .json : either an array of flat objects ([{"ID": 1, "NAME": "x"}, ...]) or one object per line
+ *   (also accepted as .jsonl / .ndjson). Keys are column names; nested objects and arrays are not supported.
+ *
+ * Column names are matched to the table's columns case-insensitively. Columns missing from the file are left
+ * to their database default.
+ */
+public class BulkImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L; // Report progress at most 4 times a second
+
+    /**
+     * Receives progress updates while the import runs (on the importing thread).
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long rowsImported, double rowsPerSecond);
+    }
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+
+    /**
+     * @param pool The pool to borrow the import connection from.
+     * @param batchSize Rows per JDBC batch and per commit.
+     */
+    public BulkImporter(ConnectionPool pool, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a file into a table. Stops (rolling back the current chunk) if the thread is interrupted.
+     * @param file The CSV or JSON file.
+     * @param table The target table.
+     * @param tableColumns The columns of the target table.
+     * @param progress Receives progress updates; may be null.
+     * @return The number of rows imported and committed.
+     * @throws IOException If the file cannot be read or parsed.
+     * @throws SQLException If a chunk cannot be inserted; earlier chunks stay committed.
+     */
+    public long importFile(Path file, String table, List<String> tableColumns, Progress progress) throws IOException, SQLException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RecordSource source = name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")
+                    ? new JsonRecordSource(in)
+                    : new CsvRecordSource(in);
+            return importRecords(source, table, tableColumns, progress);
+        }
+    }
+
+    private long importRecords(RecordSource source, String table, List<String> tableColumns, Progress progress)
+            throws IOException, SQLException {
+        // Map the file's column names onto the table's columns
+        Map<String, String> byUpperName = new LinkedHashMap<>();
+        for (String col : tableColumns) {
+            byUpperName.put(col.toUpperCase(Locale.ROOT), col);
+        }
+        List<String> fileColumns = source.columns();
+        List<String> targetColumns = new ArrayList<>();
+        for (String col : fileColumns) {
+            String target = byUpperName.get(col.trim().toUpperCase(Locale.ROOT));
+            if (target == null) {
+                throw new IOException("Column '" + col + "' does not exist in table " + table);
+            }
+            targetColumns.add(target);
+        }
+        if (targetColumns.isEmpty()) {
+            return 0; // Empty file
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(targetColumns.size(), "?"));
+        String sql = "INSERT INTO " + table + " (" + String.join(",", targetColumns) + ") VALUES (" + placeholders + ")";
+        QueryMetrics.debug(() -> "Executing bulk SQL: " + sql + " in batches of " + batchSize);
+
+        long committed = 0;
+        long start = System.nanoTime();
+        long lastReport = start;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false); // Commit per chunk instead of per row
+            int pending = 0;
+            try {
+                String[] values;
+                while ((values = source.next()) != null) {
+                    for (int i = 0; i < targetColumns.size(); i++) {
+                        ps.setString(i + 1, values[i]); // JDBC parameters are 1-indexed
+                    }
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new CancellationException("Import cancelled after " + committed + " rows");
+                        }
+                        ps.executeBatch();
+                        conn.commit();
+                        committed += pending;
+                        pending = 0;
+                        long now = System.nanoTime();
+                        if (progress != null && now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                            progress.update(committed, rate(committed, now - start));
+                            lastReport = now;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch(); // Remaining rows
+                    conn.commit();
+                    committed += pending;
+                }
+            } catch (SQLException | IOException | RuntimeException ex) {
+                conn.rollback(); // Only the chunk in flight is lost
+                if (ex instanceof SQLException) {
+                    throw new SQLException("Import stopped after " + committed + " committed rows: " + ex.getMessage(),
+                            ((SQLException) ex).getSQLState(), ((SQLException) ex).getErrorCode(), ex);
+                }
+                throw ex;
+            }
+        }
+        if (progress != null) {
+            progress.update(committed, rate(committed, System.nanoTime() - start));
+        }
+        return committed;
+    }
+
+    private static double rate(long rows, long nanos) {
+        return nanos == 0 ? 0 : rows * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * A stream of records with a fixed set of columns.
+     */
+    private interface RecordSource {
+        /**
+         * @return The column names, in the order values are returned by next().
+         */
+        List<String> columns() throws IOException;
+
+        /**
+         * @return The values of the next record (null for missing values), or null at the end of the input.
+         */
+        String[] next() throws IOException;
+    }
+
+    /**
+     * RFC 4180 style CSV reader. The first record is the header.
+     */
+    private static final class CsvRecordSource implements RecordSource {
+        private final BufferedReader in; // Needs mark/reset to look past a closing quote
+        private final StringBuilder field = new StringBuilder();
+        private List<String> header;
+        private long line = 1;
+        private boolean eof;
+
+        CsvRecordSource(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public List<String> columns() throws IOException {
+            if (header == null) {
+                List<String> first = readRecord();
+                header = first == null ? Collections.emptyList() : first;
+            }
+            return header;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            columns();
+            long recordLine = line;
+            List<String> record = readRecord();
+            if (record == null) {
+                return null;
+            }
+            if (record.size() != header.size()) {
+                throw new IOException("Line " + recordLine + ": expected " + header.size() + " values but found " + record.size());
+            }
+            String[] values = new String[record.size()];
+            for (int i = 0; i < values.length; i++) {
+                String v = record.get(i);
+                values[i] = v.isEmpty() ? null : v; // Empty fields are NULL (as Oracle treats '' anyway)
+            }
+            return values;
+        }
+
+        /**
+         * Reads one record, skipping blank lines.
+         * @return The fields of the record, or null at the end of the input.
+         */
+        private List<String> readRecord() throws IOException {
+            while (!eof) {
+                List<String> fields = new ArrayList<>();
+                field.setLength(0);
+                boolean quoted = false;
+                boolean any = false;
+                while (true) {
+                    int c = in.read();
+                    if (c == -1) {
+                        eof = true;
+                        if (quoted) {
+                            throw new IOException("Line " + line + ": unterminated quoted field");
+                        }
+                        break;
+                    }
+                    any = true;
+                    if (quoted) {
+                        if (c == '"') {
+                            in.mark(1);
+                            int n = in.read();
+                            if (n == '"') {
+                                field.append('"'); // Escaped quote
+                            } else {
+                                quoted = false;
+                                if (n != -1) {
+                                    in.reset();
+                                }
+                            }
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            field.append((char) c);
+                        }
+                    } else if (c == '"' && field.length() == 0) {
+                        quoted = true;
+                    } else if (c == ',') {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n') {
+                        line++;
+                        break;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                if (!any || (fields.isEmpty() && field.length() == 0)) {
+                    continue; // Blank line
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Minimal streaming JSON reader for an array of flat objects or newline-delimited objects.
+     * Columns are taken from the keys of the first object; later objects may omit keys (NULL)
+     * but may not introduce new ones.
+     */
+    private static final class JsonRecordSource implements RecordSource {
+        private final Reader in;
+        private final StringBuilder token = new StringBuilder();
+        private int peeked = -2; // -2 = nothing peeked
+        private boolean inArray;
+        private boolean started;
+        private boolean done;
+        private List<String> columns;
+        private Map<String, String> pendingFirst; // First object, read to learn the columns
+        private long objects;
+
+        JsonRecordSource(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public List<String> columns() throws IOException {
+            if (columns == null) {
+                pendingFirst = readObject();
+                columns = pendingFirst == null ? Collections.emptyList() : new ArrayList<>(pendingFirst.keySet());
+            }
+            return columns;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            columns();
+            Map<String, String> obj;
+            if (pendingFirst != null) {
+                obj = pendingFirst;
+                pendingFirst = null;
+            } else {
+                obj = readObject();
+            }
+            if (obj == null) {
+                return null;
+            }
+            String[] values = new String[columns.size()];
+            for (Map.Entry<String, String> e : obj.entrySet()) {
+                int idx = columns.indexOf(e.getKey());
+                if (idx < 0) {
+                    throw new IOException("Object " + objects + ": key '" + e.getKey() + "' is not in the first object");
+                }
+                values[idx] = e.getValue();
+            }
+            return values;
+        }
+
+        /**
+         * @return The next object's keys and values (in key order), or null at the end of the input.
+         */
+        private Map<String, String> readObject() throws IOException {
+            if (done) {
+                return null;
+            }
+            int c = skipWhitespace();
+            if (!started) {
+                started = true;
+                if (c == '[') {
+                    inArray = true;
+                    c = skipWhitespace();
+                    if (c == ']') {
+                        done = true;
+                        return null;
+                    }
+                }
+            } else if (inArray) {
+                if (c == ']') {
+                    done = true;
+                    return null;
+                }
+                if (c != ',') {
+                    throw new IOException("Object " + objects + ": expected ',' or ']' but found " + describe(c));
+                }
+                c = skipWhitespace();
+            }
+            if (c == -1) {
+                if (inArray) {
+                    throw new IOException("Unexpected end of input inside JSON array");
+                }
+                done = true;
+                return null;
+            }
+            if (c != '{') {
+                throw new IOException("Object " + objects + ": expected '{' but found " + describe(c));
+            }
+            objects++;
+            Map<String, String> obj = new LinkedHashMap<>();
+            c = skipWhitespace();
+            if (c == '}') {
+                return obj;
+            }
+            while (true) {
+                if (c != '"') {
+                    throw new IOException("Object " + objects + ": expected a key but found " + describe(c));
+                }
+                String key = readString();
+                if (skipWhitespace() != ':') {
+                    throw new IOException("Object " + objects + ": expected ':' after key '" + key + "'");
+                }
+                obj.put(key, readValue());
+                c = skipWhitespace();
+                if (c == '}') {
+                    return obj;
+                }
+                if (c != ',') {
+                    throw new IOException("Object " + objects + ": expected ',' or '}' but found " + describe(c));
+                }
+                c = skipWhitespace();
+            }
+        }
+
+        private String readValue() throws IOException {
+            int c = skipWhitespace();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IOException("Object " + objects + ": nested objects and arrays are not supported");
+            }
+            token.setLength(0);
+            while (c != -1 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+                token.append((char) c);
+                c = read();
+            }
+            peeked = c; // The delimiter belongs to the caller
+            String literal = token.toString();
+            if (literal.isEmpty()) {
+                throw new IOException("Object " + objects + ": missing value");
+            }
+            return literal.equals("null") ? null : literal; // Numbers and true/false are passed as text
+        }
+
+        private String readString() throws IOException {
+            token.setLength(0);
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new IOException("Object " + objects + ": unterminated string");
+                }
+                if (c == '"') {
+                    return token.toString();
+                }
+                if (c == '\\') {
+                    int e = read();
+                    switch (e) {
+                        case 'n' -> token.append('\n');
+                        case 't' -> token.append('\t');
+                        case 'r' -> token.append('\r');
+                        case 'b' -> token.append('\b');
+                        case 'f' -> token.append('\f');
+                        case 'u' -> {
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) {
+                                int h = read();
+                                if (h == -1) {
+                                    throw new IOException("Object " + objects + ": bad \\u escape");
+                                }
+                                hex[i] = (char) h;
+                            }
+                            try {
+                                token.append((char) Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException ex) {
+                                throw new IOException("Object " + objects + ": bad \\u escape", ex);
+                            }
+                        }
+                        case -1 -> throw new IOException("Object " + objects + ": unterminated string");
+                        default -> token.append((char) e); // \" \\ \/
+                    }
+                } else {
+                    token.append((char) c);
+                }
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return in.read();
+        }
+
+        private static String describe(int c) {
+            return c == -1 ? "end of input" : "'" + (char) c + "'";
+        }
+    }
+}
@@ -0,0 +1,302 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An arithmetic expression parsed once into a flat postfix program and evaluated on a primitive stack.
+ *
+ * The grammar and results are those of the calculator's former shunting-yard evaluator: numbers, + - * / % ^ and parentheses,
+ * all operators left-associative, ^ binding tighter than * / %, which bind tighter than + -, and division by
+ * zero raising ArithmeticException. Names such as x or price_2 are variables; their values are passed to
+ * evaluate() in the order of variables().
+ *
+ * Evaluation allocates nothing: the stack is a double[] of the depth computed at compile time, taken from a
+ * per-thread scratch array or supplied by the caller. Compiled expressions are immutable and thread-safe;
+ * compile() caches them by source text.
+ */
+public final class CompiledExpression {
+
+    static final int CONST = 0, VAR = 1, ADD = 2, SUB = 3, MUL = 4, DIV = 5, MOD = 6, POW = 7;
+    static final int OP_BITS = 3; // Instruction = operand << OP_BITS | opcode
+    static final int OP_MASK = (1 << OP_BITS) - 1;
+    static final double[] NO_VALUES = {};
+
+    private static final int CACHE_SIZE = 1024;
+    private static final Map<String, CompiledExpression> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, CompiledExpression>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+    private static final ThreadLocal<double[]> SCRATCH = ThreadLocal.withInitial(() -> new double[16]);
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final List<String> variables;
+    private final int maxStack;
+
+    private CompiledExpression(String source, int[] code, double[] constants, List<String> variables, int maxStack) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.maxStack = maxStack;
+    }
+
+    /**
+     * Returns the compiled form of an expression, compiling it on first use.
+     * @throws RuntimeException As parse() does.
+     */
+    public static CompiledExpression compile(String source) {
+        CompiledExpression compiled = CACHE.get(source);
+        if (compiled == null) {
+            compiled = parse(source);
+            CACHE.put(source, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles an expression without consulting the cache.
+     * @throws RuntimeException "Invalid character: c" for a character that is not part of the grammar.
+     * @throws NumberFormatException For a malformed number such as 1.2.3.
+     * @throws IllegalArgumentException For unbalanced parentheses.
+     * @throws NoSuchElementException If an operator lacks an operand (e.g. "2 *"), like the former evaluator's stack underflow.
+     */
+    public static CompiledExpression parse(String expr) {
+        Builder out = new Builder();
+        char[] ops = new char[expr.length()];
+        int opCount = 0;
+        for (int i = 0; i < expr.length();) {
+            char c = expr.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || c == '.') {
+                int j = i;
+                while (j < expr.length() && (Character.isDigit(expr.charAt(j)) || expr.charAt(j) == '.')) j++;
+                out.constant(Double.parseDouble(expr.substring(i, j)));
+                i = j;
+            } else if (Character.isLetter(c) || c == '_') {
+                int j = i;
+                while (j < expr.length() && (Character.isLetterOrDigit(expr.charAt(j)) || expr.charAt(j) == '_')) j++;
+                out.variable(expr.substring(i, j));
+                i = j;
+            } else if (c == '(') {
+                ops[opCount++] = c;
+                i++;
+            } else if (c == ')') {
+                while (opCount > 0 && ops[opCount - 1] != '(') out.operator(ops[--opCount]);
+                if (opCount == 0) throw new IllegalArgumentException("Unmatched ')' at position " + i);
+                opCount--;
+                i++;
+            } else if ("+-*/%^".indexOf(c) >= 0) {
+                while (opCount > 0 && precedence(ops[opCount - 1]) >= precedence(c)) out.operator(ops[--opCount]);
+                ops[opCount++] = c;
+                i++;
+            } else {
+                throw new RuntimeException("Invalid character: " + c);
+            }
+        }
+        while (opCount > 0) {
+            char op = ops[--opCount];
+            if (op == '(') throw new IllegalArgumentException("Unmatched '(' in " + expr);
+            out.operator(op);
+        }
+        if (out.depth == 0) throw new NoSuchElementException("Empty expression");
+        return new CompiledExpression(expr, out.code(), out.constants(), Collections.unmodifiableList(out.variables), out.maxDepth);
+    }
+
+    private static int precedence(char op) {
+        return switch (op) {
+            case '+', '-' -> 1;
+            case '*', '/', '%' -> 2;
+            case '^' -> 3;
+            default -> -1;
+        };
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * @return The variable names in order of first appearance; evaluate() takes their values in this order.
+     */
+    public List<String> variables() {
+        return variables;
+    }
+
+    /**
+     * @return The stack depth evaluation needs (the minimum length of a caller-supplied stack).
+     */
+    public int stackSize() {
+        return maxStack;
+    }
+
+    /**
+     * Evaluates the expression using a per-thread scratch stack.
+     * @param values The variable values, in the order of variables().
+     */
+    public double evaluate(double... values) {
+        double[] stack = SCRATCH.get();
+        if (stack.length < maxStack) {
+            stack = new double[Math.max(maxStack, stack.length * 2)];
+            SCRATCH.set(stack);
+        }
+        return evaluate(values, stack);
+    }
+
+    /**
+     * Evaluates the expression on a caller-supplied stack of at least stackSize() elements.
+     * @throws ArithmeticException On division by zero.
+     * @throws IllegalArgumentException If fewer values than variables are given.
+     */
+    public double evaluate(double[] values, double[] stack) {
+        if (values.length < variables.size()) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " value(s) for " + variables + ", got " + values.length);
+        }
+        int sp = 0;
+        for (int instruction : code) {
+            int operand = instruction >>> OP_BITS;
+            switch (instruction & OP_MASK) {
+                case CONST -> stack[sp++] = constants[operand];
+                case VAR -> stack[sp++] = values[operand];
+                case ADD -> { sp--; stack[sp - 1] += stack[sp]; }
+                case SUB -> { sp--; stack[sp - 1] -= stack[sp]; }
+                case MUL -> { sp--; stack[sp - 1] *= stack[sp]; }
+                case DIV -> {
+                    sp--;
+                    if (stack[sp] == 0) throw new ArithmeticException("Division by zero");
+                    stack[sp - 1] /= stack[sp];
+                }
+                case MOD -> { sp--; stack[sp - 1] %= stack[sp]; }
+                case POW -> { sp--; stack[sp - 1] = Math.pow(stack[sp - 1], stack[sp]); }
+                default -> throw new IllegalStateException("Bad instruction " + instruction);
+            }
+        }
+        return stack[sp - 1]; // As before: with operands left over (e.g. "2 3") the last one wins
+    }
+
+    /**
+     * Evaluates the expression with variables looked up by name (allocates; for occasional use).
+     * @throws IllegalArgumentException If a variable has no value.
+     */
+    public double evaluate(Map<String, Double> values) {
+        double[] array = new double[variables.size()];
+        for (int i = 0; i < array.length; i++) {
+            Double v = values.get(variables.get(i));
+            if (v == null) throw new IllegalArgumentException("No value for variable " + variables.get(i));
+            array[i] = v;
+        }
+        return evaluate(array);
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    double[] constants() {
+        return constants;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Emits the postfix program, tracking the stack depth and folding operators on two constants.
+     */
+    private static final class Builder {
+        final List<String> variables = new ArrayList<>();
+        private int[] code = new int[16];
+        private int length;
+        private double[] constants = new double[8];
+        private int constantCount;
+        int depth;
+        int maxDepth;
+
+        void constant(double value) {
+            constants = ensure(constants, constantCount + 1);
+            constants[constantCount] = value;
+            emit(constantCount++ << OP_BITS | CONST);
+            push();
+        }
+
+        void variable(String name) {
+            int slot = variables.indexOf(name);
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(name);
+            }
+            emit(slot << OP_BITS | VAR);
+            push();
+        }
+
+        void operator(char op) {
+            if (depth < 2) throw new NoSuchElementException("Missing operand for '" + op + "'");
+            int opcode = switch (op) {
+                case '+' -> ADD;
+                case '-' -> SUB;
+                case '*' -> MUL;
+                case '/' -> DIV;
+                case '%' -> MOD;
+                case '^' -> POW;
+                default -> throw new RuntimeException("Unknown operator " + op);
+            };
+            depth--;
+            // Two constants on top: compute now, unless it is a division by zero (which must fail when evaluated)
+            if (length >= 2 && (code[length - 1] & OP_MASK) == CONST && (code[length - 2] & OP_MASK) == CONST) {
+                double a = constants[code[length - 2] >>> OP_BITS], b = constants[code[length - 1] >>> OP_BITS];
+                if (!(opcode == DIV && b == 0)) {
+                    constants[code[length - 2] >>> OP_BITS] = apply(opcode, a, b);
+                    length--; // The right operand's constant slot stays unused
+                    return;
+                }
+            }
+            emit(opcode);
+        }
+
+        private static double apply(int opcode, double a, double b) {
+            return switch (opcode) {
+                case ADD -> a + b;
+                case SUB -> a - b;
+                case MUL -> a * b;
+                case DIV -> a / b;
+                case MOD -> a % b;
+                default -> Math.pow(a, b);
+            };
+        }
+
+        private void emit(int instruction) {
+            code = ensure(code, length + 1);
+            code[length++] = instruction;
+        }
+
+        private void push() {
+            maxDepth = Math.max(maxDepth, ++depth);
+        }
+
+        int[] code() {
+            return Arrays.copyOf(code, length);
+        }
+
+        double[] constants() {
+            return Arrays.copyOf(constants, constantCount);
+        }
+
+        private static int[] ensure(int[] a, int n) {
+            return n <= a.length ? a : Arrays.copyOf(a, Math.max(n, a.length * 2));
+        }
+
+        private static double[] ensure(double[] a, int n) {
+            return n <= a.length ? a : Arrays.copyOf(a, Math.max(n, a.length * 2));
+        }
+    }
+}
@@ -0,0 +1,482 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, bounded JDBC connection pool.
+ *
+ * - At most maxSize connections exist at any time; callers wait (up to the acquire timeout) for a free one.
+ * - Connections idle for a while, or that have seen an error, are validated before being handed out, and
+ *   replaced if they are dead, so a dropped database connection is recovered on the next borrow instead of
+ *   requiring a restart. A connection error (SQLState class 08) from any call, including a statement's
+ *   execute or fetch, has the connection closed when it is returned.
+ * - Idle connections beyond the idle timeout are closed by a background housekeeper.
+ * - Connections held longer than the leak threshold are reported together with the stack trace of the borrower.
+ * - Acquire latency is measured for every borrow.
+ * - Each connection keeps its most recently used prepared statements open (see StatementCache), so
+ *   prepareStatement() for a statement that was prepared before skips the parse on driver and server.
+ * - Every statement is timed, and its rows counted, per statement shape (see QueryMetrics), together with
+ *   the time callers wait for a connection.
+ *
+ * Borrowed connections are proxies: calling close() returns the connection to the pool.
+ * Works with any JDBC URL, e.g. an embedded in-memory database for tests.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final long VALIDATION_BYPASS_MILLIS = 500; // Connections used without error more recently than this are not re-validated
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 30_000;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32; // Per connection; well below Oracle's default OPEN_CURSORS (300)
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits; // One permit per connection that may exist
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // Most recently returned first (guarded by this)
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+    private final QueryMetrics metrics = new QueryMetrics();
+
+    /**
+     * Creates a pool with default timeouts: 30s to acquire, 10 minutes idle, 5 minutes leak threshold.
+     * @param url The JDBC URL.
+     * @param user The database user.
+     * @param password The database password.
+     * @param maxSize The maximum number of connections.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, 30_000, 10 * 60_000, 5 * 60_000);
+    }
+
+    /**
+     * Creates a pool with the default statement cache size. No connection is opened until the first borrow.
+     * @param url The JDBC URL.
+     * @param user The database user.
+     * @param password The database password.
+     * @param maxSize The maximum number of connections.
+     * @param acquireTimeoutMillis How long getConnection() waits for a free connection.
+     * @param idleTimeoutMillis How long an unused connection is kept open.
+     * @param leakThresholdMillis How long a connection may be held before it is reported as a possible leak.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+        this(url, user, password, maxSize, acquireTimeoutMillis, idleTimeoutMillis, leakThresholdMillis,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a pool. No connection is opened until the first borrow.
+     * @param url The JDBC URL.
+     * @param user The database user.
+     * @param password The database password.
+     * @param maxSize The maximum number of connections.
+     * @param acquireTimeoutMillis How long getConnection() waits for a free connection.
+     * @param idleTimeoutMillis How long an unused connection is kept open.
+     * @param leakThresholdMillis How long a connection may be held before it is reported as a possible leak.
+     * @param statementCacheSize Prepared statements kept open per connection; 0 disables statement caching.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to become free if the pool is exhausted.
+     * Close the returned connection to give it back.
+     * @return A connection from the pool.
+     * @throws SQLException If no connection became free in time or a new one cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection ("
+                        + borrowed.size() + " of " + maxSize + " in use)");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+
+        PooledConnection pc;
+        try {
+            pc = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release(); // The slot was not used
+            throw ex;
+        }
+        recordAcquire(System.nanoTime() - start);
+        pc.borrowedAt = System.currentTimeMillis();
+        pc.borrower = new Throwable("Connection borrowed here");
+        pc.leakReported = false;
+        borrowed.add(pc);
+        return pc.newHandle();
+    }
+
+    /**
+     * @return Connections currently borrowed.
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return Open connections waiting in the pool.
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return Total successful borrows.
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * @return Mean time spent in getConnection(), in milliseconds.
+     */
+    public double getAverageAcquireMillis() {
+        long n = borrowCount.get();
+        return n == 0 ? 0 : totalAcquireNanos.get() / (n * 1_000_000.0);
+    }
+
+    /**
+     * @return Longest time spent in getConnection(), in milliseconds.
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return Borrows that gave up waiting for a free connection.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return Connections held longer than the leak threshold.
+     */
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    /**
+     * @return prepareStatement() calls served from a connection's statement cache.
+     */
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+
+    /**
+     * @return prepareStatement() calls that had to prepare a new statement.
+     */
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+
+    /**
+     * @return Fraction of prepareStatement() calls served from the cache (0 if there were none).
+     */
+    public double getStatementCacheHitRatio() {
+        long hits = statementHits.get();
+        long total = hits + statementMisses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return Latency, row and pool wait metrics of the statements run through this pool.
+     */
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d max=%d borrows=%d created=%d acquire(avg=%.2fms max=%.2fms) timeouts=%d invalid=%d leaks=%d"
+                        + " statements(hits=%d misses=%d evictions=%d hitRatio=%.2f)",
+                getActiveCount(), getIdleCount(), maxSize, borrowCount.get(), createdCount.get(),
+                getAverageAcquireMillis(), getMaxAcquireMillis(), timeoutCount.get(), validationFailures.get(), leakCount.get(),
+                statementHits.get(), statementMisses.get(), statementEvictions.get(), getStatementCacheHitRatio());
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (this) {
+            for (PooledConnection pc : idle) {
+                closeQuietly(pc.physical);
+            }
+            idle.clear();
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection (validating it if it has been idle for a while),
+     * or opens a new one if none is usable. The caller holds a permit.
+     */
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        while (true) {
+            PooledConnection pc;
+            synchronized (this) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) {
+                break;
+            }
+            // A connection that has seen an error is validated however recently it was used
+            boolean recentlyFine = !pc.sawError && System.currentTimeMillis() - pc.lastUsed < VALIDATION_BYPASS_MILLIS;
+            if (recentlyFine || isUsable(pc.physical)) {
+                pc.sawError = false;
+                return pc;
+            }
+            validationFailures.incrementAndGet(); // e.g. the server dropped it; replace it transparently
+            closeQuietly(pc.physical);
+        }
+        Connection physical = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Gives a connection back. Broken connections are discarded so the next borrow opens a fresh one.
+     */
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        boolean reusable = !closed && !pc.broken;
+        if (reusable) {
+            try {
+                if (pc.physical.isClosed()) {
+                    reusable = false;
+                } else if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback(); // Never hand uncommitted work to the next borrower
+                    pc.physical.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                reusable = false;
+            }
+        }
+        if (reusable) {
+            pc.lastUsed = System.currentTimeMillis();
+            synchronized (this) {
+                idle.addFirst(pc);
+            }
+        } else {
+            closeQuietly(pc.physical);
+        }
+        permits.release();
+    }
+
+    /**
+     * Periodic maintenance: evicts connections idle past the idle timeout and reports possible leaks.
+     * Package-private so the tests can run it without waiting for the schedule.
+     */
+    void housekeep() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastUsed > idleTimeoutMillis) {
+                    it.remove();
+                    closeQuietly(pc.physical);
+                }
+            }
+        }
+        for (PooledConnection pc : borrowed) {
+            if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis) {
+                pc.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for " + (now - pc.borrowedAt) + " ms");
+                pc.borrower.printStackTrace();
+            }
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        borrowCount.incrementAndGet();
+        totalAcquireNanos.addAndGet(nanos);
+        maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+        metrics.recordPoolWait(nanos);
+    }
+
+    private static boolean isUsable(Connection c) {
+        try {
+            return c.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException ex) {
+            System.err.println("Error closing pooled connection: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection plus its bookkeeping.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrower;
+        volatile boolean leakReported;
+        volatile boolean broken;
+        volatile boolean sawError; // Some call failed since the connection was last validated
+        final StatementCache statements; // Null if statement caching is disabled
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementHits, statementMisses, statementEvictions,
+                            this::checkBroken)
+                    : null;
+        }
+
+        /**
+         * Called with every SQLException thrown by the connection, its statements and their result sets.
+         * Marks the connection for disposal if the error means it is unusable, and for validation otherwise.
+         */
+        void checkBroken(SQLException ex) {
+            sawError = true;
+            if (isConnectionError(ex)) {
+                broken = true; // Discard instead of reusing when it is returned
+            }
+        }
+
+        /**
+         * Creates the proxy handed to the borrower. Each borrow gets its own handle,
+         * so a stale handle cannot use the connection after it has been returned.
+         */
+        Connection newHandle() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean returned;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            synchronized (this) {
+                                if (!returned) {
+                                    returned = true;
+                                    release(PooledConnection.this);
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            return returned || physical.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled[" + physical + "]";
+                        default:
+                            if (returned) {
+                                throw new SQLException("Connection has already been returned to the pool");
+                            }
+                    }
+                    try {
+                        Object result;
+                        if (statements != null && method.getName().equals("prepareStatement") && args.length == 1) {
+                            result = statements.prepare((String) args[0]); // Plain prepareStatement(sql) is cached
+                        } else {
+                            result = method.invoke(physical, args);
+                        }
+                        if (result instanceof Statement) {
+                            // createStatement() has no SQL yet; prepareStatement/prepareCall take it first
+                            String sql = method.getName().equals("createStatement") ? null : (String) args[0];
+                            return metrics.instrument((Statement) result, method.getReturnType().asSubclass(Statement.class), sql,
+                                    PooledConnection.this::checkBroken);
+                        }
+                        return result;
+                    } catch (SQLException ex) {
+                        checkBroken(ex);
+                        throw ex;
+                    } catch (InvocationTargetException ex) {
+                        Throwable cause = ex.getCause();
+                        if (cause instanceof SQLException) {
+                            checkBroken((SQLException) cause);
+                        }
+                        throw cause;
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        }
+    }
+
+    /**
+     * @return true if the error means the connection itself is unusable (SQLState class 08).
+     */
+    private static boolean isConnectionError(SQLException ex) {
+        String state = ex.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
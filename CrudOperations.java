@@ -1,24 +1,43 @@
+import com.sun.net.httpserver.HttpServer;
 import javafx.application.Application;
-import javafx.beans.property.BooleanProperty;
-import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Worker;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
+import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.converter.DefaultStringConverter;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CrudOperations extends Application {
 
@@ -27,50 +46,133 @@ public class CrudOperations extends Application {
     private static final String DB_USER = "system"; // Replace with your Oracle DB username
     private static final String DB_PASS = "rupa"; // Replace with your Oracle DB password
 
-    private Connection conn; // Database connection object
+    private static final int POOL_SIZE = 4; // Maximum number of concurrent database connections
+
+    // Set (e.g. -Dcrud.metrics.port=9464) to serve the query metrics at http://localhost:<port>/metrics
+    private static final String METRICS_PORT_PROPERTY = "crud.metrics.port";
+
+    private static final long SCHEMA_CACHE_TTL_MILLIS = 5 * 60_000; // How long table/column lookups are reused
+    private static final int SCHEMA_CACHE_MAX_TABLES = 500; // Table descriptions kept in the schema cache
+    private static final int RESULT_CACHE_MAX_ENTRIES = 16; // Loaded results kept for going back to a table
+    private static final long RESULT_CACHE_TTL_MILLIS = 60_000; // Bounds how long changes no table stamp shows go unseen
+
+    // Heap (in MB) the Delete screen's loaded rows may take before the rest spill to disk; default a quarter of -Xmx
+    private static final String LOAD_HEAP_BUDGET_PROPERTY = "crud.load.heapBudgetMb";
+
+    private ConnectionPool pool; // Database connections; each operation borrows one and closes it to give it back
+    private SchemaCache schemaCache; // Cached table names, columns and key constraints
+    private ParallelScanner scanner; // Splits full-table reads into ranges read over several pooled connections
+    private ResultCache resultCache; // Loaded rows of recently shown tables, shared by the Select, Update and Delete screens
+    private ObjectName metricsMBean; // The pool's query metrics as registered with JMX
+    private HttpServer metricsServer; // Plain-text metrics endpoint, if enabled
+
+    // All JDBC work runs on these background threads so a slow query never blocks the JavaFX Application Thread.
+    // One thread per pooled connection, so independent operations run in parallel.
+    private final AtomicInteger dbThreadCount = new AtomicInteger();
+    private final ExecutorService dbExecutor = Executors.newFixedThreadPool(POOL_SIZE, r -> {
+        Thread t = new Thread(r, "db-worker-" + dbThreadCount.incrementAndGet());
+        t.setDaemon(true); // Do not keep the JVM alive after the window is closed
+        return t;
+    });
+    private static final int LOAD_BATCH_SIZE = 500; // Rows handed to the TableView at a time while loading
+    private static final int DELETE_BATCH_SIZE = 1000; // Keys bound per JDBC batch when deleting rows
+    private static final int LOAD_PARALLELISM = POOL_SIZE - 1; // Ranges read at once; one connection stays free
+    private DbTask<?> activeLoad; // The table load currently running, cancelled when the user navigates away
+    private int tableSelections; // Counts selectTable calls, so only the latest one's columns are applied
+    private final Label statusLabel = new Label(); // Shows the table load in progress
+    private final Button cancelLoadBtn = new Button("Cancel"); // Cancels the table load in progress
 
     private TreeView<String> treeView; // Left navigation for operations
     private VBox mainPane; // Right pane to display operation-specific UI
     private TableView<RowData> tableView = new TableView<>(); // Table to display database data
+    private RowSelection rowSelection; // Checked rows of the Delete screen
     private ObservableList<RowData> tableData = FXCollections.observableArrayList(); // Data source for the TableView
+    private SpilledRowList loadedRows; // All rows of the Delete screen's table, spilled to disk past the heap budget
 
     private List<String> currentColumns = null; // Stores column names of the currently displayed table
     private String currentTable = null; // Stores the name of the currently selected table
 
     /**
      * Inner class to represent a row of data in the TableView.
-     * Each row has a 'selected' property for checkbox state and an ObservableList of StringProperty
-     * for its actual column data.
+     * Rows are views into a flat String[] shared by a whole page (or load batch) of rows:
+     * row r of a page with w columns occupies cells [r * w, r * w + w). No per-cell objects are kept;
+     * the TableView gets a short-lived property for the cells it actually displays (see cellValue).
+     * Checkbox selection is kept outside the rows (see RowSelection).
      */
     public static class RowData {
-        private final BooleanProperty selected = new SimpleBooleanProperty(false);
-        private final ObservableList<StringProperty> data;
-
+        private final String[] cells; // Backing array, possibly shared with other rows of the same page
+        private final int offset; // Index of this row's first cell in 'cells'
+        private final int width; // Number of columns
+        private final String rowId; // The row's ROWID as text, or null if it was not read
+
+        /**
+         * Creates a row backed by its own array.
+         * @param data The column values.
+         */
         public RowData(List<String> data) {
-            this.data = FXCollections.observableArrayList();
-            for (String d : data) {
-                this.data.add(new SimpleStringProperty(d));
-            }
+            this(data.toArray(new String[0]), 0, data.size());
+        }
+
+        /**
+         * Creates a row that views part of a shared array.
+         * @param cells The backing array.
+         * @param offset The index of the row's first cell.
+         * @param width The number of columns.
+         */
+        public RowData(String[] cells, int offset, int width) {
+            this(cells, offset, width, null);
+        }
+
+        /**
+         * Creates a row that views part of a shared array and remembers where the row is stored.
+         * @param cells The backing array.
+         * @param offset The index of the row's first cell.
+         * @param width The number of columns.
+         * @param rowId The row's ROWID as text (used to identify rows of tables without a key).
+         */
+        public RowData(String[] cells, int offset, int width, String rowId) {
+            this.cells = cells;
+            this.offset = offset;
+            this.width = width;
+            this.rowId = rowId;
+        }
+
+        /**
+         * Creates a row that views the same cells (and ROWID) as another row.
+         * @param row The row to share.
+         */
+        protected RowData(RowData row) {
+            this(row.cells, row.offset, row.width, row.rowId);
         }
 
-        // Getter for the selected BooleanProperty
-        public BooleanProperty selectedProperty() {
-            return selected;
+        // Getter for the value of one column
+        public String get(int column) {
+            return cells[offset + column];
         }
 
-        // Getter for the current selected state
-        public boolean isSelected() {
-            return selected.get();
+        // Setter for the value of one column (used to apply saved edits in place)
+        public void set(int column, String value) {
+            cells[offset + column] = value;
         }
 
-        // Setter for the selected state
-        public void setSelected(boolean val) {
-            selected.set(val);
+        // Number of column values in the row
+        public int size() {
+            return width;
         }
 
-        // Getter for the observable list of StringProperty data (column values)
-        public ObservableList<StringProperty> getData() {
-            return data;
+        // Getter for the row's ROWID (null if the row was read without it)
+        public String getRowId() {
+            return rowId;
+        }
+
+        /**
+         * Cell value factory helper: wraps one column value in a property for display.
+         * The property is not retained, so only the cells the TableView currently renders exist as objects.
+         * @param column The column index.
+         * @return A read-only property holding the value.
+         */
+        public ObservableValue<String> cellValue(int column) {
+            return new ReadOnlyStringWrapper(get(column));
         }
     }
 
@@ -82,13 +184,22 @@ public class CrudOperations extends Application {
             return; // Exit if connection fails
         }
 
+        // Load the schema dictionary in the background so the first screens do not wait for it
+        dbExecutor.execute(() -> {
+            try {
+                schemaCache.warm();
+            } catch (SQLException ex) {
+                System.err.println("Schema cache warm-up failed: " + ex.getMessage()); // Lookups will load on demand
+            }
+        });
+
         // Initialize TreeView for database operations
         treeView = new TreeView<>();
         TreeItem<String> root = new TreeItem<>("Operations");
         root.setExpanded(true); // Root node is expanded by default
 
         // Define the CRUD operations as TreeView items
-        String[] ops = {"Create", "Insert", "Update", "Delete", "Drop", "Truncate", "Select"};
+        String[] ops = {"Create", "Insert", "Update", "Delete", "Drop", "Truncate", "Select", "Metrics"};
         for (String op : ops) {
             root.getChildren().add(new TreeItem<>(op));
         }
@@ -125,6 +236,9 @@ public class CrudOperations extends Application {
                         case "Select":
                             setTextFill(Color.DARKCYAN);
                             break;
+                        case "Metrics":
+                            setTextFill(Color.DIMGRAY);
+                            break;
                         default:
                             setTextFill(Color.BLACK); // Default color
                     }
@@ -144,14 +258,23 @@ public class CrudOperations extends Application {
         rootLayout.setSpacing(10); // Spacing between TreeView and mainPane
         rootLayout.setPadding(new Insets(10)); // Padding around the entire root layout
 
+        // Status bar showing the running table load, with a button to cancel it
+        cancelLoadBtn.setDisable(true);
+        cancelLoadBtn.setOnAction(e -> cancelActiveLoad());
+        HBox statusBar = new HBox(10, cancelLoadBtn, statusLabel);
+        statusBar.setPadding(new Insets(0, 10, 10, 10));
+
         // Create the scene and set it on the primary stage
-        Scene scene = new Scene(rootLayout, 1000, 650); // Initial window size
+        Scene scene = new Scene(new BorderPane(rootLayout, null, null, statusBar, null), 1000, 650); // Initial window size
         primaryStage.setScene(scene);
         primaryStage.setTitle("Oracle DB CRUD Operations with JavaFX");
         primaryStage.show(); // Display the window
 
         // Make the TableView editable (though actual editing is handled by dialogs/checkboxes)
         tableView.setEditable(true);
+        // Spilled rows are sorted off the heap in the background; other lists as usual
+        tableView.setSortPolicy(tv -> tv.getItems() instanceof SpilledRowList
+                ? sortLoadedRows((SpilledRowList) tv.getItems()) : TableView.DEFAULT_SORT_POLICY.call(tv));
 
         // Add a listener to the TreeView's selected item property
         treeView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
@@ -160,12 +283,18 @@ public class CrudOperations extends Application {
             }
 
             // Clear the main pane and reset table data/columns for the new operation
+            cancelActiveLoad(); // Results of the previous screen's load are no longer wanted
             mainPane.getChildren().clear();
             currentColumns = null;
             currentTable = null;
+            if (rowSelection != null) {
+                rowSelection.detach(); // Only the Delete screen selects rows
+                rowSelection = null;
+            }
             tableView.getColumns().clear();
-            tableView.getItems().clear();
             tableData.clear();
+            tableView.setItems(tableData); // Also releases any paged view (it is read-only and cannot be cleared)
+            releaseLoadedRows();
 
             // Display the appropriate UI based on the selected operation
             switch (newVal.getValue()) {
@@ -190,6 +319,9 @@ public class CrudOperations extends Application {
                 case "Select":
                     showSelectUI();
                     break;
+                case "Metrics":
+                    showMetricsUI();
+                    break;
                 default:
                     mainPane.getChildren().add(new Label("Select an operation from the left."));
             }
@@ -198,28 +330,49 @@ public class CrudOperations extends Application {
 
     @Override
     public void stop() {
-        // Ensure the database connection is closed when the application shuts down
-        try {
-            if (conn != null && !conn.isClosed()) {
-                conn.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Error closing database connection: " + ex.getMessage());
+        cancelActiveLoad();
+        dbExecutor.shutdownNow(); // Stop accepting work; queued tasks are discarded
+        if (metricsServer != null) {
+            metricsServer.stop(0);
+        }
+        if (metricsMBean != null) {
+            QueryMetrics.unregister(metricsMBean);
+        }
+        releaseLoadedRows(); // Deletes the spill files
+        if (resultCache != null) {
+            System.out.println("Result cache at shutdown: " + resultCache);
+            resultCache.invalidateAll(); // Deletes the spill files of cached results
+        }
+        // Ensure the database connections are closed when the application shuts down
+        if (pool != null) {
+            System.out.println("Connection pool at shutdown: " + pool);
+            pool.close();
+            System.out.println("Database connections closed.");
         }
     }
 
     /**
-     * Establishes a connection to the Oracle database.
+     * Creates the connection pool for the Oracle database and verifies that a connection can be opened.
      * @return true if connection is successful, false otherwise.
      */
     private boolean connectDB() {
         try {
             // Load the Oracle JDBC driver
             Class.forName("oracle.jdbc.driver.OracleDriver");
-            // Establish the connection
-            conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-            System.out.println("Connected to Oracle DB successfully.");
+            // Create the pool and open the first connection to fail fast on bad credentials
+            pool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+            schemaCache = new SchemaCache(pool, SCHEMA_CACHE_TTL_MILLIS, SCHEMA_CACHE_MAX_TABLES);
+            scanner = new ParallelScanner(pool, schemaCache);
+            // Dropped results are closed unless still displayed; releaseLoadedRows closes those once they are not
+            resultCache = new ResultCache(pool, schemaCache, RESULT_CACHE_MAX_ENTRIES, loadHeapBudget(), RESULT_CACHE_TTL_MILLIS, rows -> {
+                if (rows instanceof SpilledRowList && rows != loadedRows) {
+                    ((SpilledRowList) rows).close();
+                }
+            });
+            try (Connection conn = pool.getConnection()) {
+                System.out.println("Connected to Oracle DB successfully: " + conn.getMetaData().getDatabaseProductVersion());
+            }
+            exposeMetrics();
             return true;
         } catch (ClassNotFoundException ex) {
             System.err.println("Oracle JDBC Driver not found. Make sure ojdbcX.jar is in your classpath.");
@@ -228,10 +381,33 @@ public class CrudOperations extends Application {
         } catch (SQLException ex) {
             System.err.println("SQL Exception during DB connection: " + ex.getMessage());
             ex.printStackTrace();
+            pool.close();
+            pool = null;
             return false;
         }
     }
 
+    /**
+     * Publishes the pool's query metrics over JMX and, if METRICS_PORT_PROPERTY is set, over HTTP.
+     * Failures are logged only: the application works without them.
+     */
+    private void exposeMetrics() {
+        try {
+            metricsMBean = pool.getMetrics().register("CrudOperations");
+        } catch (JMException ex) {
+            System.err.println("Could not register query metrics with JMX: " + ex.getMessage());
+        }
+        Integer port = Integer.getInteger(METRICS_PORT_PROPERTY);
+        if (port != null) {
+            try {
+                metricsServer = QueryMetrics.serve(port, () -> pool.getMetrics().report() + "Pool: " + pool + "\n");
+                System.out.println("Query metrics at http://localhost:" + port + "/metrics");
+            } catch (IOException ex) {
+                System.err.println("Could not start the metrics endpoint on port " + port + ": " + ex.getMessage());
+            }
+        }
+    }
+
     /**
      * Displays an alert dialog with a specified type, title, and message.
      * @param type The type of alert (e.g., INFORMATION, ERROR, CONFIRMATION).
@@ -247,42 +423,121 @@ public class CrudOperations extends Application {
     }
 
     /**
-     * Loads table names from the current user's schema in the database into a ComboBox.
+     * Runs database work on the background executor and hands its result to the FX thread.
+     * If the work fails, an error alert is shown instead.
+     * @param work The JDBC work to run off the FX thread.
+     * @param onSuccess Receives the result on the FX thread.
+     * @param errorTitle The title of the alert shown on failure.
+     * @param errorMessage The start of the alert message; the exception message is appended.
+     * @return The submitted task, which can be cancelled.
+     */
+    private <T> DbTask<T> runAsync(DbTask.Work<T> work, Consumer<T> onSuccess, String errorTitle, String errorMessage) {
+        DbTask<T> task = new DbTask<>(work);
+        task.setOnSucceeded(e -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(e -> showAlert(Alert.AlertType.ERROR, errorTitle, errorMessage + task.getException().getMessage()));
+        dbExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Runs a table load in the background like runAsync, but also shows it in the status bar
+     * where it can be cancelled. Any load that is still running is cancelled first.
+     * @param description The status bar text while the load runs.
+     * @param work The JDBC work to run off the FX thread.
+     * @param onSuccess Receives the result on the FX thread.
+     * @param errorTitle The title of the alert shown on failure.
+     * @param errorMessage The start of the alert message; the exception message is appended.
+     */
+    private <T> void runLoad(String description, DbTask.Work<T> work, Consumer<T> onSuccess, String errorTitle, String errorMessage) {
+        cancelActiveLoad();
+        DbTask<T> task = runAsync(work, onSuccess, errorTitle, errorMessage);
+        activeLoad = task;
+        statusLabel.setText(description);
+        cancelLoadBtn.setDisable(false);
+        task.stateProperty().addListener((obs, oldState, newState) -> {
+            boolean finished = newState == Worker.State.SUCCEEDED || newState == Worker.State.FAILED
+                    || newState == Worker.State.CANCELLED;
+            if (finished && activeLoad == task) {
+                activeLoad = null;
+                statusLabel.setText(newState == Worker.State.CANCELLED ? "Load cancelled." : "");
+                cancelLoadBtn.setDisable(true);
+            }
+        });
+    }
+
+    /**
+     * Cancels the table load in progress, if any, including the statement it is executing.
+     */
+    private void cancelActiveLoad() {
+        if (activeLoad != null) {
+            activeLoad.cancel();
+        }
+    }
+
+    /**
+     * Closes the Delete screen's rows, deleting their spill files, unless they are kept in the result cache.
+     * Call it once they are no longer displayed.
+     */
+    private void releaseLoadedRows() {
+        if (loadedRows != null) {
+            if (!resultCache.contains(loadedRows)) {
+                loadedRows.close();
+            }
+            loadedRows = null;
+        }
+    }
+
+    /**
+     * @return The heap budget for loaded rows in bytes: -Dcrud.load.heapBudgetMb, or a quarter of the maximum heap.
+     */
+    private static long loadHeapBudget() {
+        Long mb = Long.getLong(LOAD_HEAP_BUDGET_PROPERTY);
+        return mb != null ? mb << 20 : Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    /**
+     * Loads table names from the current user's schema into a ComboBox.
+     * Names come from the schema cache; on a miss the query runs in the background and the ComboBox is filled when it completes.
      * @param comboBox The ComboBox UI component to populate with table names.
      */
     private void loadTablesInto(ComboBox<String> comboBox) {
         comboBox.getItems().clear(); // Clear any existing items
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery("SELECT table_name FROM user_tables ORDER BY table_name")) {
-            while (rs.next()) {
-                comboBox.getItems().add(rs.getString("table_name")); // Add each table name
-            }
-        } catch (SQLException ex) {
-            showAlert(Alert.AlertType.ERROR, "Error Loading Tables", "Failed to load tables from the database: " + ex.getMessage());
-        }
+        runAsync(task -> schemaCache.tableNames(), (List<String> names) -> comboBox.getItems().setAll(names), "Error Loading Tables", "Failed to load tables from the database: ");
     }
 
     /**
-     * Retrieves column names for a given table from the database schema.
+     * Retrieves column names (in column_id order) for a given table from the schema cache.
+     * May perform JDBC calls on a cache miss, so it must be called from a background task.
      * @param table The name of the table to get columns for.
-     * @return A List of column names (String), or null if an error occurs.
+     * @return A List of column names (String).
+     * @throws SQLException If the columns cannot be read.
      */
-    private List<String> getColumnsForTable(String table) {
-        List<String> colList = new ArrayList<>();
-        // Query to get column names and their order for a specific table
-        String sql = "SELECT column_name FROM user_tab_columns WHERE table_name = ? ORDER BY column_id";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, table.toUpperCase()); // Oracle table names are typically uppercase
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    colList.add(rs.getString("column_name"));
-                }
+    private List<String> getColumnsForTable(String table) throws SQLException {
+        return schemaCache.table(table).columnNames(); // Oracle table names are typically uppercase; the cache upper-cases
+    }
+
+    /**
+     * Reads the columns of a table in the background and, once they are known, makes it the
+     * current table and runs the given action on the FX thread. If another table is selected before the columns
+     * arrive (lookups can finish in any order), they are ignored.
+     * @param table The table the user selected.
+     * @param failureHint Appended to the warning shown when the table has no columns.
+     * @param onReady Runs after currentTable and currentColumns have been set.
+     */
+    private void selectTable(String table, String failureHint, Runnable onReady) {
+        int selection = ++tableSelections;
+        runAsync(task -> getColumnsForTable(table), (List<String> cols) -> {
+            if (selection != tableSelections) {
+                return; // A later selection replaces this one
             }
-        } catch (SQLException ex) {
-            showAlert(Alert.AlertType.ERROR, "Error Getting Columns", "Failed to retrieve columns for table '" + table + "': " + ex.getMessage());
-            return null; // Return null to indicate failure
-        }
-        return colList;
+            if (cols.isEmpty()) {
+                showAlert(Alert.AlertType.WARNING, "No Columns Found", "Failed to retrieve columns for table '" + table + "'. " + failureHint);
+                return;
+            }
+            currentTable = table;
+            currentColumns = cols;
+            onReady.run();
+        }, "Error Getting Columns", "Failed to retrieve columns for table '" + table + "': ");
     }
 
     /**
@@ -313,15 +568,19 @@ public class CrudOperations extends Application {
             // Construct the CREATE TABLE SQL statement
             // Replace newlines with commas to form column definitions
             String sql = "CREATE TABLE " + tname + " (" + cols.replace("\n", ",") + ")";
-            System.out.println("Executing SQL: " + sql); // Debugging: print the SQL
-            try (Statement st = conn.createStatement()) {
-                st.execute(sql); // Execute the DDL (Data Definition Language) statement
+            QueryMetrics.debug(() -> "Executing SQL: " + sql);
+            runAsync(task -> {
+                try (Connection conn = pool.getConnection();
+                     Statement st = task.track(conn.createStatement())) {
+                    st.execute(sql); // Execute the DDL (Data Definition Language) statement
+                }
+                schemaCache.invalidate(tname); // The table list (and any stale description) changed
+                return null;
+            }, ignored -> {
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Table '" + tname + "' created successfully.");
                 tblNameField.clear(); // Clear input fields
                 columnsArea.clear();
-            } catch (SQLException ex) {
-                showAlert(Alert.AlertType.ERROR, "Creation Failed", "Failed to create table: " + ex.getMessage());
-            }
+            }, "Creation Failed", "Failed to create table: ");
         });
 
         // Arrange components in a VBox
@@ -346,28 +605,34 @@ public class CrudOperations extends Application {
         Button btnInsert = new Button("Insert");
         btnInsert.setDisable(true); // Disable insert button until a table is selected
 
+        // Bulk import controls: stream a CSV/JSON file into the table in JDBC batches
+        TextField batchSizeField = new TextField(String.valueOf(BulkImporter.DEFAULT_BATCH_SIZE));
+        batchSizeField.setPrefColumnCount(6);
+        Button btnImport = new Button("Import File...");
+        btnImport.setDisable(true); // Disable import button until a table is selected
+        Button btnCancelImport = new Button("Cancel Import");
+        btnCancelImport.setDisable(true); // Enabled while an import runs
+        Label importStatus = new Label(); // Shows rows imported and rows/sec while the import runs
+
         // Listener for table selection in the ComboBox
         cbTables.setOnAction(e -> {
             String selected = cbTables.getSelectionModel().getSelectedItem();
             inputsBox.getChildren().clear(); // Clear old input fields
             btnInsert.setDisable(true); // Disable button until new fields are ready
+            btnImport.setDisable(true);
 
             if (selected != null) {
-                currentTable = selected;
-                currentColumns = getColumnsForTable(selected); // Get columns for the selected table
-
-                if (currentColumns == null || currentColumns.isEmpty()) {
-                    showAlert(Alert.AlertType.WARNING, "No Columns Found", "Failed to retrieve columns for table '" + selected + "'. It might be empty or an error occurred.");
-                    return;
-                }
-
-                // Create a TextField for each column
-                for (String col : currentColumns) {
-                    TextField tf = new TextField();
-                    tf.setPromptText(col + " (Value)"); // Prompt text showing column name
-                    inputsBox.getChildren().add(tf);
-                }
-                btnInsert.setDisable(false); // Enable insert button
+                // Get columns for the selected table, then build the input fields
+                selectTable(selected, "It might be empty or an error occurred.", () -> {
+                    // Create a TextField for each column
+                    for (String col : currentColumns) {
+                        TextField tf = new TextField();
+                        tf.setPromptText(col + " (Value)"); // Prompt text showing column name
+                        inputsBox.getChildren().add(tf);
+                    }
+                    btnInsert.setDisable(false); // Enable insert button
+                    btnImport.setDisable(!btnCancelImport.isDisabled()); // Unless an import is still running
+                });
             }
         });
 
@@ -387,20 +652,16 @@ public class CrudOperations extends Application {
                 }
             }
 
-            // Construct the INSERT SQL statement with placeholders (?)
-            String placeholders = String.join(",", Collections.nCopies(values.size(), "?"));
-            String sql = "INSERT INTO " + currentTable + " (" + String.join(",", currentColumns) + ") VALUES (" + placeholders + ")";
-            System.out.println("Executing SQL: " + sql + " with values: " + values); // Debugging
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                // Set each value as a parameter in the prepared statement
-                for (int i = 0; i < values.size(); i++) {
-                    ps.setString(i + 1, values.get(i)); // JDBC parameters are 1-indexed
+            String table = currentTable; // Captured for the worker and the success message
+            List<String> columns = currentColumns;
+            runAsync(task -> {
+                try (Connection conn = pool.getConnection()) {
+                    return TableOperations.insertRow(conn, table, columns, values, task);
                 }
-                int inserted = ps.executeUpdate(); // Execute the insert statement
-
+            }, (Integer inserted) -> {
+                resultCache.invalidateTable(table); // Cached results of the table are missing the row
                 if (inserted > 0) {
-                    showAlert(Alert.AlertType.INFORMATION, "Success", "Row inserted successfully into '" + currentTable + "'.");
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Row inserted successfully into '" + table + "'.");
                     // Optionally clear the input fields for a new insert
                     inputsBox.getChildren().forEach(node -> {
                         if (node instanceof TextField) {
@@ -410,14 +671,62 @@ public class CrudOperations extends Application {
                 } else {
                     showAlert(Alert.AlertType.WARNING, "No Row Inserted", "Insert operation completed, but no rows were affected. Check your inputs.");
                 }
-            } catch (SQLException ex) {
-                showAlert(Alert.AlertType.ERROR, "Insert Failed", "Error inserting row: " + ex.getMessage());
+            }, "Insert Failed", "Error inserting row: ");
+        });
+
+        // Action for the Import button: pick a file and import it in the background
+        btnImport.setOnAction(e -> {
+            if (currentTable == null || currentColumns == null) {
+                showAlert(Alert.AlertType.WARNING, "Selection Required", "Please select a table first.");
+                return;
+            }
+            int batchSize;
+            try {
+                batchSize = Integer.parseInt(batchSizeField.getText().trim());
+                if (batchSize < 1) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.WARNING, "Input Error", "Batch size must be a positive whole number.");
+                return;
             }
+
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import into " + currentTable);
+            chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV or JSON files", "*.csv", "*.txt", "*.json", "*.jsonl", "*.ndjson"));
+            File file = chooser.showOpenDialog(mainPane.getScene().getWindow());
+            if (file == null) return; // User cancelled the file dialog
+
+            String table = currentTable; // Captured for the worker and the success message
+            List<String> columns = currentColumns;
+            BulkImporter importer = new BulkImporter(pool, batchSize);
+            DbTask<Long> task = runAsync(t -> importer.importFile(file.toPath(), table, columns,
+                    (rows, rowsPerSec) -> t.report(String.format("%,d rows imported (%,.0f rows/sec)", rows, rowsPerSec))),
+                    (Long rows) -> showAlert(Alert.AlertType.INFORMATION, "Import Complete", rows + " row(s) imported into '" + table + "'."),
+                    "Import Failed", "Error importing '" + file.getName() + "': ");
+
+            importStatus.textProperty().bind(task.messageProperty());
+            btnImport.setDisable(true);
+            btnCancelImport.setDisable(false);
+            btnCancelImport.setOnAction(ev -> task.cancel()); // Rolls back the chunk in flight; committed chunks stay
+            task.runningProperty().addListener((obs, wasRunning, running) -> {
+                if (!running) {
+                    importStatus.textProperty().unbind(); // Keep the last progress message
+                    if (task.isCancelled()) {
+                        importStatus.setText(importStatus.getText() + " - cancelled");
+                    }
+                    btnImport.setDisable(false);
+                    btnCancelImport.setDisable(true);
+                }
+            });
         });
 
+        HBox importBox = new HBox(10, new Label("Batch size:"), batchSizeField, btnImport, btnCancelImport);
+
         // Arrange components in a VBox
         VBox vbox = new VBox(10, title, new Label("Select Table:"), cbTables,
-                new Label("Enter Values:"), inputsBox, btnInsert);
+                new Label("Enter Values:"), inputsBox, btnInsert,
+                new Label("Bulk Import (CSV or JSON):"), importBox, importStatus);
         mainPane.getChildren().add(vbox);
     }
 
@@ -436,35 +745,180 @@ public class CrudOperations extends Application {
         Button loadBtn = new Button("Load Data");
         loadBtn.setDisable(true); // Disable load button until a table is selected
 
-        // Enable load button when a table is selected
-        tablesCombo.setOnAction(e -> loadBtn.setDisable(tablesCombo.getSelectionModel().getSelectedItem() == null));
+        // Export controls: stream the selected table to a CSV or columnar file without loading it into the view
+        Button exportBtn = new Button("Export...");
+        exportBtn.setDisable(true); // Disable export button until a table is selected
+        TextField partitionsField = new TextField("1");
+        partitionsField.setPrefColumnCount(3);
+        Button cancelExportBtn = new Button("Cancel Export");
+        cancelExportBtn.setDisable(true); // Enabled while an export runs
+        Label exportStatus = new Label(); // Shows rows exported and rows/sec while the export runs
+
+        // Enable load and export buttons when a table is selected
+        tablesCombo.setOnAction(e -> {
+            boolean none = tablesCombo.getSelectionModel().getSelectedItem() == null;
+            loadBtn.setDisable(none);
+            exportBtn.setDisable(none || !cancelExportBtn.isDisabled());
+        });
+
+        // Query controls: filters, search, sort and limit are evaluated by the database, not in the TableView
+        ObservableList<String> columnChoices = FXCollections.observableArrayList(); // Columns of the loaded table
+        VBox filterRows = new VBox(5);
+        Button addFilterBtn = new Button("Add Filter");
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search text columns");
+        ComboBox<String> sortCombo = new ComboBox<>();
+        sortCombo.setPromptText("Sort by");
+        ComboBox<String> sortDirCombo = new ComboBox<>(FXCollections.observableArrayList("Ascending", "Descending"));
+        sortDirCombo.getSelectionModel().selectFirst();
+        TextField limitField = new TextField();
+        limitField.setPromptText("All");
+        limitField.setPrefColumnCount(6);
+        Button applyBtn = new Button("Apply");
+        HBox queryBox = new HBox(10, addFilterBtn, searchField, new Label("Sort:"), sortCombo, sortDirCombo,
+                new Label("Max rows:"), limitField, applyBtn);
+        queryBox.setDisable(true); // Enabled once a table is loaded
+
+        addFilterBtn.setOnAction(e -> {
+            ComboBox<String> columnCombo = new ComboBox<>(columnChoices);
+            columnCombo.getSelectionModel().selectFirst();
+            ComboBox<TableQuery.Op> opCombo = new ComboBox<>(FXCollections.observableArrayList(TableQuery.Op.values()));
+            opCombo.getSelectionModel().selectFirst();
+            TextField valueField = new TextField();
+            valueField.setPromptText("Value");
+            opCombo.setOnAction(ev -> valueField.setDisable(!opCombo.getValue().takesValue()));
+            Button removeBtn = new Button("Remove");
+            HBox row = new HBox(10, columnCombo, opCombo, valueField, removeBtn);
+            removeBtn.setOnAction(ev -> filterRows.getChildren().remove(row));
+            filterRows.getChildren().add(row);
+        });
 
         // Action for the Load Data button
         loadBtn.setOnAction(e -> {
             String selected = tablesCombo.getSelectionModel().getSelectedItem();
             if (selected == null) return; // Should not happen due to disable logic
 
-            currentTable = selected;
-            currentColumns = getColumnsForTable(selected); // Get columns for the selected table
+            // Get columns for the selected table, then load data into TableView
+            selectTable(selected, "Cannot load data.", () -> {
+                // A new table starts without filters
+                filterRows.getChildren().clear();
+                searchField.clear();
+                limitField.clear();
+                columnChoices.setAll(currentColumns);
+                sortCombo.getItems().setAll("(none)");
+                sortCombo.getItems().addAll(currentColumns);
+                sortCombo.getSelectionModel().selectFirst();
+                queryBox.setDisable(false);
+                loadTableData(selected);
+            });
+        });
 
-            if (currentColumns == null || currentColumns.isEmpty()) {
-                showAlert(Alert.AlertType.WARNING, "No Columns Found", "Failed to retrieve columns for table '" + selected + "'. Cannot load data.");
+        // Action for the Apply button: read the rows matching the query controls
+        applyBtn.setOnAction(e -> {
+            if (currentTable == null) return; // Should not happen due to disable logic
+            List<TableQuery.Filter> filters = new ArrayList<>();
+            for (Node node : filterRows.getChildren()) {
+                List<Node> controls = ((HBox) node).getChildren();
+                @SuppressWarnings("unchecked")
+                String column = ((ComboBox<String>) controls.get(0)).getValue();
+                @SuppressWarnings("unchecked")
+                TableQuery.Op op = ((ComboBox<TableQuery.Op>) controls.get(1)).getValue();
+                String value = ((TextField) controls.get(2)).getText().trim();
+                if (column != null && op != null) {
+                    filters.add(new TableQuery.Filter(column, op, op.takesValue() ? value : null));
+                }
+            }
+            List<TableQuery.Sort> sorts = new ArrayList<>();
+            if (sortCombo.getSelectionModel().getSelectedIndex() > 0) {
+                sorts.add(new TableQuery.Sort(sortCombo.getValue(), "Descending".equals(sortDirCombo.getValue())));
+            }
+            int limit;
+            try {
+                limit = limitField.getText().trim().isEmpty() ? 0 : Integer.parseInt(limitField.getText().trim());
+                if (limit < 0) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.WARNING, "Input Error", "Max rows must be a positive whole number, or empty for all rows.");
                 return;
             }
-            loadTableData(selected); // Call method to load data into TableView
+            String search = searchField.getText();
+            List<String> columns = currentColumns;
+            loadTableData(currentTable, meta -> new TableQuery(meta, columns, filters, search, sorts, limit));
         });
 
+        // Action for the Export button: choose a target file and stream the table into it in the background
+        exportBtn.setOnAction(e -> {
+            String selected = tablesCombo.getSelectionModel().getSelectedItem();
+            if (selected == null) return; // Should not happen due to disable logic
+            int partitions;
+            try {
+                partitions = Integer.parseInt(partitionsField.getText().trim());
+                if (partitions < 1 || partitions > POOL_SIZE) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.WARNING, "Input Error", "Parallel reads must be a whole number from 1 to " + POOL_SIZE + ".");
+                return;
+            }
+
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Export " + selected);
+            chooser.setInitialFileName(selected.toLowerCase() + ".csv");
+            chooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                    new FileChooser.ExtensionFilter("Columnar files", "*.tcol"));
+            File file = chooser.showSaveDialog(mainPane.getScene().getWindow());
+            if (file == null) return; // User cancelled the file dialog
+
+            TableExporter exporter = new TableExporter(pool, scanner);
+            TableExporter.Format format = TableExporter.Format.forFile(file.toPath());
+            DbTask<Long> task = runAsync(t -> exporter.export(selected, file.toPath(), format, partitions,
+                    (rows, rowsPerSec) -> t.report(String.format("%,d rows exported (%,.0f rows/sec)", rows, rowsPerSec))),
+                    (Long rows) -> showAlert(Alert.AlertType.INFORMATION, "Export Complete", rows + " row(s) of '" + selected + "' exported to " + file.getName() + "."),
+                    "Export Failed", "Error exporting '" + selected + "': ");
+
+            exportStatus.textProperty().bind(task.messageProperty());
+            exportBtn.setDisable(true);
+            cancelExportBtn.setDisable(false);
+            cancelExportBtn.setOnAction(ev -> task.cancel());
+            task.runningProperty().addListener((obs, wasRunning, running) -> {
+                if (!running) {
+                    exportStatus.textProperty().unbind(); // Keep the last progress message
+                    if (task.isCancelled()) {
+                        exportStatus.setText(exportStatus.getText() + " - cancelled");
+                    }
+                    exportBtn.setDisable(tablesCombo.getSelectionModel().getSelectedItem() == null);
+                    cancelExportBtn.setDisable(true);
+                }
+            });
+        });
+
+        HBox exportBox = new HBox(10, exportBtn, new Label("Parallel reads:"), partitionsField, cancelExportBtn);
+
         // Arrange components in a VBox
-        VBox vbox = new VBox(10, title, new Label("Select Table:"), tablesCombo, loadBtn, tableView);
+        VBox vbox = new VBox(10, title, new Label("Select Table:"), tablesCombo, loadBtn, queryBox, filterRows, tableView, exportBox, exportStatus);
         mainPane.getChildren().add(vbox);
     }
 
     /**
-     * Loads all data from the specified table into the TableView (without checkboxes).
+     * Loads data from the specified table into the TableView (without checkboxes).
+     * Rows are read page by page as the TableView scrolls (see PagedRowList), so only the
+     * visible window and a small prefetch buffer are held in memory.
      * This method is used for 'Select' and 'Update' operations.
      * @param table The name of the table to load data from.
      */
     private void loadTableData(String table) {
+        List<String> columns = currentColumns;
+        loadTableData(table, meta -> TableQuery.all(meta, columns));
+    }
+
+    /**
+     * Loads the rows of a query into the TableView (without checkboxes), paged like loadTableData(String).
+     * @param table The name of the table to load data from.
+     * @param query Builds the query from the table's description; runs on the background thread and may
+     *              throw IllegalArgumentException for an invalid filter, which is shown as an error.
+     */
+    private void loadTableData(String table, Function<SchemaCache.TableMeta, TableQuery> query) {
         tableView.getColumns().clear(); // Clear existing columns
         tableData.clear(); // Clear existing data
 
@@ -472,37 +926,76 @@ public class CrudOperations extends Application {
         for (int i = 0; i < currentColumns.size(); i++) {
             final int index = i; // Effective final for lambda
             TableColumn<RowData, String> col = new TableColumn<>(currentColumns.get(i));
-            // Set CellValueFactory to retrieve the corresponding StringProperty from RowData
-            col.setCellValueFactory(cd -> cd.getValue().getData().get(index));
+            // Set CellValueFactory to wrap the corresponding value of RowData for display
+            col.setCellValueFactory(cd -> cd.getValue().cellValue(index));
             col.setPrefWidth(150); // Set a preferred width for columns
+            // Client-side sorting would need every row in memory, which the paged view avoids
+            col.setSortable(false);
             tableView.getColumns().add(col);
         }
 
-        String sql = "SELECT * FROM " + table;
-        System.out.println("Executing SQL: " + sql); // Debugging
-
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                List<String> rowVals = new ArrayList<>();
-                // Extract string value for each column in the current row
-                for (String c : currentColumns) {
-                    rowVals.add(rs.getString(c));
-                }
-                tableData.add(new RowData(rowVals)); // Add a new RowData object to the observable list
+        // A result of the same query that is still cached (from this or another screen) is shown at once and checked
+        // in the background; this needs the table's description, so it only applies when that is cached as well
+        SchemaCache.TableMeta meta = schemaCache.cachedTable(table);
+        if (meta != null) {
+            ResultCache.Entry cached;
+            try {
+                cached = resultCache.get(query.apply(meta).resultKey());
+            } catch (IllegalArgumentException ex) {
+                showAlert(Alert.AlertType.ERROR, "Data Load Failed", "Failed to load data for table '" + table + "': " + ex.getMessage());
+                return;
             }
-            tableView.setItems(tableData); // Set the loaded data to the TableView
-            if (tableData.isEmpty()) {
-                showAlert(Alert.AlertType.INFORMATION, "No Data", "Table '" + table + "' is empty.");
+            if (cached != null) {
+                tableView.setItems(cached.rows);
+                checkCachedRows(cached, () -> loadTableData(table, query));
+                return;
             }
-        } catch (SQLException ex) {
-            showAlert(Alert.AlertType.ERROR, "Data Load Failed", "Failed to load data for table '" + table + "': " + ex.getMessage());
         }
+
+        // The first page and a size estimate are read in the background; further pages follow as the TableView scrolls
+        int width = currentColumns.size();
+        runLoad("Loading '" + table + "'...", task -> {
+            TableQuery q = query.apply(schemaCache.table(table));
+            String stamp = resultCache.probe(table); // Before reading, so changes made meanwhile make the rows stale
+            PagedRowList rows = new PagedRowList(pool, dbExecutor, q, ex ->
+                    showAlert(Alert.AlertType.ERROR, "Data Load Failed", "Failed to load rows for table '" + table + "': " + ex.getMessage()));
+            // At most the cached pages are held: about 48 bytes per cell plus the row objects
+            long weight = (long) PagedRowList.DEFAULT_MAX_PAGES * rows.getPageSize() * (64 + 48L * width);
+            return new ResultCache.Entry(q.resultKey(), table, rows, stamp, weight);
+        }, (ResultCache.Entry loaded) -> {
+            resultCache.put(loaded);
+            tableView.setItems(loaded.rows); // Set the paged data to the TableView
+            if (loaded.rows.isEmpty()) {
+                showAlert(Alert.AlertType.INFORMATION, "No Data", "No rows of table '" + table + "' to show.");
+            }
+        }, "Data Load Failed", "Failed to load data for table '" + table + "': ");
+    }
+
+    /**
+     * Checks in the background whether a cached result that is already shown is still current, by probing the
+     * table's stamp (see ResultCache). If the table has changed since the rows were read, the result is dropped
+     * and read again. A result without a stamp is only bounded by the cache's TTL.
+     * @param cached The shown result.
+     * @param reload Reads the result again (finding nothing cached).
+     */
+    private void checkCachedRows(ResultCache.Entry cached, Runnable reload) {
+        QueryMetrics.debug(() -> "Showing cached rows of '" + cached.table + "' (" + resultCache + ")");
+        if (cached.stamp == null) {
+            return;
+        }
+        runLoad("Checking '" + cached.table + "' for changes...", task -> resultCache.probe(cached.table), (String stamp) -> {
+            if (!cached.stamp.equals(stamp)) {
+                QueryMetrics.debug(() -> "'" + cached.table + "' has changed since it was read; reading it again");
+                resultCache.invalidate(cached.key);
+                reload.run();
+            }
+        }, "Data Load Failed", "Failed to check table '" + cached.table + "' for changes: ");
     }
 
     /**
      * Displays the User Interface for updating existing rows in a table.
-     * Allows selection of a single row and opens a dialog for editing.
+     * Cells can be edited in place; the edits are buffered locally and written together by Save Changes.
+     * Alternatively a single row can be edited in a dialog, which saves it immediately.
      */
     private void showUpdateUI() {
         Label title = new Label("Update Rows");
@@ -518,21 +1011,74 @@ public class CrudOperations extends Application {
         Button updateBtn = new Button("Update Selected Row");
         updateBtn.setDisable(true); // Disable update button until a row is selected
 
+        // Cell edits are collected here and written in one transaction by Save Changes
+        EditBuffer edits = new EditBuffer();
+        Button saveBtn = new Button("Save Changes");
+        Button discardBtn = new Button("Discard Changes");
+        Label pendingLabel = new Label();
+        Runnable editsChanged = () -> {
+            pendingLabel.setText(edits.isEmpty() ? "" : edits.cellCount() + " pending change(s) in " + edits.rowCount() + " row(s)");
+            saveBtn.setDisable(edits.isEmpty());
+            discardBtn.setDisable(edits.isEmpty());
+        };
+        editsChanged.run();
+        // Reads the current table again, for the rare case that the loaded rows cannot be patched in place
+        Runnable reload = () -> {
+            loadTableData(currentTable);
+            enableCellEditing(edits, editsChanged);
+        };
+
         tablesCombo.setOnAction(e -> loadBtn.setDisable(tablesCombo.getSelectionModel().getSelectedItem() == null));
 
         loadBtn.setOnAction(e -> {
             String selected = tablesCombo.getSelectionModel().getSelectedItem();
             if (selected == null) return;
+            if (!edits.isEmpty()) {
+                Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Discard " + edits.cellCount() + " unsaved change(s)?");
+                confirm.setHeaderText(null);
+                if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+                    return;
+                }
+            }
 
-            currentTable = selected;
-            currentColumns = getColumnsForTable(selected);
+            selectTable(selected, "Cannot update.", () -> {
+                edits.clear();
+                editsChanged.run();
+                loadTableData(selected); // Load data without checkboxes for selection clarity
+                enableCellEditing(edits, editsChanged);
+                updateBtn.setDisable(false); // Enable update button once data is loaded
+            });
+        });
 
-            if (currentColumns == null || currentColumns.isEmpty()) {
-                showAlert(Alert.AlertType.WARNING, "No Columns Found", "Failed to retrieve columns for table '" + selected + "'. Cannot update.");
-                return;
-            }
-            loadTableData(selected); // Load data without checkboxes for selection clarity
-            updateBtn.setDisable(false); // Enable update button once data is loaded
+        saveBtn.setOnAction(e -> {
+            List<EditBuffer.RowEdit> pending = edits.pending(); // Edits made while saving stay pending
+            String table = currentTable;
+            List<String> columns = currentColumns;
+            saveBtn.setDisable(true);
+            runAsync(task -> {
+                SchemaCache.TableMeta meta = schemaCache.table(table);
+                try (Connection conn = pool.getConnection()) {
+                    return EditBuffer.save(conn, table, meta, columns, pending, task);
+                }
+            }, (Integer updated) -> {
+                edits.committed(pending);
+                resultCache.invalidateTable(table); // The shown rows are patched below; other cached results are not
+                if (updated > pending.size()) {
+                    reload.run(); // A key matched several rows; the loaded rows cannot be patched exactly
+                } else {
+                    applySavedEdits(pending); // Patch the loaded rows instead of reading the table again
+                    tableView.refresh();
+                }
+                editsChanged.run();
+                showAlert(Alert.AlertType.INFORMATION, "Changes Saved", updated + " row(s) updated in one transaction.");
+            }, "Save Failed", "Error saving changes: ")
+                    .addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, ev -> editsChanged.run()); // Edits stay pending
+        });
+
+        discardBtn.setOnAction(e -> {
+            edits.clear();
+            tableView.refresh(); // Show the original values again
+            editsChanged.run();
         });
 
         // Enable update button only when a row is selected in the TableView
@@ -547,19 +1093,76 @@ public class CrudOperations extends Application {
                 showAlert(Alert.AlertType.WARNING, "No Row Selected", "Please select a row to update.");
                 return;
             }
-            showUpdateDialog(selectedRow); // Open dialog to edit the selected row
+            showUpdateDialog(selectedRow, reload); // Open dialog to edit the selected row
         });
 
         // Arrange components in a VBox
-        VBox vbox = new VBox(10, title, new Label("Select Table:"), tablesCombo, loadBtn, tableView, updateBtn);
+        HBox editBar = new HBox(10, saveBtn, discardBtn, pendingLabel);
+        VBox vbox = new VBox(10, title, new Label("Select Table:"), tablesCombo, loadBtn, tableView, updateBtn, editBar);
         mainPane.getChildren().add(vbox);
     }
 
+    /**
+     * Makes the data columns of the TableView editable in place. Committed cell edits go to the buffer,
+     * not to the database, and edited cells are highlighted until they are saved or discarded.
+     * @param edits The buffer that collects the edits.
+     * @param onEdit Runs on the FX thread after every edit.
+     */
+    @SuppressWarnings("unchecked")
+    private void enableCellEditing(EditBuffer edits, Runnable onEdit) {
+        for (int i = 0; i < tableView.getColumns().size(); i++) {
+            final int index = i;
+            TableColumn<RowData, String> col = (TableColumn<RowData, String>) tableView.getColumns().get(i);
+            // Show the pending value of edited cells
+            col.setCellValueFactory(cd -> new ReadOnlyStringWrapper(edits.value(cd.getValue(), index)));
+            col.setCellFactory(c -> new TextFieldTableCell<>(new DefaultStringConverter()) {
+                @Override
+                public void updateItem(String item, boolean empty) {
+                    super.updateItem(item, empty);
+                    RowData row = empty || getTableRow() == null ? null : getTableRow().getItem();
+                    setStyle(row != null && edits.isEdited(row, index) ? "-fx-background-color: #fff3b0;" : "");
+                }
+            });
+            col.setOnEditCommit(ev -> {
+                try {
+                    edits.edit(ev.getRowValue(), index, ev.getNewValue());
+                } catch (IllegalArgumentException ex) {
+                    showAlert(Alert.AlertType.WARNING, "Row Not Loaded", "The row is still loading. Please try again.");
+                }
+                tableView.refresh();
+                onEdit.run();
+            });
+        }
+    }
+
+    /**
+     * Applies saved edits to the rows currently shown, matching rows by ROWID.
+     * @param saved The edits that were committed.
+     */
+    private void applySavedEdits(List<EditBuffer.RowEdit> saved) {
+        Map<String, Map<Integer, String>> byRowId = new HashMap<>();
+        for (EditBuffer.RowEdit edit : saved) {
+            byRowId.put(edit.row.getRowId(), edit.values);
+        }
+        Consumer<RowData> patch = row -> {
+            Map<Integer, String> values = row.getRowId() == null ? null : byRowId.get(row.getRowId());
+            if (values != null) {
+                values.forEach(row::set);
+            }
+        };
+        if (tableView.getItems() instanceof PagedRowList) {
+            ((PagedRowList) tableView.getItems()).forEachLoaded(patch); // Pages read later already hold the new values
+        } else {
+            tableView.getItems().forEach(patch);
+        }
+    }
+
     /**
      * Displays a dialog window allowing the user to edit data for a specific row.
      * @param row The RowData object whose data needs to be updated.
+     * @param reload Reads the table again if the update cannot be applied to the loaded rows in place.
      */
-    private void showUpdateDialog(RowData row) {
+    private void showUpdateDialog(RowData row, Runnable reload) {
         Dialog<List<String>> dialog = new Dialog<>();
         dialog.setTitle("Update Row");
         dialog.setHeaderText("Edit values for the selected row:");
@@ -573,7 +1176,7 @@ public class CrudOperations extends Application {
         // Create a label and TextField for each column, pre-filling with current data
         for (int i = 0; i < currentColumns.size(); i++) {
             Label lbl = new Label(currentColumns.get(i) + ":");
-            TextField tf = new TextField(row.getData().get(i).get());
+            TextField tf = new TextField(row.get(i));
             grid.add(lbl, 0, i); // Add label to column 0
             grid.add(tf, 1, i); // Add text field to column 1
             fields.add(tf); // Store TextField for later retrieval of updated values
@@ -598,50 +1201,42 @@ public class CrudOperations extends Application {
         Optional<List<String>> result = dialog.showAndWait(); // Show dialog and wait for result
 
         result.ifPresent(vals -> {
-            try {
-                // Assumption: The first column (index 0) is the Primary Key (PK)
-                // This is a common but potentially fragile assumption.
-                // For robust applications, actual PK metadata should be queried.
-                String pkCol = currentColumns.get(0);
-                String pkValue = row.getData().get(0).get(); // Original PK value for WHERE clause
-
-                StringBuilder sql = new StringBuilder("UPDATE " + currentTable + " SET ");
-                // Build the SET clause for the UPDATE statement
-                for (int i = 0; i < currentColumns.size(); i++) {
-                    sql.append(currentColumns.get(i)).append(" = ?");
-                    if (i < currentColumns.size() - 1) {
-                        sql.append(", ");
-                    }
+            // Only the columns whose value was actually changed are written
+            Map<Integer, String> changed = new TreeMap<>();
+            for (int i = 0; i < vals.size(); i++) {
+                String original = row.get(i) == null ? "" : row.get(i).trim();
+                if (!original.equals(vals.get(i))) {
+                    changed.put(i, vals.get(i));
                 }
-                sql.append(" WHERE ").append(pkCol).append(" = ?"); // Add WHERE clause based on PK
-
-                System.out.println("Executing SQL: " + sql.toString()); // Debugging
-                System.out.println("With values: " + vals + " and PK: " + pkValue);
-
-                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
-                    int paramIndex = 1;
-                    // Set parameters for the SET clause (all columns)
-                    for (String val : vals) {
-                        ps.setString(paramIndex++, val);
-                    }
-                    // Set the parameter for the WHERE clause (PK value)
-                    ps.setString(paramIndex, pkValue);
-
-                    int updated = ps.executeUpdate(); // Execute the update
+            }
+            if (changed.isEmpty()) {
+                showAlert(Alert.AlertType.INFORMATION, "No Changes", "No values were changed.");
+                return;
+            }
 
-                    if (updated > 0) {
-                        showAlert(Alert.AlertType.INFORMATION, "Success", "Row updated successfully.");
-                        loadTableData(currentTable); // Reload table data to reflect changes
-                    } else {
-                        showAlert(Alert.AlertType.WARNING, "No Row Updated", "Update operation completed, but no rows were affected. Check if the PK value still exists.");
-                    }
+            // Same statement as a buffered save of one row: keyed by the row's original key values,
+            // bound with native types, and checked against the values that were read
+            List<EditBuffer.RowEdit> edit = Collections.singletonList(new EditBuffer.RowEdit(row, changed));
+            String table = currentTable;
+            List<String> columns = currentColumns;
+            runAsync(task -> {
+                SchemaCache.TableMeta meta = schemaCache.table(table);
+                try (Connection conn = pool.getConnection()) {
+                    return EditBuffer.save(conn, table, meta, columns, edit, task);
                 }
-            } catch (SQLException ex) {
-                showAlert(Alert.AlertType.ERROR, "Update Failed", "Error updating row: " + ex.getMessage());
-            } catch (IndexOutOfBoundsException ex) {
-                // Catches if currentColumns is empty or first column is missing
-                showAlert(Alert.AlertType.ERROR, "Update Error", "Primary key column could not be determined. Please ensure the table has columns and the first column is suitable for identification.");
-            }
+            }, (Integer updated) -> {
+                resultCache.invalidateTable(table); // The shown row is patched below; other cached results are not
+                if (updated > 1) {
+                    showAlert(Alert.AlertType.INFORMATION, "Success", updated + " rows matched the row's key and were updated.");
+                    reload.run(); // Rows other than the edited one changed as well
+                } else if (updated > 0) {
+                    applySavedEdits(edit); // Patch the row in place instead of reloading the table
+                    tableView.refresh();
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Row updated successfully.");
+                } else {
+                    showAlert(Alert.AlertType.WARNING, "No Row Updated", "Update operation completed, but no rows were affected.");
+                }
+            }, "Update Failed", "Error updating row: ");
         });
     }
 
@@ -670,28 +1265,17 @@ public class CrudOperations extends Application {
             String selected = tablesCombo.getSelectionModel().getSelectedItem();
             if (selected == null) return;
 
-            currentTable = selected;
-            currentColumns = getColumnsForTable(selected);
-
-            if (currentColumns == null || currentColumns.isEmpty()) {
-                showAlert(Alert.AlertType.WARNING, "No Columns Found", "Failed to retrieve columns for table '" + selected + "'. Cannot delete.");
-                return;
-            }
-            loadTableDataWithCheckboxes(selected); // Load data with checkboxes
-            deleteBtn.setDisable(false); // Enable delete button after data is loaded
+            selectTable(selected, "Cannot delete.", () -> {
+                loadTableDataWithCheckboxes(selected); // Load data with checkboxes
+                deleteBtn.setDisable(false); // Enable delete button after data is loaded
+            });
         });
 
         // Action for the Delete Selected Rows button
         deleteBtn.setOnAction(e -> {
-            List<RowData> selectedRows = new ArrayList<>();
-            // Filter and collect all rows that are marked as selected
-            for (RowData row : tableData) {
-                if (row.isSelected()) {
-                    selectedRows.add(row);
-                }
-            }
+            int selectedCount = rowSelection == null ? 0 : rowSelection.count();
 
-            if (selectedRows.isEmpty()) {
+            if (selectedCount == 0) {
                 showAlert(Alert.AlertType.WARNING, "No Rows Selected", "No rows are selected for deletion. Please select one or more rows.");
                 return;
             }
@@ -700,37 +1284,31 @@ public class CrudOperations extends Application {
             Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
             confirm.setTitle("Confirm Deletion");
             confirm.setHeaderText("Delete Confirmation");
-            confirm.setContentText("Are you sure you want to delete " + selectedRows.size() + " selected row(s)? This action cannot be undone.");
+            confirm.setContentText("Are you sure you want to delete " + selectedCount + " selected row(s)? This action cannot be undone.");
             Optional<ButtonType> result = confirm.showAndWait();
 
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                try {
-                    // Assumption: The first column is the Primary Key for deletion.
-                    String pkCol = currentColumns.get(0);
-                    String sql = "DELETE FROM " + currentTable + " WHERE " + pkCol + " = ?";
-                    System.out.println("Preparing batch delete SQL: " + sql); // Debugging
-
-                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                        for (RowData rd : selectedRows) {
-                            ps.setString(1, rd.getData().get(0).get()); // Set the PK value for current row
-                            ps.addBatch(); // Add the delete operation to the batch
-                        }
-                        int[] results = ps.executeBatch(); // Execute the batch operations
-
-                        int deletedCount = 0;
-                        for (int count : results) {
-                            if (count > 0) { // If update count is positive, row was deleted
-                                deletedCount += count;
-                            }
-                        }
-                        showAlert(Alert.AlertType.INFORMATION, "Deletion Complete", deletedCount + " row(s) deleted successfully.");
-                        loadTableDataWithCheckboxes(currentTable); // Reload data to show updated state
+                String table = currentTable;
+                List<String> columns = currentColumns;
+                SpilledRowList rows = loadedRows; // The rows the selection was made in
+                // The checked rows are the key set of the batched delete: a bit per stored row, whose keys are
+                // read back in batches on the background thread, so "Select All" on a spilled table stays off the heap
+                SpilledRowList.StoredRows selected = rows.pick(rowSelection.isAllMode(), rowSelection.exceptions());
+                runAsync(task -> {
+                    try (SpilledRowList.StoredRows picked = selected; // Keeps the rows readable until the delete is done
+                         Connection conn = pool.getConnection()) {
+                        TableKey key = TableKey.resolve(schemaCache.table(table)); // Primary key, NOT NULL unique key or ROWID
+                        return TableOperations.deleteRows(conn, table, key, columns, picked, DELETE_BATCH_SIZE, task);
                     }
-                } catch (SQLException ex) {
-                    showAlert(Alert.AlertType.ERROR, "Deletion Failed", "Error during deletion: " + ex.getMessage());
-                } catch (IndexOutOfBoundsException ex) {
-                    showAlert(Alert.AlertType.ERROR, "Deletion Error", "Primary key column could not be determined for deletion.");
-                }
+                }, (TableOperations.DeleteResult outcome) -> {
+                    resultCache.invalidateTable(table); // The shown rows are removed below; other cached results are not
+                    showAlert(Alert.AlertType.INFORMATION, "Deletion Complete", outcome.deleted + " row(s) deleted successfully.");
+                    // Remove the deleted rows from the view; read the table again only if that cannot be done exactly.
+                    // Nothing to do if the user has moved on: the rows are released, or another table is shown
+                    if (tableView.getItems() == rows && !removeDeletedRows(rows, selected, outcome)) {
+                        loadTableDataWithCheckboxes(table);
+                    }
+                }, "Deletion Failed", "Error during deletion: ");
             }
         });
 
@@ -739,6 +1317,25 @@ public class CrudOperations extends Application {
         mainPane.getChildren().add(vbox);
     }
 
+    /**
+     * Removes deleted rows from the loaded rows in place, so a delete costs time proportional to the
+     * rows deleted rather than a reload of the table.
+     * Each row's update count tells whether its key identified exactly that row: 1 (deleted) or 0 (already
+     * gone) can be applied locally. A count above 1 means the key matched other rows as well, and an unknown
+     * count (Statement.SUCCESS_NO_INFO) tells nothing; in both cases the caller must reload.
+     * @param shown The displayed rows the deleted ones were selected in.
+     * @param rows The rows a delete was executed for.
+     * @param result The outcome of the delete.
+     * @return True if the view now matches the table, false if it has to be read again.
+     */
+    private boolean removeDeletedRows(SpilledRowList shown, SpilledRowList.StoredRows rows, TableOperations.DeleteResult result) {
+        if (!result.exact || result.rows != rows.size()) {
+            return false; // Ambiguous key or unknown outcome
+        }
+        shown.removeAll(rows); // One list change for all rows; the selection drops them as well
+        return true;
+    }
+
     /**
      * Loads table data into the TableView, including a checkbox column for row selection.
      * This method is specifically designed for the "Delete Rows" functionality, allowing multi-selection.
@@ -746,22 +1343,37 @@ public class CrudOperations extends Application {
      */
     private void loadTableDataWithCheckboxes(String table) {
         tableView.getColumns().clear(); // Clear existing columns
-        tableData.clear(); // Clear existing data
+        cancelActiveLoad(); // It may still be storing rows into the list released below
+        tableView.setItems(tableData);
+        releaseLoadedRows();
+        // The rows of this table may still be cached from an earlier visit; they are shown at once and checked below
+        String key = table.toUpperCase(Locale.ROOT) + "|" + String.join(",", currentColumns) + "|with ROWID";
+        ResultCache.Entry cached = resultCache.get(key);
+        // Rows beyond the heap budget are kept in a memory-mapped file, so the table's size is not limited by -Xmx
+        SpilledRowList rows = cached != null ? (SpilledRowList) cached.rows
+                : new SpilledRowList(currentColumns.size(), loadHeapBudget());
+        loadedRows = rows;
+
+        // Create a "Select All" checkbox for the header of the 'Select' column
+        CheckBox selectAllCheckbox = new CheckBox();
+        // The selection keeps a running count, so the "Select All" state is updated in constant time
+        if (rowSelection != null) {
+            rowSelection.detach();
+        }
+        RowSelection selection = new RowSelection(rows, () -> updateSelectAllCheckbox(selectAllCheckbox));
+        rowSelection = selection;
 
         // Create the "Select" checkbox column
         TableColumn<RowData, Boolean> selectColumn = new TableColumn<>("Select");
         selectColumn.setPrefWidth(60);
-        // Bind the checkbox state to the 'selected' property of RowData
-        selectColumn.setCellValueFactory(param -> param.getValue().selectedProperty());
-        // Use CheckBoxTableCell to render actual checkboxes in the column cells
-        selectColumn.setCellFactory(CheckBoxTableCell.forTableColumn(selectColumn));
+        selectColumn.setSortable(false);
+        // Use CheckBoxTableCell to render actual checkboxes; each cell asks the selection for its row's state
+        selectColumn.setCellFactory(CheckBoxTableCell.forTableColumn(
+                (Integer index) -> selection.property(tableView.getItems().get(index))));
 
-        // Create a "Select All" checkbox for the header of the 'Select' column
-        CheckBox selectAllCheckbox = new CheckBox();
         selectAllCheckbox.setOnAction(event -> {
-            boolean selected = selectAllCheckbox.isSelected();
-            // Iterate through all rows and set their 'selected' property
-            tableData.forEach(rowData -> rowData.setSelected(selected));
+            selection.setAllSelected(selectAllCheckbox.isSelected()); // Constant time, however many rows
+            tableView.refresh(); // Only the visible cells are redrawn
         });
         selectColumn.setGraphic(selectAllCheckbox); // Set the "Select All" checkbox as the header graphic
 
@@ -771,56 +1383,103 @@ public class CrudOperations extends Application {
         for (int i = 0; i < currentColumns.size(); i++) {
             final int index = i;
             TableColumn<RowData, String> col = new TableColumn<>(currentColumns.get(i));
-            col.setCellValueFactory(cd -> cd.getValue().getData().get(index));
+            col.setCellValueFactory(cd -> cd.getValue().cellValue(index));
             col.setPrefWidth(150);
+            col.setUserData(index); // The cell index, for sortLoadedRows
             tableView.getColumns().add(col);
         }
 
-        String sql = "SELECT * FROM " + table;
-        System.out.println("Executing SQL (with checkboxes): " + sql); // Debugging
-
-        try (Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                List<String> rowVals = new ArrayList<>();
-                for (String c : currentColumns) {
-                    rowVals.add(rs.getString(c)); // Get string value for each column
+        tableView.setItems(rows); // Rows appear as the batches arrive
+        if (cached != null) {
+            updateSelectAllCheckbox(selectAllCheckbox);
+            checkCachedRows(cached, () -> loadTableDataWithCheckboxes(table));
+            return;
+        }
+        List<String> columns = currentColumns;
+        // Rows are read in the background, as several ranges at once, and stored (encoded and spilled there too)
+        // in batches in table order while the queries run; the TableView is then told how many have arrived
+        runLoad("Loading '" + table + "'...", task -> {
+            String stamp = resultCache.probe(table); // Before reading, so changes made meanwhile make the rows stale
+            TableOperations.readRows(scanner, table, columns, LOAD_BATCH_SIZE, LOAD_PARALLELISM, task, batch -> {
+                try {
+                    task.publish(List.of(rows.store(batch)), stored -> rows.showStored(stored.get(0)));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
                 }
-                RowData newRow = new RowData(rowVals);
-                // Add a listener to each row's 'selected' property.
-                // This listener ensures the "Select All" checkbox's state is updated
-                // (selected, unselected, or indeterminate) when individual rows are selected/deselected.
-                newRow.selectedProperty().addListener((obs, oldVal, newVal) -> updateSelectAllCheckbox(selectAllCheckbox));
-                tableData.add(newRow);
-            }
-            tableView.setItems(tableData); // Set the loaded data to the TableView
-
-            if (tableData.isEmpty()) {
+            });
+            return stamp;
+        }, (String stamp) -> {
+            resultCache.put(new ResultCache.Entry(key, table, rows, stamp, rows.heapBytes()));
+            if (rows.isEmpty()) {
                 showAlert(Alert.AlertType.INFORMATION, "No Data", "Table '" + table + "' is empty.");
             }
+            if (rows.spilledRows() > 0) {
+                statusLabel.setText(String.format("%,d of %,d rows kept on disk (heap budget reached).", rows.spilledRows(), rows.size()));
+            }
             // Perform an initial update of the "Select All" checkbox state
             updateSelectAllCheckbox(selectAllCheckbox);
-        } catch (SQLException ex) {
-            showAlert(Alert.AlertType.ERROR, "Data Load Failed", "Failed to load data for table '" + table + "': " + ex.getMessage());
+        }, "Data Load Failed", "Failed to load data for table '" + table + "': ");
+    }
+
+    /**
+     * Sort policy for spilled rows: sorts them by the TableView's sort order in the background and shows the
+     * result when it is ready (a newer sort or a delete in the meantime makes it stale; then it sorts again).
+     * @param rows The displayed rows.
+     * @return True: the sort has been started.
+     */
+    private boolean sortLoadedRows(SpilledRowList rows) {
+        List<TableColumn<RowData, ?>> sortOrder = tableView.getSortOrder();
+        if (sortOrder.isEmpty()) {
+            return true; // Unsorted: keep the current order, as the default policy does
+        }
+        int[] columns = new int[sortOrder.size()];
+        boolean[] descending = new boolean[sortOrder.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = (Integer) sortOrder.get(i).getUserData();
+            descending[i] = sortOrder.get(i).getSortType() == TableColumn.SortType.DESCENDING;
+        }
+        SpilledRowList.SortJob job;
+        try {
+            job = rows.sortJob(columns, descending);
+        } catch (IOException ex) {
+            showAlert(Alert.AlertType.ERROR, "Sort Failed", "Cannot sort the rows: " + ex.getMessage());
+            return false;
         }
+        statusLabel.setText(String.format("Sorting %,d rows...", rows.size()));
+        runAsync(task -> {
+            job.run();
+            return job;
+        }, (SpilledRowList.SortJob sorted) -> {
+            try {
+                if (rows.applySort(sorted)) {
+                    statusLabel.setText("");
+                    tableView.refresh(); // The list fires no permutation event
+                } else if (rows == loadedRows && !rows.isSorting()) {
+                    tableView.sort(); // Rows were deleted while sorting
+                }
+            } catch (IOException ex) {
+                showAlert(Alert.AlertType.ERROR, "Sort Failed", "Cannot sort the rows: " + ex.getMessage());
+            }
+        }, "Sort Failed", "Cannot sort the rows: ");
+        return true;
     }
 
     /**
      * Updates the state of the "Select All" checkbox (selected, unselected, or indeterminate)
-     * based on the current selection status of rows in the tableData.
+     * from the selection's running count of selected rows.
      * @param selectAllCheckbox The CheckBox instance used as the "Select All" control.
      */
     private void updateSelectAllCheckbox(CheckBox selectAllCheckbox) {
-        if (tableData.isEmpty()) {
+        if (loadedRows == null || loadedRows.isEmpty()) {
             selectAllCheckbox.setIndeterminate(false);
             selectAllCheckbox.setSelected(false);
             return;
         }
 
-        // Count how many rows are currently selected
-        long selectedCount = tableData.stream().filter(RowData::isSelected).count();
+        // Number of selected rows, maintained by the selection (no scan of the rows)
+        int selectedCount = rowSelection == null ? 0 : rowSelection.count();
 
-        if (selectedCount == tableData.size()) {
+        if (selectedCount == loadedRows.size()) {
             // All rows are selected
             selectAllCheckbox.setIndeterminate(false);
             selectAllCheckbox.setSelected(true);
@@ -862,17 +1521,22 @@ public class CrudOperations extends Application {
             Optional<ButtonType> res = confirm.showAndWait();
 
             if (res.isPresent() && res.get() == ButtonType.OK) {
-                try (Statement st = conn.createStatement()) {
-                    // Execute DROP TABLE with CASCADE CONSTRAINTS to handle foreign key dependencies
-                    String sql = "DROP TABLE " + selected + " CASCADE CONSTRAINTS";
-                    System.out.println("Executing SQL: " + sql); // Debugging
-                    st.execute(sql);
+                // Execute DROP TABLE with CASCADE CONSTRAINTS to handle foreign key dependencies
+                String sql = "DROP TABLE " + selected + " CASCADE CONSTRAINTS";
+                QueryMetrics.debug(() -> "Executing SQL: " + sql);
+                runAsync(task -> {
+                    try (Connection conn = pool.getConnection();
+                         Statement st = task.track(conn.createStatement())) {
+                        st.execute(sql);
+                    }
+                    schemaCache.invalidate(selected); // The table and its description are gone
+                    return null;
+                }, ignored -> {
+                    resultCache.invalidateTable(selected);
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Table '" + selected + "' dropped successfully.");
                     tablesCombo.getItems().remove(selected); // Remove from ComboBox list
                     dropBtn.setDisable(true); // Disable button as the table is gone
-                } catch (SQLException ex) {
-                    showAlert(Alert.AlertType.ERROR, "Drop Failed", "Failed to drop table: " + ex.getMessage());
-                }
+                }, "Drop Failed", "Failed to drop table: ");
             }
         });
 
@@ -909,18 +1573,25 @@ public class CrudOperations extends Application {
             Optional<ButtonType> res = confirm.showAndWait();
 
             if (res.isPresent() && res.get() == ButtonType.OK) {
-                try (Statement st = conn.createStatement()) {
-                    String sql = "TRUNCATE TABLE " + selected;
-                    System.out.println("Executing SQL: " + sql); // Debugging
-                    st.execute(sql);
+                String sql = "TRUNCATE TABLE " + selected;
+                QueryMetrics.debug(() -> "Executing SQL: " + sql);
+                runAsync(task -> {
+                    try (Connection conn = pool.getConnection();
+                         Statement st = task.track(conn.createStatement())) {
+                        st.execute(sql);
+                    }
+                    schemaCache.invalidate(selected); // TRUNCATE is DDL; do not trust anything cached about the table
+                    return null;
+                }, ignored -> {
+                    resultCache.invalidateTable(selected);
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Table '" + selected + "' truncated successfully.");
-                    // After truncating, reload the data view (if any) to show it's empty
+                    // After truncating, the data view (if any) is simply empty; no need to query it
                     if (currentTable != null && currentTable.equalsIgnoreCase(selected)) {
-                        loadTableDataWithCheckboxes(currentTable); // Or loadTableData if you prefer
+                        cancelActiveLoad();
+                        tableData.clear();
+                        tableView.setItems(tableData);
                     }
-                } catch (SQLException ex) {
-                    showAlert(Alert.AlertType.ERROR, "Truncate Failed", "Failed to truncate table: " + ex.getMessage());
-                }
+                }, "Truncate Failed", "Failed to truncate table: ");
             }
         });
 
@@ -929,6 +1600,76 @@ public class CrudOperations extends Application {
         mainPane.getChildren().add(vbox);
     }
 
+    /**
+     * Displays the query metrics: latency percentiles, rows and round trips per statement shape,
+     * plus the pool's counters and connection wait times. Refresh reads the current values.
+     */
+    private void showMetricsUI() {
+        Label title = new Label("Query Metrics");
+        title.setStyle("-fx-font-size:18; -fx-font-weight:bold;");
+
+        QueryMetrics metrics = pool.getMetrics();
+        Label poolLabel = new Label(); // Pool counters and connection wait percentiles
+        poolLabel.setWrapText(true);
+
+        TableView<QueryMetrics.Shape> shapesView = new TableView<>();
+        shapesView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+        shapesView.getColumns().add(metricsColumn("Table", 120, s -> s.table));
+        shapesView.getColumns().add(metricsColumn("Op", 60, s -> s.operation));
+        shapesView.getColumns().add(metricsColumn("Count", 60, s -> s.executions()));
+        shapesView.getColumns().add(metricsColumn("Errors", 50, s -> s.errors()));
+        shapesView.getColumns().add(metricsColumn("p50 ms", 60, s -> round(s.latency.percentileMillis(50))));
+        shapesView.getColumns().add(metricsColumn("p95 ms", 60, s -> round(s.latency.percentileMillis(95))));
+        shapesView.getColumns().add(metricsColumn("p99 ms", 60, s -> round(s.latency.percentileMillis(99))));
+        shapesView.getColumns().add(metricsColumn("Max ms", 60, s -> round(s.latency.maxMillis())));
+        shapesView.getColumns().add(metricsColumn("Total ms", 70, s -> round(s.latency.totalMillis())));
+        shapesView.getColumns().add(metricsColumn("Rows", 70, s -> s.rows()));
+        shapesView.getColumns().add(metricsColumn("Round trips", 70, s -> s.roundTrips()));
+        shapesView.getColumns().add(metricsColumn("Statement", 300, s -> s.sql));
+        VBox.setVgrow(shapesView, Priority.ALWAYS);
+
+        // Reads the current values; the histograms are updated concurrently, so this is a snapshot
+        Runnable refresh = () -> {
+            QueryMetrics.Histogram wait = metrics.poolWait();
+            poolLabel.setText(String.format("Connection wait: %d borrows, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n%s",
+                    wait.count(), wait.percentileMillis(50), wait.percentileMillis(99), wait.maxMillis(), pool));
+            shapesView.getItems().setAll(metrics.shapes()); // Slowest in total first
+            shapesView.refresh();
+        };
+
+        Button refreshBtn = new Button("Refresh");
+        refreshBtn.setOnAction(e -> refresh.run());
+        Button resetBtn = new Button("Reset");
+        resetBtn.setOnAction(e -> {
+            metrics.reset();
+            refresh.run();
+        });
+        refresh.run();
+
+        Integer port = Integer.getInteger(METRICS_PORT_PROPERTY);
+        Label endpointLabel = new Label(port == null
+                ? "Also available over JMX (oracle.crud:type=QueryMetrics); set -D" + METRICS_PORT_PROPERTY + "=<port> for a plain-text endpoint."
+                : "Also available over JMX (oracle.crud:type=QueryMetrics) and at http://localhost:" + port + "/metrics");
+
+        VBox vbox = new VBox(10, title, poolLabel, new HBox(10, refreshBtn, resetBtn), shapesView, endpointLabel);
+        VBox.setVgrow(vbox, Priority.ALWAYS);
+        mainPane.getChildren().add(vbox);
+    }
+
+    /**
+     * Creates a read-only column of the metrics table.
+     */
+    private static <T> TableColumn<QueryMetrics.Shape, T> metricsColumn(String name, double width, Function<QueryMetrics.Shape, T> value) {
+        TableColumn<QueryMetrics.Shape, T> col = new TableColumn<>(name);
+        col.setCellValueFactory(cd -> new ReadOnlyObjectWrapper<>(value.apply(cd.getValue())));
+        col.setPrefWidth(width);
+        return col;
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 100) / 100.0;
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
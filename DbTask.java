@@ -0,0 +1,106 @@
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * A JavaFX Task that runs JDBC work on a background thread.
+ * Besides the usual Task life cycle it can:
+ * - cancel the statement that is currently executing (interrupting the thread alone does not stop a JDBC call),
+ * - hand intermediate results (e.g. batches of rows) to the FX thread while the query is still running.
+ *
+ * @param <T> The type of the final result.
+ */
+public class DbTask<T> extends Task<T> {
+
+    /**
+     * The database work to run. Receives the task so it can register statements and publish batches.
+     * @param <T> The type of the final result.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(DbTask<T> task) throws Exception;
+    }
+
+    private final Work<T> work;
+    private volatile Statement statement; // Statement currently executing, cancelled together with the task
+
+    public DbTask(Work<T> work) {
+        this.work = work;
+    }
+
+    @Override
+    protected T call() throws Exception {
+        return work.run(this);
+    }
+
+    /**
+     * Registers the statement the task is about to execute so that cancelling the task also cancels it.
+     * @param st The statement to track.
+     * @return The same statement, for use in try-with-resources.
+     */
+    public <S extends Statement> S track(S st) {
+        statement = st;
+        if (isCancelled()) {
+            cancelStatement(); // Cancelled before the statement was even registered
+        }
+        return st;
+    }
+
+    /**
+     * Throws if the task has been cancelled. Call between rows or batches in long loops.
+     */
+    public void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Cancelled");
+        }
+    }
+
+    /**
+     * Hands a batch of intermediate results to the FX thread.
+     * Batches are delivered in the order they were published and before the task's success handler runs.
+     * @param batch The batch to deliver.
+     * @param sink Receives the batch on the FX thread (skipped if the task is cancelled by then).
+     */
+    public <R> void publish(List<R> batch, Consumer<List<R>> sink) {
+        Platform.runLater(() -> {
+            if (!isCancelled()) {
+                sink.accept(batch);
+            }
+        });
+    }
+
+    /**
+     * Updates the task's message (e.g. progress text) from the background thread.
+     * Updates are coalesced, so this may be called as often as needed.
+     * @param message The new message.
+     */
+    public void report(String message) {
+        updateMessage(message);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            cancelStatement();
+        }
+        return cancelled;
+    }
+
+    private void cancelStatement() {
+        Statement st = statement;
+        if (st == null) {
+            return;
+        }
+        try {
+            st.cancel(); // Asks the server to abort the running call
+        } catch (SQLException ex) {
+            System.err.println("Error cancelling statement: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A fixed-capacity window over the most recent values of a stream of doubles, with the window's sum, mean, min
+ * and max maintained as values arrive.
+ *
+ * add() never allocates: values live in a circular double[], and once the window is full each new value
+ * overwrites the oldest. Every statistic costs O(1) per value (amortized for min and max):
+ * - sum: a running total, adjusted by the value entering and the one leaving. It is recomputed from the
+ *   window after every capacity() evictions, so rounding error cannot accumulate, and at once when a
+ *   non-finite value leaves (Infinity - Infinity would otherwise leave NaN behind).
+ * - min / max: monotonic deques of positions. The max deque holds the positions of values that are larger
+ *   than every value after them; a new value pops the smaller ones from the back, and the front, the
+ *   largest, is dropped when it leaves the window. Each position is pushed and popped at most once.
+ * As with Math.min/max, a NaN in the window makes min and max NaN.
+ *
+ * Not thread-safe; see SpscDoubleRingBuffer for handing values from one thread to another.
+ */
+public final class DoubleRingBuffer {
+
+    private final double[] values;
+    private long count; // Values added since creation or clear(); the next value's position
+    private double sum;
+    private int evictionsSinceResum;
+    private int nanCount;
+
+    // Circular deques of positions (as count values); position p's value is values[p % capacity]
+    private final long[] maxDeque;
+    private final long[] minDeque;
+    private int maxHead, maxSize, minHead, minSize;
+
+    /**
+     * @param capacity The window size (at least 1).
+     */
+    public DoubleRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        values = new double[capacity];
+        maxDeque = new long[capacity];
+        minDeque = new long[capacity];
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public int size() {
+        return (int) Math.min(count, values.length);
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean isFull() {
+        return count >= values.length;
+    }
+
+    /**
+     * @return The number of values added since creation or the last clear(), including those evicted.
+     */
+    public long totalAdded() {
+        return count;
+    }
+
+    /**
+     * Appends a value, evicting the oldest one if the window is full.
+     */
+    public void add(double value) {
+        int capacity = values.length;
+        int slot = (int) (count % capacity);
+        if (count >= capacity) {
+            double evicted = values[slot];
+            long leaving = count - capacity;
+            if (Double.isNaN(evicted)) nanCount--;
+            if (maxSize > 0 && maxDeque[maxHead] == leaving) {
+                maxHead = next(maxHead);
+                maxSize--;
+            }
+            if (minSize > 0 && minDeque[minHead] == leaving) {
+                minHead = next(minHead);
+                minSize--;
+            }
+            values[slot] = value;
+            if (!Double.isFinite(evicted) || ++evictionsSinceResum >= capacity) {
+                resum();
+            } else {
+                sum += value - evicted;
+            }
+        } else {
+            values[slot] = value;
+            sum += value;
+        }
+        if (Double.isNaN(value)) {
+            nanCount++; // Kept out of the deques: no ordering with NaN
+        } else {
+            while (maxSize > 0 && valueAt(maxDeque[back(maxHead, maxSize)]) <= value) maxSize--;
+            maxDeque[(maxHead + maxSize++) % capacity] = count;
+            while (minSize > 0 && valueAt(minDeque[back(minHead, minSize)]) >= value) minSize--;
+            minDeque[(minHead + minSize++) % capacity] = count;
+        }
+        count++;
+    }
+
+    /**
+     * Appends values[from, to).
+     */
+    public void addAll(double[] source, int from, int to) {
+        for (int i = from; i < to; i++) {
+            add(source[i]);
+        }
+    }
+
+    /**
+     * @param index 0 for the oldest value in the window, size() - 1 for the newest.
+     */
+    public double get(int index) {
+        int size = size();
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        return valueAt(count - size + index);
+    }
+
+    public double oldest() {
+        checkNotEmpty();
+        return get(0);
+    }
+
+    public double newest() {
+        checkNotEmpty();
+        return valueAt(count - 1);
+    }
+
+    /**
+     * @return The sum of the values in the window; 0 when empty.
+     */
+    public double sum() {
+        return sum;
+    }
+
+    /**
+     * @return The mean of the values in the window; NaN when empty.
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : sum / size();
+    }
+
+    /**
+     * @throws NoSuchElementException If the window is empty.
+     */
+    public double max() {
+        checkNotEmpty();
+        return nanCount > 0 ? Double.NaN : valueAt(maxDeque[maxHead]);
+    }
+
+    /**
+     * @throws NoSuchElementException If the window is empty.
+     */
+    public double min() {
+        checkNotEmpty();
+        return nanCount > 0 ? Double.NaN : valueAt(minDeque[minHead]);
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0;
+        evictionsSinceResum = 0;
+        nanCount = 0;
+        maxHead = maxSize = minHead = minSize = 0;
+    }
+
+    /**
+     * @return The window's values, oldest first.
+     */
+    public double[] toArray() {
+        double[] out = new double[size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = get(i);
+        }
+        return out;
+    }
+
+    /**
+     * @return The window formatted as List.toString() formats it, oldest first.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0, size = size(); i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private double valueAt(long position) {
+        return values[(int) (position % values.length)];
+    }
+
+    private void resum() {
+        double s = 0;
+        for (double v : values) {
+            s += v; // Only called when full, so every slot is in the window
+        }
+        sum = s;
+        evictionsSinceResum = 0;
+    }
+
+    private int next(int i) {
+        return i + 1 == values.length ? 0 : i + 1;
+    }
+
+    private int back(int head, int size) {
+        return (head + size - 1) % values.length;
+    }
+
+    private void checkNotEmpty() {
+        if (count == 0) throw new NoSuchElementException("Window is empty");
+    }
+}
@@ -0,0 +1,248 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Cell edits of one table that are kept locally until they are saved or discarded.
+ *
+ * Edits are tracked per row (by ROWID, so an edit survives the row's page being evicted and read again)
+ * and per column. The rows themselves are not modified until the edits have been committed; until then the
+ * view shows the pending value through value().
+ *
+ * save() writes all pending edits in one transaction: rows that changed the same set of columns share one
+ * UPDATE statement and are sent as a single JDBC batch. Every UPDATE also checks that the edited columns
+ * still hold the values that were read (optimistic locking). If any row was changed or deleted by someone
+ * else in the meantime, the whole transaction is rolled back and nothing is written.
+ *
+ * Not thread-safe: edit, read and clear the buffer on the FX thread, and pass pending() to save().
+ */
+public class EditBuffer {
+
+    /**
+     * The pending edits of one row.
+     */
+    public static final class RowEdit {
+        public final CrudOperations.RowData row; // The row as it was read (holds the original values)
+        public final Map<Integer, String> values; // New value by column index, in column order
+
+        RowEdit(CrudOperations.RowData row, Map<Integer, String> values) {
+            this.row = row;
+            this.values = values;
+        }
+    }
+
+    private final Map<String, RowEdit> edits = new LinkedHashMap<>(); // By ROWID, in the order rows were first edited
+    private int cellCount;
+
+    /**
+     * Records a new value for one cell. Setting a cell back to its original value drops the edit.
+     * @param row The edited row; it must carry its ROWID.
+     * @param column The column index.
+     * @param value The new value.
+     * @throws IllegalArgumentException If the row has no ROWID (e.g. its page is still loading).
+     */
+    public void edit(CrudOperations.RowData row, int column, String value) {
+        if (row.getRowId() == null) {
+            throw new IllegalArgumentException("Row has not been loaded yet");
+        }
+        RowEdit edit = edits.get(row.getRowId());
+        if (Objects.equals(normalize(value), normalize(row.get(column)))) {
+            if (edit != null && edit.values.remove(column) != null) {
+                cellCount--;
+                if (edit.values.isEmpty()) {
+                    edits.remove(row.getRowId());
+                }
+            }
+            return;
+        }
+        if (edit == null) {
+            edit = new RowEdit(row, new TreeMap<>());
+            edits.put(row.getRowId(), edit);
+        }
+        if (edit.values.put(column, value) == null) {
+            cellCount++;
+        }
+    }
+
+    /**
+     * @return The value to display for a cell: the pending value if the cell was edited, the row's value otherwise.
+     */
+    public String value(CrudOperations.RowData row, int column) {
+        RowEdit edit = row.getRowId() == null ? null : edits.get(row.getRowId());
+        if (edit != null && edit.values.containsKey(column)) {
+            return edit.values.get(column);
+        }
+        return row.get(column);
+    }
+
+    /**
+     * @return True if the cell has a pending edit.
+     */
+    public boolean isEdited(CrudOperations.RowData row, int column) {
+        RowEdit edit = row.getRowId() == null ? null : edits.get(row.getRowId());
+        return edit != null && edit.values.containsKey(column);
+    }
+
+    /**
+     * @return The number of edited cells.
+     */
+    public int cellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @return The number of edited rows.
+     */
+    public int rowCount() {
+        return edits.size();
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * @return A copy of the pending edits, safe to hand to save() on another thread.
+     */
+    public List<RowEdit> pending() {
+        List<RowEdit> copy = new ArrayList<>(edits.size());
+        for (RowEdit edit : edits.values()) {
+            copy.add(new RowEdit(edit.row, Collections.unmodifiableMap(new TreeMap<>(edit.values))));
+        }
+        return copy;
+    }
+
+    /**
+     * Forgets edits that have been saved. Cells edited again after pending() was taken stay pending.
+     * @param saved The edits passed to a successful save().
+     */
+    public void committed(List<RowEdit> saved) {
+        for (RowEdit done : saved) {
+            RowEdit edit = edits.get(done.row.getRowId());
+            if (edit == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, String> e : done.values.entrySet()) {
+                if (Objects.equals(edit.values.get(e.getKey()), e.getValue())) {
+                    edit.values.remove(e.getKey());
+                    cellCount--;
+                }
+            }
+            if (edit.values.isEmpty()) {
+                edits.remove(done.row.getRowId());
+            }
+        }
+    }
+
+    /**
+     * Drops all pending edits.
+     */
+    public void clear() {
+        edits.clear();
+        cellCount = 0;
+    }
+
+    /**
+     * Writes edits in a single transaction. Runs on a background thread.
+     * @param conn The connection to write with; its auto-commit mode is restored afterwards.
+     * @param table The table name.
+     * @param meta The table's description (for key resolution and native binding).
+     * @param columns The column names the rows' values are in, in order.
+     * @param pending The edits to write, from pending().
+     * @param task The task doing the work, so cancelling it cancels the executing batch (may be null).
+     * @return The number of rows updated.
+     * @throws SQLException If a statement fails, or a row was changed or deleted by another session
+     *                      (SQLState 40001); nothing is written in either case.
+     */
+    public static int save(Connection conn, String table, SchemaCache.TableMeta meta, List<String> columns,
+                           List<RowEdit> pending, DbTask<?> task) throws SQLException {
+        TableKey key = TableKey.resolve(meta);
+
+        // Rows that changed the same columns (with the same NULL originals) share one statement and batch
+        Map<String, List<RowEdit>> byStatement = new LinkedHashMap<>();
+        for (RowEdit edit : pending) {
+            byStatement.computeIfAbsent(updateSql(table, meta, columns, key, edit), k -> new ArrayList<>()).add(edit);
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false); // All statements below are committed together
+        try {
+            int updated = 0;
+            List<String> conflicts = new ArrayList<>();
+            for (Map.Entry<String, List<RowEdit>> e : byStatement.entrySet()) {
+                QueryMetrics.debug(() -> "Executing SQL: " + e.getKey() + " for " + e.getValue().size() + " row(s)");
+                try (PreparedStatement ps = conn.prepareStatement(e.getKey())) {
+                    if (task != null) {
+                        task.track(ps);
+                    }
+                    for (RowEdit edit : e.getValue()) {
+                        int paramIndex = 1;
+                        for (Map.Entry<Integer, String> value : edit.values.entrySet()) {
+                            TableKey.bindValue(ps, paramIndex++, meta.column(columns.get(value.getKey())), value.getValue());
+                        }
+                        paramIndex = key.bindKey(ps, paramIndex, edit.row, columns);
+                        // Optimistic check: the edited columns must still hold the values that were read
+                        for (Integer column : edit.values.keySet()) {
+                            if (!isNull(edit.row.get(column))) {
+                                TableKey.bindValue(ps, paramIndex++, meta.column(columns.get(column)), edit.row.get(column));
+                            }
+                        }
+                        ps.addBatch();
+                    }
+                    int[] counts = ps.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            conflicts.add(e.getValue().get(i).row.getRowId());
+                        } else if (counts[i] > 0) {
+                            updated += counts[i];
+                        }
+                    }
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                throw new SQLException(conflicts.size() + " row(s) were changed or deleted by another session since they "
+                        + "were loaded (ROWID " + String.join(", ", conflicts) + "). No changes were saved.", "40001");
+            }
+            conn.commit();
+            return updated;
+        } catch (SQLException | RuntimeException ex) {
+            conn.rollback(); // All or nothing
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Builds the UPDATE for one row: SET the edited columns, WHERE the key matches and the edited
+     * columns still hold their original values (compared with IS NULL where the original was NULL).
+     */
+    private static String updateSql(String table, SchemaCache.TableMeta meta, List<String> columns, TableKey key, RowEdit edit) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        StringBuilder check = new StringBuilder();
+        for (Integer column : edit.values.keySet()) {
+            if (check.length() > 0) {
+                sql.append(", ");
+            }
+            sql.append(columns.get(column)).append(" = ?");
+            check.append(" AND ").append(columns.get(column)).append(isNull(edit.row.get(column))
+                    ? " IS NULL" : " = " + TableKey.placeholder(meta.column(columns.get(column))));
+        }
+        return sql.append(" WHERE ").append(key.whereClause()).append(check).toString();
+    }
+
+    private static boolean isNull(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A growable region of a temporary file, memory-mapped in segments of a fixed power-of-two size, for data that
+ * should not live on the Java heap (see RowSpillFile and SpilledRowList).
+ *
+ * Segments are mapped on first use, which extends the (sparse) file; the operating system pages them in and
+ * out, so the region is bounded by disk space, not by -Xmx or -XX:MaxDirectMemorySize. The file is deleted when
+ * the region is closed (mappings already handed out stay valid until they are garbage collected).
+ *
+ * One thread writes. Other threads may read what was written before a happens-before edge, e.g. a value
+ * handed over through Platform.runLater or an executor.
+ */
+public final class MappedRegion implements Closeable {
+
+    private final FileChannel channel;
+    private final int shift;
+    private final int mask;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * @param prefix The temporary file's name prefix.
+     * @param segmentShift log2 of the segment size in bytes.
+     * @throws IOException If the temporary file cannot be created.
+     */
+    public MappedRegion(String prefix, int segmentShift) throws IOException {
+        Path file = Files.createTempFile(prefix, ".spill");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        shift = segmentShift;
+        mask = (1 << segmentShift) - 1;
+    }
+
+    /**
+     * @return log2 of the segment size.
+     */
+    public int segmentShift() {
+        return shift;
+    }
+
+    /**
+     * @return The segment holding byte position index << segmentShift(), mapped (and the file extended) if needed.
+     *         Use absolute get/put only: the buffer is shared.
+     * @throws UncheckedIOException If the segment cannot be mapped (e.g. the disk is full or the region is closed).
+     */
+    public MappedByteBuffer segment(int index) {
+        MappedByteBuffer[] mapped = segments;
+        if (index < mapped.length) {
+            return mapped[index];
+        }
+        return map(index);
+    }
+
+    private synchronized MappedByteBuffer map(int index) {
+        MappedByteBuffer[] mapped = segments;
+        if (index >= mapped.length) {
+            mapped = Arrays.copyOf(mapped, index + 1);
+            try {
+                for (int i = segments.length; i <= index; i++) {
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << shift, 1L << shift);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot map spill file segment " + index, ex);
+            }
+            segments = mapped;
+        }
+        return mapped[index];
+    }
+
+    public int getInt(long index) {
+        long pos = index << 2;
+        return segment((int) (pos >>> shift)).getInt((int) (pos & mask));
+    }
+
+    public void putInt(long index, int value) {
+        long pos = index << 2;
+        segment((int) (pos >>> shift)).putInt((int) (pos & mask), value);
+    }
+
+    public long getLong(long index) {
+        long pos = index << 3;
+        return segment((int) (pos >>> shift)).getLong((int) (pos & mask));
+    }
+
+    public void putLong(long index, long value) {
+        long pos = index << 3;
+        segment((int) (pos >>> shift)).putLong((int) (pos & mask), value);
+    }
+
+    /**
+     * Closes and deletes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        segments = new MappedByteBuffer[0];
+        channel.close();
+    }
+}
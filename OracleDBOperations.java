@@ -1,7 +1,9 @@
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 
-public class Oracle {
+// Not public: the class lives in OracleDBOperations.java, and javac only accepts public classes in a file of the same name
+class Oracle {
 
     static final String URL = "jdbc:oracle:thin:@localhost:1521:xe"; // Change if needed
     static final String USER = "system"; // your username
@@ -9,8 +11,16 @@ public class Oracle {
     static Scanner sc = new Scanner(System.in);
 
     public static void main(String[] args) {
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASS)) {
-            System.out.println("Connected to Oracle Database!");
+        if (args.length > 0) {
+            // Headless: run a script (see ScriptRunner); the connection can be overridden for schedulers
+            System.exit(ScriptRunner.run(args, System.getProperty("oracle.url", URL), System.getProperty("oracle.user", USER),
+                    System.getProperty("oracle.password", PASS), System.out));
+        }
+        // Each operation borrows its own connection, so a dropped connection is replaced on the next operation
+        try (ConnectionPool pool = new ConnectionPool(URL, USER, PASS, 2)) {
+            try (Connection conn = pool.getConnection()) {
+                System.out.println("Connected to Oracle Database! " + conn.getMetaData().getDatabaseProductVersion());
+            }
 
             while (true) {
                 System.out.println("\n=== Oracle DB Operations ===");
@@ -26,19 +36,24 @@ public class Oracle {
                 int choice = sc.nextInt();
                 sc.nextLine(); // consume newline 
 
-                switch (choice) {
-                    case 1 -> createTable(conn);
-                    case 2 -> insertData(conn);
-                    case 3 -> deleteData(conn);
-                    case 4 -> updateData(conn);
-                    case 5 -> selectData(conn);
-                    case 6 -> truncateTable(conn);
-                    case 7 -> dropTable(conn);
-                    case 8 -> {
-                        System.out.println("Exiting program.");
-                        return;
+                if (choice == 8) {
+                    System.out.println("Exiting program.");
+                    return;
+                }
+                try (Connection conn = pool.getConnection()) {
+                    switch (choice) {
+                        case 1 -> createTable(conn);
+                        case 2 -> insertData(conn);
+                        case 3 -> deleteData(conn);
+                        case 4 -> updateData(conn);
+                        case 5 -> selectData(conn);
+                        case 6 -> truncateTable(conn);
+                        case 7 -> dropTable(conn);
+                        default -> System.out.println("Invalid choice.");
                     }
-                    default -> System.out.println("Invalid choice.");
+                } catch (SQLException e) {
+                    // Report and keep the menu running; the pool replaces the connection if it was lost
+                    e.printStackTrace();
                 }
             }
 
@@ -139,21 +154,55 @@ public class Oracle {
     static void selectData(Connection conn) throws SQLException {
         System.out.print("Enter table name to select from: ");
         String table = sc.nextLine();
+        System.out.print("Output format - table, csv or tsv [table]: ");
+        ResultPrinter.Format format;
+        try {
+            format = ResultPrinter.Format.parse(sc.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown format, using table.");
+            format = ResultPrinter.Format.TABLE;
+        }
+        long limit = inputLong("Maximum rows to print (blank for all): ");
+        long percent = inputLong("Percentage of rows to sample (blank for all): ");
 
         String sql = "SELECT * FROM " + table;
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            ResultSetMetaData meta = rs.getMetaData();
-            int colCount = meta.getColumnCount();
-
-            System.out.println("=== Data in Table " + table + " ===");
-            while (rs.next()) {
-                for (int i = 1; i <= colCount; i++) {
-                    System.out.print(meta.getColumnName(i) + ": " + rs.getString(i) + "  ");
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (limit > 0 && (percent <= 0 || percent >= 100)) {
+                stmt.setMaxRows((int) Math.min(limit, Integer.MAX_VALUE)); // The server stops after the limit
+            }
+            ResultDecoder.tune(stmt, 1); // Large fetches from the first round trip on
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultPrinter printer = new ResultPrinter(ResultPrinter.stdout(), format).setLimit(limit);
+                if (percent > 0 && percent < 100) {
+                    printer.setSample(percent / 100.0, System.nanoTime());
+                }
+                if (format == ResultPrinter.Format.TABLE) {
+                    System.out.println("=== Data in Table " + table + " ===");
                 }
-                System.out.println();
+                System.out.flush(); // The printer writes to standard output directly
+                long printed = printer.print(rs);
+                System.out.println(printed + " row(s) printed"
+                        + (printed < printer.rowsRead() ? " of " + printer.rowsRead() + " read" : "") + ".");
+            } catch (IOException e) {
+                System.out.println("Could not write the output: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads a non-negative whole number; a blank line is 0.
+     */
+    private static long inputLong(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String line = sc.nextLine().trim();
+            if (line.isEmpty()) return 0;
+            try {
+                long value = Long.parseLong(line);
+                if (value >= 0) return value;
+            } catch (NumberFormatException ignored) {
             }
+            System.out.println("Please enter a whole number of 0 or more.");
         }
     }
 
@@ -0,0 +1,322 @@
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Read-only list of table rows that is filled page by page as the TableView asks for rows.
+ * Only the pages around the visible window (plus one prefetched page) are kept in memory,
+ * so the heap used by a loaded table stays bounded no matter how many rows the table has.
+ *
+ * The rows are those of a TableQuery, so filters, ORDER BY and the row limit are applied by the database.
+ * Unsorted queries are read in ROWID order: a page whose predecessor has already been read is fetched
+ * with a keyset predicate (ROWID > last key of the previous page), which lets Oracle start
+ * the scan right where the previous page ended. Pages reached by jumping (e.g. dragging the
+ * scrollbar), and all pages of sorted queries, use OFFSET ... FETCH NEXT paging.
+ *
+ * Pages are read on a background executor: a row whose page is not loaded yet is returned as an
+ * empty placeholder and replaced (with a list change event) once the page arrives, so scrolling
+ * never blocks the FX thread. Only the constructor queries synchronously, and it must therefore
+ * be called from a background thread.
+ *
+ * The rows are never counted (a COUNT(*) reads the whole table or index before the first row can be shown).
+ * The size starts as an estimate: exact if the first page is short, otherwise the optimizer statistics'
+ * row count (USER_TABLES.NUM_ROWS) for an unfiltered query, and at least one page more than has been read.
+ * It is corrected as pages arrive: a full page grows it so there is always a next page to scroll to,
+ * a short page ends it (an empty page reached by jumping only bounds it: the end is before that page).
+ * Each correction is reported to listeners as rows added or removed at the end.
+ */
+public class PagedRowList extends ObservableListBase<CrudOperations.RowData> {
+
+    public static final int DEFAULT_PAGE_SIZE = 200; // Rows fetched per round trip
+    public static final int DEFAULT_MAX_PAGES = 6; // Pages kept in memory at once
+
+    private static final String ESTIMATE_SQL = "SELECT num_rows FROM user_tables WHERE table_name = ?";
+
+    private final ConnectionPool pool;
+    private final Executor executor;
+    private final TableQuery query;
+    private final List<String> columns;
+    private final int pageSize;
+    private final int maxPages;
+    private final Consumer<SQLException> errorHandler;
+    // The size and what the pages read so far prove about it (FX thread after construction)
+    private int size;
+    private int rowsAtLeast; // Rows known to exist: the end of the furthest non-empty page
+    private int rowsAtMost; // Rows there can be: the end of the nearest short page, or the query's limit
+    private final CrudOperations.RowData placeholder; // Shown for rows whose page is still loading
+
+    // Cached pages in access order; the least recently used page is evicted first
+    private final LinkedHashMap<Integer, List<CrudOperations.RowData>> pages;
+    // Pages currently being read in the background (FX thread only)
+    private final Set<Integer> loading = new HashSet<>();
+    // ROWID of the last row of every page read so far, used as the keyset start for the next page
+    private final Map<Integer, String> lastKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a paged view over the rows of a query using the default page size and cache size.
+     * @param pool The pool each page read borrows a connection from.
+     * @param executor The executor pages are read on.
+     * @param query The table, columns, filters and order to read.
+     * @param errorHandler Receives errors raised while fetching a page (called on the FX thread).
+     * @throws SQLException If the first page cannot be read.
+     */
+    public PagedRowList(ConnectionPool pool, Executor executor, TableQuery query,
+                        Consumer<SQLException> errorHandler) throws SQLException {
+        this(pool, executor, query, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, errorHandler);
+    }
+
+    /**
+     * Creates a paged view over the rows of a query.
+     * @param pool The pool each page read borrows a connection from.
+     * @param executor The executor pages are read on.
+     * @param query The table, columns, filters and order to read.
+     * @param pageSize Number of rows read per page.
+     * @param maxPages Maximum number of pages kept in memory (at least 2: the current page and the prefetched one).
+     * @param errorHandler Receives errors raised while fetching a page (called on the FX thread).
+     * @throws SQLException If the first page cannot be read.
+     */
+    public PagedRowList(ConnectionPool pool, Executor executor, TableQuery query, int pageSize, int maxPages,
+                        Consumer<SQLException> errorHandler) throws SQLException {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pool = pool;
+        this.executor = executor;
+        this.query = query;
+        this.columns = query.columns();
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(2, maxPages);
+        this.errorHandler = errorHandler;
+        this.placeholder = new CrudOperations.RowData(new String[this.columns.size()], 0, this.columns.size());
+        this.rowsAtMost = query.limit() > 0 ? query.limit() : Integer.MAX_VALUE;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<CrudOperations.RowData>> eldest) {
+                return size() > PagedRowList.this.maxPages;
+            }
+        };
+        List<CrudOperations.RowData> first = fetchPage(0); // Read the first page eagerly so it is shown immediately
+        pages.put(0, first);
+        if (first.size() == pageRows(0)) {
+            size = (int) Math.min(estimateRows(), Integer.MAX_VALUE); // Corrected below and as pages arrive
+        }
+        resize(0, first.size());
+    }
+
+    @Override
+    public CrudOperations.RowData get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int page = index / pageSize;
+        int offset = index % pageSize;
+        // Prefetch the next page once the reader is past the middle of this one
+        int next = page + 1;
+        if (offset >= pageSize / 2 && next * pageSize < size && !pages.containsKey(next)) {
+            requestPage(next);
+        }
+        List<CrudOperations.RowData> rows = pages.get(page); // Also marks the page most recently used
+        if (rows == null) {
+            requestPage(page);
+            return placeholder;
+        }
+        return offset < rows.size() ? rows.get(offset) : placeholder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Runs an action for every row currently held in memory (rows of evicted pages are read again when needed).
+     * Must be called on the FX thread.
+     * @param action The action to run.
+     */
+    public void forEachLoaded(Consumer<CrudOperations.RowData> action) {
+        for (List<CrudOperations.RowData> rows : pages.values()) {
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * @return The number of rows read per page.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return True once the end of the rows has been read, i.e. size() is the real number of rows.
+     */
+    public boolean isSizeExact() {
+        return rowsAtLeast == rowsAtMost;
+    }
+
+    /**
+     * Reads the table's row count from the optimizer statistics, which costs a dictionary lookup instead of
+     * a scan. Filters make it meaningless, and it is as old as the last statistics run, so it only seeds the size.
+     * @return The estimated number of rows, or 0 if unknown.
+     */
+    private long estimateRows() throws SQLException {
+        if (query.isFiltered()) {
+            return 0;
+        }
+        QueryMetrics.debug(() -> "Executing SQL: " + ESTIMATE_SQL);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(ESTIMATE_SQL)) {
+            ps.setString(1, query.table());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0; // NULL until statistics have been gathered
+            }
+        }
+    }
+
+    /**
+     * @return The number of rows a page holds unless it is the last one: the page size, less at the query's limit.
+     */
+    private int pageRows(int page) {
+        if (query.limit() == 0) {
+            return pageSize;
+        }
+        return (int) Math.max(0, Math.min(pageSize, query.limit() - (long) page * pageSize));
+    }
+
+    /**
+     * Corrects the size after a page has been read. Rows in a page prove the rows up to it exist; a short page
+     * proves there are none after it. Past a full page there may be more, so one more page is made reachable.
+     * @param page The zero-based page number.
+     * @param rows The number of rows the page held.
+     * @return The size before the correction.
+     */
+    private int resize(int page, int rows) {
+        int old = size;
+        int end = (int) Math.min((long) page * pageSize + rows, Integer.MAX_VALUE);
+        long target = size;
+        if (rows > 0) {
+            rowsAtLeast = Math.max(rowsAtLeast, end);
+        }
+        if (rows < pageRows(page)) {
+            rowsAtMost = Math.min(rowsAtMost, end);
+        } else {
+            target = Math.max(target, (long) end + pageSize);
+        }
+        size = (int) Math.min(Math.max(target, rowsAtLeast), rowsAtMost);
+        return old;
+    }
+
+    /**
+     * Starts reading a page in the background unless it is already being read.
+     * When the page arrives it is cached and its rows are reported as replaced, which makes the
+     * TableView re-render the placeholders. Must be called on the FX thread.
+     * @param page The zero-based page number.
+     */
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return; // Already on its way
+        }
+        executor.execute(() -> {
+            try {
+                List<CrudOperations.RowData> rows = fetchPage(page);
+                Platform.runLater(() -> pageArrived(page, rows, true));
+            } catch (SQLException ex) {
+                Platform.runLater(() -> {
+                    // Cache the failure as an empty page so the error is reported once, not on every cell refresh
+                    pageArrived(page, Collections.emptyList(), false);
+                    if (errorHandler != null) {
+                        errorHandler.accept(ex);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Caches a page read in the background and notifies listeners that its placeholders were replaced,
+     * and that rows were added or removed at the end if the page corrected the size.
+     * Package-private so the tests can deliver pages without the FX thread.
+     * @param page The zero-based page number.
+     * @param rows The rows of the page.
+     * @param read False if the page could not be read (its rows say nothing about the size).
+     */
+    void pageArrived(int page, List<CrudOperations.RowData> rows, boolean read) {
+        loading.remove(page);
+        pages.put(page, rows);
+        int old = read ? resize(page, rows.size()) : size;
+        int from = page * pageSize;
+        int to = Math.min(Math.min(old, size), from + pageSize);
+        beginChange();
+        if (from < to) {
+            nextReplace(from, to, Collections.nCopies(to - from, placeholder));
+        }
+        if (size > old) {
+            nextAdd(old, size);
+        } else if (size < old) {
+            nextRemove(size, Collections.nCopies(old - size, placeholder));
+        }
+        endChange();
+    }
+
+    /**
+     * Reads one page from the database. Runs on a background thread.
+     * Uses the keyset of the previous page when it is known (and the query is unsorted), OFFSET paging otherwise.
+     * Package-private so the benchmarks can read pages synchronously; the page is not cached.
+     * @param page The zero-based page number.
+     * @return The rows of the page.
+     * @throws SQLException If the page cannot be read.
+     */
+    List<CrudOperations.RowData> fetchPage(int page) throws SQLException {
+        String previousKey = page == 0 ? null : lastKeys.get(page - 1);
+        boolean keyset = !query.isSorted() && (page == 0 || previousKey != null);
+        int rowCount = pageRows(page); // The last page stops at the query's limit
+
+        String sql = keyset ? query.keysetPageSql(previousKey != null) : query.offsetPageSql();
+        QueryMetrics.debug(() -> "Executing SQL (page " + page + "): " + sql);
+
+        List<CrudOperations.RowData> rows = new ArrayList<>(rowCount);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int paramIndex = query.bind(ps, 1); // Filter values come first
+            if (keyset) {
+                if (previousKey != null) {
+                    ps.setString(paramIndex++, previousKey);
+                }
+            } else {
+                ps.setLong(paramIndex++, (long) page * pageSize);
+            }
+            ps.setInt(paramIndex, rowCount);
+            ps.setFetchSize(rowCount); // Read the whole page in a single round trip
+
+            try (ResultSet rs = ps.executeQuery()) {
+                int width = columns.size();
+                ResultDecoder decoder = ResultDecoder.of(rs, 2); // Column 1 is the ROWID key
+                String[] cells = new String[rowCount * width]; // One flat array backs the whole page
+                String lastKey = null;
+                while (rows.size() < rowCount && rs.next()) {
+                    int offset = rows.size() * width;
+                    decoder.decode(rs, cells, offset);
+                    lastKey = rs.getString(1);
+                    rows.add(new CrudOperations.RowData(cells, offset, width, lastKey));
+                }
+                if (lastKey != null) {
+                    lastKeys.put(page, lastKey);
+                }
+            }
+        }
+        return rows;
+    }
+}
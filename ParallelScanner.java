@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads a whole table as several ranges at once, each over its own pooled connection.
+ *
+ * A full scan on one connection is bound by one server process and one network stream, and most of its
+ * time is spent waiting for the next fetch. split() cuts the table into disjoint ranges, scan() reads them
+ * concurrently, and scanInOrder() hands their rows on in range order as if they came from one query.
+ *
+ * Ranges are planned, cheapest and most even first, as:
+ * - ROWID ranges from the table's extents (USER_EXTENTS): consecutive extents are grouped into ranges of
+ *   about the same number of blocks, and each group becomes ROWID BETWEEN first and last ROWID of the group.
+ *   This reads only the dictionary, not the table, and every range is a direct ROWID range scan; ROWIDs
+ *   of other objects that sort in between belong to no row of this table. Tables smaller than
+ *   MIN_SPLIT_BLOCKS are not split.
+ * - Key ranges: for a single-column integer primary key, [MIN, MAX] (two index lookups) is cut into
+ *   equal-width ranges. This also works on databases without ROWIDs or extents (the embedded H2 database
+ *   of the benchmarks); skewed keys give uneven ranges.
+ * - Otherwise the whole table as one range.
+ */
+public final class ParallelScanner {
+
+    static final int MIN_SPLIT_BLOCKS = 128; // 1 MB of 8 KB blocks: below that, one reader is as fast
+    static final long MIN_KEYS_PER_RANGE = 1000;
+    static final int MAX_HELD_BATCHES = 16; // Batches a range may read ahead of its turn in scanInOrder()
+
+    /**
+     * A part of a table: a WHERE predicate with its bind values, or the whole table.
+     */
+    public static final class Range {
+        static final Range ALL = new Range(null, List.of());
+
+        final String predicate; // null for the whole table
+        final List<Object> params;
+
+        Range(String predicate, List<Object> params) {
+            this.predicate = predicate;
+            this.params = params;
+        }
+
+        /**
+         * @return " WHERE predicate", or "" for the whole table.
+         */
+        public String where() {
+            return predicate == null ? "" : " WHERE " + predicate;
+        }
+
+        /**
+         * Binds the range's values starting at the given parameter index.
+         * @return The next free parameter index.
+         */
+        public int bind(PreparedStatement ps, int index) throws SQLException {
+            for (Object value : params) {
+                ps.setObject(index++, value);
+            }
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return predicate == null ? "(all rows)" : predicate + " " + params;
+        }
+    }
+
+    /**
+     * Reads one range. Runs on a worker thread; long loops should check for interruption.
+     */
+    @FunctionalInterface
+    public interface RangeReader<R> {
+        R read(Range range, ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * Reads one range, passing its rows on in batches.
+     */
+    @FunctionalInterface
+    public interface BatchReader<T> {
+        void read(ResultSet rs, Consumer<List<T>> out) throws SQLException;
+    }
+
+    private final ConnectionPool pool;
+    private final SchemaCache schemaCache;
+
+    /**
+     * @param pool The pool the readers borrow their connections from (one per concurrent range).
+     * @param schemaCache Used to find a table's primary key; may be null to split by extents only.
+     */
+    public ParallelScanner(ConnectionPool pool, SchemaCache schemaCache) {
+        this.pool = pool;
+        this.schemaCache = schemaCache;
+    }
+
+    /**
+     * Plans up to the given number of ranges covering every row of the table exactly once.
+     * @return The ranges, in table order; a single Range for tables not worth splitting.
+     * @throws SQLException If the key range cannot be read.
+     */
+    public List<Range> split(String table, int parts) throws SQLException {
+        if (parts <= 1) {
+            return List.of(Range.ALL);
+        }
+        List<Range> ranges = extentRanges(table, parts);
+        if (ranges == null) {
+            ranges = keyRanges(table, parts);
+        }
+        return ranges == null || ranges.isEmpty() ? List.of(Range.ALL) : ranges;
+    }
+
+    /**
+     * ROWID ranges from the table's extents, or null if the dictionary cannot be read (not Oracle).
+     */
+    private List<Range> extentRanges(String table, int parts) {
+        String sql = "SELECT ROWIDTOCHAR(DBMS_ROWID.ROWID_CREATE(1, o.DATA_OBJECT_ID, e.RELATIVE_FNO, e.BLOCK_ID, 0)), "
+                + "ROWIDTOCHAR(DBMS_ROWID.ROWID_CREATE(1, o.DATA_OBJECT_ID, e.RELATIVE_FNO, e.BLOCK_ID + e.BLOCKS - 1, 32767)), "
+                + "e.BLOCKS FROM USER_EXTENTS e JOIN USER_OBJECTS o ON o.OBJECT_NAME = e.SEGMENT_NAME "
+                + "AND (o.SUBOBJECT_NAME = e.PARTITION_NAME OR (o.SUBOBJECT_NAME IS NULL AND e.PARTITION_NAME IS NULL)) "
+                + "WHERE e.SEGMENT_NAME = ? AND e.SEGMENT_TYPE LIKE 'TABLE%' AND o.OBJECT_TYPE LIKE 'TABLE%' "
+                + "ORDER BY o.DATA_OBJECT_ID, e.RELATIVE_FNO, e.BLOCK_ID";
+        QueryMetrics.debug(() -> "Executing SQL: " + sql);
+        List<String[]> extents = new ArrayList<>();
+        List<Long> blocks = new ArrayList<>();
+        long total = 0;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    extents.add(new String[]{rs.getString(1), rs.getString(2)});
+                    blocks.add(rs.getLong(3));
+                    total += rs.getLong(3);
+                }
+            }
+        } catch (SQLException ex) {
+            QueryMetrics.debug(() -> "No extent information (" + ex.getMessage() + "); splitting by key instead");
+            return null;
+        }
+        if (total < MIN_SPLIT_BLOCKS || extents.size() < 2) {
+            return extents.isEmpty() ? null : List.of(Range.ALL);
+        }
+        // Cut the extent list where the running block count passes each 1/parts share
+        List<Range> ranges = new ArrayList<>();
+        long share = (total + parts - 1) / parts;
+        long acc = 0;
+        int first = 0;
+        for (int i = 0; i < extents.size(); i++) {
+            acc += blocks.get(i);
+            if (acc >= share * (ranges.size() + 1) || i == extents.size() - 1) {
+                ranges.add(new Range("ROWID BETWEEN CHARTOROWID(?) AND CHARTOROWID(?)",
+                        List.of(extents.get(first)[0], extents.get(i)[1])));
+                first = i + 1;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Equal-width ranges of a single-column integer primary key, or null if the table has none.
+     */
+    private List<Range> keyRanges(String table, int parts) throws SQLException {
+        if (schemaCache == null) {
+            return null;
+        }
+        SchemaCache.TableMeta meta = schemaCache.table(table);
+        if (meta.primaryKey.size() != 1) {
+            return null;
+        }
+        SchemaCache.ColumnMeta key = meta.column(meta.primaryKey.get(0));
+        if (key == null || !isInteger(key)) {
+            return null;
+        }
+        String sql = "SELECT MIN(" + key.name + "), MAX(" + key.name + ") FROM " + table;
+        QueryMetrics.debug(() -> "Executing SQL: " + sql);
+        long min;
+        long max;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            min = rs.getLong(1);
+            if (rs.wasNull()) {
+                return List.of(Range.ALL); // Empty table
+            }
+            max = rs.getLong(2);
+        }
+        long span = max - min + 1;
+        if (span <= 0) {
+            return null; // Wider than a long; not worth handling
+        }
+        int count = (int) Math.max(1, Math.min(parts, span / MIN_KEYS_PER_RANGE));
+        if (count == 1) {
+            return List.of(Range.ALL);
+        }
+        List<Range> ranges = new ArrayList<>(count);
+        long step = span / count;
+        for (int i = 0; i < count; i++) {
+            long lo = min + i * step;
+            if (i == count - 1) {
+                ranges.add(new Range(key.name + " >= ?", List.of(lo))); // Also rows inserted above MAX since
+            } else if (i == 0) {
+                ranges.add(new Range(key.name + " < ?", List.of(lo + step))); // Also rows inserted below MIN since
+            } else {
+                ranges.add(new Range(key.name + " >= ? AND " + key.name + " < ?", List.of(lo, lo + step)));
+            }
+        }
+        return ranges;
+    }
+
+    private static boolean isInteger(SchemaCache.ColumnMeta column) {
+        switch (column.dataType) {
+            case "INTEGER":
+            case "BIGINT":
+            case "SMALLINT":
+                return true;
+            case "NUMBER":
+                return column.scale == 0 && column.precision > 0 && column.precision <= 18; // Fits in a long
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads the ranges concurrently, each with SELECT select FROM table t WHERE range, on its own connection.
+     * A single range is read on the calling thread. If one range fails or the calling thread is interrupted,
+     * the other readers are interrupted and the first error is thrown.
+     * @param select The select list, e.g. "t.*".
+     * @return The readers' results, in range order.
+     * @throws SQLException If a range cannot be read.
+     * @throws IOException If a reader fails with one.
+     */
+    public <R> List<R> scan(String table, String select, List<Range> ranges, RangeReader<R> reader)
+            throws SQLException, IOException {
+        if (ranges.size() == 1) {
+            return Collections.singletonList(readRange(table, select, ranges.get(0), reader));
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(ranges.size(), r -> {
+            Thread t = new Thread(r, "scan-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<R>> futures = new ArrayList<>(ranges.size());
+            for (Range range : ranges) {
+                futures.add(workers.submit(() -> readRange(table, select, range, reader)));
+            }
+            List<R> results = new ArrayList<>(ranges.size());
+            for (Future<R> f : futures) {
+                results.add(waitFor(f));
+            }
+            return results;
+        } finally {
+            workers.shutdownNow(); // Stops the remaining readers if one failed or the scan was cancelled
+        }
+    }
+
+    /**
+     * Reads the ranges concurrently and passes their batches to the sink in range order: batches of the
+     * earliest unfinished range go straight through, later ranges are held until their turn. A later range
+     * holds at most MAX_HELD_BATCHES batches; its reader then waits (with its cursor open) until the range's
+     * turn comes, so the heap held is bounded however large the table, and a sink that spills rows to disk
+     * (SpilledRowList) sees them before they pile up. The sink is called by one thread at a time (from the
+     * readers' threads).
+     * @throws SQLException If a range cannot be read.
+     * @throws CancellationException If the scan is cancelled while a reader waits for its turn.
+     */
+    public <T> void scanInOrder(String table, String select, List<Range> ranges, BatchReader<T> reader,
+                                Consumer<List<T>> sink) throws SQLException {
+        OrderedMerge<T> merge = new OrderedMerge<>(ranges.size(), MAX_HELD_BATCHES, sink);
+        try {
+            scan(table, select, ranges, (range, rs) -> {
+                int index = ranges.indexOf(range); // Ranges compare by identity
+                reader.read(rs, batch -> merge.deliver(index, batch));
+                merge.complete(index);
+                return null;
+            });
+        } catch (IOException ex) {
+            throw new SQLException(ex); // BatchReader does not throw IOException
+        }
+    }
+
+    private <R> R readRange(String table, String select, Range range, RangeReader<R> reader) throws SQLException, IOException {
+        String sql = "SELECT " + select + " FROM " + table + " t" + range.where();
+        QueryMetrics.debug(() -> "Executing SQL (scan): " + sql);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            range.bind(ps, 1);
+            ResultDecoder.tune(ps, 1); // Fetch about 2 MB per round trip, from the first one on
+            try (ResultSet rs = ps.executeQuery()) {
+                return reader.read(range, rs);
+            }
+        }
+    }
+
+    private static <R> R waitFor(Future<R> f) throws SQLException, IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Scan cancelled");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Re-sequences batches from concurrent ranges into range order, holding at most maxHeld batches per range.
+     */
+    private static final class OrderedMerge<T> {
+        private final List<ArrayDeque<List<T>>> held;
+        private final boolean[] done;
+        private final int maxHeld;
+        private final Consumer<List<T>> sink;
+        private int current; // The range whose batches go straight to the sink
+
+        OrderedMerge(int ranges, int maxHeld, Consumer<List<T>> sink) {
+            held = new ArrayList<>(ranges);
+            for (int i = 0; i < ranges; i++) {
+                held.add(new ArrayDeque<>());
+            }
+            done = new boolean[ranges];
+            this.maxHeld = maxHeld;
+            this.sink = sink;
+        }
+
+        /**
+         * Passes a batch on, or holds it; blocks while the range already holds maxHeld batches.
+         * @throws CancellationException If the thread is interrupted while waiting.
+         */
+        synchronized void deliver(int range, List<T> batch) {
+            ArrayDeque<List<T>> queue = held.get(range);
+            while (range != current && queue.size() >= maxHeld) {
+                try {
+                    wait(); // Until complete() makes this range current
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Scan cancelled");
+                }
+            }
+            if (range == current) {
+                sink.accept(batch);
+            } else {
+                queue.add(batch);
+            }
+        }
+
+        synchronized void complete(int range) {
+            done[range] = true;
+            while (current < done.length && done[current]) {
+                current++;
+                if (current < done.length) {
+                    ArrayDeque<List<T>> queue = held.get(current);
+                    while (!queue.isEmpty()) {
+                        sink.accept(queue.poll());
+                    }
+                }
+            }
+            notifyAll(); // The new current range's reader may be waiting
+        }
+    }
+}
@@ -0,0 +1,499 @@
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Latency and volume metrics for every statement run through a ConnectionPool.
+ *
+ * The pool wraps each statement it hands out (see instrument()). Executions are grouped by statement shape:
+ * the SQL text with its layout normalized (see StatementCache.normalize), which for the bind-parameter
+ * statements this application generates means one shape per table and operation. Per shape it records
+ * - a latency histogram: execute time plus, for queries, the time spent in ResultSet.next() until the
+ *   result is exhausted or closed, i.e. the database's share of the operation without the caller's work;
+ * - errors, rows returned or affected, and fetch round trips (estimated as 1 + rows / fetch size, since
+ *   JDBC does not expose the driver's network calls).
+ * The time callers wait for a pooled connection is recorded in a separate histogram.
+ *
+ * The metrics can be read in the application's Metrics screen, over JMX (see register()) and as plain text
+ * over HTTP (see serve()).
+ */
+public class QueryMetrics implements QueryMetricsMBean {
+
+    private static final int MAX_SHAPES = 1000; // Statements with literals (e.g. DDL) would otherwise grow the map forever
+    static final int DEFAULT_FETCH_SIZE = 10; // What the Oracle driver uses when the fetch size is 0
+    private static final String OTHER_SHAPE = "(other statements)";
+    private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+
+    // Table of a statement: the first name after FROM, INTO, UPDATE or TABLE
+    private static final Pattern TABLE = Pattern.compile(
+            "(?i)\\b(?:FROM|INTO|UPDATE|TABLE)\\s+([A-Za-z_][A-Za-z0-9_$#]*(?:\\.[A-Za-z_][A-Za-z0-9_$#]*)?)");
+
+    /**
+     * A concurrent latency histogram with four buckets per power of two (at most 25% relative error).
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 4 * 42; // Up to 2^42 microseconds, about 50 days
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        public void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            counts.incrementAndGet(Math.min(BUCKETS - 1, bucket(micros)));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double totalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        public double meanMillis() {
+            long n = count();
+            return n == 0 ? 0 : totalMillis() / n;
+        }
+
+        public double maxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * @param p The percentile, between 0 and 100.
+         * @return The upper bound of the bucket holding the percentile (never more than the maximum), in ms.
+         */
+        public double percentileMillis(double p) {
+            long n = count();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(n * p / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBoundMicros(i) / 1e3, maxMillis());
+                }
+            }
+            return maxMillis();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        // 0..3 map to themselves; above that, 4 sub-buckets between consecutive powers of two
+        private static int bucket(long micros) {
+            if (micros < 4) {
+                return (int) micros;
+            }
+            int exp = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exp - 2)) & 3;
+            return 4 * (exp - 1) + sub;
+        }
+
+        private static long upperBoundMicros(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exp = bucket / 4 + 1;
+            int sub = bucket % 4;
+            return ((5L + sub) << (exp - 2)) - 1;
+        }
+    }
+
+    /**
+     * The metrics of one statement shape.
+     */
+    public static final class Shape {
+        public final String sql;
+        public final String operation; // First keyword, e.g. SELECT
+        public final String table; // Best effort; empty if none was found
+        public final Histogram latency = new Histogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder roundTrips = new LongAdder();
+
+        Shape(String sql) {
+            this.sql = sql;
+            int space = sql.indexOf(' ');
+            this.operation = (space < 0 ? sql : sql.substring(0, space)).toUpperCase(Locale.ROOT);
+            Matcher m = TABLE.matcher(sql);
+            this.table = m.find() ? m.group(1).toUpperCase(Locale.ROOT) : "";
+        }
+
+        public long executions() {
+            return latency.count();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public long rows() {
+            return rows.sum();
+        }
+
+        public long roundTrips() {
+            return roundTrips.sum();
+        }
+
+        void record(long nanos, long rowCount, long trips) {
+            latency.record(nanos);
+            rows.add(rowCount);
+            roundTrips.add(trips);
+        }
+
+        void recordError(long nanos) {
+            latency.record(nanos);
+            errors.increment();
+        }
+    }
+
+    private final ConcurrentHashMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final Histogram poolWait = new Histogram();
+    private volatile long since = System.currentTimeMillis();
+
+    /**
+     * Records how long a caller waited for a pooled connection.
+     */
+    public void recordPoolWait(long nanos) {
+        poolWait.record(nanos);
+    }
+
+    public Histogram poolWait() {
+        return poolWait;
+    }
+
+    /**
+     * @return All shapes, slowest in total first.
+     */
+    public List<Shape> shapes() {
+        List<Shape> list = new ArrayList<>(shapes.values());
+        list.sort(Comparator.comparingDouble((Shape s) -> s.latency.totalMillis()).reversed());
+        return list;
+    }
+
+    /**
+     * @return When recording started (or was last reset).
+     */
+    public long since() {
+        return since;
+    }
+
+    @Override
+    public void reset() {
+        shapes.clear();
+        poolWait.reset();
+        since = System.currentTimeMillis();
+    }
+
+    @Override
+    public long getStatementCount() {
+        long n = 0;
+        for (Shape s : shapes.values()) {
+            n += s.executions();
+        }
+        return n;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long n = 0;
+        for (Shape s : shapes.values()) {
+            n += s.errors();
+        }
+        return n;
+    }
+
+    @Override
+    public int getShapeCount() {
+        return shapes.size();
+    }
+
+    @Override
+    public double getPoolWaitP99Millis() {
+        return poolWait.percentileMillis(99);
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    /**
+     * @return The metrics as a plain-text table, slowest statements in total first.
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Query metrics since ").append(new Date(since))
+                .append(" (latency in ms; round trips estimated from the fetch size)\n");
+        out.append(String.format("%8s %6s %9s %9s %9s %9s %11s %10s %8s  %-24s %s%n",
+                "count", "errors", "p50", "p95", "p99", "max", "total", "rows", "trips", "table", "statement"));
+        for (Shape s : shapes()) {
+            Histogram h = s.latency;
+            out.append(String.format("%8d %6d %9.2f %9.2f %9.2f %9.2f %11.1f %10d %8d  %-24s %s%n",
+                    h.count(), s.errors(), h.percentileMillis(50), h.percentileMillis(95), h.percentileMillis(99),
+                    h.maxMillis(), h.totalMillis(), s.rows(), s.roundTrips(), s.table, s.sql));
+        }
+        out.append(String.format("Pool wait: count=%d p50=%.2f p95=%.2f p99=%.2f max=%.2f ms%n", poolWait.count(),
+                poolWait.percentileMillis(50), poolWait.percentileMillis(95), poolWait.percentileMillis(99),
+                poolWait.maxMillis()));
+        return out.toString();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, replacing an earlier registration of the same name.
+     * @param name The value of the "name" key, e.g. the application's name.
+     * @return The name to pass to unregister().
+     * @throws JMException If the registration fails.
+     */
+    public ObjectName register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("oracle.crud:type=QueryMetrics,name=" + ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public static void unregister(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            System.err.println("Error unregistering " + objectName + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Serves a text as text/plain at http://localhost:port/metrics. Listens on the loopback interface only.
+     * @param port The port.
+     * @param text Produces the text for each request (e.g. report() plus the pool's counters).
+     * @return The running server; stop it with stop(0).
+     * @throws IOException If the port cannot be bound.
+     */
+    public static HttpServer serve(int port, Supplier<String> text) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = text.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Logs what the application is about to run (statements, batches, scan plans) at level FINE, which is off
+     * by default: these calls sit on paging, scanning and batching paths, where printing every statement would
+     * cost more than the statement's bookkeeping. Enable with -Djava.util.logging.config.file pointing to a file
+     * that sets "QueryMetrics.level = FINE" and a handler at that level. The message is only built when logged.
+     */
+    public static void debug(Supplier<String> message) {
+        LOG.fine(message);
+    }
+
+    /**
+     * Wraps a statement so its executions are recorded. Called by the pool for every statement it creates.
+     * @param statement The statement (a Statement, PreparedStatement or CallableStatement).
+     * @param type The interface to expose, i.e. the return type of the method that created the statement.
+     * @param sql The prepared SQL, or null for a plain Statement (whose SQL is passed to execute).
+     * @param onError Receives every SQLException the statement or its result sets throw, before the caller does.
+     * @return The instrumented statement.
+     */
+    <S extends Statement> S instrument(Statement statement, Class<S> type, String sql, Consumer<SQLException> onError) {
+        StatementHandler handler = new StatementHandler(statement, sql == null ? null : shape(sql), onError);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private Shape shape(String sql) {
+        String key = StatementCache.normalize(sql);
+        Shape shape = shapes.get(key);
+        if (shape != null) {
+            return shape;
+        }
+        if (shapes.size() >= MAX_SHAPES) {
+            return shapes.computeIfAbsent(OTHER_SHAPE, Shape::new);
+        }
+        return shapes.computeIfAbsent(key, Shape::new);
+    }
+
+    /**
+     * Times the executions of one statement.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Shape prepared; // Null for a plain Statement
+        private final Consumer<SQLException> onError;
+        private Shape batch; // First SQL added with addBatch(String)
+        private MeteredResultSet openResult; // Recorded when the statement is closed, if not before
+        private Shape pendingShape; // execute() returned a result set that has not been asked for yet
+        private long pendingNanos;
+
+        StatementHandler(Statement statement, Shape prepared, Consumer<SQLException> onError) {
+            this.statement = statement;
+            this.prepared = prepared;
+            this.onError = onError;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean withSql = args != null && args.length > 0 && args[0] instanceof String;
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    finishResult();
+                    return forward(method, args);
+                case "addBatch":
+                    if (withSql && batch == null) {
+                        batch = shape((String) args[0]);
+                    }
+                    return forward(method, args);
+                case "getResultSet": {
+                    ResultSet rs = (ResultSet) forward(method, args);
+                    if (rs == null || pendingShape == null) {
+                        return rs;
+                    }
+                    ResultSet wrapped = track(rs, pendingShape, pendingNanos);
+                    pendingShape = null;
+                    return wrapped;
+                }
+                case "executeQuery":
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "executeBatch":
+                case "executeLargeBatch":
+                    break;
+                default:
+                    return forward(method, args);
+            }
+
+            Shape shape = withSql ? shape((String) args[0]) : name.endsWith("Batch") && batch != null ? batch : prepared;
+            if (shape == null) {
+                return forward(method, args); // Nothing known about the SQL
+            }
+            finishResult(); // Executing again closes the previous result
+            pendingShape = null;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException ex) {
+                shape.recordError(System.nanoTime() - start);
+                throw failed(ex);
+            }
+            long nanos = System.nanoTime() - start;
+            if (name.endsWith("Batch")) {
+                batch = null;
+            }
+
+            if (result instanceof ResultSet) {
+                return track((ResultSet) result, shape, nanos);
+            } else if (result instanceof Integer || result instanceof Long) {
+                shape.record(nanos, Math.max(0, ((Number) result).longValue()), 1);
+            } else if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+                shape.record(nanos, rows, 1);
+            } else if (result instanceof long[]) {
+                long rows = 0;
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+                shape.record(nanos, rows, 1);
+            } else if (Boolean.TRUE.equals(result)) {
+                pendingShape = shape; // Recorded once the caller has read the result set
+                pendingNanos = nanos;
+            } else {
+                shape.record(nanos, Math.max(0, statement.getUpdateCount()), 1);
+            }
+            return result;
+        }
+
+        private ResultSet track(ResultSet rs, Shape shape, long executeNanos) {
+            openResult = new MeteredResultSet(rs, shape, executeNanos, onError);
+            return openResult;
+        }
+
+        private void finishResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+            if (pendingShape != null) {
+                pendingShape.record(pendingNanos, 0, 1); // The result set was never read
+                pendingShape = null;
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException ex) {
+                throw failed(ex);
+            }
+        }
+
+        /**
+         * @return The exception the statement threw, after passing it to onError if it is an SQLException.
+         */
+        private Throwable failed(InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                onError.accept((SQLException) cause);
+            }
+            return cause;
+        }
+    }
+}
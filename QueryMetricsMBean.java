@@ -0,0 +1,35 @@
+/**
+ * The JMX view of QueryMetrics (e.g. in JConsole under oracle.crud / QueryMetrics).
+ */
+public interface QueryMetricsMBean {
+
+    /**
+     * @return The number of statements executed since the last reset.
+     */
+    long getStatementCount();
+
+    /**
+     * @return The number of executions that failed.
+     */
+    long getErrorCount();
+
+    /**
+     * @return The number of distinct statement shapes seen.
+     */
+    int getShapeCount();
+
+    /**
+     * @return The 99th percentile of the time callers waited for a pooled connection, in ms.
+     */
+    double getPoolWaitP99Millis();
+
+    /**
+     * @return All metrics as a plain-text table, slowest statements in total first.
+     */
+    String getReport();
+
+    /**
+     * Clears all metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,239 @@
+import javafx.collections.ObservableList;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Loaded table results (the lists shown by the Select, Update and Delete screens), kept so that going back to a
+ * table shows its rows at once instead of reading them again.
+ *
+ * Entries are keyed by the table and the query that produced them (shape and values, see TableQuery.resultKey)
+ * and bounded both by count and by the heap their rows take (as estimated by the caller); the least recently
+ * used ones are dropped first, and the onRemove callback decides whether a dropped list can be released.
+ *
+ * Each entry remembers the table's stamp, probed just before its rows were read. A cached result is shown
+ * immediately and then checked against a fresh probe; if the stamps differ the caller reads the table again.
+ * The probe must cost far less than the read it saves, so it never reads the table's rows:
+ * - On Oracle it reads the dictionary: LAST_DDL_TIME from user_objects and the DML counters of
+ *   user_tab_modifications. These count other sessions' committed changes too, but the database publishes them
+ *   from memory only every few minutes (or when statistics are gathered).
+ * - Elsewhere (the embedded test database) it counts the rows if the table has a primary key, which the
+ *   database answers from the key's index. Without one there is no stamp.
+ * So an entry is also dropped when it is looked up after the TTL, which bounds how long changes that no stamp
+ * shows can go unseen. Changes made by this application do not wait for either: its DML and DDL handlers
+ * call invalidateTable.
+ *
+ * Not thread-safe: use it on the FX thread, except probe(), which reads the database and touches no entries.
+ */
+public class ResultCache {
+
+    /**
+     * A cached result.
+     */
+    public static final class Entry {
+        public final String key;
+        public final String table;
+        public final ObservableList<CrudOperations.RowData> rows;
+        public final String stamp; // Null if the table has none
+        final long weight;
+        final long loadedAt;
+
+        /**
+         * @param key The result's key, e.g. TableQuery.resultKey().
+         * @param table The table the rows were read from.
+         * @param rows The rows.
+         * @param stamp The table's stamp (see probe()), probed before the rows were read.
+         * @param weight The estimated heap the rows take, in bytes.
+         */
+        public Entry(String key, String table, ObservableList<CrudOperations.RowData> rows, String stamp, long weight) {
+            this.key = key;
+            this.table = table.toUpperCase(Locale.ROOT);
+            this.rows = rows;
+            this.stamp = stamp;
+            this.weight = weight;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+    private static final String MODIFICATIONS_SQL = "SELECT o.last_ddl_time, m.inserts, m.updates, m.deletes, m.truncated "
+            + "FROM user_objects o LEFT JOIN user_tab_modifications m "
+            + "ON m.table_name = o.object_name AND m.partition_name IS NULL "
+            + "WHERE o.object_name = ? AND o.object_type = 'TABLE'";
+
+    private final ConnectionPool pool;
+    private final SchemaCache schemaCache;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final Consumer<ObservableList<CrudOperations.RowData>> onRemove;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long weight;
+    private volatile boolean modificationsSupported = true;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param pool The pool probes borrow a connection from.
+     * @param schemaCache Tells the probe whether a table has a primary key.
+     * @param maxEntries The maximum number of results kept.
+     * @param maxWeight The maximum total estimated heap of the kept results, in bytes. The most recently added
+     *                  result is kept even if it alone is heavier.
+     * @param ttlMillis How long a result is reused after it was read (unless invalidated earlier).
+     * @param onRemove Receives the rows of every entry that is dropped (evicted, expired or invalidated).
+     */
+    public ResultCache(ConnectionPool pool, SchemaCache schemaCache, int maxEntries, long maxWeight, long ttlMillis,
+                       Consumer<ObservableList<CrudOperations.RowData>> onRemove) {
+        this.pool = pool;
+        this.schemaCache = schemaCache;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.onRemove = onRemove;
+    }
+
+    /**
+     * Reads the table's current stamp without reading its rows. May be called from any thread.
+     * @param table The table name.
+     * @return A value that changes when a change to the table is committed (see above for how soon), or null if
+     *         the table has no stamp.
+     * @throws SQLException If the stamp cannot be read.
+     */
+    public String probe(String table) throws SQLException {
+        String name = table.toUpperCase(Locale.ROOT);
+        if (modificationsSupported) {
+            QueryMetrics.debug(() -> "Executing SQL: " + MODIFICATIONS_SQL);
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(MODIFICATIONS_SQL)) {
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null; // Not a table (any more)
+                    }
+                    return rs.getString(1) + "|" + rs.getLong(2) + "|" + rs.getLong(3) + "|" + rs.getLong(4)
+                            + "|" + rs.getString(5);
+                }
+            } catch (SQLException ex) {
+                if (ex.getSQLState() == null || !ex.getSQLState().startsWith("42")) {
+                    throw ex;
+                }
+                QueryMetrics.debug(() -> "No user_tab_modifications (" + ex.getMessage() + "); probing by key count");
+                modificationsSupported = false; // Syntax error or no such view: not Oracle
+            }
+        }
+        if (schemaCache.table(name).primaryKey.isEmpty()) {
+            return null; // Counting would read the whole table
+        }
+        String sql = "SELECT COUNT(*) FROM " + name;
+        QueryMetrics.debug(() -> "Executing SQL: " + sql);
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return Long.toString(rs.getLong(1));
+        }
+    }
+
+    /**
+     * @return The cached result for the key, or null if there is none or it has expired (it is dropped then).
+     */
+    public Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            entries.remove(key);
+            dropped(entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches a result, replacing any result for the same key, and drops the least recently used ones if the
+     * cache is over its bounds.
+     */
+    public void put(Entry entry) {
+        Entry old = entries.put(entry.key, entry);
+        weight += entry.weight;
+        if (old != null) {
+            weight -= old.weight;
+            if (old.rows != entry.rows) {
+                onRemove.accept(old.rows);
+            }
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > 1 && (entries.size() > maxEntries || weight > maxWeight)) {
+            Entry e = eldest.next();
+            eldest.remove();
+            dropped(e);
+        }
+    }
+
+    /**
+     * @return True if the rows are those of a cached result.
+     */
+    public boolean contains(ObservableList<CrudOperations.RowData> rows) {
+        for (Entry e : entries.values()) {
+            if (e.rows == rows) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the result for a key, e.g. after its stamp was found to be outdated.
+     */
+    public void invalidate(String key) {
+        Entry e = entries.remove(key);
+        if (e != null) {
+            dropped(e);
+        }
+    }
+
+    /**
+     * Drops every result read from the table. Call after DML or DDL on it.
+     */
+    public void invalidateTable(String table) {
+        String name = table.toUpperCase(Locale.ROOT);
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Entry e = it.next().getValue();
+            if (e.table.equals(name)) {
+                it.remove();
+                dropped(e);
+            }
+        }
+    }
+
+    /**
+     * Drops everything.
+     */
+    public void invalidateAll() {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            it.remove();
+            dropped(e);
+        }
+    }
+
+    private void dropped(Entry e) {
+        weight -= e.weight;
+        onRemove.accept(e.rows);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d result(s), ~%,d KB, %d hit(s), %d miss(es)", entries.size(), weight >> 10, hits, misses);
+    }
+}
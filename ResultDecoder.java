@@ -0,0 +1,240 @@
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes result rows into the String cells the views display.
+ *
+ * Column positions and SQL types are resolved once from ResultSetMetaData, and every cell is then read by
+ * position with the getter that matches its type: integral NUMBERs as long, other NUMBERs as BigDecimal,
+ * binary floating point as double, DATE/TIMESTAMP as Timestamp, everything else as String. This avoids a
+ * column name lookup per cell and the driver's generic conversion of every NUMBER and DATE to text.
+ *
+ * The decoder also estimates the width of a row from the metadata and derives a fetch size that moves
+ * roughly TARGET_FETCH_BYTES per network round trip (the Oracle driver fetches 10 rows by default).
+ */
+public final class ResultDecoder {
+
+    private static final int TARGET_FETCH_BYTES = 2 << 20; // Aim for about 2 MB per fetch round trip
+    private static final int MIN_FETCH_SIZE = 100;
+    private static final int MAX_FETCH_SIZE = 10_000;
+    private static final int ROW_OVERHEAD_BYTES = 16;
+
+    private static final int BINARY_FLOAT = 100; // Oracle-specific JDBC type codes
+    private static final int BINARY_DOUBLE = 101;
+
+    private static final byte KIND_STRING = 0;
+    private static final byte KIND_LONG = 1;
+    private static final byte KIND_DECIMAL = 2;
+    private static final byte KIND_DOUBLE = 3;
+    private static final byte KIND_TIMESTAMP = 4;
+
+    private final int firstColumn; // Position of the first decoded column in the result
+    private final byte[] kinds;
+    private final List<String> labels;
+    private final int rowBytes;
+
+    /**
+     * @param meta The result's metadata.
+     * @param firstColumn The 1-based position of the first column to decode (e.g. 2 if column 1 is a key).
+     * @throws SQLException If the metadata cannot be read.
+     */
+    public ResultDecoder(ResultSetMetaData meta, int firstColumn) throws SQLException {
+        this.firstColumn = firstColumn;
+        int count = meta.getColumnCount() - firstColumn + 1;
+        this.kinds = new byte[Math.max(0, count)];
+        List<String> labels = new ArrayList<>(kinds.length);
+        int bytes = ROW_OVERHEAD_BYTES;
+        for (int i = 0; i < kinds.length; i++) {
+            int column = firstColumn + i;
+            kinds[i] = kindOf(meta.getColumnType(column), meta.getPrecision(column), meta.getScale(column));
+            labels.add(meta.getColumnLabel(column));
+            bytes += estimatedWidth(meta, column);
+        }
+        this.labels = Collections.unmodifiableList(labels);
+        this.rowBytes = bytes;
+    }
+
+    /**
+     * @return A decoder for the columns of a result set starting at firstColumn.
+     */
+    public static ResultDecoder of(ResultSet rs, int firstColumn) throws SQLException {
+        return new ResultDecoder(rs.getMetaData(), firstColumn);
+    }
+
+    /**
+     * @return The number of decoded columns.
+     */
+    public int columnCount() {
+        return kinds.length;
+    }
+
+    /**
+     * @return The labels of the decoded columns.
+     */
+    public List<String> labels() {
+        return labels;
+    }
+
+    /**
+     * @param i The index of the decoded column.
+     * @return True if the column holds numbers (decoded by one of the numeric getters).
+     */
+    public boolean isNumeric(int i) {
+        return kinds[i] == KIND_LONG || kinds[i] == KIND_DECIMAL || kinds[i] == KIND_DOUBLE;
+    }
+
+    /**
+     * @return The estimated size of one row on the wire, in bytes.
+     */
+    public int estimatedRowBytes() {
+        return rowBytes;
+    }
+
+    /**
+     * @return A fetch size giving roughly TARGET_FETCH_BYTES per round trip for rows of this shape.
+     */
+    public int fetchSize() {
+        return fetchSizeFor(rowBytes);
+    }
+
+    /**
+     * Sets the adaptive fetch size on a statement that has not been executed yet, so that the first fetch
+     * uses it too. The row width comes from the statement's metadata (a describe, no rows are read); a
+     * statement without metadata keeps the driver's fetch size. The size never exceeds the max rows.
+     * @param ps The statement to tune.
+     * @param firstColumn The 1-based position of the first column the rows are decoded from.
+     * @throws SQLException If the metadata cannot be read or the fetch size cannot be set.
+     */
+    public static void tune(PreparedStatement ps, int firstColumn) throws SQLException {
+        ResultSetMetaData meta = ps.getMetaData();
+        if (meta == null) {
+            return;
+        }
+        int fetchSize = new ResultDecoder(meta, firstColumn).fetchSize();
+        int maxRows = ps.getMaxRows();
+        ps.setFetchSize(maxRows > 0 ? Math.min(fetchSize, maxRows) : fetchSize);
+    }
+
+    /**
+     * Decodes the current row into cells[offset .. offset + columnCount()).
+     * @param rs The result, positioned on a row.
+     * @param cells The destination array.
+     * @param offset The index of the row's first cell.
+     * @throws SQLException If a value cannot be read.
+     */
+    public void decode(ResultSet rs, String[] cells, int offset) throws SQLException {
+        for (int i = 0; i < kinds.length; i++) {
+            cells[offset + i] = decode(rs, i);
+        }
+    }
+
+    /**
+     * Decodes one cell of the current row.
+     * @param rs The result, positioned on a row.
+     * @param i The index of the decoded column (0 is the column at firstColumn).
+     * @return The value as text, or null for SQL NULL.
+     * @throws SQLException If the value cannot be read.
+     */
+    public String decode(ResultSet rs, int i) throws SQLException {
+        int column = firstColumn + i;
+        switch (kinds[i]) {
+            case KIND_LONG: {
+                long v = rs.getLong(column);
+                return rs.wasNull() ? null : Long.toString(v);
+            }
+            case KIND_DECIMAL: {
+                BigDecimal v = rs.getBigDecimal(column);
+                return v == null ? null : v.toPlainString();
+            }
+            case KIND_DOUBLE: {
+                double v = rs.getDouble(column);
+                return rs.wasNull() ? null : Double.toString(v);
+            }
+            case KIND_TIMESTAMP: {
+                Timestamp v = rs.getTimestamp(column); // Oracle DATE carries a time of day as well
+                if (v == null) {
+                    return null;
+                }
+                String text = v.toString();
+                // Timestamp always prints a fraction; DATE values have none, so drop a zero one
+                return v.getNanos() == 0 ? text.substring(0, text.length() - 2) : text;
+            }
+            default:
+                return rs.getString(column);
+        }
+    }
+
+    /**
+     * @return A fetch size giving roughly TARGET_FETCH_BYTES per round trip for rows of the given width.
+     */
+    public static int fetchSizeFor(int rowBytes) {
+        int rows = TARGET_FETCH_BYTES / Math.max(1, rowBytes);
+        return Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, rows));
+    }
+
+    /**
+     * @return The estimated size of one value of a column on the wire, in bytes.
+     */
+    public static int estimatedWidth(ResultSetMetaData meta, int column) throws SQLException {
+        switch (meta.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.DOUBLE:
+            case BINARY_FLOAT:
+            case BINARY_DOUBLE:
+                return 8;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.FLOAT:
+                return 22; // Oracle NUMBER is at most 22 bytes
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+                return 11;
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.BLOB:
+                return 128; // Only the locator is fetched with the row
+            default:
+                int size = meta.getColumnDisplaySize(column);
+                return size <= 0 ? 32 : Math.min(size, 4000);
+        }
+    }
+
+    private static byte kindOf(int jdbcType, int precision, int scale) {
+        switch (jdbcType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return KIND_LONG;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                // NUMBER(p, 0) with p <= 18 always fits in a long; unconstrained NUMBER does not
+                return scale == 0 && precision > 0 && precision <= 18 ? KIND_LONG : KIND_DECIMAL;
+            case Types.FLOAT:
+                return KIND_DECIMAL; // Oracle FLOAT is a decimal NUMBER, not a binary float
+            case Types.REAL:
+            case Types.DOUBLE:
+            case BINARY_FLOAT:
+            case BINARY_DOUBLE:
+                return KIND_DOUBLE;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return KIND_TIMESTAMP;
+            default:
+                return KIND_STRING;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Streams a ResultSet to a Writer as an aligned table, CSV or TSV.
+ *
+ * Column labels and types are resolved once (ResultDecoder), each cell is decoded with its typed getter and
+ * appended straight to the writer, and nothing is flushed until the end, so with a large buffered writer (see
+ * stdout()) the cost per row is the decoding and a few buffer copies rather than a synchronized, flushing
+ * System.out call per cell.
+ *
+ * Formats:
+ * - TABLE: columns padded to widths taken from the header and the first WIDTH_SAMPLE_ROWS rows, numbers
+ *   right-aligned, NULL shown as NULL. Values longer than MAX_TABLE_WIDTH are cut with "..."; a later value
+ *   wider than its column is printed in full and shifts the rest of its line. Only those first rows are held
+ *   in memory.
+ * - CSV: header line plus RFC 4180 lines; fields are quoted when needed, NULL is an empty field.
+ * - TSV: header line plus tab-separated lines; tab, line breaks and backslash are escaped as \t, \n, \r and
+ *   \\, NULL is an empty field (Oracle stores '' as NULL, so nothing is lost).
+ *
+ * Rows can be limited and sampled: with a sample rate below 1 each row is kept with that probability
+ * (Bernoulli sampling, reproducible for a given seed) and skipped rows are not decoded at all.
+ */
+public final class ResultPrinter {
+
+    public enum Format {
+        TABLE, CSV, TSV;
+
+        /**
+         * @return The format named (case-insensitively), or TABLE for a blank name.
+         * @throws IllegalArgumentException For an unknown name.
+         */
+        public static Format parse(String name) {
+            return name == null || name.isBlank() ? TABLE : valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    static final int WIDTH_SAMPLE_ROWS = 200;
+    static final int MAX_TABLE_WIDTH = 60;
+    private static final int STDOUT_BUFFER_CHARS = 1 << 20;
+
+    private final Writer out;
+    private final Format format;
+    private long limit; // 0 = no limit
+    private double sampleRate = 1;
+    private long seed;
+    private long rowsRead;
+
+    /**
+     * @param out The destination; flushed but not closed by print().
+     * @param format The output format.
+     */
+    public ResultPrinter(Writer out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * @param limit The maximum number of rows to print; 0 for all.
+     */
+    public ResultPrinter setLimit(long limit) {
+        if (limit < 0) throw new IllegalArgumentException("Negative limit " + limit);
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @param rate The fraction of rows to print, in (0, 1].
+     * @param seed The random seed; the same seed picks the same rows of the same result.
+     */
+    public ResultPrinter setSample(double rate, long seed) {
+        if (!(rate > 0 && rate <= 1)) throw new IllegalArgumentException("Sample rate must be in (0, 1]: " + rate);
+        this.sampleRate = rate;
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @return The number of rows read from the result by the last print(), including skipped ones.
+     */
+    public long rowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Prints the remaining rows of a result and flushes the writer. Tune the statement before executing it
+     * (see ResultDecoder.tune) so that the rows arrive in large fetches.
+     * @return The number of rows printed.
+     * @throws SQLException If the result cannot be read.
+     * @throws IOException If the writer fails.
+     */
+    public long print(ResultSet rs) throws SQLException, IOException {
+        ResultDecoder decoder = ResultDecoder.of(rs, 1);
+        int columns = decoder.columnCount();
+        SplittableRandom random = sampleRate < 1 ? new SplittableRandom(seed) : null;
+        RowSink sink = switch (format) {
+            case TABLE -> new TableSink(decoder);
+            case CSV -> new DelimitedSink(',');
+            case TSV -> new DelimitedSink('\t');
+        };
+        sink.header(decoder.labels());
+
+        String[] row = new String[columns];
+        long printed = 0;
+        rowsRead = 0;
+        while ((limit == 0 || printed < limit) && rs.next()) {
+            rowsRead++;
+            if (random != null && random.nextDouble() >= sampleRate) {
+                continue; // Not sampled: skip without decoding
+            }
+            decoder.decode(rs, row, 0);
+            sink.row(row);
+            printed++;
+        }
+        sink.finish();
+        out.flush();
+        return printed;
+    }
+
+    /**
+     * A large buffered writer on standard output that bypasses System.out (which is synchronized and flushes on
+     * every line when connected to a console). Flush System.out before writing to keep the order of the output.
+     * close() only flushes, so standard output stays open.
+     */
+    public static Writer stdout() {
+        OutputStream fd = new FilterOutputStream(new FileOutputStream(FileDescriptor.out)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len); // FilterOutputStream would write byte by byte
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(fd, Charset.defaultCharset()), STDOUT_BUFFER_CHARS);
+    }
+
+    private interface RowSink {
+        void header(List<String> labels) throws IOException;
+
+        void row(String[] cells) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * CSV or TSV lines.
+     */
+    private final class DelimitedSink implements RowSink {
+        private final char separator;
+
+        DelimitedSink(char separator) {
+            this.separator = separator;
+        }
+
+        @Override
+        public void header(List<String> labels) throws IOException {
+            row(labels.toArray(new String[0]));
+        }
+
+        @Override
+        public void row(String[] cells) throws IOException {
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) out.write(separator);
+                String v = cells[i];
+                if (v != null) {
+                    if (separator == ',') writeCsv(v);
+                    else writeTsv(v);
+                }
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        private void writeCsv(String v) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < v.length() && !quote; i++) {
+                char c = v.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(v);
+                return;
+            }
+            out.write('"');
+            out.write(v.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        private void writeTsv(String v) throws IOException {
+            int start = 0;
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                String escape = switch (c) {
+                    case '\t' -> "\\t";
+                    case '\n' -> "\\n";
+                    case '\r' -> "\\r";
+                    case '\\' -> "\\\\";
+                    default -> null;
+                };
+                if (escape != null) {
+                    out.write(v, start, i - start);
+                    out.write(escape);
+                    start = i + 1;
+                }
+            }
+            out.write(v, start, v.length() - start);
+        }
+    }
+
+    /**
+     * An aligned table; rows are held back until the column widths are known.
+     */
+    private final class TableSink implements RowSink {
+        private final boolean[] numeric;
+        private final int[] widths;
+        private List<String> labels;
+        private List<String[]> pending = new ArrayList<>();
+        private final char[] spaces = new char[MAX_TABLE_WIDTH];
+
+        TableSink(ResultDecoder decoder) {
+            numeric = new boolean[decoder.columnCount()];
+            for (int i = 0; i < numeric.length; i++) {
+                numeric[i] = decoder.isNumeric(i);
+            }
+            widths = new int[numeric.length];
+            Arrays.fill(spaces, ' ');
+        }
+
+        @Override
+        public void header(List<String> labels) {
+            this.labels = labels;
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = Math.min(labels.get(i).length(), MAX_TABLE_WIDTH);
+            }
+        }
+
+        @Override
+        public void row(String[] cells) throws IOException {
+            if (pending == null) {
+                writeRow(cells);
+                return;
+            }
+            for (int i = 0; i < cells.length; i++) {
+                widths[i] = Math.max(widths[i], Math.min(text(cells[i]).length(), MAX_TABLE_WIDTH));
+            }
+            pending.add(cells.clone());
+            if (pending.size() == WIDTH_SAMPLE_ROWS) {
+                release();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (pending != null) {
+                release();
+            }
+        }
+
+        /**
+         * Writes the header and the held-back rows; later rows are written as they come.
+         */
+        private void release() throws IOException {
+            writeRow(labels.toArray(new String[0]));
+            for (int i = 0; i < widths.length; i++) {
+                if (i > 0) out.write("-+-");
+                for (int k = 0; k < widths[i]; k++) out.write('-');
+            }
+            out.write('\n');
+            for (String[] cells : pending) {
+                writeRow(cells);
+            }
+            pending = null;
+        }
+
+        private void writeRow(String[] cells) throws IOException {
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) out.write(" | ");
+                String v = text(cells[i]);
+                if (v.length() > MAX_TABLE_WIDTH) {
+                    v = v.substring(0, MAX_TABLE_WIDTH - 3) + "...";
+                }
+                int pad = Math.max(widths[i] - v.length(), 0); // Later rows wider than the first ones push the line out
+                boolean last = i == cells.length - 1;
+                if (numeric[i] && cells[i] != null) {
+                    out.write(spaces, 0, pad);
+                    out.write(v);
+                } else {
+                    out.write(v);
+                    if (!last) out.write(spaces, 0, pad); // No trailing blanks
+                }
+            }
+            out.write('\n');
+        }
+
+        private String text(String cell) {
+            if (cell == null) return "NULL";
+            for (int i = 0; i < cell.length(); i++) {
+                if (cell.charAt(i) < ' ') {
+                    return cell.replaceAll("[\\x00-\\x1f]", " "); // A line break or tab would break the alignment
+                }
+            }
+            return cell;
+        }
+    }
+}
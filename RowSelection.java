@@ -0,0 +1,133 @@
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Checkbox selection over the rows of an ObservableList, with constant-time bulk operations.
+ *
+ * The selection is stored as a mode plus a set of exceptions: in "none" mode the exceptions are the selected
+ * rows, in "all" mode they are the rows that are not selected. Select all and deselect all therefore just
+ * switch the mode and clear the set, and the selected count is always known without scanning the rows.
+ * Rows are compared by identity. Rows removed from the list leave the selection; rows added to it start out
+ * unselected.
+ *
+ * Not thread-safe: use it on the FX thread only, like the list it tracks.
+ */
+public class RowSelection {
+
+    private final ObservableList<CrudOperations.RowData> rows;
+    private final Set<CrudOperations.RowData> exceptions = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean allMode; // True: every row except the exceptions is selected
+    private final Runnable onChange;
+    private final ListChangeListener<CrudOperations.RowData> listListener = this::rowsChanged;
+
+    /**
+     * @param rows The rows to select from. Call detach() when the selection is no longer used.
+     * @param onChange Runs after every change of the selection (e.g. to update a "Select All" checkbox).
+     */
+    public RowSelection(ObservableList<CrudOperations.RowData> rows, Runnable onChange) {
+        this.rows = rows;
+        this.onChange = onChange;
+        rows.addListener(listListener);
+    }
+
+    /**
+     * Stops tracking changes of the list.
+     */
+    public void detach() {
+        rows.removeListener(listListener);
+    }
+
+    public boolean isSelected(CrudOperations.RowData row) {
+        return allMode != exceptions.contains(row);
+    }
+
+    public void setSelected(CrudOperations.RowData row, boolean selected) {
+        if (isSelected(row) == selected) {
+            return;
+        }
+        if (selected == allMode) {
+            exceptions.remove(row);
+        } else {
+            exceptions.add(row);
+        }
+        onChange.run();
+    }
+
+    /**
+     * Selects or deselects every row in constant time. The caller refreshes the visible cells.
+     * @param selected True to select all rows, false to clear the selection.
+     */
+    public void setAllSelected(boolean selected) {
+        allMode = selected;
+        exceptions.clear();
+        onChange.run();
+    }
+
+    /**
+     * @return The number of selected rows.
+     */
+    public int count() {
+        return allMode ? rows.size() - exceptions.size() : exceptions.size();
+    }
+
+    /**
+     * @return True if every row except the exceptions is selected, false if only the exceptions are.
+     */
+    public boolean isAllMode() {
+        return allMode;
+    }
+
+    /**
+     * The selection is the mode plus these rows; together they are the key set of a batched delete without
+     * listing every selected row (see SpilledRowList.pick).
+     * @return The rows that are not selected in "all" mode, or the selected rows otherwise (a read-only view).
+     */
+    public Set<CrudOperations.RowData> exceptions() {
+        return Collections.unmodifiableSet(exceptions);
+    }
+
+    /**
+     * Creates a checkbox property for one row, for CheckBoxTableCell's selected-state callback.
+     * The property is not retained: cells ask for a new one whenever they show a row, and toggling it
+     * updates the selection.
+     * @param row The row.
+     * @return A property holding the row's selected state.
+     */
+    public BooleanProperty property(CrudOperations.RowData row) {
+        BooleanProperty property = new SimpleBooleanProperty(isSelected(row));
+        property.addListener((obs, oldVal, newVal) -> setSelected(row, newVal));
+        return property;
+    }
+
+    private void rowsChanged(ListChangeListener.Change<? extends CrudOperations.RowData> change) {
+        boolean changed = false;
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                continue; // Sorting does not change which rows are selected
+            }
+            if (change.wasRemoved()) {
+                if (!exceptions.isEmpty()) { // Removed rows may be decoded on demand (SpilledRowList); skip if not needed
+                    for (CrudOperations.RowData row : change.getRemoved()) {
+                        exceptions.remove(row); // Not removeAll: it may call contains() on the removed list for every row
+                    }
+                }
+                changed = true;
+            }
+            if (change.wasAdded()) {
+                if (allMode) {
+                    exceptions.addAll(change.getAddedSubList()); // New rows start out unselected
+                }
+                changed = true; // The count is unchanged, but no longer all rows may be selected
+            }
+        }
+        if (changed) {
+            onChange.run();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only storage of table rows in memory-mapped temporary files, off the Java heap (see SpilledRowList).
+ *
+ * Each row is encoded as its ROWID followed by its cells; every field is a varint of (UTF-8 length + 1), 0 for
+ * NULL, followed by the UTF-8 bytes. Rows are packed into mapped segments of 2^SEGMENT_SHIFT bytes and never
+ * span two, and a second mapped region holds the start of every row, so a row is found in constant time and
+ * nothing per row stays on the heap.
+ *
+ * Cells can be compared without decoding them: UTF-8 bytes compared as unsigned values sort in code point order.
+ *
+ * One thread appends. Other threads may read rows once their number has been handed over through a
+ * happens-before edge (see MappedRegion).
+ */
+public final class RowSpillFile implements Closeable {
+
+    static final int SEGMENT_SHIFT = 28; // 256 MB of encoded rows per mapped segment
+    private static final int INDEX_SEGMENT_SHIFT = 27; // 16M row offsets per mapped segment
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final int width;
+    private final MappedRegion data;
+    private final MappedRegion index; // Start position of every row in data
+    private byte[] scratch = new byte[4096]; // The row being appended (writer only)
+    private long end; // Append position in data
+    private int size;
+
+    /**
+     * @param width The number of cells per row.
+     * @throws IOException If the temporary files cannot be created.
+     */
+    public RowSpillFile(int width) throws IOException {
+        this.width = width;
+        data = new MappedRegion("rows", SEGMENT_SHIFT);
+        try {
+            index = new MappedRegion("rowindex", INDEX_SEGMENT_SHIFT);
+        } catch (IOException ex) {
+            data.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return The number of rows appended (as seen by the appending thread).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes of encoded rows, including the unused ends of full segments.
+     */
+    public long bytes() {
+        return end;
+    }
+
+    /**
+     * Appends a row.
+     * @return The row's number (0 for the first row appended).
+     * @throws IllegalArgumentException If the encoded row is larger than a segment.
+     */
+    public int append(CrudOperations.RowData row) {
+        int len = putField(row.getRowId(), 0);
+        for (int c = 0; c < width; c++) {
+            len = putField(row.get(c), len);
+        }
+        if (len > 1 << SEGMENT_SHIFT) {
+            throw new IllegalArgumentException("Row of " + len + " bytes does not fit in a spill segment");
+        }
+        long start = end;
+        if ((start & SEGMENT_MASK) + len > 1 << SEGMENT_SHIFT) {
+            start = ((start >>> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT; // Start the next segment
+        }
+        data.segment((int) (start >>> SEGMENT_SHIFT)).put((int) (start & SEGMENT_MASK), scratch, 0, len);
+        index.putLong(size, start);
+        end = start + len;
+        return size++;
+    }
+
+    /**
+     * Decodes a row.
+     * @param row The row number.
+     * @param cells Receives the row's cells (at least width long).
+     * @return The row's ROWID (null if it was stored without one).
+     */
+    public String read(int row, String[] cells) {
+        long pos = index.getLong(row);
+        ByteBuffer segment = data.segment((int) (pos >>> SEGMENT_SHIFT));
+        int p = (int) (pos & SEGMENT_MASK);
+        long header = header(segment, p);
+        String rowId = text(segment, header);
+        for (int c = 0; c < width; c++) {
+            header = header(segment, next(header));
+            cells[c] = text(segment, header);
+        }
+        return rowId;
+    }
+
+    /**
+     * Decodes a single cell.
+     */
+    public String cell(int row, int column) {
+        long pos = index.getLong(row);
+        ByteBuffer segment = data.segment((int) (pos >>> SEGMENT_SHIFT));
+        return text(segment, field(segment, (int) (pos & SEGMENT_MASK), column));
+    }
+
+    /**
+     * Compares a cell of two rows in code point order, NULL first, without decoding them.
+     * @return Negative, zero or positive as a's cell sorts before, with or after b's.
+     */
+    public int compare(int a, int b, int column) {
+        long posA = index.getLong(a);
+        long posB = index.getLong(b);
+        ByteBuffer segA = data.segment((int) (posA >>> SEGMENT_SHIFT));
+        ByteBuffer segB = data.segment((int) (posB >>> SEGMENT_SHIFT));
+        long ha = field(segA, (int) (posA & SEGMENT_MASK), column);
+        long hb = field(segB, (int) (posB & SEGMENT_MASK), column);
+        int lenA = (int) (ha >>> 32) - 1; // -1 for NULL
+        int lenB = (int) (hb >>> 32) - 1;
+        if (lenA < 0 || lenB < 0) {
+            return Integer.compare(lenA, lenB);
+        }
+        int pa = (int) ha;
+        int pb = (int) hb;
+        for (int i = 0, n = Math.min(lenA, lenB); i < n; i++) {
+            int d = (segA.get(pa + i) & 0xff) - (segB.get(pb + i) & 0xff);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return lenA - lenB;
+    }
+
+    /**
+     * Closes and deletes the files.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * @return The header of the given cell of the row starting at pos (see header()).
+     */
+    private static long field(ByteBuffer segment, int pos, int column) {
+        long header = header(segment, pos); // The ROWID
+        for (int c = 0; c <= column; c++) {
+            header = header(segment, next(header));
+        }
+        return header;
+    }
+
+    /**
+     * Reads a field's varint.
+     * @return (length + 1, or 0 for NULL) << 32 | position of the field's bytes.
+     */
+    private static long header(ByteBuffer segment, int pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = segment.get(pos++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (long) value << 32 | pos;
+    }
+
+    /**
+     * @return The position after the field described by header.
+     */
+    private static int next(long header) {
+        int len = (int) (header >>> 32);
+        return (int) header + (len == 0 ? 0 : len - 1);
+    }
+
+    private static String text(ByteBuffer segment, long header) {
+        int len = (int) (header >>> 32) - 1;
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        segment.get((int) header, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int putField(String value, int len) {
+        if (value == null) {
+            ensure(len + 1);
+            scratch[len] = 0;
+            return len + 1;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(len + 5 + bytes.length);
+        for (int v = bytes.length + 1; ; v >>>= 7) {
+            if (v < 0x80) {
+                scratch[len++] = (byte) v;
+                break;
+            }
+            scratch[len++] = (byte) (v | 0x80);
+        }
+        System.arraycopy(bytes, 0, scratch, len, bytes.length);
+        return len + bytes.length;
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+}
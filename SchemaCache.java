@@ -0,0 +1,275 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches data dictionary lookups (user_tables, user_tab_columns, primary/unique key constraints) so that
+ * opening a screen or picking a table does not cost a dictionary round trip every time.
+ *
+ * Entries expire after a time-to-live, and at most maxTables table descriptions are kept (least recently
+ * used first out). Callers that change the schema (CREATE/DROP/TRUNCATE) must call invalidate() so the next
+ * lookup sees the change immediately. warm() loads the whole schema with three bulk queries, which is much
+ * cheaper than describing tables one by one later.
+ *
+ * All methods are thread-safe; lookups run the dictionary queries outside the cache lock.
+ */
+public class SchemaCache {
+
+    /**
+     * One column of a table as described by user_tab_columns.
+     */
+    public static final class ColumnMeta {
+        public final String name;
+        public final String dataType; // Oracle type name, e.g. NUMBER, VARCHAR2, DATE
+        public final int precision; // 0 if not specified
+        public final int scale; // 0 if not specified
+        public final boolean nullable;
+
+        ColumnMeta(String name, String dataType, int precision, int scale, boolean nullable) {
+            this.name = name;
+            this.dataType = dataType;
+            this.precision = precision;
+            this.scale = scale;
+            this.nullable = nullable;
+        }
+    }
+
+    /**
+     * Column and key description of one table.
+     */
+    public static final class TableMeta {
+        public final String name;
+        public final List<ColumnMeta> columns; // In column_id order
+        public final List<String> primaryKey; // Primary key columns in key order; empty if there is none
+        public final List<List<String>> uniqueKeys; // Columns of each unique constraint, in key order
+        private final long loadedAt;
+
+        TableMeta(String name, List<ColumnMeta> columns, List<String> primaryKey, List<List<String>> uniqueKeys, long loadedAt) {
+            this.name = name;
+            this.columns = Collections.unmodifiableList(columns);
+            this.primaryKey = Collections.unmodifiableList(primaryKey);
+            this.uniqueKeys = Collections.unmodifiableList(uniqueKeys);
+            this.loadedAt = loadedAt;
+        }
+
+        /**
+         * @return The column names in column_id order.
+         */
+        public List<String> columnNames() {
+            List<String> names = new ArrayList<>(columns.size());
+            for (ColumnMeta c : columns) {
+                names.add(c.name);
+            }
+            return names;
+        }
+
+        /**
+         * @param column A column name (case-insensitive).
+         * @return The column's description, or null if the table has no such column.
+         */
+        public ColumnMeta column(String column) {
+            for (ColumnMeta c : columns) {
+                if (c.name.equalsIgnoreCase(column)) {
+                    return c;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String COLUMNS_SQL = "SELECT table_name, column_name, data_type, data_precision, data_scale, nullable "
+            + "FROM user_tab_columns";
+    // Disabled or NOVALIDATE constraints do not guarantee that existing rows are unique, so they cannot identify a row
+    private static final String KEYS_SQL = "SELECT cc.table_name, c.constraint_type, c.constraint_name, cc.column_name "
+            + "FROM user_constraints c "
+            + "JOIN user_cons_columns cc ON cc.constraint_name = c.constraint_name AND cc.table_name = c.table_name "
+            + "WHERE c.constraint_type IN ('P', 'U') AND c.status = 'ENABLED' AND c.validated = 'VALIDATED'";
+
+    private final ConnectionPool pool;
+    private final long ttlMillis;
+    private final int maxTables;
+
+    // Guarded by 'this'
+    private List<String> tableNames;
+    private long tableNamesLoadedAt;
+    private final LinkedHashMap<String, TableMeta> tables;
+
+    /**
+     * @param pool The pool to borrow connections from for dictionary queries.
+     * @param ttlMillis How long a cached entry stays valid.
+     * @param maxTables Maximum number of table descriptions kept.
+     */
+    public SchemaCache(ConnectionPool pool, long ttlMillis, int maxTables) {
+        this.pool = pool;
+        this.ttlMillis = ttlMillis;
+        this.maxTables = maxTables;
+        this.tables = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TableMeta> eldest) {
+                return size() > SchemaCache.this.maxTables;
+            }
+        };
+    }
+
+    /**
+     * @return The names of the tables in the user's schema, in alphabetical order.
+     * @throws SQLException If the names are not cached and cannot be read.
+     */
+    public List<String> tableNames() throws SQLException {
+        synchronized (this) {
+            if (tableNames != null && !expired(tableNamesLoadedAt)) {
+                return tableNames;
+            }
+        }
+        long now = System.currentTimeMillis();
+        List<String> names = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT table_name FROM user_tables ORDER BY table_name")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        synchronized (this) {
+            tableNames = Collections.unmodifiableList(names);
+            tableNamesLoadedAt = now;
+            return tableNames;
+        }
+    }
+
+    /**
+     * Describes a table. Oracle stores unquoted names in upper case, so the name is upper-cased.
+     * @param table The table name.
+     * @return The table's columns and keys (no columns if the table does not exist).
+     * @throws SQLException If the description is not cached and cannot be read.
+     */
+    public TableMeta table(String table) throws SQLException {
+        String key = table.toUpperCase(Locale.ROOT);
+        synchronized (this) {
+            TableMeta meta = tables.get(key);
+            if (meta != null && !expired(meta.loadedAt)) {
+                return meta;
+            }
+        }
+        long now = System.currentTimeMillis();
+        Map<String, TableMeta> loaded = load(key, now);
+        TableMeta meta = loaded.getOrDefault(key, new TableMeta(key, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), now));
+        synchronized (this) {
+            tables.put(key, meta);
+        }
+        return meta;
+    }
+
+    /**
+     * Returns a table's description only if it is cached and fresh, without reading the dictionary.
+     * @param table The table name.
+     * @return The description, or null if it would have to be read.
+     */
+    public synchronized TableMeta cachedTable(String table) {
+        TableMeta meta = tables.get(table.toUpperCase(Locale.ROOT));
+        return meta != null && !expired(meta.loadedAt) ? meta : null;
+    }
+
+    /**
+     * Forgets a table's description and the table name list. Call after DDL that affects the table.
+     * @param table The table name.
+     */
+    public synchronized void invalidate(String table) {
+        tables.remove(table.toUpperCase(Locale.ROOT));
+        tableNames = null;
+    }
+
+    /**
+     * Forgets everything.
+     */
+    public synchronized void invalidateAll() {
+        tables.clear();
+        tableNames = null;
+    }
+
+    /**
+     * Loads the table names and the descriptions of all tables (up to maxTables) in bulk.
+     * Intended to run in the background at startup.
+     * @throws SQLException If the dictionary cannot be read.
+     */
+    public void warm() throws SQLException {
+        List<String> names = tableNames();
+        long now = System.currentTimeMillis();
+        Map<String, TableMeta> loaded = load(null, now);
+        synchronized (this) {
+            for (String name : names) {
+                if (tables.size() >= maxTables) {
+                    break;
+                }
+                TableMeta meta = loaded.get(name);
+                if (meta != null) {
+                    tables.put(name, meta);
+                }
+            }
+        }
+        QueryMetrics.debug(() -> "Schema cache warmed: " + Math.min(names.size(), maxTables) + " table(s)");
+    }
+
+    private boolean expired(long loadedAt) {
+        return System.currentTimeMillis() - loadedAt > ttlMillis;
+    }
+
+    /**
+     * Reads column and key descriptions for one table, or for all tables if table is null.
+     */
+    private Map<String, TableMeta> load(String table, long now) throws SQLException {
+        String filter = table == null ? "" : " WHERE table_name = ?";
+        Map<String, List<ColumnMeta>> columns = new LinkedHashMap<>();
+        Map<String, List<String>> primaryKeys = new HashMap<>();
+        Map<String, Map<String, List<String>>> uniqueKeys = new HashMap<>(); // table -> constraint -> columns
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(COLUMNS_SQL + filter + " ORDER BY table_name, column_id")) {
+                if (table != null) {
+                    ps.setString(1, table);
+                }
+                ps.setFetchSize(500); // Dictionary rows are narrow; fetch many per round trip when warming
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        columns.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                                .add(new ColumnMeta(rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5),
+                                        "Y".equals(rs.getString(6))));
+                    }
+                }
+            }
+            String keyFilter = table == null ? "" : " AND c.table_name = ?";
+            try (PreparedStatement ps = conn.prepareStatement(KEYS_SQL + keyFilter
+                    + " ORDER BY cc.table_name, c.constraint_name, cc.position")) {
+                if (table != null) {
+                    ps.setString(1, table);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String tableName = rs.getString(1);
+                        if ("P".equals(rs.getString(2))) {
+                            primaryKeys.computeIfAbsent(tableName, k -> new ArrayList<>()).add(rs.getString(4));
+                        } else {
+                            uniqueKeys.computeIfAbsent(tableName, k -> new LinkedHashMap<>())
+                                    .computeIfAbsent(rs.getString(3), k -> new ArrayList<>()).add(rs.getString(4));
+                        }
+                    }
+                }
+            }
+        }
+        Map<String, TableMeta> result = new HashMap<>();
+        for (Map.Entry<String, List<ColumnMeta>> e : columns.entrySet()) {
+            Map<String, List<String>> unique = uniqueKeys.getOrDefault(e.getKey(), Collections.emptyMap());
+            result.put(e.getKey(), new TableMeta(e.getKey(), e.getValue(),
+                    primaryKeys.getOrDefault(e.getKey(), new ArrayList<>()), new ArrayList<>(unique.values()), now));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,759 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs a SQL script without prompts, for job schedulers: java Oracle --script nightly.sql
+ *
+ * The script is plain SQL, as SQL*Plus would take it: statements end with ';' or with a line holding only '/'
+ * (required for PL/SQL blocks, whose inner ';' do not end them). Line (--) and block comments are allowed.
+ * COMMIT and ROLLBACK statements are honoured.
+ *
+ * Consecutive INSERT, UPDATE and DELETE statements that differ only in the literals of their VALUES list or
+ * of simple column = literal assignments and conditions are sent as one JDBC batch: those literals are bound
+ * as parameters of a single PreparedStatement, so a thousand generated INSERTs cost one round trip and one
+ * parse instead of a thousand. A DML statement whose shape does not repeat, and every other statement, runs
+ * with its original text. Each batch or statement is one step of the report, with its statement count, rows and time.
+ *
+ * Transactions: the script runs with auto-commit off. Work is committed at COMMIT statements, after every
+ * commitEvery DML statements (if positive), before any other statement (Oracle commits DDL implicitly anyway)
+ * and at the end. The first failing statement stops the script; uncommitted work is rolled back.
+ */
+public final class ScriptRunner {
+
+    public static final int DEFAULT_BATCH_SIZE = BulkImporter.DEFAULT_BATCH_SIZE;
+
+    /**
+     * One executed step: a single statement or a batch of statements of the same shape.
+     */
+    public static final class Step {
+        final int line;
+        final String label;
+        final int statements;
+        final long rows; // -1 if the driver did not report update counts
+        final long nanos;
+
+        Step(int line, String label, int statements, long rows, long nanos) {
+            this.line = line;
+            this.label = label;
+            this.statements = statements;
+            this.rows = rows;
+            this.nanos = nanos;
+        }
+
+        public int line() {
+            return line;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public int statements() {
+            return statements;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public double millis() {
+            return nanos / 1e6;
+        }
+    }
+
+    private final Connection conn;
+    private final int batchSize;
+    private final int commitEvery;
+    private final List<Step> steps = new ArrayList<>();
+
+    // The batch being collected
+    private PreparedStatement batch;
+    private String batchShape;
+    private String batchLabel;
+    private int batchLine;
+    private int batchCount;
+    private long batchStart;
+    // A DML statement held until the next one shows whether its shape repeats; it runs verbatim if not
+    private Parameterized pending;
+    private ScriptReader.Entry pendingEntry;
+    private String pendingLabel;
+    private int uncommitted; // DML statements executed since the last commit
+    private String position = ""; // Where a failure happened, for the error message
+
+    /**
+     * @param conn The connection to run on; its auto-commit mode is switched off and restored afterwards.
+     * @param batchSize The maximum number of statements per JDBC batch.
+     * @param commitEvery Commit after this many DML statements; 0 to commit only at COMMIT, before other
+     *                    statements and at the end.
+     */
+    public ScriptRunner(Connection conn, int batchSize, int commitEvery) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (commitEvery < 0) {
+            throw new IllegalArgumentException("Commit interval must not be negative: " + commitEvery);
+        }
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+    }
+
+    /**
+     * Runs every statement of a script.
+     * @param in The script.
+     * @return The executed steps, in order.
+     * @throws IOException If the script cannot be read or a statement is not terminated. Uncommitted work is
+     *                     rolled back.
+     * @throws SQLException If a statement fails; the message names its line. Uncommitted work is rolled back.
+     */
+    public List<Step> run(Reader in) throws IOException, SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        ScriptReader reader = new ScriptReader(in);
+        ScriptReader.Entry entry;
+        try {
+            while ((entry = reader.next()) != null) {
+                position = "Line " + entry.line;
+                execute(entry);
+            }
+            flush();
+            commit();
+        } catch (IOException | SQLException | RuntimeException ex) {
+            uncommitted += batchCount + (pending != null ? 1 : 0); // Bound or held but not yet sent
+            closeBatch();
+            conn.rollback(); // Otherwise restoring auto-commit below would commit the partial run
+            String notApplied = " (" + uncommitted + " statement(s) since the last commit not applied)";
+            if (ex instanceof SQLException) {
+                SQLException sql = (SQLException) ex;
+                throw new SQLException(position + ": " + sql.getMessage() + notApplied, sql.getSQLState(), sql.getErrorCode(), sql);
+            }
+            if (ex instanceof IOException) {
+                throw new IOException(ex.getMessage() + notApplied, ex); // Already names its line
+            }
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return steps;
+    }
+
+    /**
+     * @return The steps executed so far (also after a failure).
+     */
+    public List<Step> steps() {
+        return steps;
+    }
+
+    private void execute(ScriptReader.Entry entry) throws SQLException {
+        String keyword = firstWord(entry.sql);
+        switch (keyword) {
+            case "COMMIT" -> {
+                flush();
+                timed(entry, "COMMIT", conn::commit);
+                uncommitted = 0;
+            }
+            case "ROLLBACK" -> {
+                closeBatch(); // Never executed, so nothing to undo on the server
+                timed(entry, "ROLLBACK", conn::rollback);
+                uncommitted = 0;
+            }
+            case "INSERT", "UPDATE", "DELETE" -> {
+                Parameterized p = parameterize(entry.sql);
+                if (batch != null && !p.shape.equals(batchShape)) {
+                    flush();
+                }
+                if (batch == null) {
+                    if (pending == null || !pending.shape.equals(p.shape) || batchSize < 2
+                            || (commitEvery > 0 && uncommitted + 2 > commitEvery)) {
+                        flush(); // Runs the held statement on its own: its shape did not repeat
+                        pending = p;
+                        pendingEntry = entry;
+                        pendingLabel = keyword + " " + targetTable(keyword, entry.sql);
+                        return;
+                    }
+                    QueryMetrics.debug(() -> "Executing SQL: " + p.shape);
+                    batchStart = System.nanoTime();
+                    batch = conn.prepareStatement(p.shape);
+                    batchShape = p.shape;
+                    batchLabel = pendingLabel;
+                    batchLine = pendingEntry.line;
+                    addToBatch(pending);
+                    pending = null;
+                    pendingEntry = null;
+                }
+                addToBatch(p);
+                if (batchCount == batchSize || (commitEvery > 0 && uncommitted + batchCount >= commitEvery)) {
+                    flush();
+                }
+            }
+            default -> {
+                flush();
+                commit(); // Oracle commits before DDL anyway; do it here so the report says where
+                QueryMetrics.debug(() -> "Executing SQL: " + entry.sql);
+                long start = System.nanoTime();
+                long rows;
+                try (Statement st = conn.createStatement()) {
+                    if (st.execute(entry.sql)) {
+                        rows = 0;
+                        try (ResultSet rs = st.getResultSet()) {
+                            while (rs.next()) {
+                                rows++; // Queries only report their row count
+                            }
+                        }
+                    } else {
+                        rows = Math.max(st.getUpdateCount(), 0);
+                    }
+                }
+                steps.add(new Step(entry.line, abbreviate(entry.sql.replaceAll("\\s+", " "), 40), 1, rows, System.nanoTime() - start));
+            }
+        }
+    }
+
+    private void addToBatch(Parameterized p) throws SQLException {
+        for (int i = 0; i < p.params.size(); i++) {
+            Object value = p.params.get(i);
+            if (value instanceof BigDecimal) {
+                batch.setBigDecimal(i + 1, (BigDecimal) value);
+            } else {
+                batch.setObject(i + 1, value, Types.CHAR);
+            }
+        }
+        batch.addBatch();
+        batchCount++;
+    }
+
+    /**
+     * Executes the batch being collected or the statement being held, if any, and commits if the commit interval
+     * is reached.
+     */
+    private void flush() throws SQLException {
+        if (pending != null) {
+            runPending();
+            return;
+        }
+        if (batch == null) {
+            return;
+        }
+        int count = batchCount;
+        String statementPosition = position;
+        position = count == 1 ? "Line " + batchLine : "Batch of " + count + " statements from line " + batchLine;
+        long rows = 0;
+        try {
+            for (int updated : batch.executeBatch()) {
+                if (updated >= 0 && rows >= 0) {
+                    rows += updated;
+                } else {
+                    rows = -1; // SUCCESS_NO_INFO: Oracle drivers before 12c do not report counts for batches
+                }
+            }
+        } catch (SQLException ex) {
+            uncommitted += count; // Part of the transaction that is rolled back
+            throw ex;
+        } finally {
+            closeBatch();
+        }
+        steps.add(new Step(batchLine, batchLabel, count, rows, System.nanoTime() - batchStart));
+        position = statementPosition;
+        uncommitted += count;
+        if (commitEvery > 0 && uncommitted >= commitEvery) {
+            commit();
+        }
+    }
+
+    /**
+     * Runs the held statement with its original text, as a statement of its own.
+     */
+    private void runPending() throws SQLException {
+        ScriptReader.Entry entry = pendingEntry;
+        String label = pendingLabel;
+        pending = null;
+        pendingEntry = null;
+        String statementPosition = position;
+        position = "Line " + entry.line;
+        QueryMetrics.debug(() -> "Executing SQL: " + entry.sql);
+        long start = System.nanoTime();
+        long rows;
+        try (Statement st = conn.createStatement()) {
+            rows = Math.max(st.executeUpdate(entry.sql), 0);
+        } catch (SQLException ex) {
+            uncommitted++; // Part of the transaction that is rolled back
+            throw ex;
+        }
+        steps.add(new Step(entry.line, label, 1, rows, System.nanoTime() - start));
+        position = statementPosition;
+        uncommitted++;
+        if (commitEvery > 0 && uncommitted >= commitEvery) {
+            commit();
+        }
+    }
+
+    private void closeBatch() {
+        if (batch != null) {
+            try {
+                batch.close();
+            } catch (SQLException ignored) {
+                // Nothing useful to do; the connection is rolled back or committed next
+            }
+            batch = null;
+        }
+        batchCount = 0;
+        pending = null;
+        pendingEntry = null;
+    }
+
+    private void commit() throws SQLException {
+        if (uncommitted > 0) {
+            conn.commit();
+            uncommitted = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private void timed(ScriptReader.Entry entry, String label, SqlAction action) throws SQLException {
+        long start = System.nanoTime();
+        action.run();
+        steps.add(new Step(entry.line, label, 1, 0, System.nanoTime() - start));
+    }
+
+    /**
+     * Formats the steps as a table, with a total line.
+     */
+    public static String report(List<Step> steps, long totalNanos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-6s %-40s %10s %12s %12s%n", "Line", "Step", "Statements", "Rows", "Time (ms)"));
+        long statements = 0;
+        long rows = 0;
+        for (Step step : steps) {
+            sb.append(String.format("%-6d %-40s %10d %12s %12.1f%n", step.line, abbreviate(step.label, 40), step.statements,
+                    step.rows < 0 ? "n/a" : Long.toString(step.rows), step.millis()));
+            statements += step.statements;
+            rows += Math.max(step.rows, 0);
+        }
+        sb.append(String.format("%-6s %-40s %10d %12d %12.1f%n", "", "Total (" + steps.size() + " steps)", statements, rows,
+                totalNanos / 1e6));
+        return sb.toString();
+    }
+
+    private static String abbreviate(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max - 3) + "...";
+    }
+
+    /**
+     * @return The first word of a statement, upper case.
+     */
+    static String firstWord(String sql) {
+        int i = 0;
+        while (i < sql.length() && !Character.isLetter(sql.charAt(i))) i++; // Skips a leading '(' of a query
+        int j = i;
+        while (j < sql.length() && Character.isLetter(sql.charAt(j))) j++;
+        return sql.substring(i, j).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The table a DML statement writes to (the word after INSERT INTO, UPDATE or DELETE [FROM]).
+     */
+    private static String targetTable(String keyword, String sql) {
+        String[] words = sql.trim().split("[\\s(]+", 4);
+        int at = keyword.equals("UPDATE") ? 1 : 2;
+        if (keyword.equals("DELETE") && words.length > 1 && !words[1].equalsIgnoreCase("FROM")) {
+            at = 1; // DELETE table WHERE ...
+        }
+        return at < words.length ? words[at] : "";
+    }
+
+    /**
+     * A DML statement with its literals taken out as parameters.
+     */
+    static final class Parameterized {
+        final String shape;
+        final List<Object> params; // String or BigDecimal
+
+        Parameterized(String shape, List<Object> params) {
+            this.shape = shape;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Replaces the literals of a statement that are plain values with ? and collects their values, so that
+     * statements differing only in those literals share one shape. Whitespace outside literals is collapsed.
+     *
+     * Only literals whose meaning cannot change when bound are taken out: the items of a VALUES (...) list and
+     * the right-hand side of a simple column = literal in the SET or WHERE clause of the statement itself (not
+     * of a subquery). Anything else stays in the text: ORDER BY 1 or ROWNUM <= 10 would mean something else
+     * with a bind, a literal in an expression or function call may be constant-folded or typed by the parser,
+     * and typed literals (DATE '...', TIMESTAMP '...', INTERVAL '...'), N'...' and q'[...]' strings and numbers
+     * with a type suffix (1.5f) are not plain values. Strings are bound as CHAR, the type of a quoted literal,
+     * so comparisons with CHAR(n) columns stay blank-padded.
+     */
+    static Parameterized parameterize(String sql) {
+        StringBuilder shape = new StringBuilder(sql.length());
+        List<Object> params = new ArrayList<>();
+        String prev = ""; // Last token: an upper-cased word, a "quoted" identifier, a literal or an operator
+        String beforePrev = "";
+        int depth = 0; // Parentheses
+        String clause = ""; // SET or WHERE while in that clause of the statement itself
+        boolean values = false; // VALUES seen, its list not opened yet
+        int valuesDepth = -1; // Depth inside the VALUES list being read, or -1
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            String token;
+            if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) i++;
+                if (shape.length() > 0 && i < n) shape.append(' ');
+                continue;
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') i++; // Comments are not part of the shape
+                continue;
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*' && !(i + 2 < n && sql.charAt(i + 2) == '+')) {
+                int close = sql.indexOf("*/", i + 2);
+                i = close < 0 ? n : close + 2;
+                continue;
+            } else if (c == '\'') {
+                int end = endOfQuoted(sql, i, '\'');
+                if (i > 0 && isWordChar(sql.charAt(i - 1))) { // N'...', q'...'
+                    if (Character.toUpperCase(sql.charAt(i - 1)) == 'Q') {
+                        end = endOfQQuote(sql, i);
+                    }
+                    shape.append(sql, i, end);
+                } else if (isPlainValue(sql, end, prev, beforePrev, depth, clause, valuesDepth)) {
+                    params.add(sql.substring(i + 1, end - 1).replace("''", "'"));
+                    shape.append('?');
+                } else {
+                    shape.append(sql, i, end);
+                }
+                token = "'";
+                i = end;
+            } else if (c == '"') {
+                int end = endOfQuoted(sql, i, '"');
+                shape.append(sql, i, end);
+                token = "\"";
+                i = end;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(sql.charAt(i + 1)))
+                    || (c == '-' && startsNumber(sql, i + 1) && (prev.equals("(") || prev.equals(",") || prev.equals("=")))) {
+                int end = endOfNumber(sql, c == '-' ? i + 1 : i);
+                if (end < n && isWordChar(sql.charAt(end))) {
+                    shape.append(sql, i, end); // 1.5f, 2d or something that is not a plain number
+                } else if (isPlainValue(sql, end, prev, beforePrev, depth, clause, valuesDepth)) {
+                    params.add(new BigDecimal(sql.substring(i, end)));
+                    shape.append('?');
+                } else {
+                    shape.append(sql, i, end);
+                }
+                token = "0";
+                i = end;
+            } else if (isWordChar(c)) {
+                int end = i;
+                while (end < n && isWordChar(sql.charAt(end))) end++;
+                shape.append(sql, i, end);
+                token = sql.substring(i, end).toUpperCase(Locale.ROOT);
+                i = end;
+                if (depth == 0) {
+                    switch (token) {
+                        case "SET", "WHERE" -> clause = token;
+                        case "SELECT", "FROM", "RETURNING", "RETURN", "LOG", "ORDER", "GROUP", "HAVING", "CONNECT",
+                             "START", "INTO" -> clause = "";
+                        default -> { }
+                    }
+                }
+                if (token.equals("VALUES")) {
+                    values = true;
+                }
+            } else {
+                int end = i + 1;
+                if (end < n && "<>!^:|".indexOf(c) >= 0 && "=>|".indexOf(sql.charAt(end)) >= 0) {
+                    end++; // <=, >=, <>, !=, ^=, :=, ||, =>
+                } else if (c == '=' && end < n && sql.charAt(end) == '>') {
+                    end++;
+                }
+                token = sql.substring(i, end);
+                shape.append(token);
+                i = end;
+                if (token.equals("(")) {
+                    depth++;
+                    if (values) {
+                        values = false;
+                        valuesDepth = depth;
+                    }
+                } else if (token.equals(")")) {
+                    if (depth == valuesDepth) {
+                        valuesDepth = -1;
+                    }
+                    depth--;
+                }
+            }
+            beforePrev = prev;
+            prev = token;
+        }
+        return new Parameterized(shape.toString(), params);
+    }
+
+    /**
+     * @return True if a literal ending at end, after the tokens beforePrev and prev, is an item of the VALUES
+     * list or the whole right-hand side of column = literal in the statement's SET or WHERE clause.
+     */
+    private static boolean isPlainValue(String sql, int end, String prev, String beforePrev, int depth, String clause,
+                                        int valuesDepth) {
+        char next = nextSignificant(sql, end);
+        if (depth == valuesDepth) {
+            return (prev.equals("(") || prev.equals(",")) && (next == ',' || next == ')');
+        }
+        if (depth != 0 || clause.isEmpty() || !prev.equals("=")) {
+            return false;
+        }
+        boolean column = beforePrev.equals("\"") || (!beforePrev.isEmpty() && isWordChar(beforePrev.charAt(0))
+                && !Character.isDigit(beforePrev.charAt(0)) && !beforePrev.equals("ROWNUM") && !beforePrev.equals("LEVEL"));
+        return column && (next == 0 || next == ',' || Character.isLetter(next)); // End, next assignment, AND / OR / keyword
+    }
+
+    /**
+     * @return The first character at or after from that is not whitespace or in a comment, or 0 at the end.
+     */
+    private static char nextSignificant(String s, int from) {
+        int i = from;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < s.length() && s.charAt(i + 1) == '-') {
+                while (i < s.length() && s.charAt(i) != '\n') i++;
+            } else if (c == '/' && i + 1 < s.length() && s.charAt(i + 1) == '*') {
+                int close = s.indexOf("*/", i + 2);
+                i = close < 0 ? s.length() : close + 2;
+            } else {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean startsNumber(String s, int i) {
+        return i < s.length() && (Character.isDigit(s.charAt(i))
+                || (s.charAt(i) == '.' && i + 1 < s.length() && Character.isDigit(s.charAt(i + 1))));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    /**
+     * @return The index after the quote closing the literal opened at start ('' and "" are escaped quotes).
+     */
+    private static int endOfQuoted(String s, int start, char quote) {
+        int i = start + 1;
+        while (i < s.length()) {
+            if (s.charAt(i) == quote) {
+                if (i + 1 < s.length() && s.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return s.length();
+    }
+
+    /**
+     * @return The index after a q'Xtext X' literal whose quote is at start.
+     */
+    private static int endOfQQuote(String s, int start) {
+        if (start + 1 >= s.length()) return s.length();
+        char open = s.charAt(start + 1);
+        char close = switch (open) {
+            case '[' -> ']';
+            case '{' -> '}';
+            case '(' -> ')';
+            case '<' -> '>';
+            default -> open;
+        };
+        int i = s.indexOf(close + "'", start + 2);
+        return i < 0 ? s.length() : i + 2;
+    }
+
+    private static int endOfNumber(String s, int start) {
+        int i = start;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+        if (i < s.length() && s.charAt(i) == '.') {
+            i++;
+            while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+        }
+        if (i < s.length() && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < s.length() && (s.charAt(j) == '+' || s.charAt(j) == '-')) j++;
+            if (j < s.length() && Character.isDigit(s.charAt(j))) {
+                i = j;
+                while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Splits a script into statements.
+     */
+    static final class ScriptReader {
+
+        static final class Entry {
+            final int line; // Line the statement starts on (1-based)
+            final String sql; // Without the terminating ';' or '/'
+
+            Entry(int line, String sql) {
+                this.line = line;
+                this.sql = sql;
+            }
+        }
+
+        private final BufferedReader in;
+        private String line; // The line being split, or null to read the next one
+        private int pos; // Where the next statement starts in line
+        private int lineNo;
+
+        ScriptReader(Reader in) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        }
+
+        /**
+         * @return The next statement, or null at the end of the script.
+         * @throws IOException If the script cannot be read or ends inside a statement.
+         */
+        Entry next() throws IOException {
+            StringBuilder sql = new StringBuilder();
+            int startLine = 0;
+            boolean block = false; // PL/SQL: only '/' ends it
+            char quote = 0; // Open quote, or 0
+            boolean comment = false; // Inside /* */
+            while (true) {
+                if (line == null) {
+                    line = in.readLine();
+                    pos = 0;
+                    if (line == null) break;
+                    lineNo++;
+                    if (quote == 0 && !comment && line.trim().equals("/")) {
+                        line = null;
+                        if (sql.toString().isBlank()) continue; // SQL*Plus: '/' alone re-runs the buffer; nothing to re-run here
+                        return new Entry(startLine, sql.toString().trim());
+                    }
+                }
+                for (int i = pos; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (comment) {
+                        if (c == '*' && i + 1 < line.length() && line.charAt(i + 1) == '/') {
+                            comment = false;
+                            sql.append("*/");
+                            i++;
+                            continue;
+                        }
+                    } else if (quote != 0) {
+                        if (c == quote) quote = 0; // '' closes and reopens, which is the same
+                    } else if (c == '-' && i + 1 < line.length() && line.charAt(i + 1) == '-') {
+                        break; // Rest of the line is a comment
+                    } else if (c == '/' && i + 1 < line.length() && line.charAt(i + 1) == '*') {
+                        comment = true;
+                    } else if (c == '\'' || c == '"') {
+                        quote = c;
+                    } else if (c == ';' && !block) {
+                        pos = i + 1;
+                        String text = sql.toString().trim();
+                        if (text.isEmpty()) {
+                            sql.setLength(0);
+                            startLine = 0;
+                            continue; // A stray ';'
+                        }
+                        return new Entry(startLine, text);
+                    }
+                    if (startLine == 0 && !Character.isWhitespace(c) && !comment) {
+                        startLine = lineNo;
+                        block = startsBlock(line.substring(i));
+                    }
+                    sql.append(c);
+                }
+                line = null;
+                if (sql.length() > 0) sql.append('\n');
+            }
+            if (!sql.toString().isBlank()) {
+                throw new IOException("Line " + startLine + ": statement is not terminated with ';' or '/'");
+            }
+            return null;
+        }
+
+        private static boolean startsBlock(String text) {
+            String s = text.trim().toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+            if (s.startsWith("BEGIN") || s.startsWith("DECLARE")) return true;
+            if (!s.startsWith("CREATE ")) return false;
+            s = s.replaceFirst("^CREATE (OR REPLACE )?((NON)?EDITIONABLE )?", "");
+            return s.startsWith("PROCEDURE") || s.startsWith("FUNCTION") || s.startsWith("PACKAGE")
+                    || s.startsWith("TRIGGER") || s.startsWith("TYPE BODY");
+        }
+    }
+
+    /**
+     * Command-line entry point used by Oracle.main when arguments are given.
+     * Options: --script FILE (or - for stdin), --batch-size N, --commit-every N.
+     * @return The process exit code: 0 on success, 1 if the script failed, 2 for bad arguments.
+     */
+    static int run(String[] args, String url, String user, String password, PrintStream out) {
+        String script = null;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int commitEvery = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--script" -> script = args[++i];
+                    case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                    case "--commit-every" -> commitEvery = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (script == null) throw new IllegalArgumentException("--script is required");
+            if (batchSize < 1 || commitEvery < 0) throw new IllegalArgumentException("Batch size must be positive and commit interval not negative");
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
+            out.println("Error: " + (ex instanceof ArrayIndexOutOfBoundsException ? "missing option value" : ex.getMessage()));
+            out.println("Usage: java Oracle --script FILE|- [--batch-size N] [--commit-every N]");
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        try (ConnectionPool pool = new ConnectionPool(url, user, password, 1);
+             Connection conn = pool.getConnection();
+             Reader in = script.equals("-")
+                     ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                     : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            ScriptRunner runner = new ScriptRunner(conn, batchSize, commitEvery);
+            try {
+                runner.run(in);
+                out.print(report(runner.steps(), System.nanoTime() - start));
+                return 0;
+            } catch (SQLException | IOException ex) {
+                out.print(report(runner.steps(), System.nanoTime() - start));
+                out.println("Script failed: " + ex.getMessage());
+                return 1;
+            }
+        } catch (SQLException | IOException ex) {
+            out.println("Could not run script: " + ex.getMessage());
+            return 1;
+        }
+    }
+}
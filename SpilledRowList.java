@@ -0,0 +1,715 @@
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableListBase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A list of loaded table rows with a heap budget: rows are kept on the heap until their estimated size reaches
+ * the budget, and every later row is appended to a RowSpillFile (memory-mapped, off the heap), so a table can be
+ * loaded, scrolled, sorted and deleted from whatever its size relative to -Xmx.
+ *
+ * Rows are stored once, in arrival order, and never moved; the list is a view over that storage. While nothing
+ * has been sorted or removed the view is the storage order, afterwards an int per row in a MappedRegion maps
+ * list positions to stored rows. Sorting (sortJob) builds a new mapping with a merge sort over mapped regions on
+ * a background thread and compares spilled cells as encoded bytes, so a sort needs no per-row heap either.
+ *
+ * A spilled row is decoded when the TableView asks for it. The same RowData instance is returned for a row for
+ * as long as anyone holds it (weakly cached), so identity-based structures such as RowSelection keep working;
+ * the most recently used rows are also held strongly so scrolling does not decode them again. Edits to a
+ * spilled row (RowData.set) are not kept.
+ *
+ * Removing rows fires a single change whose removed rows are decoded only if a listener asks for them, so
+ * removing millions of spilled rows does not bring them onto the heap either.
+ *
+ * Threads: store() is called by one loading thread; everything else on the FX thread, except SortJob.run() and
+ * the iteration of StoredRows. A sort job's files are deleted by applySort(), or by run() if it fails.
+ * Stored rows become part of the list when the FX thread calls showStored() with the count store() returned.
+ */
+public class SpilledRowList extends ObservableListBase<CrudOperations.RowData> implements Closeable {
+
+    private static final int ORDER_SEGMENT_SHIFT = 26; // 16M list positions per mapped segment
+    private static final int RECENT_ROWS = 1024; // Decoded rows held strongly (a few screens' worth)
+    private static final int INSERTION_SORT_RUN = 32;
+
+    /**
+     * A row of this list; index is where it is stored.
+     */
+    static final class Row extends CrudOperations.RowData {
+        final int index;
+
+        Row(CrudOperations.RowData row, int index) {
+            super(row);
+            this.index = index;
+        }
+
+        Row(String[] cells, String rowId, int index) {
+            super(cells, 0, cells.length, rowId);
+            this.index = index;
+        }
+    }
+
+    private static final class RowRef extends WeakReference<Row> {
+        final int index;
+
+        RowRef(Row row, ReferenceQueue<Row> queue) {
+            super(row, queue);
+            index = row.index;
+        }
+    }
+
+    private final int width;
+    private final long heapBudget;
+
+    // Storage: written by the loading thread, read by others below the count handed to showStored()
+    private volatile Row[] heapRows = new Row[1024];
+    private volatile int heapCount; // Rows 0 .. heapCount - 1 are on the heap, later ones in the spill file
+    private long heapBytes; // Estimated size of the heap rows
+    private volatile RowSpillFile spill; // Created when the budget is first exceeded
+    private int stored; // Loading thread's count of stored rows
+    private volatile boolean closed;
+    private int pins; // StoredRows not closed yet; the files are deleted once the list is closed and this is 0
+
+    // View: FX thread only
+    private int shown; // Stored rows that are part of the list (including removed ones)
+    private int size;
+    private MappedRegion order; // List position -> stored row; null while the list is in storage order
+    private int removals; // Counts removeAll() calls, so a sort started before one is not applied after it
+    private SortJob latestSort;
+    private final Map<Integer, RowRef> decoded = new HashMap<>();
+    private final ReferenceQueue<Row> collected = new ReferenceQueue<>();
+    private final Row[] recent = new Row[RECENT_ROWS];
+    private int recentNext;
+
+    /**
+     * @param width The number of cells per row.
+     * @param heapBudget The estimated heap, in bytes, rows may take before they are spilled to disk.
+     */
+    public SpilledRowList(int width, long heapBudget) {
+        this.width = width;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Loading thread: stores a batch of rows after the previous ones. They become part of the list when the FX
+     * thread calls showStored() with the returned count.
+     * @return The number of rows stored so far.
+     * @throws IOException If the spill file cannot be created.
+     * @throws CancellationException If the list has been closed.
+     */
+    public int store(List<CrudOperations.RowData> batch) throws IOException {
+        for (CrudOperations.RowData row : batch) {
+            if (closed) {
+                throw new CancellationException("Rows released");
+            }
+            if (spill == null && heapBytes < heapBudget) {
+                Row[] rows = heapRows;
+                int n = heapCount;
+                if (n == rows.length) {
+                    rows = Arrays.copyOf(rows, n * 2);
+                    heapRows = rows;
+                }
+                rows[n] = new Row(row, n);
+                heapBytes += estimatedBytes(row);
+                heapCount = n + 1; // After the row itself, for readers on other threads
+            } else {
+                if (spill == null) {
+                    QueryMetrics.debug(() -> "Heap budget of " + heapBudget / (1 << 20) + " MB reached after " + stored
+                            + " rows; spilling the rest to disk");
+                    spill = new RowSpillFile(width);
+                }
+                spill.append(row);
+            }
+            stored++;
+        }
+        return stored;
+    }
+
+    /**
+     * FX thread: makes the stored rows up to the given count part of the list (appended at the end).
+     */
+    public void showStored(int count) {
+        if (closed || count <= shown) {
+            return;
+        }
+        int from = size;
+        for (int s = shown; s < count; s++) {
+            if (order != null) {
+                order.putInt(size, s);
+            }
+            size++;
+        }
+        shown = count;
+        beginChange();
+        nextAdd(from, size);
+        endChange();
+    }
+
+    @Override
+    public CrudOperations.RowData get(int index) {
+        Objects.checkIndex(index, size);
+        return rowAt(order == null ? index : order.getInt(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The estimated heap taken by the rows kept on the heap, in bytes (read it after loading).
+     */
+    public long heapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * @return The number of rows spilled to disk so far.
+     */
+    public int spilledRows() {
+        return spill == null ? 0 : shown - heapCount;
+    }
+
+    /**
+     * Removes rows of this list in one change, keeping the order of the others.
+     */
+    @Override
+    public boolean removeAll(Collection<?> rows) {
+        BitSet removed = new BitSet(shown);
+        for (Object o : rows) {
+            int s = storedIndex(o);
+            if (s >= 0) {
+                removed.set(s);
+            }
+        }
+        return removeStored(removed);
+    }
+
+    /**
+     * Removes the picked rows that are still in this list, in one change, keeping the order of the others.
+     */
+    public boolean removeAll(StoredRows rows) {
+        return removeStored(rows.bits);
+    }
+
+    /**
+     * FX thread: the stored rows a RowSelection picks, one bit per stored row, for working through them on a
+     * background thread (see StoredRows). Until the result is closed its rows stay readable, even if the list
+     * is closed meanwhile.
+     * @param allRows True to pick every row of the list except the exceptions, false to pick only the exceptions.
+     * @param exceptions Rows of this list.
+     */
+    public StoredRows pick(boolean allRows, Collection<CrudOperations.RowData> exceptions) {
+        BitSet bits = new BitSet(shown);
+        if (allRows) {
+            if (order == null) {
+                bits.set(0, size);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    bits.set(order.getInt(i));
+                }
+            }
+        }
+        for (CrudOperations.RowData row : exceptions) {
+            int s = storedIndex(row);
+            if (s >= 0) {
+                bits.set(s, !allRows);
+            }
+        }
+        synchronized (this) {
+            pins++;
+        }
+        return new StoredRows(bits);
+    }
+
+    /**
+     * FX thread: starts a sort of the current rows by the given columns. Run the job on a background thread,
+     * then pass it to applySort() on the FX thread.
+     * @param columns Cell indexes, most significant first.
+     * @param descending For each column, whether it is sorted in descending order.
+     * @throws IOException If the job's temporary files cannot be created.
+     */
+    public SortJob sortJob(int[] columns, boolean[] descending) throws IOException {
+        SortJob job = new SortJob(columns, descending);
+        latestSort = job;
+        return job;
+    }
+
+    /**
+     * @return True while a sort job has been created and not yet applied (or dropped).
+     */
+    public boolean isSorting() {
+        return latestSort != null;
+    }
+
+    /**
+     * FX thread: replaces the order of the list by the job's result. Rows added since the job started follow
+     * the sorted ones. No list change is fired (a permutation event would need an int[] of every row); the
+     * caller refreshes the view.
+     * @return False if the result is stale (rows were removed or a later sort was started) and was dropped.
+     */
+    public boolean applySort(SortJob job) throws IOException {
+        if (job != latestSort) {
+            job.close(); // Superseded by a later sort
+            return false;
+        }
+        latestSort = null;
+        if (job.removals != removals || closed) {
+            job.close();
+            return false;
+        }
+        MappedRegion sorted = job.result;
+        job.result = null;
+        job.close();
+        for (int i = job.count; i < size; i++) {
+            sorted.putInt(i, order == null ? i : order.getInt(i)); // Rows shown while sorting
+        }
+        if (order != null) {
+            order.close();
+        }
+        order = sorted;
+        return true;
+    }
+
+    /**
+     * Deletes the spill and order files. Call it once the list is no longer displayed.
+     */
+    @Override
+    public void close() {
+        decoded.clear();
+        Arrays.fill(recent, null);
+        boolean release;
+        synchronized (this) {
+            release = !closed && pins == 0; // Otherwise the last StoredRows.close() deletes the files
+            closed = true;
+        }
+        if (release) {
+            deleteFiles();
+        }
+    }
+
+    private void deleteFiles() {
+        try {
+            if (spill != null) {
+                spill.close();
+            }
+            if (order != null) {
+                order.close();
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not delete spill files: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Stored rows picked from the list (see pick()), e.g. the key set of a batched delete: a bit per stored row
+     * instead of a RowData per picked row. They can be iterated on any thread, in storage order; spilled rows
+     * are read from the spill file each time, not from the view's cache.
+     */
+    public final class StoredRows implements Iterable<CrudOperations.RowData>, Closeable {
+        private final BitSet bits;
+        private final int count;
+        private boolean released;
+
+        private StoredRows(BitSet bits) {
+            this.bits = bits;
+            this.count = bits.cardinality();
+        }
+
+        /**
+         * @return The number of picked rows.
+         */
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<CrudOperations.RowData> iterator() {
+            return new Iterator<>() {
+                private int next = bits.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public CrudOperations.RowData next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    int s = next;
+                    next = bits.nextSetBit(s + 1);
+                    return storedRow(s);
+                }
+            };
+        }
+
+        /**
+         * Any thread: ends reading the rows; deletes the list's files if the list has been closed meanwhile.
+         */
+        @Override
+        public void close() {
+            boolean release;
+            synchronized (SpilledRowList.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                release = --pins == 0 && closed;
+            }
+            if (release) {
+                deleteFiles();
+            }
+        }
+    }
+
+    /**
+     * Any thread: reads a stored row without touching the view's cache (a spilled row is decoded anew).
+     */
+    private CrudOperations.RowData storedRow(int s) {
+        int heap = heapCount;
+        if (s < heap) {
+            return heapRows[s];
+        }
+        String[] cells = new String[width];
+        String rowId = spill.read(s - heap, cells);
+        return new Row(cells, rowId, s);
+    }
+
+    /**
+     * Removes the stored rows whose bits are set from the list, as one change with a sub-change per run of
+     * adjacent removed positions. The remaining positions are written to a new order region; the old one
+     * stays open while the change is fired, so the removed rows are decoded from it only if a listener asks.
+     */
+    private boolean removeStored(BitSet removed) {
+        MappedRegion old = order; // Null while the list is in storage order
+        MappedRegion kept;
+        try {
+            kept = new MappedRegion("roworder", ORDER_SEGMENT_SHIFT);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        int[] runs = new int[48]; // Per run: position in the new list, first and end position in the old list
+        int runCount = 0;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int s = old == null ? i : old.getInt(i);
+            if (!removed.get(s)) {
+                kept.putInt(n++, s);
+            } else if (runCount > 0 && runs[runCount * 3 - 1] == i) {
+                runs[runCount * 3 - 1] = i + 1; // Extends the previous run
+            } else {
+                if (runCount * 3 == runs.length) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[runCount * 3] = n;
+                runs[runCount * 3 + 1] = i;
+                runs[runCount * 3 + 2] = i + 1;
+                runCount++;
+            }
+        }
+        if (runCount == 0) {
+            closeQuietly(kept);
+            return false;
+        }
+        order = kept;
+        size = n;
+        removals++;
+        try {
+            fireChange(new Removal(old, runs, runCount));
+        } finally {
+            if (old != null) {
+                closeQuietly(old);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The change fired by removeStored(). Removed rows are decoded on demand, and only while listeners run.
+     */
+    private final class Removal extends ListChangeListener.Change<CrudOperations.RowData> {
+        private final MappedRegion old;
+        private final int[] runs;
+        private final int runCount;
+        private int cursor = -1;
+
+        Removal(MappedRegion old, int[] runs, int runCount) {
+            super(SpilledRowList.this);
+            this.old = old;
+            this.runs = runs;
+            this.runCount = runCount;
+        }
+
+        @Override
+        public boolean next() {
+            if (cursor < runCount) {
+                cursor++;
+            }
+            return cursor < runCount;
+        }
+
+        @Override
+        public void reset() {
+            cursor = -1;
+        }
+
+        @Override
+        public int getFrom() {
+            return runs[run()];
+        }
+
+        @Override
+        public int getTo() {
+            return getFrom(); // Nothing added
+        }
+
+        @Override
+        public List<CrudOperations.RowData> getRemoved() {
+            int run = run();
+            int first = runs[run + 1];
+            int length = runs[run + 2] - first;
+            return new AbstractList<>() {
+                @Override
+                public CrudOperations.RowData get(int index) {
+                    Objects.checkIndex(index, length);
+                    int p = first + index;
+                    return rowAt(old == null ? p : old.getInt(p));
+                }
+
+                @Override
+                public int size() {
+                    return length;
+                }
+            };
+        }
+
+        @Override
+        protected int[] getPermutation() {
+            return new int[0];
+        }
+
+        /**
+         * @return The offset of the current run in runs.
+         */
+        private int run() {
+            if (cursor < 0 || cursor >= runCount) {
+                throw new IllegalStateException("Invalid Change state: next() must be called before inspecting the Change.");
+            }
+            return cursor * 3;
+        }
+    }
+
+    /**
+     * A sort of the list's rows as they were when the job was created.
+     */
+    public final class SortJob implements Closeable {
+        private final int[] columns;
+        private final boolean[] descending;
+        private final int count;
+        private final int removals;
+        private MappedRegion result; // Stored row of each sorted position
+        private MappedRegion scratch;
+
+        private SortJob(int[] columns, boolean[] descending) throws IOException {
+            this.columns = columns.clone();
+            this.descending = descending.clone();
+            this.count = size;
+            this.removals = SpilledRowList.this.removals;
+            result = new MappedRegion("roworder", ORDER_SEGMENT_SHIFT);
+            for (int i = 0; i < count; i++) {
+                result.putInt(i, order == null ? i : order.getInt(i)); // Snapshot; the FX thread keeps using 'order'
+            }
+        }
+
+        /**
+         * Background thread: sorts the snapshot (stable, so equal rows keep their current order).
+         * @throws CancellationException If the thread is interrupted.
+         * @throws IOException If the scratch file cannot be created.
+         */
+        public void run() throws IOException {
+            try {
+                MappedRegion src = result;
+                for (long from = 0; from < count; from += INSERTION_SORT_RUN) {
+                    insertionSort(src, (int) from, (int) Math.min(from + INSERTION_SORT_RUN, count));
+                }
+                if (count > INSERTION_SORT_RUN) {
+                    scratch = new MappedRegion("roworder", ORDER_SEGMENT_SHIFT);
+                }
+                MappedRegion dst = scratch;
+                for (long run = INSERTION_SORT_RUN; run < count; run <<= 1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Sort cancelled");
+                    }
+                    for (long lo = 0; lo < count; lo += run << 1) {
+                        merge(src, dst, (int) lo, (int) Math.min(lo + run, count), (int) Math.min(lo + (run << 1), count));
+                    }
+                    MappedRegion t = src;
+                    src = dst;
+                    dst = t;
+                }
+                result = src;
+                scratch = dst;
+            } catch (IOException | RuntimeException ex) {
+                close(); // applySort() will not be called
+                throw ex;
+            }
+        }
+
+        private void insertionSort(MappedRegion a, int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int v = a.getInt(i);
+                int j = i - 1;
+                while (j >= from && compareRows(a.getInt(j), v) > 0) {
+                    a.putInt(j + 1, a.getInt(j));
+                    j--;
+                }
+                a.putInt(j + 1, v);
+            }
+        }
+
+        private void merge(MappedRegion src, MappedRegion dst, int lo, int mid, int hi) {
+            int i = lo;
+            int j = mid;
+            for (int k = lo; k < hi; k++) {
+                if (i < mid && (j >= hi || compareRows(src.getInt(i), src.getInt(j)) <= 0)) {
+                    dst.putInt(k, src.getInt(i++));
+                } else {
+                    dst.putInt(k, src.getInt(j++));
+                }
+            }
+        }
+
+        private int compareRows(int a, int b) {
+            for (int k = 0; k < columns.length; k++) {
+                int c = compareCells(a, b, columns[k]);
+                if (c != 0) {
+                    return descending[k] ? -c : c;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (result != null) {
+                    result.close();
+                    result = null;
+                }
+            } finally {
+                if (scratch != null) {
+                    scratch.close();
+                    scratch = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares a cell of two stored rows in code point order, NULL first (as TableColumn's default comparator,
+     * but by code point rather than UTF-16 unit). Spilled cells are compared without decoding them.
+     */
+    private int compareCells(int a, int b, int column) {
+        int heap = heapCount;
+        if (a >= heap && b >= heap) {
+            return spill.compare(a - heap, b - heap, column);
+        }
+        return compareText(cellAt(a, column, heap), cellAt(b, column, heap));
+    }
+
+    private String cellAt(int s, int column, int heap) {
+        return s < heap ? heapRows[s].get(column) : spill.cell(s - heap, column);
+    }
+
+    static int compareText(String x, String y) {
+        if (x == null || y == null) {
+            return x == null ? (y == null ? 0 : -1) : 1;
+        }
+        for (int i = 0, n = Math.min(x.length(), y.length()); i < n; i++) {
+            char c1 = x.charAt(i);
+            char c2 = y.charAt(i);
+            if (c1 != c2) {
+                if (c1 >= 0xD800 && c2 >= 0xD800) {
+                    // Move surrogates (code points above U+FFFF) after U+E000..U+FFFF
+                    c1 += c1 >= 0xE000 ? -0x800 : 0x2000;
+                    c2 += c2 >= 0xE000 ? -0x800 : 0x2000;
+                }
+                return c1 - c2;
+            }
+        }
+        return x.length() - y.length();
+    }
+
+    /**
+     * @return The stored index of a row of this list, or -1 if it is not one.
+     */
+    private int storedIndex(Object o) {
+        if (o instanceof Row && ((Row) o).index < shown && rowAt(((Row) o).index) == o) {
+            return ((Row) o).index;
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(MappedRegion region) {
+        try {
+            region.close();
+        } catch (IOException ex) {
+            System.err.println("Could not delete spill file: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * @return The row stored at s, decoding it if it was spilled.
+     */
+    private Row rowAt(int s) {
+        if (s < heapCount) {
+            return heapRows[s];
+        }
+        for (RowRef ref; (ref = (RowRef) collected.poll()) != null; ) {
+            decoded.remove(ref.index, ref); // Unless the row has been decoded again since
+        }
+        RowRef ref = decoded.get(s);
+        Row row = ref == null ? null : ref.get();
+        if (row == null) {
+            String[] cells = new String[width];
+            String rowId = spill.read(s - heapCount, cells);
+            row = new Row(cells, rowId, s);
+            decoded.put(s, new RowRef(row, collected));
+            recent[recentNext] = row;
+            recentNext = (recentNext + 1) % RECENT_ROWS;
+        }
+        return row;
+    }
+
+    /**
+     * @return A rough estimate of the heap a stored row takes: the row object, its share of the batch's cell
+     *         array and its Strings (compact, one byte per character for Latin-1 text).
+     */
+    private static long estimatedBytes(CrudOperations.RowData row) {
+        long bytes = 40 + 4L * row.size();
+        for (int c = 0; c < row.size(); c++) {
+            String v = row.get(c);
+            if (v != null) {
+                bytes += 40 + v.length();
+            }
+        }
+        String rowId = row.getRowId();
+        return rowId == null ? bytes : bytes + 40 + rowId.length();
+    }
+}
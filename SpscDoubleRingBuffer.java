@@ -0,0 +1,182 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.NoSuchElementException;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A bounded, lock-free queue of doubles for exactly one producer thread and one consumer thread, e.g. a reader
+ * thread parsing input and a thread keeping a DoubleRingBuffer window over it.
+ *
+ * The producer only writes tail and the consumer only writes head, so neither needs a CAS: each publishes its
+ * index with a release store after touching the slot, and reads the other's with an acquire load. Each side
+ * also caches the last index it saw of the other side and reloads it only when the queue looks full
+ * (producer) or empty (consumer). A side's index and its cached copy of the other's live in their own object,
+ * padded to a cache line on both ends (see Side), so in the steady state a thread writes only its own cache
+ * line and the slots it fills or empties. Capacity is rounded up to a power of two so that slots are found
+ * with a mask.
+ *
+ * Using it from more than one producer or more than one consumer thread corrupts it.
+ */
+public final class SpscDoubleRingBuffer {
+
+    private static final int SPIN_LIMIT = 100;
+
+    /**
+     * 56 bytes ahead of a Side's fields. Superclass fields are laid out first, so the padding cannot be
+     * reordered between them (as padding fields declared in the same class could be).
+     */
+    @SuppressWarnings("unused")
+    private abstract static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    /**
+     * The fields written by one thread: its own index and its cached view of the other thread's.
+     */
+    private abstract static class Fields extends LeftPadding {
+        long index; // Published with a release store (INDEX), read by the other thread with an acquire load
+        long cachedOther; // This thread's last view of the other thread's index
+    }
+
+    /**
+     * One side of the queue, alone on its cache line(s): 56 bytes of padding after its fields as well.
+     */
+    @SuppressWarnings("unused")
+    private static final class Side extends Fields {
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    private static final VarHandle INDEX;
+
+    static {
+        try {
+            INDEX = MethodHandles.lookup().findVarHandle(Fields.class, "index", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final double[] buffer;
+    private final int mask;
+
+    private final Side consumer = new Side(); // index: next position to read (head); cachedOther: view of tail
+    private final Side producer = new Side(); // index: next position to write (tail); cachedOther: view of head
+
+    /**
+     * @param capacity The minimum number of values the queue can hold (rounded up to a power of two).
+     */
+    public SpscDoubleRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        buffer = new double[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * @return The number of queued values; only a snapshot when the other thread is active.
+     */
+    public int size() {
+        long h = (long) INDEX.getAcquire(consumer);
+        return (int) ((long) INDEX.getAcquire(producer) - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Producer: appends a value unless the queue is full.
+     * @return False if the queue is full.
+     */
+    public boolean offer(double value) {
+        Side p = producer;
+        long t = p.index; // Only this thread writes it
+        if (t - p.cachedOther >= buffer.length) {
+            p.cachedOther = (long) INDEX.getAcquire(consumer);
+            if (t - p.cachedOther >= buffer.length) return false;
+        }
+        buffer[(int) t & mask] = value;
+        INDEX.setRelease(p, t + 1);
+        return true;
+    }
+
+    /**
+     * Producer: appends values[from, to), spinning and then yielding while the queue is full.
+     */
+    public void put(double[] values, int from, int to) {
+        Side p = producer;
+        int i = from;
+        int spins = 0;
+        while (i < to) {
+            long t = p.index;
+            long free = buffer.length - (t - p.cachedOther);
+            if (free == 0) {
+                p.cachedOther = (long) INDEX.getAcquire(consumer);
+                free = buffer.length - (t - p.cachedOther);
+                if (free == 0) {
+                    if (++spins < SPIN_LIMIT) Thread.onSpinWait();
+                    else Thread.yield(); // The consumer may be waiting for this CPU
+                    continue;
+                }
+            }
+            int n = (int) Math.min(free, to - i);
+            for (int k = 0; k < n; k++) {
+                buffer[(int) (t + k) & mask] = values[i + k];
+            }
+            i += n;
+            INDEX.setRelease(p, t + n); // One publication per batch
+        }
+    }
+
+    /**
+     * Consumer: removes and returns the oldest value.
+     * @throws NoSuchElementException If the queue is empty.
+     */
+    public double poll() {
+        Side c = consumer;
+        long h = c.index; // Only this thread writes it
+        if (h >= c.cachedOther) {
+            c.cachedOther = (long) INDEX.getAcquire(producer);
+            if (h >= c.cachedOther) throw new NoSuchElementException("Queue is empty");
+        }
+        double value = buffer[(int) h & mask];
+        INDEX.setRelease(c, h + 1);
+        return value;
+    }
+
+    /**
+     * Consumer: passes up to limit queued values to the action, oldest first, and removes them.
+     * @return The number of values drained (0 if the queue was empty or limit is 0).
+     * @throws IllegalArgumentException If limit is negative (it would move the consumer index backwards).
+     */
+    public int drain(DoubleConsumer action, int limit) {
+        if (limit < 0) throw new IllegalArgumentException("Negative limit: " + limit);
+        Side c = consumer;
+        long h = c.index;
+        long available = c.cachedOther - h;
+        if (available <= 0) {
+            c.cachedOther = (long) INDEX.getAcquire(producer);
+            available = c.cachedOther - h;
+            if (available <= 0) return 0;
+        }
+        int n = (int) Math.min(available, limit);
+        for (int k = 0; k < n; k++) {
+            action.accept(buffer[(int) (h + k) & mask]);
+        }
+        INDEX.setRelease(c, h + n);
+        return n;
+    }
+
+    /**
+     * Consumer: moves up to limit queued values into a sliding window.
+     * @return The number of values moved.
+     */
+    public int drainTo(DoubleRingBuffer window, int limit) {
+        return drain(window::add, limit);
+    }
+}
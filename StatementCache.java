@@ -0,0 +1,281 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Least-recently-used cache of prepared statements for one physical connection (see ConnectionPool).
+ *
+ * Statements are keyed by their SQL text with runs of whitespace outside string literals collapsed, so the
+ * same generated statement is parsed and prepared once per connection and then reused by every borrower.
+ * The key is only used for lookups: the statement is prepared from the caller's text as given.
+ * Callers use the statements as usual: closing the returned handle clears its parameters and batch, closes its
+ * open result set, restores fetch size, max rows and query timeout, and puts the statement back in the cache.
+ * If the statement for a key is already in use (the same SQL prepared twice at once), an uncached statement
+ * is returned instead. Statements pushed out of the cache are closed, once they are no longer in use.
+ */
+public class StatementCache {
+
+    /**
+     * A cached statement and the settings it had when it was prepared.
+     */
+    private static final class Entry {
+        final PreparedStatement statement;
+        final int fetchSize;
+        final int maxRows;
+        final int queryTimeout;
+        boolean inUse;
+        boolean evicted; // Pushed out while in use; closed when returned
+
+        Entry(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+        }
+    }
+
+    private final Connection physical;
+    private final LinkedHashMap<String, Entry> entries; // Guarded by this; access order
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final Consumer<SQLException> errorListener; // Sees every error raised by a cached statement
+
+    /**
+     * @param physical The connection statements are prepared on.
+     * @param capacity The maximum number of statements kept open.
+     * @param hits Incremented when a cached statement is reused (shared by all caches of a pool).
+     * @param misses Incremented when a statement has to be prepared.
+     * @param evictions Incremented when a statement is pushed out of the cache.
+     * @param errorListener Receives errors raised by cached statements (e.g. to detect a broken connection).
+     */
+    StatementCache(Connection physical, int capacity, AtomicLong hits, AtomicLong misses, AtomicLong evictions,
+                   Consumer<SQLException> errorListener) {
+        this.physical = physical;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.errorListener = errorListener;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                StatementCache.this.evictions.incrementAndGet();
+                if (eldest.getValue().inUse) {
+                    eldest.getValue().evicted = true;
+                } else {
+                    closeQuietly(eldest.getValue().statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the SQL, reusing a cached one if possible.
+     * @param sql The SQL text.
+     * @return A statement handle; close it to return the statement to the cache.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    public synchronized PreparedStatement prepare(String sql) throws SQLException {
+        String key = normalize(sql);
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+            entry.inUse = true;
+            return handle(entry);
+        }
+        misses.incrementAndGet();
+        PreparedStatement statement = physical.prepareStatement(sql);
+        if (entry != null) {
+            return statement; // The cached one is busy; this one is closed normally
+        }
+        entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        return handle(entry);
+    }
+
+    /**
+     * @return The number of statements currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Puts a statement back after its handle was closed, resetting the state the borrower may have changed.
+     */
+    private synchronized void release(Entry entry, ResultSet openResult) {
+        entry.inUse = false;
+        if (entry.evicted) {
+            closeQuietly(entry.statement);
+            return;
+        }
+        try {
+            if (openResult != null) {
+                openResult.close();
+            }
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            // Max rows first: a fetch size above the max rows is rejected by some drivers
+            if (entry.statement.getMaxRows() != entry.maxRows) {
+                entry.statement.setMaxRows(entry.maxRows);
+            }
+            if (entry.statement.getFetchSize() != entry.fetchSize) {
+                entry.statement.setFetchSize(entry.fetchSize);
+            }
+            if (entry.statement.getQueryTimeout() != entry.queryTimeout) {
+                entry.statement.setQueryTimeout(entry.queryTimeout);
+            }
+        } catch (SQLException ex) {
+            // Could not be reset; do not reuse it
+            entries.values().remove(entry);
+            closeQuietly(entry.statement);
+        }
+    }
+
+    /**
+     * Creates the proxy handed to the caller. Each use gets its own handle,
+     * so a closed handle cannot touch the statement while someone else uses it.
+     */
+    private PreparedStatement handle(Entry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+            private ResultSet openResult; // Closed when the statement goes back to the cache
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            release(entry, openResult);
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Cached[" + entry.statement + "]";
+                    default:
+                        if (closed) {
+                            throw new SQLException("Statement is closed");
+                        }
+                }
+                try {
+                    Object result = method.invoke(entry.statement, args);
+                    if (result instanceof ResultSet) {
+                        openResult = (ResultSet) result;
+                    }
+                    return result;
+                } catch (InvocationTargetException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof SQLException) {
+                        errorListener.accept((SQLException) cause);
+                    }
+                    throw cause;
+                }
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, handler);
+    }
+
+    /**
+     * Collapses runs of whitespace outside quoted literals and identifiers into one space and trims the text,
+     * so statements that differ only in layout share a cache entry. Text with line comments is only trimmed.
+     * Oracle's alternative quoting (q'[it's]', nq'{...}') is copied as is up to its closing delimiter and quote.
+     */
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        char quote = 0; // The quote character of the literal being copied, or 0
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                out.append(c);
+                if (c == quote) {
+                    quote = 0; // A doubled quote just closes and reopens the literal
+                }
+            } else if (c == '-' && i + 1 < sql.length() && sql.charAt(i + 1) == '-') {
+                return sql.trim(); // A line comment ends at the line break, which must be kept
+            } else if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                if (c == '\'' && isAlternativeQuote(out)) {
+                    int end = endOfAlternativeQuote(sql, i);
+                    out.append(sql, i, end);
+                    i = end - 1;
+                    continue;
+                }
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                }
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return True if the text before a quote is the q (or nq) prefix of an alternative quoted literal.
+     */
+    private static boolean isAlternativeQuote(StringBuilder before) {
+        int q = before.length() - 1;
+        if (q < 0 || Character.toUpperCase(before.charAt(q)) != 'Q') {
+            return false;
+        }
+        int start = q > 0 && Character.toUpperCase(before.charAt(q - 1)) == 'N' ? q - 1 : q;
+        return start == 0 || !isWordChar(before.charAt(start - 1));
+    }
+
+    /**
+     * @return The index after a q'Xtext X' literal whose quote is at start; the end of the text if it is not closed.
+     */
+    private static int endOfAlternativeQuote(String sql, int start) {
+        if (start + 1 >= sql.length()) {
+            return sql.length();
+        }
+        char open = sql.charAt(start + 1);
+        char close = switch (open) {
+            case '[' -> ']';
+            case '{' -> '}';
+            case '(' -> ')';
+            case '<' -> '>';
+            default -> open;
+        };
+        int i = sql.indexOf(close + "'", start + 2);
+        return i < 0 ? sql.length() : i + 2;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            System.err.println("Error closing cached statement: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,564 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the contents of a table straight from the ResultSet to a file.
+ * Rows are never collected in memory: each row is encoded into a direct buffer that is written to a
+ * FileChannel whenever it fills up, so memory use is constant regardless of table size.
+ *
+ * Two formats are supported:
+ * - CSV (.csv): header line plus one line per row; fields are quoted when needed, NULL is an empty field.
+ * - Columnar (.tcol): a compact binary format that stores rows in groups of ROW_GROUP_SIZE, column by column:
+ *   <pre>
+ *   header:    "TCOL" | version:byte | columnCount:int | per column: nameLength:short, name:UTF-8, encoding:byte, jdbcType:int
+ *   row group: rowCount:int | per column: byteLength:int, null bitmap (1 bit per row, 1 = NULL), non-null values
+ *   footer:    "TEND" | totalRows:long | groupCount:int
+ *   </pre>
+ *   Values are encoded per column: integers as zig-zag varints, floating point as 8-byte doubles,
+ *   everything else as varint-length-prefixed UTF-8 text.
+ *
+ * With more than one partition the table is split into ranges (see ParallelScanner) which are read
+ * concurrently over separate pooled connections; each range is written to a temporary part file and the
+ * parts are then appended to the target with FileChannel.transferTo.
+ */
+public class TableExporter {
+
+    public static final int ROW_GROUP_SIZE = 8192; // Rows per columnar row group
+    private static final int BUFFER_SIZE = 1 << 20; // Write buffer per output file
+
+    private static final byte ENC_STRING = 0;
+    private static final byte ENC_LONG = 1;
+    private static final byte ENC_DOUBLE = 2;
+
+    /**
+     * Output file formats.
+     */
+    public enum Format {
+        CSV, COLUMNAR;
+
+        /**
+         * @return COLUMNAR for .tcol files, CSV otherwise.
+         */
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tcol") ? COLUMNAR : CSV;
+        }
+    }
+
+    /**
+     * Receives progress updates while the export runs (possibly from several threads).
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long rowsExported, double rowsPerSecond);
+    }
+
+    private final ConnectionPool pool;
+    private final ParallelScanner scanner;
+
+    /**
+     * @param pool The pool the exporter borrows its connections from.
+     * @param scanner Splits the table into ranges and reads them.
+     */
+    public TableExporter(ConnectionPool pool, ParallelScanner scanner) {
+        this.pool = pool;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Exports a table. Stops if the calling thread is interrupted.
+     * @param table The table to export.
+     * @param target The file to write (replaced if it exists).
+     * @param format The output format.
+     * @param partitions Maximum number of ranges read in parallel (1 for a single sequential read).
+     * @param progress Receives progress updates; may be null.
+     * @return The number of rows exported.
+     * @throws IOException If the file cannot be written.
+     * @throws SQLException If the table cannot be read.
+     */
+    public long export(String table, Path target, Format format, int partitions, Progress progress)
+            throws IOException, SQLException {
+        List<ColumnInfo> columns = describe(table);
+        ProgressTracker tracker = new ProgressTracker(progress);
+        List<ParallelScanner.Range> ranges = scanner.split(table, partitions);
+
+        long rows;
+        if (ranges.size() == 1) {
+            // Single sequential read straight into the target
+            try (Output out = new Output(target)) {
+                writeHeader(out, format, columns);
+                PartResult part = scanner.scan(table, "t.*", ranges,
+                        (range, rs) -> exportRange(rs, out, format, columns, tracker)).get(0);
+                writeFooter(out, format, part.rows, part.groups);
+                rows = part.rows;
+            }
+        } else {
+            rows = exportParallel(table, target, format, columns, ranges, tracker);
+        }
+        tracker.finish();
+        return rows;
+    }
+
+    /**
+     * Reads the ranges concurrently into part files and concatenates them into the target.
+     */
+    private long exportParallel(String table, Path target, Format format, List<ColumnInfo> columns,
+                                List<ParallelScanner.Range> ranges, ProgressTracker tracker) throws IOException, SQLException {
+        Path dir = target.toAbsolutePath().getParent();
+        List<Path> parts = new ArrayList<>();
+        try {
+            for (int i = 0; i < ranges.size(); i++) {
+                parts.add(Files.createTempFile(dir, target.getFileName().toString(), ".part"));
+            }
+            List<PartResult> results = scanner.scan(table, "t.*", ranges, (range, rs) -> {
+                try (Output out = new Output(parts.get(ranges.indexOf(range)))) {
+                    return exportRange(rs, out, format, columns, tracker);
+                }
+            });
+            long rows = 0;
+            int groups = 0;
+            for (PartResult part : results) {
+                rows += part.rows;
+                groups += part.groups;
+            }
+            // Header, then each part appended without copying through the heap, then the footer
+            try (Output out = new Output(target)) {
+                writeHeader(out, format, columns);
+                out.flush();
+                for (Path part : parts) {
+                    try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                        long pos = 0;
+                        long size = in.size();
+                        while (pos < size) {
+                            pos += in.transferTo(pos, size - pos, out.channel);
+                        }
+                    }
+                }
+                writeFooter(out, format, rows, groups);
+            }
+            return rows;
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    /**
+     * Reads the column names and picks a value encoding for each from the result metadata.
+     */
+    private List<ColumnInfo> describe(String table) throws SQLException {
+        List<ColumnInfo> columns = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.add(new ColumnInfo(meta.getColumnName(i), meta.getColumnType(i),
+                        encodingFor(meta.getColumnType(i), meta.getPrecision(i), meta.getScale(i))));
+            }
+        }
+        return columns;
+    }
+
+    private static byte encodingFor(int jdbcType, int precision, int scale) {
+        switch (jdbcType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return ENC_LONG;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                // NUMBER(p, 0) with p <= 18 always fits in a long; unconstrained NUMBER does not
+                return scale == 0 && precision > 0 && precision <= 18 ? ENC_LONG : ENC_STRING;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ENC_DOUBLE;
+            default:
+                return ENC_STRING;
+        }
+    }
+
+    /**
+     * Streams the rows of one range (or of the whole table) into the output.
+     */
+    private static PartResult exportRange(ResultSet rs, Output out, Format format,
+                                          List<ColumnInfo> columns, ProgressTracker tracker) throws IOException, SQLException {
+        RowWriter writer = format == Format.CSV ? new CsvWriter(out, columns.size()) : new ColumnarWriter(out, columns);
+        long rows = 0;
+        while (rs.next()) {
+            writer.row(rs);
+            if (++rows % ROW_GROUP_SIZE == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Export cancelled");
+                }
+                tracker.add(ROW_GROUP_SIZE);
+            }
+        }
+        tracker.add(rows % ROW_GROUP_SIZE);
+        return new PartResult(rows, writer.finish());
+    }
+
+    private static void writeHeader(Output out, Format format, List<ColumnInfo> columns) throws IOException {
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) out.put((byte) ',');
+                CsvWriter.writeField(out, columns.get(i).name);
+            }
+            out.put((byte) '\n');
+        } else {
+            out.put("TCOL".getBytes(StandardCharsets.US_ASCII));
+            out.put((byte) 1); // Format version
+            out.putInt(columns.size());
+            for (ColumnInfo c : columns) {
+                byte[] name = c.name.getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) name.length);
+                out.put(name);
+                out.put(c.encoding);
+                out.putInt(c.jdbcType);
+            }
+        }
+    }
+
+    private static void writeFooter(Output out, Format format, long rows, int groups) throws IOException {
+        if (format == Format.COLUMNAR) {
+            out.put("TEND".getBytes(StandardCharsets.US_ASCII));
+            out.putLong(rows);
+            out.putInt(groups);
+        }
+    }
+
+    /**
+     * Column name, JDBC type and columnar value encoding.
+     */
+    private static final class ColumnInfo {
+        final String name;
+        final int jdbcType;
+        final byte encoding;
+
+        ColumnInfo(String name, int jdbcType, byte encoding) {
+            this.name = name;
+            this.jdbcType = jdbcType;
+            this.encoding = encoding;
+        }
+    }
+
+    /**
+     * Rows and row groups written for one range.
+     */
+    private static final class PartResult {
+        final long rows;
+        final int groups;
+
+        PartResult(long rows, int groups) {
+            this.rows = rows;
+            this.groups = groups;
+        }
+    }
+
+    /**
+     * Counts exported rows across all workers and reports the rate.
+     */
+    private static final class ProgressTracker {
+        private final Progress progress;
+        private final AtomicLong rows = new AtomicLong();
+        private final long start = System.nanoTime();
+
+        ProgressTracker(Progress progress) {
+            this.progress = progress;
+        }
+
+        void add(long n) {
+            long total = rows.addAndGet(n);
+            if (progress != null && n > 0) {
+                progress.update(total, rate(total));
+            }
+        }
+
+        void finish() {
+            if (progress != null) {
+                progress.update(rows.get(), rate(rows.get()));
+            }
+        }
+
+        private double rate(long total) {
+            long nanos = System.nanoTime() - start;
+            return nanos == 0 ? 0 : total * 1_000_000_000.0 / nanos;
+        }
+    }
+
+    /**
+     * Encodes rows from a ResultSet positioned on the current row.
+     */
+    private interface RowWriter {
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        /**
+         * Writes anything still buffered.
+         * @return The number of row groups written (0 for formats without groups).
+         */
+        int finish() throws IOException;
+    }
+
+    /**
+     * Writes rows as CSV lines.
+     */
+    private static final class CsvWriter implements RowWriter {
+        private final Output out;
+        private final int columnCount;
+
+        CsvWriter(Output out, int columnCount) {
+            this.out = out;
+            this.columnCount = columnCount;
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) out.put((byte) ',');
+                String v = rs.getString(i);
+                if (v != null) {
+                    writeField(out, v);
+                }
+            }
+            out.put((byte) '\n');
+        }
+
+        @Override
+        public int finish() {
+            return 0;
+        }
+
+        /**
+         * Writes a field, quoting it if it contains a separator, quote or line break.
+         */
+        static void writeField(Output out, String v) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < v.length() && !quote; i++) {
+                char c = v.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.putUtf8(v);
+                return;
+            }
+            out.put((byte) '"');
+            out.putUtf8(v.replace("\"", "\"\""));
+            out.put((byte) '"');
+        }
+    }
+
+    /**
+     * Buffers ROW_GROUP_SIZE rows column by column and writes them as one row group.
+     */
+    private static final class ColumnarWriter implements RowWriter {
+        private final Output out;
+        private final List<ColumnInfo> columns;
+        private final ByteSink[] values; // Encoded non-null values per column
+        private final byte[][] nulls; // Null bitmap per column
+        private int rows; // Rows in the current group
+        private int groups;
+
+        ColumnarWriter(Output out, List<ColumnInfo> columns) {
+            this.out = out;
+            this.columns = columns;
+            this.values = new ByteSink[columns.size()];
+            this.nulls = new byte[columns.size()][(ROW_GROUP_SIZE + 7) / 8];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = new ByteSink();
+            }
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            for (int c = 0; c < values.length; c++) {
+                ByteSink sink = values[c];
+                boolean isNull;
+                switch (columns.get(c).encoding) {
+                    case ENC_LONG: {
+                        long v = rs.getLong(c + 1);
+                        isNull = rs.wasNull();
+                        if (!isNull) sink.putVarLong((v << 1) ^ (v >> 63)); // Zig-zag keeps small negatives short
+                        break;
+                    }
+                    case ENC_DOUBLE: {
+                        double v = rs.getDouble(c + 1);
+                        isNull = rs.wasNull();
+                        if (!isNull) sink.putLong(Double.doubleToRawLongBits(v));
+                        break;
+                    }
+                    default: {
+                        String v = rs.getString(c + 1);
+                        isNull = v == null;
+                        if (!isNull) {
+                            byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                            sink.putVarLong(bytes.length);
+                            sink.put(bytes, 0, bytes.length);
+                        }
+                    }
+                }
+                if (isNull) {
+                    nulls[c][rows >>> 3] |= (byte) (1 << (rows & 7));
+                }
+            }
+            if (++rows == ROW_GROUP_SIZE) {
+                flushGroup();
+            }
+        }
+
+        @Override
+        public int finish() throws IOException {
+            if (rows > 0) {
+                flushGroup();
+            }
+            return groups;
+        }
+
+        private void flushGroup() throws IOException {
+            int bitmapBytes = (rows + 7) / 8;
+            out.putInt(rows);
+            for (int c = 0; c < values.length; c++) {
+                out.putInt(bitmapBytes + values[c].size);
+                out.put(nulls[c], 0, bitmapBytes);
+                out.put(values[c].bytes, 0, values[c].size);
+                values[c].size = 0;
+                Arrays.fill(nulls[c], (byte) 0);
+            }
+            rows = 0;
+            groups++;
+        }
+    }
+
+    /**
+     * Growable byte array for one column of a row group.
+     */
+    private static final class ByteSink {
+        byte[] bytes = new byte[4096];
+        int size;
+
+        void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void put(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+        }
+
+        void putVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void putLong(long v) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                bytes[size++] = (byte) (v >>> (i * 8));
+            }
+        }
+    }
+
+    /**
+     * A file opened for writing through a direct buffer that is flushed to the channel when full.
+     */
+    private static final class Output implements AutoCloseable {
+        final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void put(byte b) throws IOException {
+            if (!buf.hasRemaining()) flush();
+            buf.put(b);
+        }
+
+        void put(byte[] b) throws IOException {
+            put(b, 0, b.length);
+        }
+
+        void put(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buf.hasRemaining()) flush();
+                int n = Math.min(len, buf.remaining());
+                buf.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        void putShort(short v) throws IOException {
+            if (buf.remaining() < 2) flush();
+            buf.putShort(v);
+        }
+
+        void putInt(int v) throws IOException {
+            if (buf.remaining() < 4) flush();
+            buf.putInt(v);
+        }
+
+        void putLong(long v) throws IOException {
+            if (buf.remaining() < 8) flush();
+            buf.putLong(v);
+        }
+
+        /**
+         * Writes text as UTF-8, without an intermediate byte[] for ASCII text.
+         */
+        void putUtf8(String s) throws IOException {
+            int n = s.length();
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    put(s.substring(i).getBytes(StandardCharsets.UTF_8)); // Non-ASCII remainder
+                    return;
+                }
+                put((byte) c);
+            }
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
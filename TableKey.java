@@ -0,0 +1,218 @@
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Identifies rows of one table for UPDATE and DELETE statements.
+ *
+ * The key is resolved from the table's constraints: the primary key if there is one, otherwise the
+ * first unique constraint whose columns are all NOT NULL (a unique key with a nullable column does not
+ * identify rows holding NULLs), otherwise the row's ROWID. Either way the generated predicate is an
+ * equality on indexed columns (or a ROWID access), so the statement never has to scan the table.
+ *
+ * Key and column values are bound with the column's native JDBC type (see bindValue). Binding a
+ * NUMBER key as a string makes Oracle convert the column side of the comparison, which disables the
+ * index on it; the same goes for a DATE column compared with a TIMESTAMP bind, so comparisons with
+ * DATE columns use placeholder(), which converts the bind side instead.
+ */
+public class TableKey {
+
+    private final SchemaCache.TableMeta meta;
+    private final List<SchemaCache.ColumnMeta> keyColumns; // Empty when rows are identified by ROWID
+    private final String kind; // "primary key", "unique key" or "ROWID", for messages
+
+    private TableKey(SchemaCache.TableMeta meta, List<SchemaCache.ColumnMeta> keyColumns, String kind) {
+        this.meta = meta;
+        this.keyColumns = Collections.unmodifiableList(keyColumns);
+        this.kind = kind;
+    }
+
+    /**
+     * Picks the best available key for a table.
+     * @param meta The table's description.
+     * @return The table's key; falls back to ROWID if the table has no usable constraint.
+     */
+    public static TableKey resolve(SchemaCache.TableMeta meta) {
+        List<SchemaCache.ColumnMeta> pk = columnsOf(meta, meta.primaryKey);
+        if (pk != null) {
+            return new TableKey(meta, pk, "primary key");
+        }
+        for (List<String> unique : meta.uniqueKeys) {
+            List<SchemaCache.ColumnMeta> columns = columnsOf(meta, unique);
+            if (columns != null && columns.stream().noneMatch(c -> c.nullable)) {
+                return new TableKey(meta, columns, "unique key");
+            }
+        }
+        return new TableKey(meta, new ArrayList<>(), "ROWID");
+    }
+
+    /**
+     * @return The described columns for the given names, or null if the list is empty or a column is missing.
+     */
+    private static List<SchemaCache.ColumnMeta> columnsOf(SchemaCache.TableMeta meta, List<String> names) {
+        if (names.isEmpty()) {
+            return null;
+        }
+        List<SchemaCache.ColumnMeta> columns = new ArrayList<>(names.size());
+        for (String name : names) {
+            SchemaCache.ColumnMeta column = meta.column(name);
+            if (column == null) {
+                return null;
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /**
+     * @return True if rows are identified by ROWID (the table has no usable key constraint).
+     */
+    public boolean isRowId() {
+        return keyColumns.isEmpty();
+    }
+
+    /**
+     * @return The key columns in key order; empty when rows are identified by ROWID.
+     */
+    public List<SchemaCache.ColumnMeta> columns() {
+        return keyColumns;
+    }
+
+    /**
+     * @return The predicate that selects one row, with one placeholder per key column
+     *         (e.g. "ID = ?", "A = ? AND B = ?" or "ROWID = CHARTOROWID(?)").
+     */
+    public String whereClause() {
+        if (isRowId()) {
+            return "ROWID = CHARTOROWID(?)";
+        }
+        StringBuilder where = new StringBuilder();
+        for (SchemaCache.ColumnMeta column : keyColumns) {
+            if (where.length() > 0) {
+                where.append(" AND ");
+            }
+            where.append(column.name).append(" = ").append(placeholder(column));
+        }
+        return where.toString();
+    }
+
+    /**
+     * Binds the key of a row to the placeholders of whereClause().
+     * @param ps The statement.
+     * @param index The parameter index of the first key placeholder.
+     * @param row The row whose key is bound.
+     * @param rowColumns The column names the row's values are in, in order.
+     * @return The parameter index following the key placeholders.
+     * @throws SQLException If the row does not carry a key column or its ROWID, or a value cannot be bound.
+     */
+    public int bindKey(PreparedStatement ps, int index, CrudOperations.RowData row, List<String> rowColumns) throws SQLException {
+        if (isRowId()) {
+            if (row.getRowId() == null) {
+                throw new SQLException("Table " + meta.name + " has no key and the row was read without its ROWID");
+            }
+            ps.setString(index, row.getRowId());
+            return index + 1;
+        }
+        for (SchemaCache.ColumnMeta column : keyColumns) {
+            int position = indexOf(rowColumns, column.name);
+            if (position < 0) {
+                throw new SQLException("Key column " + column.name + " of table " + meta.name + " is not loaded");
+            }
+            bindValue(ps, index++, column, row.get(position));
+        }
+        return index;
+    }
+
+    /**
+     * @return The placeholder for a value compared with the column: "CAST(? AS DATE)" for DATE columns, "?"
+     *         otherwise. DATE values are bound as Timestamp (see bindValue), and Oracle compares a DATE column
+     *         with a TIMESTAMP bind by converting the column (INTERNAL_FUNCTION), so its index is not used.
+     *         The cast converts the bind once instead; it keeps the time of day, which a DATE bind would drop
+     *         on some drivers.
+     */
+    public static String placeholder(SchemaCache.ColumnMeta column) {
+        return column != null && "DATE".equalsIgnoreCase(column.dataType) ? "CAST(? AS DATE)" : "?";
+    }
+
+    /**
+     * Binds a value entered or displayed as text using the column's native type:
+     * NUMBER as long or BigDecimal, DATE/TIMESTAMP as Timestamp, BINARY_FLOAT/BINARY_DOUBLE as double,
+     * everything else as a string. An empty value is bound as NULL (Oracle treats '' as NULL anyway).
+     * Compare DATE columns with placeholder(), not a bare "?".
+     * @param ps The statement.
+     * @param index The parameter index.
+     * @param column The column the value belongs to (null binds the value as a string).
+     * @param value The value as text, possibly null.
+     * @throws SQLException If the value is not valid for the column's type (SQLState 22018), or cannot be bound.
+     */
+    public static void bindValue(PreparedStatement ps, int index, SchemaCache.ColumnMeta column, String value) throws SQLException {
+        String type = column == null || column.dataType == null ? "VARCHAR2" : column.dataType.toUpperCase(Locale.ROOT);
+        if (value == null || value.isEmpty()) {
+            ps.setNull(index, sqlType(type));
+            return;
+        }
+        String text = value.trim();
+        try {
+            if (type.equals("NUMBER") || type.equals("INTEGER") || type.equals("FLOAT")) {
+                BigDecimal number = new BigDecimal(text);
+                if (column.scale == 0 && column.precision > 0 && column.precision <= 18 && !type.equals("FLOAT")) {
+                    ps.setLong(index, number.longValueExact()); // Integral NUMBER(p) that fits a long
+                } else {
+                    ps.setBigDecimal(index, number);
+                }
+            } else if (type.equals("BINARY_DOUBLE") || type.equals("BINARY_FLOAT")) {
+                ps.setDouble(index, Double.parseDouble(text));
+            } else if (type.equals("DATE") || (type.startsWith("TIMESTAMP") && !type.contains("TIME ZONE"))) {
+                // JDBC renders DATE and TIMESTAMP as 'yyyy-mm-dd hh:mm:ss[.f]'; a bare date means midnight
+                ps.setTimestamp(index, Timestamp.valueOf(text.length() == 10 ? text + " 00:00:00" : text));
+            } else {
+                ps.setString(index, value);
+            }
+        } catch (IllegalArgumentException | ArithmeticException ex) { // Also covers NumberFormatException
+            throw new SQLException("Value '" + value + "' is not a valid " + type + " for column " + column.name, "22018", ex);
+        }
+    }
+
+    /**
+     * @return The java.sql.Types code used to bind NULL for an Oracle type name.
+     */
+    private static int sqlType(String type) {
+        if (type.equals("NUMBER") || type.equals("INTEGER") || type.equals("FLOAT")) {
+            return Types.NUMERIC;
+        } else if (type.equals("BINARY_DOUBLE") || type.equals("BINARY_FLOAT")) {
+            return Types.DOUBLE;
+        } else if (type.equals("DATE") || type.startsWith("TIMESTAMP")) {
+            return Types.TIMESTAMP;
+        }
+        return Types.VARCHAR;
+    }
+
+    private static int indexOf(List<String> columns, String column) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return A description for messages, e.g. "primary key (ID)" or "ROWID".
+     */
+    public String describe() {
+        if (isRowId()) {
+            return kind;
+        }
+        List<String> names = new ArrayList<>();
+        for (SchemaCache.ColumnMeta column : keyColumns) {
+            names.add(column.name);
+        }
+        return kind + " (" + String.join(", ", names) + ")";
+    }
+}
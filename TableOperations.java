@@ -0,0 +1,188 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The JDBC work behind the insert, delete and checkbox-load actions of CrudOperations, without any UI.
+ *
+ * The screens call these from background tasks; keeping them free of JavaFX controls lets the same code
+ * be exercised directly, e.g. by the JMH benchmarks in the benchmarks module.
+ * Every method takes the task it runs in so cancelling the task cancels the executing statement;
+ * pass null when there is no task.
+ */
+public final class TableOperations {
+
+    private TableOperations() {
+    }
+
+    /**
+     * Inserts one row, binding every value as a string (Oracle converts it to the column's type).
+     * @param conn The connection to use.
+     * @param table The table name.
+     * @param columns The column names, in the order of the values.
+     * @param values The values to insert.
+     * @param task The task doing the work (may be null).
+     * @return The number of rows inserted.
+     * @throws SQLException If the insert fails.
+     */
+    public static int insertRow(Connection conn, String table, List<String> columns, List<String> values,
+                                DbTask<?> task) throws SQLException {
+        // Construct the INSERT SQL statement with placeholders (?)
+        String placeholders = String.join(",", Collections.nCopies(values.size(), "?"));
+        String sql = "INSERT INTO " + table + " (" + String.join(",", columns) + ") VALUES (" + placeholders + ")";
+        QueryMetrics.debug(() -> "Executing SQL: " + sql + " with values: " + values);
+
+        try (PreparedStatement ps = track(task, conn.prepareStatement(sql))) {
+            // Set each value as a parameter in the prepared statement
+            for (int i = 0; i < values.size(); i++) {
+                ps.setString(i + 1, values.get(i)); // JDBC parameters are 1-indexed
+            }
+            return ps.executeUpdate(); // Execute the insert statement
+        }
+    }
+
+    /**
+     * The outcome of deleteRows.
+     */
+    public static final class DeleteResult {
+        public final long rows; // Rows a DELETE was executed for
+        public final long deleted; // Rows deleted: the sum of the update counts
+        public final boolean exact; // True if every count was 0 or 1, i.e. each key matched at most its own row
+
+        DeleteResult(long rows, long deleted, boolean exact) {
+            this.rows = rows;
+            this.deleted = deleted;
+            this.exact = exact;
+        }
+    }
+
+    /**
+     * Deletes rows by key in JDBC batches of batchSize rows, in one transaction. The rows are taken from the
+     * iterator as the batches are built, so only one batch of keys is held at a time.
+     * @param conn The connection to use. If auto-commit is on, the rows are deleted in a transaction of their own
+     *             (committed, or rolled back on failure); otherwise in the caller's transaction.
+     * @param table The table name.
+     * @param key The key identifying rows (see TableKey.resolve).
+     * @param columns The column names the rows' values are in, in order.
+     * @param rows The rows to delete, e.g. SpilledRowList.StoredRows of a selection.
+     * @param batchSize The number of rows per JDBC batch.
+     * @param task The task doing the work (may be null); checked for cancellation between batches.
+     * @return The rows and update counts.
+     * @throws SQLException If the delete fails; nothing is deleted then.
+     */
+    public static DeleteResult deleteRows(Connection conn, String table, TableKey key, List<String> columns,
+                                          Iterable<? extends CrudOperations.RowData> rows, int batchSize,
+                                          DbTask<?> task) throws SQLException {
+        String sql = "DELETE FROM " + table + " WHERE " + key.whereClause();
+        QueryMetrics.debug(() -> "Preparing batch delete SQL: " + sql);
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false); // All batches are committed together
+        try (PreparedStatement ps = track(task, conn.prepareStatement(sql))) {
+            long count = 0;
+            long deleted = 0;
+            boolean exact = true;
+            int batched = 0;
+            for (Iterator<? extends CrudOperations.RowData> it = rows.iterator(); it.hasNext(); ) {
+                key.bindKey(ps, 1, it.next(), columns); // Bind the row's key with its native types
+                ps.addBatch();
+                count++;
+                if (++batched == batchSize || !it.hasNext()) {
+                    for (int c : ps.executeBatch()) { // One count per row
+                        deleted += Math.max(c, 0);
+                        exact &= c == 0 || c == 1; // Above 1: the key matched other rows; negative: unknown
+                    }
+                    batched = 0;
+                    if (task != null) {
+                        task.checkCancelled();
+                    }
+                }
+            }
+            if (autoCommit) {
+                conn.commit();
+            }
+            return new DeleteResult(count, deleted, exact);
+        } catch (SQLException | RuntimeException ex) {
+            if (autoCommit) {
+                conn.rollback(); // All or nothing
+            }
+            throw ex;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Reads every row of a table together with its ROWID, handing the rows over in batches as they are read.
+     * @param conn The connection to use.
+     * @param table The table name.
+     * @param columns The table's column names, in column order (the order of SELECT *).
+     * @param batchSize The number of rows per batch.
+     * @param task The task doing the work (may be null); checked for cancellation between rows.
+     * @param sink Receives each batch on the reading thread; the last batch may be smaller or empty.
+     * @throws SQLException If the query fails.
+     */
+    public static void readRows(Connection conn, String table, List<String> columns, int batchSize,
+                                DbTask<?> task, Consumer<List<CrudOperations.RowData>> sink) throws SQLException {
+        // The ROWID is read along with the row so tables without a key can still be deleted from
+        String sql = "SELECT ROWIDTOCHAR(ROWID) AS ROW_KEY_, t.* FROM " + table + " t";
+        QueryMetrics.debug(() -> "Executing SQL (with checkboxes): " + sql);
+
+        try (PreparedStatement ps = track(task, conn.prepareStatement(sql))) {
+            ResultDecoder.tune(ps, 2); // Fetch about 2 MB per round trip instead of the driver's 10 rows
+            try (ResultSet rs = ps.executeQuery()) {
+                decodeRows(rs, columns.size(), batchSize, task, sink);
+            }
+        }
+    }
+
+    /**
+     * Same as readRows(Connection, ...), but reads the table as several ranges at once, each on its own pooled
+     * connection (see ParallelScanner). Batches still reach the sink in table order, one at a time, but from
+     * the scanner's threads; a range that finishes early is held until the ranges before it are done.
+     * @param parallelism The maximum number of ranges read at once.
+     * @throws SQLException If a range cannot be read.
+     * @throws java.util.concurrent.CancellationException If the task is cancelled.
+     */
+    public static void readRows(ParallelScanner scanner, String table, List<String> columns, int batchSize,
+                                int parallelism, DbTask<?> task,
+                                Consumer<List<CrudOperations.RowData>> sink) throws SQLException {
+        List<ParallelScanner.Range> ranges = scanner.split(table, parallelism);
+        QueryMetrics.debug(() -> "Reading " + table + " in " + ranges.size() + " range(s)");
+        scanner.scanInOrder(table, "ROWIDTOCHAR(ROWID) AS ROW_KEY_, t.*", ranges,
+                (rs, out) -> decodeRows(rs, columns.size(), batchSize, task, out), sink);
+    }
+
+    private static void decodeRows(ResultSet rs, int width, int batchSize, DbTask<?> task,
+                                   Consumer<List<CrudOperations.RowData>> sink) throws SQLException {
+        // Column positions and types are resolved once; column 1 is the ROWID
+        ResultDecoder decoder = ResultDecoder.of(rs, 2);
+        List<CrudOperations.RowData> batch = new ArrayList<>(batchSize);
+        String[] cells = new String[batchSize * width]; // One flat array per batch of rows
+        while (rs.next()) {
+            if (task != null) {
+                task.checkCancelled();
+            }
+            int offset = batch.size() * width;
+            decoder.decode(rs, cells, offset);
+            batch.add(new CrudOperations.RowData(cells, offset, width, rs.getString(1)));
+            if (batch.size() == batchSize) {
+                sink.accept(batch);
+                batch = new ArrayList<>(batchSize);
+                cells = new String[batchSize * width];
+            }
+        }
+        sink.accept(batch); // Remaining rows
+    }
+
+    private static <S extends Statement> S track(DbTask<?> task, S st) {
+        return task == null ? st : task.track(st);
+    }
+}
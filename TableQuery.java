@@ -0,0 +1,332 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A read of one table with filters, a text search, ORDER BY and a row limit, all evaluated by the database.
+ *
+ * Filter and search values are always bind parameters (bound with the column's native type, see
+ * TableKey.bindValue), so the statement text depends only on the query's shape: the table, the columns, which
+ * column is compared with which operator, the sort and whether there is a limit. The generated text is cached
+ * per shape, and queries that differ only in their values share one cursor on the server.
+ *
+ * Column names are checked against the table's description, so no user input ever ends up in the SQL text.
+ */
+public final class TableQuery {
+
+    /**
+     * Comparison operators offered for a filter.
+     */
+    public enum Op {
+        EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">="),
+        CONTAINS("contains"), // Case-insensitive substring match
+        STARTS_WITH("starts with"), // Prefix match; can use an index on the column
+        IS_NULL("is empty"), IS_NOT_NULL("is not empty");
+
+        private final String label;
+
+        Op(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return True if the operator compares the column with a value.
+         */
+        public boolean takesValue() {
+            return this != IS_NULL && this != IS_NOT_NULL;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * One predicate: column, operator and (for operators that take one) a value.
+     */
+    public static final class Filter {
+        public final String column;
+        public final Op op;
+        public final String value;
+
+        public Filter(String column, Op op, String value) {
+            this.column = column;
+            this.op = op;
+            this.value = value;
+        }
+    }
+
+    /**
+     * One ORDER BY key.
+     */
+    public static final class Sort {
+        public final String column;
+        public final boolean descending;
+
+        public Sort(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+    }
+
+    private static final String KEY_COLUMN = "ROW_KEY_"; // Alias for the ROWID selected with every row
+    private static final int SQL_CACHE_SIZE = 256; // Statement texts kept, one per shape and variant
+
+    // Generated statement text by shape; shared by all queries
+    private static final Map<String, String> SQL_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > SQL_CACHE_SIZE;
+                }
+            });
+
+    private final SchemaCache.TableMeta meta;
+    private final List<String> columns;
+    private final List<Filter> filters;
+    private final String search; // Null if there is no text search
+    private final List<SchemaCache.ColumnMeta> searchColumns; // Character columns the search looks in
+    private final List<Sort> sorts;
+    private final int limit; // 0 means no limit
+    private final String shape; // Everything the statement text depends on
+
+    /**
+     * @param meta The table's description.
+     * @param columns The columns to read, in display order.
+     * @param filters Predicates, combined with AND.
+     * @param search Text that must occur (case-insensitively) in one of the character columns; null or blank for none.
+     * @param sorts ORDER BY keys, most significant first; empty to read in storage (ROWID) order.
+     * @param limit Maximum number of rows; 0 for no limit.
+     * @throws IllegalArgumentException If a column does not exist, a filter lacks its value,
+     *                                  or there is a search but no character column to search in.
+     */
+    public TableQuery(SchemaCache.TableMeta meta, List<String> columns, List<Filter> filters, String search,
+                      List<Sort> sorts, int limit) {
+        this.meta = meta;
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+        this.search = search == null || search.trim().isEmpty() ? null : search.trim();
+        this.sorts = Collections.unmodifiableList(new ArrayList<>(sorts));
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+
+        StringBuilder shape = new StringBuilder(meta.name).append('|');
+        for (String column : columns) {
+            shape.append(checkColumn(column).name).append(',');
+        }
+        shape.append('|');
+        for (Filter filter : filters) {
+            if (filter.op.takesValue() && (filter.value == null || filter.value.isEmpty())) {
+                throw new IllegalArgumentException("Filter on " + filter.column + " needs a value");
+            }
+            SchemaCache.ColumnMeta column = checkColumn(filter.column);
+            shape.append(column.name).append(' ').append(filter.op.name()).append(' ')
+                    .append(TableKey.placeholder(column)).append(','); // The placeholder depends on the column's type
+        }
+        this.searchColumns = new ArrayList<>();
+        if (this.search != null) {
+            for (String column : columns) {
+                SchemaCache.ColumnMeta c = checkColumn(column);
+                if (isCharacter(c)) {
+                    searchColumns.add(c);
+                }
+            }
+            if (searchColumns.isEmpty()) {
+                throw new IllegalArgumentException("Table " + meta.name + " has no text columns to search");
+            }
+            shape.append("|search");
+        }
+        shape.append('|');
+        for (Sort sort : sorts) {
+            shape.append(checkColumn(sort.column).name).append(sort.descending ? " D," : " A,");
+        }
+        shape.append(limit > 0 ? "|limit" : "");
+        this.shape = shape.toString();
+    }
+
+    /**
+     * @return A query that reads all rows of the table in storage order.
+     */
+    public static TableQuery all(SchemaCache.TableMeta meta, List<String> columns) {
+        return new TableQuery(meta, columns, Collections.emptyList(), null, Collections.emptyList(), 0);
+    }
+
+    private SchemaCache.ColumnMeta checkColumn(String column) {
+        SchemaCache.ColumnMeta c = meta.column(column);
+        if (c == null) {
+            throw new IllegalArgumentException("Table " + meta.name + " has no column " + column);
+        }
+        return c;
+    }
+
+    private static boolean isCharacter(SchemaCache.ColumnMeta column) {
+        String type = column.dataType == null ? "" : column.dataType.toUpperCase(Locale.ROOT);
+        return type.contains("CHAR") || type.equals("CLOB") || type.equals("NCLOB");
+    }
+
+    public String table() {
+        return meta.name;
+    }
+
+    public List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * @return True if rows are read in a user-defined order (keyset paging by ROWID is not possible then).
+     */
+    public boolean isSorted() {
+        return !sorts.isEmpty();
+    }
+
+    /**
+     * @return A key identifying the query's result: its shape plus the filter and search values and the limit.
+     *         Values are length-prefixed, so different values never produce the same key.
+     */
+    public String resultKey() {
+        StringBuilder key = new StringBuilder(shape);
+        for (Filter filter : filters) {
+            key.append('|');
+            if (filter.value != null) {
+                key.append(filter.value.length()).append(':').append(filter.value);
+            }
+        }
+        if (search != null) {
+            key.append('|').append(search.length()).append(':').append(search);
+        }
+        return key.append('|').append(limit).toString();
+    }
+
+    /**
+     * @return True if filters or a text search select some of the table's rows.
+     */
+    public boolean isFiltered() {
+        return !filters.isEmpty() || search != null;
+    }
+
+    /**
+     * @return The maximum number of rows, or 0 for no limit.
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * @param afterKey True to read the rows following a ROWID (keyset paging), false to read from the start.
+     * @return A statement reading one page in ROWID order. Only valid if the query is not sorted.
+     *         Parameters: the filter values, the ROWID (if afterKey), then the page size.
+     */
+    public String keysetPageSql(boolean afterKey) {
+        return cached(afterKey ? "keyset-after" : "keyset-first", () -> select() + where(afterKey)
+                + " ORDER BY ROWID FETCH FIRST ? ROWS ONLY");
+    }
+
+    /**
+     * @return A statement reading one page by position. Rows with equal sort keys are ordered by ROWID,
+     *         so pages do not overlap. Parameters: the filter values, the offset, then the page size.
+     */
+    public String offsetPageSql() {
+        return cached("offset", () -> select() + where(false) + orderBy() + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY");
+    }
+
+    /**
+     * Binds the filter and search values.
+     * @param ps A statement created from one of this query's SQL texts.
+     * @param index The parameter index of the first value.
+     * @return The parameter index following the values.
+     * @throws SQLException If a value is not valid for its column's type.
+     */
+    public int bind(PreparedStatement ps, int index) throws SQLException {
+        for (Filter filter : filters) {
+            SchemaCache.ColumnMeta column = meta.column(filter.column);
+            switch (filter.op) {
+                case IS_NULL:
+                case IS_NOT_NULL:
+                    break;
+                case CONTAINS:
+                    ps.setString(index++, "%" + escapeLike(filter.value.toUpperCase(Locale.ROOT)) + "%");
+                    break;
+                case STARTS_WITH:
+                    ps.setString(index++, escapeLike(filter.value) + "%");
+                    break;
+                default:
+                    TableKey.bindValue(ps, index++, column, filter.value); // Native type keeps the column's index usable
+            }
+        }
+        if (search != null) {
+            String pattern = "%" + escapeLike(search.toUpperCase(Locale.ROOT)) + "%";
+            for (int i = 0; i < searchColumns.size(); i++) {
+                ps.setString(index++, pattern);
+            }
+        }
+        return index;
+    }
+
+    private String select() {
+        return "SELECT ROWIDTOCHAR(ROWID) AS " + KEY_COLUMN + ", " + String.join(", ", columns) + " FROM " + meta.name;
+    }
+
+    private String where(boolean afterKey) {
+        List<String> predicates = new ArrayList<>();
+        for (Filter filter : filters) {
+            String column = meta.column(filter.column).name;
+            switch (filter.op) {
+                case IS_NULL:
+                    predicates.add(column + " IS NULL");
+                    break;
+                case IS_NOT_NULL:
+                    predicates.add(column + " IS NOT NULL");
+                    break;
+                case CONTAINS:
+                    predicates.add("UPPER(" + column + ") LIKE ? ESCAPE '\\'");
+                    break;
+                case STARTS_WITH:
+                    predicates.add(column + " LIKE ? ESCAPE '\\'");
+                    break;
+                default:
+                    predicates.add(column + " " + filter.op.label + " " + TableKey.placeholder(meta.column(filter.column)));
+            }
+        }
+        if (search != null) {
+            List<String> alternatives = new ArrayList<>();
+            for (SchemaCache.ColumnMeta column : searchColumns) {
+                alternatives.add("UPPER(" + column.name + ") LIKE ? ESCAPE '\\'");
+            }
+            predicates.add("(" + String.join(" OR ", alternatives) + ")");
+        }
+        if (afterKey) {
+            predicates.add("ROWID > CHARTOROWID(?)");
+        }
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    private String orderBy() {
+        StringBuilder order = new StringBuilder(" ORDER BY ");
+        for (Sort sort : sorts) {
+            order.append(meta.column(sort.column).name).append(sort.descending ? " DESC, " : ", ");
+        }
+        return order.append("ROWID").toString(); // ROWID breaks ties, so the order is total
+    }
+
+    private String cached(String variant, Supplier<String> build) {
+        return SQL_CACHE.computeIfAbsent(variant + ':' + shape, k -> build.get());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public String toString() {
+        return shape;
+    }
+}
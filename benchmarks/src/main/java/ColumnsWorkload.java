@@ -0,0 +1,46 @@
+import bench.Workload;
+
+import java.sql.Connection;
+import java.util.Map;
+
+/**
+ * Looks up the columns of one of many tables, as getColumnsForTable does.
+ * Operations: cached (answered by the schema cache) and uncached (the entry is dropped first,
+ * so the dictionary is read as after the TTL expired or DDL invalidated it).
+ */
+public class ColumnsWorkload implements Workload {
+
+    private boolean cached;
+    private ConnectionPool pool;
+    private SchemaCache schema;
+    private String table;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        H2Database.quiet();
+        cached = "cached".equals(params.get("operation"));
+        int tables = Integer.parseInt(params.get("tables"));
+        int width = Integer.parseInt(params.get("width"));
+        pool = H2Database.open("columns_" + params.get("operation") + "_" + tables + "_" + width, 1);
+        try (Connection conn = pool.getConnection()) {
+            for (int i = 0; i < tables; i++) {
+                H2Database.createTable(conn, "BENCH_" + i, width, true);
+            }
+        }
+        schema = new SchemaCache(pool, Long.MAX_VALUE, tables);
+        table = "BENCH_" + (tables / 2);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        if (!cached) {
+            schema.invalidate(table);
+        }
+        return schema.table(table).columnNames();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,58 @@
+import bench.Workload;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes the checked rows in batches of 1000, as showDeleteUI does, then rolls the transaction back so every
+ * operation deletes the same rows from the same table. The rollback is part of the measured time.
+ * The checked rows are spread over the whole table, as a user selecting by hand would pick them.
+ */
+public class DeleteWorkload implements Workload {
+
+    private ConnectionPool pool;
+    private Connection conn; // Held for the whole trial; auto-commit is off
+    private TableKey key;
+    private List<String> columns;
+    private List<CrudOperations.RowData> victims;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        H2Database.quiet();
+        int rows = Integer.parseInt(params.get("rows"));
+        int width = Integer.parseInt(params.get("width"));
+        int selected = Integer.parseInt(params.get("selected"));
+        boolean primaryKey = Boolean.parseBoolean(params.get("primaryKey"));
+        pool = H2Database.open("delete_" + rows + "_" + width + "_" + selected + "_" + primaryKey, 2); // One held here, one for SchemaCache
+        conn = pool.getConnection();
+        columns = H2Database.createTable(conn, "BENCH", width, primaryKey);
+        H2Database.fill(conn, "BENCH", columns, 1, rows);
+        key = TableKey.resolve(new SchemaCache(pool, Long.MAX_VALUE, 10).table("BENCH")); // ROWID without a primary key
+
+        List<CrudOperations.RowData> all = new ArrayList<>(rows);
+        TableOperations.readRows(conn, "BENCH", columns, 500, null, all::addAll);
+        victims = new ArrayList<>(selected);
+        for (int i = 0; i < selected; i++) {
+            victims.add(all.get((int) ((long) i * all.size() / selected)));
+        }
+        conn.setAutoCommit(false);
+    }
+
+    @Override
+    public Object run() throws Exception {
+        try {
+            return TableOperations.deleteRows(conn, "BENCH", key, columns, victims, 1000, null);
+        } finally {
+            conn.rollback();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        conn.setAutoCommit(true);
+        conn.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An in-memory H2 database that looks enough like Oracle for the application's data paths to run unchanged.
+ *
+ * H2 runs in Oracle compatibility mode, which covers the data types and OFFSET/FETCH paging. What it lacks is
+ * emulated here:
+ * - ROWID: every table gets an invisible, indexed "ROWID" column filled from a sequence, zero-padded so that
+ *   the string order matches the insert order like Oracle's ROWIDs do for a freshly loaded heap table.
+ * - ROWIDTOCHAR / CHARTOROWID: identity functions.
+ * - user_tables, user_tab_columns, user_constraints and user_cons_columns: views over INFORMATION_SCHEMA,
+ *   so SchemaCache reads the same dictionary queries it runs against Oracle.
+ *
+ * Absolute numbers are H2's, not Oracle's (there is no network round trip); the benchmarks are meant to
+ * compare the application's own work before and after a change.
+ */
+public final class H2Database {
+
+    private static final String[] COLUMN_TYPES = {"VARCHAR2(40)", "NUMBER(12,2)", "DATE", "NUMBER(10)"};
+
+    private H2Database() {
+    }
+
+    /**
+     * Creates an empty database and a pool on it.
+     * @param name The database name; each name is a separate in-memory database.
+     * @param poolSize The maximum number of pooled connections.
+     * @return The pool. Closing it leaves the database in place until the JVM exits.
+     * @throws SQLException If the database cannot be set up.
+     */
+    public static ConnectionPool open(String name, int poolSize) throws SQLException {
+        ConnectionPool pool = new ConnectionPool("jdbc:h2:mem:" + name + ";MODE=Oracle;DB_CLOSE_DELAY=-1",
+                "sa", "", poolSize);
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE ALIAS IF NOT EXISTS ROWIDTOCHAR DETERMINISTIC FOR \"H2Database.rowId\"");
+            st.execute("CREATE ALIAS IF NOT EXISTS CHARTOROWID DETERMINISTIC FOR \"H2Database.rowId\"");
+            st.execute("CREATE OR REPLACE VIEW USER_TABLES AS SELECT TABLE_NAME, "
+                    + "CAST(NULL AS NUMBER(19)) AS NUM_ROWS " // As if statistics had never been gathered
+                    + "FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'");
+            st.execute("CREATE OR REPLACE VIEW USER_TAB_COLUMNS AS SELECT TABLE_NAME, COLUMN_NAME, "
+                    + "CASE DATA_TYPE WHEN 'NUMERIC' THEN 'NUMBER' WHEN 'CHARACTER VARYING' THEN 'VARCHAR2' "
+                    + "WHEN 'CHARACTER' THEN 'CHAR' WHEN 'TIMESTAMP' THEN 'DATE' ELSE DATA_TYPE END AS DATA_TYPE, "
+                    + "NUMERIC_PRECISION AS DATA_PRECISION, NUMERIC_SCALE AS DATA_SCALE, "
+                    + "CASE IS_NULLABLE WHEN 'YES' THEN 'Y' ELSE 'N' END AS NULLABLE, ORDINAL_POSITION AS COLUMN_ID "
+                    + "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = 'PUBLIC' AND IS_VISIBLE");
+            st.execute("CREATE OR REPLACE VIEW USER_CONSTRAINTS AS SELECT CONSTRAINT_NAME, TABLE_NAME, "
+                    + "CASE CONSTRAINT_TYPE WHEN 'PRIMARY KEY' THEN 'P' WHEN 'UNIQUE' THEN 'U' ELSE 'C' END AS CONSTRAINT_TYPE, "
+                    + "'ENABLED' AS STATUS, 'VALIDATED' AS VALIDATED " // H2 enforces every constraint it has
+                    + "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_SCHEMA = 'PUBLIC'");
+            st.execute("CREATE OR REPLACE VIEW USER_CONS_COLUMNS AS SELECT CONSTRAINT_NAME, TABLE_NAME, COLUMN_NAME, "
+                    + "ORDINAL_POSITION AS POSITION FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE WHERE TABLE_SCHEMA = 'PUBLIC'");
+        } catch (SQLException ex) {
+            pool.close();
+            throw ex;
+        }
+        return pool;
+    }
+
+    /**
+     * ROWIDTOCHAR and CHARTOROWID: the emulated ROWID is already text.
+     */
+    public static String rowId(String value) {
+        return value;
+    }
+
+    /**
+     * Creates a table with an ID column followed by width - 1 columns cycling through text, decimal,
+     * date and integer types, plus the emulated ROWID.
+     * @param conn The connection to use.
+     * @param table The table name.
+     * @param width The number of columns (at least 1).
+     * @param primaryKey True to make ID the primary key; false leaves the table keyed by ROWID only.
+     * @return The column names, in column order.
+     * @throws SQLException If the table cannot be created.
+     */
+    public static List<String> createTable(Connection conn, String table, int width, boolean primaryKey) throws SQLException {
+        List<String> columns = new ArrayList<>(width);
+        StringBuilder ddl = new StringBuilder("CREATE TABLE ").append(table).append(" (\"ROWID\" CHAR(18) INVISIBLE ")
+                .append("DEFAULT LPAD(CAST(NEXT VALUE FOR ").append(table).append("_RID AS VARCHAR), 18, '0') NOT NULL, ")
+                .append("ID NUMBER(10)").append(primaryKey ? " PRIMARY KEY" : " NOT NULL");
+        columns.add("ID");
+        for (int i = 1; i < width; i++) {
+            String column = "C" + i;
+            ddl.append(", ").append(column).append(' ').append(COLUMN_TYPES[(i - 1) % COLUMN_TYPES.length]);
+            columns.add(column);
+        }
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE SEQUENCE " + table + "_RID");
+            st.execute(ddl.append(')').toString());
+            st.execute("CREATE INDEX " + table + "_RID_IX ON " + table + " (\"ROWID\")"); // Oracle finds a ROWID without a scan
+        }
+        return columns;
+    }
+
+    /**
+     * Inserts rows with IDs firstId .. firstId + rows - 1 in batches of 1000.
+     * @param conn The connection to use.
+     * @param table The table name.
+     * @param columns The table's columns, from createTable().
+     * @param firstId The ID of the first row.
+     * @param rows The number of rows.
+     * @throws SQLException If the rows cannot be inserted.
+     */
+    public static void fill(Connection conn, String table, List<String> columns, int firstId, int rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", columns)).append(") VALUES (?");
+        for (int i = 1; i < columns.size(); i++) {
+            sql.append(", ?");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql.append(')').toString())) {
+            for (int id = firstId; id < firstId + rows; id++) {
+                List<String> values = values(id, columns.size());
+                for (int i = 0; i < values.size(); i++) {
+                    ps.setString(i + 1, values.get(i));
+                }
+                ps.addBatch();
+                if ((id - firstId + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * @return The values of the row with the given ID, as the insert screen would collect them.
+     */
+    public static List<String> values(int id, int width) {
+        List<String> values = new ArrayList<>(width);
+        values.add(Integer.toString(id));
+        for (int i = 1; i < width; i++) {
+            switch ((i - 1) % COLUMN_TYPES.length) {
+                case 0:
+                    values.add("Row " + id + " text " + i);
+                    break;
+                case 1:
+                    values.add((id % 100_000) + "." + (id % 100 < 10 ? "0" : "") + (id % 100));
+                    break;
+                case 2:
+                    values.add("2024-" + (id % 12 < 9 ? "0" : "") + (id % 12 + 1) + "-15 10:30:00");
+                    break;
+                default:
+                    values.add(Integer.toString(id * 7 + i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Silences System.out, where the application reports to the user. The statements it executes and its
+     * progress (e.g. schema cache warm-up) are logged at FINE (see QueryMetrics.debug), which is off unless
+     * logging is configured.
+     */
+    public static void quiet() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
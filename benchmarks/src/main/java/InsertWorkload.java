@@ -0,0 +1,49 @@
+import bench.Workload;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts one row per operation as showInsertUI does: a connection borrowed from the pool,
+ * every value bound as a string, auto-commit.
+ */
+public class InsertWorkload implements Workload {
+
+    private ConnectionPool pool;
+    private List<String> columns;
+    private int nextId;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        H2Database.quiet();
+        int width = Integer.parseInt(params.get("width"));
+        pool = H2Database.open("insert_" + width, 1);
+        try (Connection conn = pool.getConnection()) {
+            columns = H2Database.createTable(conn, "BENCH", width, true);
+        }
+    }
+
+    @Override
+    public void reset() throws Exception {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("TRUNCATE TABLE BENCH");
+        }
+        nextId = 1;
+    }
+
+    @Override
+    public Object run() throws Exception {
+        List<String> values = H2Database.values(nextId++, columns.size());
+        try (Connection conn = pool.getConnection()) {
+            return TableOperations.insertRow(conn, "BENCH", columns, values, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,77 @@
+import bench.Workload;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a table of the given size and width the way the Select, Update and Delete screens do.
+ * Operations: openView (a new PagedRowList: first page and size estimate), scanPages (every page in order)
+ * and loadAll / loadAllParallel (TableOperations.readRows on one connection, or as loadTableDataWithCheckboxes
+ * does it: LOAD_PARALLELISM key ranges at once through a ParallelScanner).
+ */
+public class LoadTableWorkload implements Workload {
+
+    private String operation;
+    private ConnectionPool pool;
+    private TableQuery query;
+    private PagedRowList view;
+    private int pages;
+    private ParallelScanner scanner;
+
+    private static final int LOAD_PARALLELISM = 3; // As CrudOperations: POOL_SIZE - 1
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        H2Database.quiet();
+        operation = params.get("operation");
+        int rows = Integer.parseInt(params.get("rows"));
+        int width = Integer.parseInt(params.get("width"));
+        pool = H2Database.open("load_" + operation + "_" + rows + "_" + width, LOAD_PARALLELISM + 1);
+        List<String> columns;
+        try (Connection conn = pool.getConnection()) {
+            columns = H2Database.createTable(conn, "BENCH", width, true);
+            H2Database.fill(conn, "BENCH", columns, 1, rows);
+        }
+        SchemaCache schemaCache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+        query = TableQuery.all(schemaCache.table("BENCH"), columns);
+        scanner = new ParallelScanner(pool, schemaCache);
+        view = new PagedRowList(pool, Runnable::run, query, null);
+        pages = (rows + view.getPageSize() - 1) / view.getPageSize(); // The view's size is an estimate until scrolled to the end
+    }
+
+    @Override
+    public Object run() throws Exception {
+        switch (operation) {
+            case "openView":
+                return new PagedRowList(pool, Runnable::run, query, null);
+            case "scanPages": {
+                int read = 0;
+                for (int page = 0; page < pages; page++) {
+                    read += view.fetchPage(page).size(); // Each page starts after the last key of the previous one
+                }
+                return read;
+            }
+            case "loadAll": {
+                int[] read = new int[1];
+                try (Connection conn = pool.getConnection()) {
+                    TableOperations.readRows(conn, "BENCH", query.columns(), 500, null, batch -> read[0] += batch.size());
+                }
+                return read[0];
+            }
+            case "loadAllParallel": {
+                int[] read = new int[1];
+                TableOperations.readRows(scanner, "BENCH", query.columns(), 500, LOAD_PARALLELISM, null,
+                        batch -> read[0] += batch.size()); // The sink is called by one thread at a time
+                return read[0];
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
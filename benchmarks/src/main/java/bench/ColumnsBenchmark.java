@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getColumnsForTable, the column lookup every screen does when a table is picked: answered from the
+ * schema cache (cached) or read from the dictionary (uncached, as after the TTL or DDL). See ColumnsWorkload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnsBenchmark {
+
+    @Param({"10", "200"})
+    public int tables;
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    private Workload cached;
+    private Workload uncached;
+
+    @Setup
+    public void setUp() throws Exception {
+        cached = Workload.create("ColumnsWorkload", "operation", "cached", "tables", tables, "width", width);
+        uncached = Workload.create("ColumnsWorkload", "operation", "uncached", "tables", tables, "width", width);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        cached.close();
+        uncached.close();
+    }
+
+    @Benchmark
+    public Object cached() throws Exception {
+        return cached.run();
+    }
+
+    @Benchmark
+    public Object uncached() throws Exception {
+        return uncached.run();
+    }
+}
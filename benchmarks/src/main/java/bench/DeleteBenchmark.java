@@ -0,0 +1,59 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Delete screen's batched delete of the checked rows (showDeleteUI), keyed by primary key or,
+ * for tables without a key, by ROWID. Each operation is rolled back, see DeleteWorkload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeleteBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"4", "16"})
+    public int width;
+
+    @Param({"10", "1000"})
+    public int selected;
+
+    @Param({"true", "false"})
+    public boolean primaryKey;
+
+    private Workload delete;
+
+    @Setup
+    public void setUp() throws Exception {
+        delete = Workload.create("DeleteWorkload", "rows", rows, "width", width, "selected", selected,
+                "primaryKey", primaryKey);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        delete.close();
+    }
+
+    @Benchmark
+    public Object deleteSelected() throws Exception {
+        return delete.run();
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Insert screen's single-row insert (showInsertUI). The table is emptied before every iteration,
+ * see InsertWorkload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    private Workload insert;
+
+    @Setup
+    public void setUp() throws Exception {
+        insert = Workload.create("InsertWorkload", "width", width);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() throws Exception {
+        insert.reset();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        insert.close();
+    }
+
+    @Benchmark
+    public Object insertRow() throws Exception {
+        return insert.run();
+    }
+}
@@ -0,0 +1,81 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading table rows, as the Select/Update screens (loadTableData) and the Delete screen
+ * (loadTableDataWithCheckboxes) do it. See LoadTableWorkload.
+ *
+ * openView: the row count and first page, i.e. the time until the paged view shows rows.
+ * scanPages: every page in order, as when scrolling through the whole table (keyset paging).
+ * loadAll: the full read with ROWIDs on one connection, in batches of 500 rows.
+ * loadAllParallel: the same read as the Delete screen does it, split into key ranges read concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadTableBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"4", "16"})
+    public int width;
+
+    private Workload openView;
+    private Workload scanPages;
+    private Workload loadAll;
+    private Workload loadAllParallel;
+
+    @Setup
+    public void setUp() throws Exception {
+        openView = Workload.create("LoadTableWorkload", "operation", "openView", "rows", rows, "width", width);
+        scanPages = Workload.create("LoadTableWorkload", "operation", "scanPages", "rows", rows, "width", width);
+        loadAll = Workload.create("LoadTableWorkload", "operation", "loadAll", "rows", rows, "width", width);
+        loadAllParallel = Workload.create("LoadTableWorkload", "operation", "loadAllParallel", "rows", rows, "width", width);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        openView.close();
+        scanPages.close();
+        loadAll.close();
+        loadAllParallel.close();
+    }
+
+    @Benchmark
+    public Object openView() throws Exception {
+        return openView.run();
+    }
+
+    @Benchmark
+    public Object scanPages() throws Exception {
+        return scanPages.run();
+    }
+
+    @Benchmark
+    public Object loadAll() throws Exception {
+        return loadAll.run();
+    }
+
+    @Benchmark
+    public Object loadAllParallel() throws Exception {
+        return loadAllParallel.run();
+    }
+}
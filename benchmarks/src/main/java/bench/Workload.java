@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One benchmarked operation of the application.
+ *
+ * The application's classes are in the default package, which JMH benchmarks (and any other named package)
+ * cannot refer to. The work is therefore implemented by default-package classes implementing this interface;
+ * the benchmarks in this package create them by class name once per trial and call run() through the
+ * interface, which costs one interface call per operation.
+ */
+public interface Workload extends AutoCloseable {
+
+    /**
+     * Prepares the data. Called once, before any operation.
+     * @param params The benchmark parameters by name (e.g. rows, width) plus "operation".
+     */
+    void setUp(Map<String, String> params) throws Exception;
+
+    /**
+     * Runs one operation.
+     * @return Something derived from the operation's result, for the Blackhole.
+     */
+    Object run() throws Exception;
+
+    /**
+     * Restores the starting state. Called before every measurement iteration.
+     */
+    default void reset() throws Exception {
+    }
+
+    /**
+     * Releases the database. Called once, after the last operation.
+     */
+    @Override
+    void close() throws Exception;
+
+    /**
+     * Creates and sets up a workload.
+     * @param className The name of the default-package class implementing the workload.
+     * @param params Alternating parameter names and values.
+     * @return The workload, ready to run.
+     */
+    static Workload create(String className, Object... params) throws Exception {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < params.length; i += 2) {
+            map.put(params[i].toString(), params[i + 1].toString());
+        }
+        Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        workload.setUp(map);
+        return workload;
+    }
+}
@@ -2,27 +2,25 @@ import java.util.*;
 import java.util.regex.*;
 public class calculatorConstruct {
     static final Scanner sc = new Scanner(System.in);
-    static final List<Double> sharedNumbers = new ArrayList<>();
+    static final DoubleList sharedNumbers = new DoubleList();
     public static void main(String[] args) {
         collectInput();
         boolean exit = false;
         while (!exit) {
             System.out.println("\n=Main Menu =");
             System.out.println("1. Simple calculation");
-            System.out.println("2. ArrayList operations");
-            System.out.println("3. LinkedList operations");
-            System.out.println("4. Queue operations");
-            System.out.println("5. Evaluate expression");
-            System.out.println("6. Exit");
-            System.out.print("Choose an option (1–6): ");
+            System.out.println("2. List operations");
+            System.out.println("3. Queue operations");
+            System.out.println("4. Evaluate expression");
+            System.out.println("5. Exit");
+            System.out.print("Choose an option (1–5): ");
             switch (sc.nextLine().trim()) {
                 case "1" -> runStepByStepCalc();
-                case "2" -> handleList(new ArrayList<>(sharedNumbers), "ArrayList");
-                case "3" -> handleList(new LinkedList<>(sharedNumbers), "LinkedList");
-                case "4" -> handleQueue();
-                case "5" -> calculateExpression();
-                case "6" -> exit = true;
-                default -> System.out.println("Invalid choice – please select 1 to 6.");
+                case "2" -> handleList(sharedNumbers.copy());
+                case "3" -> handleQueue();
+                case "4" -> calculateExpression();
+                case "5" -> exit = true;
+                default -> System.out.println("Invalid choice – please select 1 to 5.");
             }
         }
         System.out.println("Goodbye!");
@@ -31,6 +29,7 @@ public class calculatorConstruct {
     private static void collectInput() {
         System.out.print("How many numbers do you want to input? ");
         int n = inputInt();
+        sharedNumbers.ensureCapacity(n);
         System.out.println("Enter " + n + " numbers:");
         for (int i = 1; i <= n; i++) {
             sharedNumbers.add(inputDouble("  #" + i + ": "));
@@ -40,7 +39,7 @@ public class calculatorConstruct {
         Scanner scLocal = new Scanner(System.in);
         double result = 0;
         boolean validFirstInput = false;
-        List<Double> numbers = new ArrayList<>();
+        DoubleList numbers = new DoubleList();
         while (!validFirstInput) {
             try {
                 System.out.print("Enter the first number: ");
@@ -75,13 +74,13 @@ public class calculatorConstruct {
                         result /= nextNumber;
                     } else {
                         System.out.println("Error: Division by zero is not allowed.");
-                        numbers.remove(numbers.size() - 1);
+                        numbers.removeLast();
                         continue;
                     }
                 }
                 default -> {
                     System.out.println("Invalid operator. Please use +, -, *, or /.");
-                    numbers.remove(numbers.size() - 1);
+                    numbers.removeLast();
                     continue;
                 }
             }
@@ -92,61 +91,66 @@ public class calculatorConstruct {
             }
         }
         numbers.add(result);
-        Collections.sort(numbers);
-        List<Double> evenNumbers = new ArrayList<>();
-        List<Double> oddNumbers = new ArrayList<>();
-        for (double num : numbers) {
+        numbers.sort();
+        DoubleList evenNumbers = new DoubleList();
+        DoubleList oddNumbers = new DoubleList();
+        numbers.forEach(num -> {
             if (num % 1 == 0) {
-                if (((int) num) % 2 == 0) evenNumbers.add(num);
+                if (DoubleList.isEven(num)) evenNumbers.add(num);
                 else oddNumbers.add(num);
             }
-        }
+        });
         System.out.println("Result: " + result);
         System.out.println("Sorted numbers including result: " + numbers);
         System.out.println("Even numbers: " + evenNumbers);
         System.out.println("Odd numbers: " + oddNumbers);
     }
-    private static void handleList(List<Double> list, String name) {
-        System.out.println(name + " contents: " + list);
-        List<Double> evens = new ArrayList<>(), odds = new ArrayList<>();
-        for (double v : list) {
-            if (((int) v) % 2 == 0) evens.add(v);
-            else odds.add(v);
-        }
-        System.out.println("Even numbers: " + evens);
-        System.out.println("Odd numbers: " + odds);
+    private static void handleList(DoubleList list) {
+        System.out.println("List contents: " + list);
+        DoubleList grouped = list.copy();
+        int evens = grouped.partitionEvenOdd();
+        System.out.println("Even numbers: " + grouped.toString(0, evens));
+        System.out.println("Odd numbers: " + grouped.toString(evens, grouped.size()));
         if (askYesNo("Sort the list? (y/n): ")) {
-            Collections.sort(list);
-            System.out.println("Sorted " + name + ": " + list);
+            list.sort();
+            System.out.println("Sorted list: " + list);
         }
     }
     private static void handleQueue() {
         System.out.print("Enter the size of the queue: ");
         int queueSize = inputInt();
-        Queue<Double> q = new LinkedList<>();
-        int rotationCount = 0;
-        int addedSinceLastRotation = 0;
-        for (Double num : sharedNumbers) {
-            if (q.size() == queueSize) {
-                q.poll();
-            }
-            q.offer(num);
-            addedSinceLastRotation++;
-
-            if (addedSinceLastRotation == queueSize) {
-                rotationCount++;
-                addedSinceLastRotation = 0;
-            }
+        while (queueSize < 1) {
+            System.out.print("The size must be at least 1, try again: ");
+            queueSize = inputInt();
+        }
+        DoubleRingBuffer q = new DoubleRingBuffer(queueSize);
+        for (int i = 0; i < sharedNumbers.size(); i++) {
+            q.add(sharedNumbers.get(i));
         }
+        long rotationCount = q.totalAdded() / queueSize;
         System.out.println("\nFinal Queue (capacity " + queueSize + "): " + q);
         System.out.println("Total full rotations performed: " + rotationCount);
+        if (!q.isEmpty()) {
+            System.out.println("Window sum: " + q.sum() + "  Mean: " + q.mean() + "  Min: " + q.min() + "  Max: " + q.max());
+        }
     }
     private static void calculateExpression() {
         System.out.println("Expression Calculator");
         do {
             String expr = inputExpression();
             try {
-                double result = evaluate(expr);
+                CompiledExpression compiled = CompiledExpression.compile(expr);
+                List<String> vars = compiled.variables();
+                if (!vars.isEmpty() && !sharedNumbers.isEmpty()
+                        && askYesNo("Apply to all " + sharedNumbers.size() + " numbers as " + vars.get(0) + "? (y/n): ")) {
+                    evaluateOverNumbers(compiled);
+                    continue;
+                }
+                double[] values = new double[vars.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = inputDouble("  " + vars.get(i) + " = ");
+                }
+                double result = compiled.evaluate(values);
                 System.out.println("Result: " + result);
             } catch (Exception ex) {
                 System.out.println("Evaluation failed: " + ex.getMessage());
@@ -154,6 +158,26 @@ public class calculatorConstruct {
         } while (askYesNo("Perform another calculation? (yes/no): "));
         System.out.println("Back to Main Menu.");
     }
+    private static void evaluateOverNumbers(CompiledExpression compiled) {
+        int n = sharedNumbers.size();
+        double[][] columns = new double[compiled.variables().size()][];
+        columns[0] = sharedNumbers.toArray();
+        for (int k = 1; k < columns.length; k++) {
+            columns[k] = new double[n];
+            Arrays.fill(columns[k], inputDouble("  " + compiled.variables().get(k) + " = "));
+        }
+        double[] results = new double[n];
+        ColumnEvaluator.evaluate(compiled, columns, results);
+        double sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (double r : results) {
+            sum += r;
+            min = Math.min(min, r);
+            max = Math.max(max, r);
+        }
+        if (n <= 20) System.out.println("Results: " + Arrays.toString(results));
+        else System.out.println("First 20 results: " + Arrays.toString(Arrays.copyOf(results, 20)));
+        System.out.println("Count: " + n + "  Sum: " + sum + "  Min: " + min + "  Max: " + max + "  Mean: " + sum / n);
+    }
     private static String inputExpression() {
         while (true) {
             System.out.print("Enter expression: ");
@@ -229,60 +253,6 @@ public class calculatorConstruct {
             if (s.equals("n") || s.equals("no")) return false;
         }
     }
-    private static double evaluate(String expr) {
-        Deque<Double> vals = new ArrayDeque<>();
-        Deque<Character> ops = new ArrayDeque<>();
-        for (int i = 0; i < expr.length();) {
-            char c = expr.charAt(i);
-            if (Character.isWhitespace(c)) {
-                i++;
-            } else if (Character.isDigit(c) || c == '.') {
-                int j = i;
-                while (j < expr.length() && (Character.isDigit(expr.charAt(j)) || expr.charAt(j) == '.')) j++;
-                vals.push(Double.parseDouble(expr.substring(i, j)));
-                i = j;
-            } else if (c == '(') {
-                ops.push(c);
-                i++;
-            } else if (c == ')') {
-                while (ops.peek() != '(') processOp(vals, ops);
-                ops.pop();
-                i++;
-            } else if ("+-*/%^".indexOf(c) >= 0) {
-                while (!ops.isEmpty() && precedence(ops.peek()) >= precedence(c)) processOp(vals, ops);
-                ops.push(c);
-                i++;
-            } else {
-                throw new RuntimeException("Invalid character: " + c);
-            }
-        }
-        while (!ops.isEmpty()) processOp(vals, ops);
-        return vals.pop();
-    }
-    private static void processOp(Deque<Double> vals, Deque<Character> ops) {
-        char op = ops.pop();
-        double b = vals.pop(), a = vals.pop();
-        switch (op) {
-            case '+' -> vals.push(a + b);
-            case '-' -> vals.push(a - b);
-            case '*' -> vals.push(a * b);
-            case '/' -> {
-                if (b == 0) throw new ArithmeticException("Division by zero");
-                vals.push(a / b);
-            }
-            case '%' -> vals.push(a % b);
-            case '^' -> vals.push(Math.pow(a, b));
-            default -> throw new RuntimeException("Unknown operator " + op);
-        }
-    }
-    private static int precedence(char op) {
-        return switch (op) {
-            case '+', '-' -> 1;
-            case '*', '/', '%' -> 2;
-            case '^' -> 3;
-            default -> -1;
-        };
-    }
     private static double inputDouble(String prompt) {
         System.out.print(prompt);
         while (true) {
@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parsing of CSV and JSON import files, and the commit per chunk.
+ */
+class BulkImporterTest {
+
+    private static final List<String> COLUMNS = List.of("ID", "NAME", "NOTE");
+
+    private static ConnectionPool pool;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void openDatabase() throws SQLException {
+        pool = H2Database.open("import_test", 2);
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void csvQuotedFieldsMayHoldCommasQuotesAndLineBreaks() throws Exception {
+        String table = createTable("CSV_QUOTES");
+        Path file = write("rows.csv", "id,Name,NOTE\r\n"
+                + "1,\"a, b\",\"say \"\"hi\"\"\"\r\n"
+                + "\n" // Blank lines are skipped
+                + "2,\"two\nlines\",\n"
+                + "3,plain,x"); // No line break after the last record
+        assertEquals(3, new BulkImporter(pool, 2).importFile(file, table, COLUMNS, null));
+        assertEquals(List.of(
+                Arrays.asList("1", "a, b", "say \"hi\""),
+                Arrays.asList("2", "two\nlines", null), // Empty field is NULL
+                Arrays.asList("3", "plain", "x")), rows(table));
+    }
+
+    @Test
+    void csvWithTheWrongNumberOfValuesNamesTheLine() throws Exception {
+        String table = createTable("CSV_SHORT");
+        Path file = write("short.csv", "ID,NAME\n1,\"multi\nline\"\n2\n");
+        IOException ex = assertThrows(IOException.class, () -> new BulkImporter(pool, 10).importFile(file, table, COLUMNS, null));
+        assertTrue(ex.getMessage().startsWith("Line 4:"), ex.getMessage());
+        assertEquals(0, rows(table).size()); // The chunk in flight is rolled back
+    }
+
+    @Test
+    void unknownColumnIsRejected() throws Exception {
+        String table = createTable("CSV_UNKNOWN");
+        Path file = write("unknown.csv", "ID,COLOUR\n1,red\n");
+        IOException ex = assertThrows(IOException.class, () -> new BulkImporter(pool, 10).importFile(file, table, COLUMNS, null));
+        assertTrue(ex.getMessage().contains("COLOUR"), ex.getMessage());
+    }
+
+    @Test
+    void jsonArrayOfObjects() throws Exception {
+        String table = createTable("JSON_ARRAY");
+        Path file = write("rows.json", "[\n {\"ID\": 1, \"NAME\": \"tab\\tand \\u00e9\", \"NOTE\": null},\n"
+                + " {\"NAME\": \"no note\", \"ID\": 2}\n]");
+        assertEquals(2, new BulkImporter(pool, 10).importFile(file, table, COLUMNS, null));
+        assertEquals(List.of(
+                Arrays.asList("1", "tab\tand \u00e9", null),
+                Arrays.asList("2", "no note", null)), rows(table)); // Keys may come in any order or be left out
+    }
+
+    @Test
+    void jsonLinesAndKeysNotInTheFirstObject() throws Exception {
+        String table = createTable("JSON_LINES");
+        Path ok = write("rows.jsonl", "{\"ID\": 1, \"NAME\": \"one\"}\n{\"ID\": 2, \"NAME\": \"two\"}\n");
+        assertEquals(2, new BulkImporter(pool, 10).importFile(ok, table, COLUMNS, null));
+
+        Path extra = write("extra.jsonl", "{\"ID\": 3}\n{\"ID\": 4, \"NAME\": \"new key\"}\n");
+        IOException ex = assertThrows(IOException.class, () -> new BulkImporter(pool, 10).importFile(extra, table, COLUMNS, null));
+        assertTrue(ex.getMessage().contains("'NAME' is not in the first object"), ex.getMessage());
+    }
+
+    @Test
+    void nestedJsonIsRejected() throws Exception {
+        String table = createTable("JSON_NESTED");
+        Path file = write("nested.json", "[{\"ID\": 1, \"NAME\": {\"first\": \"x\"}}]");
+        assertThrows(IOException.class, () -> new BulkImporter(pool, 10).importFile(file, table, COLUMNS, null));
+    }
+
+    @Test
+    void failedChunkKeepsTheEarlierChunks() throws Exception {
+        String table = createTable("CHUNKS");
+        StringBuilder csv = new StringBuilder("ID,NAME\n");
+        for (int id = 1; id <= 5; id++) {
+            csv.append(id).append(",row ").append(id).append('\n');
+        }
+        csv.append("5,duplicate\n"); // Violates the primary key in the third chunk
+        Path file = write("chunks.csv", csv.toString());
+
+        SQLException ex = assertThrows(SQLException.class,
+                () -> new BulkImporter(pool, 2).importFile(file, table, COLUMNS, null));
+        assertTrue(ex.getMessage().startsWith("Import stopped after 4 committed rows"), ex.getMessage());
+        assertEquals(4, rows(table).size());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static String createTable(String table) throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE " + table + " (ID NUMBER(10) PRIMARY KEY, NAME VARCHAR2(40), NOTE VARCHAR2(40))");
+        }
+        return table;
+    }
+
+    private static List<List<String>> rows(String table) throws SQLException {
+        List<List<String>> rows = new ArrayList<>();
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ID, NAME, NOTE FROM " + table + " ORDER BY ID")) {
+            while (rs.next()) {
+                rows.add(Arrays.asList(rs.getString(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        return rows;
+    }
+}
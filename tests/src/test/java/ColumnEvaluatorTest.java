@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Block-wise and parallel column evaluation, checked against CompiledExpression.evaluate row by row.
+ */
+class ColumnEvaluatorTest {
+
+    private static final String[] EXPRESSIONS = {
+            "x + y * 2", "(x - y) / (y + 0.5)", "x ^ 2 - y ^ 3", "x % 7 + y", "3 - x", "2 ^ y", "x", "4 * 5"};
+
+    @Test
+    void resultsMatchRowByRowEvaluation() {
+        // Not a multiple of the block size, so the last block is partial
+        int rows = 3 * ColumnEvaluator.BLOCK + 17;
+        double[][] columns = columns(rows, 1);
+        for (String source : EXPRESSIONS) {
+            CompiledExpression e = CompiledExpression.parse(source);
+            double[][] used = new double[e.variables().size()][];
+            for (int k = 0; k < used.length; k++) {
+                used[k] = columns[e.variables().get(k).equals("x") ? 0 : 1];
+            }
+            double[] out = new double[rows];
+            ColumnEvaluator.evaluateSequential(e, used, out);
+            for (int i = 0; i < rows; i++) {
+                double[] args = new double[used.length];
+                for (int k = 0; k < used.length; k++) {
+                    args[k] = used[k][i];
+                }
+                assertEquals(e.evaluate(args), out[i], source + " at row " + i);
+            }
+        }
+    }
+
+    @Test
+    void parallelEvaluationMatchesSequential() {
+        int rows = ColumnEvaluator.PARALLEL_THRESHOLD * 2 + 5;
+        double[][] columns = columns(rows, 2);
+        CompiledExpression e = CompiledExpression.parse("(x - y) / (y + 0.5) + x ^ 2");
+        double[] parallel = new double[rows];
+        double[] sequential = new double[rows];
+        ColumnEvaluator.evaluate(e, columns, parallel);
+        ColumnEvaluator.evaluateSequential(e, columns, sequential);
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    void mapAppliesAnExpressionOfOneVariable() {
+        assertArrayEquals(new double[]{1, 4, 9}, ColumnEvaluator.map(CompiledExpression.parse("v ^ 2"), new double[]{1, 2, 3}));
+    }
+
+    @Test
+    void divisionByZeroInAnyRowFails() {
+        double[] divisors = new double[ColumnEvaluator.BLOCK + 1];
+        Arrays.fill(divisors, 1);
+        divisors[ColumnEvaluator.BLOCK] = 0; // Only in the second block
+        assertThrows(ArithmeticException.class, () -> ColumnEvaluator.map(CompiledExpression.parse("10 / d"), divisors));
+        assertThrows(ArithmeticException.class, () -> ColumnEvaluator.map(CompiledExpression.parse("d / 0"), divisors));
+    }
+
+    @Test
+    void missingOrShortColumnsAreRejected() {
+        CompiledExpression e = CompiledExpression.parse("x + y");
+        assertThrows(IllegalArgumentException.class, () -> ColumnEvaluator.evaluate(e, new double[][]{{1, 2}}, new double[2]));
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnEvaluator.evaluate(e, new double[][]{{1, 2}, {1}}, new double[2]));
+    }
+
+    private static double[][] columns(int rows, long seed) {
+        Random random = new Random(seed);
+        double[][] columns = new double[2][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = random.nextInt(200) - 100;
+            columns[1][i] = random.nextDouble() * 10;
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compilation of expressions, in particular the folding of operators on two constants.
+ */
+class CompiledExpressionTest {
+
+    @Test
+    void constantExpressionFoldsToOneConstant() {
+        CompiledExpression e = CompiledExpression.parse("2 * 3 + 4 ^ 2");
+        assertEquals(1, e.code().length);
+        assertEquals(CompiledExpression.CONST, e.code()[0] & CompiledExpression.OP_MASK);
+        assertEquals(22, e.evaluate());
+    }
+
+    @Test
+    void constantSubexpressionFoldsBesideVariables() {
+        CompiledExpression e = CompiledExpression.parse("x * (2 + 3) - y");
+        int[] opcodes = opcodes(e);
+        assertArrayEquals(new int[]{CompiledExpression.VAR, CompiledExpression.CONST, CompiledExpression.MUL,
+                CompiledExpression.VAR, CompiledExpression.SUB}, opcodes);
+        assertEquals(List.of("x", "y"), e.variables());
+        assertEquals(7, e.evaluate(2, 3));
+        assertEquals(7, e.evaluate(Map.of("x", 2.0, "y", 3.0)));
+    }
+
+    @Test
+    void operandsOfDifferentGroupsAreNotFolded() {
+        // Left-associative: (x + 2) + 3, so the constants never meet on top of the stack
+        CompiledExpression e = CompiledExpression.parse("x + 2 + 3");
+        assertEquals(5, e.code().length);
+        assertEquals(6, e.evaluate(1));
+    }
+
+    @Test
+    void divisionByZeroIsLeftToEvaluation() {
+        CompiledExpression e = CompiledExpression.parse("1 / 0");
+        assertEquals(3, e.code().length); // Not folded, so it still fails where the former evaluator failed
+        assertThrows(ArithmeticException.class, e::evaluate);
+    }
+
+    @Test
+    void compileCachesBySource() {
+        assertSame(CompiledExpression.compile("a % 3"), CompiledExpression.compile("a % 3"));
+        assertEquals(1, CompiledExpression.compile("a % 3").evaluate(7));
+    }
+
+    @Test
+    void malformedExpressionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.parse("(1 + 2"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.parse("1 + 2)"));
+        assertThrows(RuntimeException.class, () -> CompiledExpression.parse("1 & 2"));
+    }
+
+    private static int[] opcodes(CompiledExpression e) {
+        int[] code = e.code();
+        int[] opcodes = new int[code.length];
+        for (int i = 0; i < code.length; i++) {
+            opcodes[i] = code[i] & CompiledExpression.OP_MASK;
+        }
+        return opcodes;
+    }
+}
@@ -0,0 +1,271 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Borrowing, validation of idle connections and leak detection.
+ */
+class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:h2:mem:pool_test;MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void returnedConnectionIsReused() throws SQLException {
+        pool = new ConnectionPool(URL, "sa", "", 2);
+        int session;
+        try (Connection conn = pool.getConnection()) {
+            session = sessionId(conn);
+            assertEquals(1, pool.getActiveCount());
+        }
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(session, sessionId(conn));
+        }
+        assertEquals(2, pool.getBorrowCount());
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws SQLException {
+        pool = new ConnectionPool(URL, "sa", "", 1, 100, 60_000, 60_000);
+        try (Connection held = pool.getConnection()) {
+            SQLException ex = assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(ex.getMessage().contains("1 of 1 in use"), ex.getMessage());
+            assertEquals(1, pool.getTimeoutCount());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(1, pool.getActiveCount()); // The slot was given back
+        }
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws SQLException {
+        pool = new ConnectionPool(URL, "sa", "", 1);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close(); // A second close does not return the connection twice
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void uncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        pool = new ConnectionPool(URL, "sa", "", 1);
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE POOL_RB (ID NUMBER(10))");
+            conn.setAutoCommit(false);
+            st.executeUpdate("INSERT INTO POOL_RB VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM POOL_RB")) {
+            assertTrue(conn.getAutoCommit());
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void deadIdleConnectionIsReplaced() throws Exception {
+        pool = new ConnectionPool(URL, "sa", "", 1);
+        int session;
+        try (Connection conn = pool.getConnection()) {
+            session = sessionId(conn);
+        }
+        try (Connection admin = DriverManager.getConnection(URL, "sa", "");
+             Statement st = admin.createStatement()) {
+            st.execute("CALL ABORT_SESSION(" + session + ")"); // As if the server had dropped it
+        }
+        try (Connection conn = pool.getConnection()) {
+            // Used moments ago, so handed out without validation; the first statement finds it dead
+            assertThrows(SQLException.class, () -> sessionId(conn));
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertNotEquals(session, sessionId(conn));
+        }
+        assertTrue(pool.toString().contains("created=2"), pool.toString());
+    }
+
+    @Test
+    void recentlyUsedConnectionIsValidatedAfterAnError() throws SQLException {
+        DriverManager.registerDriver(FailingDriver.INSTANCE);
+        try {
+            pool = new ConnectionPool(FailingDriver.PREFIX + "mem:pool_killed_test;MODE=Oracle", "sa", "", 1);
+            try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+                SQLException ex = assertThrows(SQLException.class, () -> st.execute(FailingDriver.KILLING_SQL));
+                assertEquals("72000", ex.getSQLState()); // Not a connection error, so the connection is returned
+            }
+            assertEquals(1, pool.getIdleCount());
+            try (Connection conn = pool.getConnection()) {
+                sessionId(conn); // Returned moments ago, but validated because of the error, and replaced
+            }
+            assertTrue(pool.toString().contains("created=2") && pool.toString().contains("invalid=1"), pool.toString());
+        } finally {
+            DriverManager.deregisterDriver(FailingDriver.INSTANCE);
+        }
+    }
+
+    @Test
+    void connectionErrorFromAnyStatementDiscardsTheConnection() throws SQLException {
+        DriverManager.registerDriver(FailingDriver.INSTANCE);
+        try {
+            pool = new ConnectionPool(FailingDriver.PREFIX + "mem:pool_failing_test;MODE=Oracle", "sa", "", 1);
+            List<StatementCall> calls = List.of(
+                    conn -> conn.createStatement().executeQuery(FailingDriver.FAILING_SQL),
+                    conn -> conn.prepareStatement(FailingDriver.FAILING_SQL, Statement.RETURN_GENERATED_KEYS).executeQuery(),
+                    conn -> conn.prepareCall(FailingDriver.FAILING_SQL).execute(),
+                    conn -> conn.prepareStatement(FailingDriver.FAILING_SQL).executeQuery()); // Through the statement cache
+            for (StatementCall call : calls) {
+                try (Connection conn = pool.getConnection()) {
+                    assertThrows(SQLException.class, () -> call.run(conn));
+                }
+                assertEquals(0, pool.getIdleCount()); // Closed instead of being returned
+            }
+            try (Connection conn = pool.getConnection()) {
+                sessionId(conn);
+            }
+            assertTrue(pool.toString().contains("created=" + (calls.size() + 1)), pool.toString());
+        } finally {
+            DriverManager.deregisterDriver(FailingDriver.INSTANCE);
+        }
+    }
+
+    @Test
+    void connectionHeldPastThresholdIsReportedOnce() throws Exception {
+        pool = new ConnectionPool(URL, "sa", "", 1, 1000, 60_000, 10);
+        try (Connection conn = pool.getConnection()) {
+            pool.housekeep();
+            assertEquals(0, pool.getLeakCount());
+            Thread.sleep(50);
+            pool.housekeep();
+            pool.housekeep();
+            assertEquals(1, pool.getLeakCount());
+        }
+        try (Connection conn = pool.getConnection()) {
+            Thread.sleep(50);
+            pool.housekeep();
+            assertEquals(2, pool.getLeakCount()); // A new borrow is watched again
+        }
+    }
+
+    private interface StatementCall {
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Opens H2 connections whose statements fail on two statements: FAILING_SQL with a connection error
+     * (SQLState 08006), as Oracle's do when the network drops in the middle of a call, and KILLING_SQL with
+     * another error after which the connection no longer validates, as when the session has been killed.
+     */
+    private static final class FailingDriver implements Driver {
+        static final String PREFIX = "jdbc:failing:";
+        static final String FAILING_SQL = "SELECT 'failing' FROM DUAL";
+        static final String KILLING_SQL = "SELECT 'killing' FROM DUAL";
+        static final FailingDriver INSTANCE = new FailingDriver();
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Connection h2 = DriverManager.getConnection("jdbc:h2:" + url.substring(PREFIX.length()), info);
+            boolean[] killed = new boolean[1];
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("isValid") && killed[0]) {
+                            return false;
+                        }
+                        Object result = invoke(h2, method, args);
+                        if (!(result instanceof Statement)) {
+                            return result;
+                        }
+                        String prepared = args != null && args.length > 0 ? (String) args[0] : null;
+                        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                                (statementProxy, statementMethod, statementArgs) -> {
+                                    String sql = statementArgs != null && statementArgs.length > 0
+                                            && statementArgs[0] instanceof String ? (String) statementArgs[0] : prepared;
+                                    if (statementMethod.getName().startsWith("execute") && FAILING_SQL.equals(sql)) {
+                                        throw new SQLException("Connection reset", "08006");
+                                    }
+                                    if (statementMethod.getName().startsWith("execute") && KILLING_SQL.equals(sql)) {
+                                        killed[0] = true;
+                                        throw new SQLException("Session has been killed", "72000");
+                                    }
+                                    return invoke(result, statementMethod, statementArgs);
+                                });
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith(PREFIX);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getLogger(FailingDriver.class.getName());
+        }
+    }
+
+    private static int sessionId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT SESSION_ID() FROM DUAL")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DoubleList against the List<Double> it replaces: growth, order, formatting and the even/odd partition.
+ */
+class DoubleListTest {
+
+    @Test
+    void growsAndBehavesLikeAList() {
+        DoubleList list = new DoubleList(0);
+        List<Double> boxed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i * 0.5);
+            boxed.add(i * 0.5);
+        }
+        assertEquals(boxed.size(), list.size());
+        assertEquals(boxed.get(999), list.get(999));
+        list.set(0, 7);
+        assertEquals(7, list.get(0));
+        assertEquals(499.5, list.removeLast());
+        assertEquals(999, list.size());
+        list.trimToSize();
+        list.add(1); // Grows again after trimming
+        assertEquals(1000, list.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1000));
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, list::removeLast);
+    }
+
+    @Test
+    void sortsAndPrintsLikeBoxedValues() {
+        Random random = new Random(7);
+        DoubleList list = new DoubleList();
+        List<Double> boxed = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double v = random.nextInt(100) - 50 + (i % 3 == 0 ? 0.25 : 0);
+            list.add(v);
+            boxed.add(v);
+        }
+        list.add(Double.NaN);
+        boxed.add(Double.NaN);
+        list.add(-0.0);
+        boxed.add(-0.0);
+        list.add(0.0);
+        boxed.add(0.0);
+        list.sort();
+        Collections.sort(boxed);
+        assertEquals(boxed.toString(), list.toString());
+        assertEquals(boxed.subList(2, 5).toString(), list.toString(2, 5));
+    }
+
+    @Test
+    void evenValuesComeFirstInTheirOrder() {
+        DoubleList list = DoubleList.of(3, 4, 2.5, -1, 8, 7.9, -2, Double.NaN);
+        assertEquals(5, list.partitionEvenOdd());
+        assertArrayEquals(new double[]{4, 2.5, 8, -2, Double.NaN, 3, -1, 7.9}, list.toArray());
+
+        DoubleList odd = DoubleList.of(1, 3);
+        assertEquals(0, odd.partitionEvenOdd());
+        assertArrayEquals(new double[]{1, 3}, odd.toArray());
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        DoubleList list = DoubleList.of(1, 2, 3, 4);
+        DoubleList sub = list.subList(1, 3);
+        assertEquals(DoubleList.of(2, 3), sub);
+        sub.set(0, 9);
+        assertEquals(2, list.get(1));
+        DoubleList copy = list.copy();
+        assertEquals(list, copy);
+        assertEquals(list.hashCode(), copy.hashCode());
+        copy.add(5);
+        assertNotEquals(list, copy);
+        list.addAll(DoubleList.of(5));
+        assertEquals(list, copy);
+        assertEquals(15, list.stream().sum());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.subList(3, 2));
+    }
+}
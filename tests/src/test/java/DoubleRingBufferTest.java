@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The window statistics of DoubleRingBuffer, checked against a scan of the window.
+ */
+class DoubleRingBufferTest {
+
+    @Test
+    void minAndMaxFollowTheWindow() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(3);
+        double[] input = {5, 1, 4, 2, 8, 3, 3, 0, 7};
+        double[] expectedMax = {5, 5, 5, 4, 8, 8, 8, 3, 7};
+        double[] expectedMin = {5, 1, 1, 1, 2, 2, 3, 0, 0};
+        for (int i = 0; i < input.length; i++) {
+            buffer.add(input[i]);
+            assertEquals(expectedMax[i], buffer.max(), "max after " + (i + 1) + " values");
+            assertEquals(expectedMin[i], buffer.min(), "min after " + (i + 1) + " values");
+        }
+        assertArrayEquals(new double[]{3, 0, 7}, buffer.toArray());
+        assertEquals(10, buffer.sum());
+    }
+
+    @Test
+    void statisticsMatchAScanOfTheWindow() {
+        Random random = new Random(42);
+        DoubleRingBuffer buffer = new DoubleRingBuffer(16);
+        for (int i = 0; i < 10_000; i++) {
+            // Few distinct values, so equal values enter and leave the deques too
+            buffer.add(i % 97 == 0 ? random.nextInt(1000) : random.nextInt(10));
+            double[] window = buffer.toArray();
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, sum = 0;
+            for (double v : window) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            assertEquals(min, buffer.min());
+            assertEquals(max, buffer.max());
+            assertEquals(sum, buffer.sum(), 1e-9);
+        }
+        assertEquals(10_000, buffer.totalAdded());
+    }
+
+    @Test
+    void nanInTheWindowMakesMinAndMaxNan() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(2);
+        buffer.add(1);
+        buffer.add(Double.NaN);
+        assertTrue(Double.isNaN(buffer.max()));
+        assertTrue(Double.isNaN(buffer.min()));
+        buffer.add(3);
+        buffer.add(2); // The NaN has left
+        assertEquals(3, buffer.max());
+        assertEquals(2, buffer.min());
+        assertEquals(5, buffer.sum());
+    }
+
+    @Test
+    void clearEmptiesTheWindow() {
+        DoubleRingBuffer buffer = new DoubleRingBuffer(4);
+        buffer.addAll(new double[]{1, 2, 3}, 0, 3);
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertThrows(NoSuchElementException.class, buffer::max);
+        buffer.add(-1);
+        assertEquals(-1, buffer.min());
+        assertEquals(-1, buffer.max());
+    }
+}
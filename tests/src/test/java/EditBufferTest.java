@@ -0,0 +1,127 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saving cell edits with the optimistic check, on a table keyed by its primary key and on one keyed by ROWID.
+ */
+class EditBufferTest {
+
+    private static ConnectionPool pool;
+    private static SchemaCache schemaCache;
+
+    @BeforeAll
+    static void openDatabase() throws SQLException {
+        pool = H2Database.open("edit_test", 2);
+        schemaCache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void keyIsPrimaryKeyOrRowId() throws SQLException {
+        createTable("KEYED", true);
+        createTable("UNKEYED", false);
+
+        TableKey keyed = TableKey.resolve(schemaCache.table("KEYED"));
+        assertFalse(keyed.isRowId());
+        assertEquals("ID = ?", keyed.whereClause());
+
+        TableKey unkeyed = TableKey.resolve(schemaCache.table("UNKEYED"));
+        assertTrue(unkeyed.isRowId());
+        assertEquals("ROWID = CHARTOROWID(?)", unkeyed.whereClause());
+    }
+
+    @Test
+    void editsAreSavedTogether() throws SQLException {
+        List<String> columns = createTable("EDIT_OK", true);
+        List<CrudOperations.RowData> rows = read("EDIT_OK", columns);
+        EditBuffer buffer = new EditBuffer();
+        buffer.edit(rows.get(0), 1, "changed");
+        buffer.edit(rows.get(0), 3, "2030-01-02 03:04:05"); // DATE, compared through CAST(? AS DATE)
+        buffer.edit(rows.get(1), 1, "changed");
+        assertEquals(3, buffer.cellCount());
+
+        try (Connection conn = pool.getConnection()) {
+            List<EditBuffer.RowEdit> pending = buffer.pending();
+            assertEquals(2, EditBuffer.save(conn, "EDIT_OK", schemaCache.table("EDIT_OK"), columns, pending, null));
+            buffer.committed(pending);
+            assertTrue(conn.getAutoCommit()); // Restored after the transaction
+        }
+        assertTrue(buffer.isEmpty());
+        assertEquals("changed", cell("EDIT_OK", 1, "C1"));
+        assertEquals("2030-01-02 03:04:05", cell("EDIT_OK", 1, "TO_CHAR(C3, 'YYYY-MM-DD HH24:MI:SS')"));
+        assertEquals("changed", cell("EDIT_OK", 2, "C1"));
+    }
+
+    @Test
+    void rowChangedElsewhereRollsBackEverything() throws SQLException {
+        conflict("CONFLICT_PK", true);
+    }
+
+    @Test
+    void rowChangedElsewhereRollsBackEverythingWithoutKey() throws SQLException {
+        conflict("CONFLICT_ROWID", false);
+    }
+
+    private static void conflict(String table, boolean primaryKey) throws SQLException {
+        List<String> columns = createTable(table, primaryKey);
+        List<CrudOperations.RowData> rows = read(table, columns);
+        EditBuffer buffer = new EditBuffer();
+        buffer.edit(rows.get(0), 1, "mine");
+        buffer.edit(rows.get(1), 1, "mine");
+
+        try (Connection other = pool.getConnection(); Statement st = other.createStatement()) {
+            st.executeUpdate("UPDATE " + table + " SET C1 = 'theirs' WHERE ID = 2");
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            SQLException ex = assertThrows(SQLException.class,
+                    () -> EditBuffer.save(conn, table, schemaCache.table(table), columns, buffer.pending(), null));
+            assertEquals("40001", ex.getSQLState());
+            assertTrue(ex.getMessage().contains(rows.get(1).getRowId()), ex.getMessage());
+        }
+        assertEquals(H2Database.values(1, 4).get(1), cell(table, 1, "C1")); // The row without conflict is not written either
+        assertEquals("theirs", cell(table, 2, "C1"));
+        assertEquals(2, buffer.rowCount()); // Still pending, for the user to discard or retry
+    }
+
+    private static List<String> createTable(String table, boolean primaryKey) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            List<String> columns = H2Database.createTable(conn, table, 4, primaryKey);
+            H2Database.fill(conn, table, columns, 1, 3);
+            return columns;
+        }
+    }
+
+    private static List<CrudOperations.RowData> read(String table, List<String> columns) throws SQLException {
+        TableQuery query = TableQuery.all(schemaCache.table(table), columns);
+        return new PagedRowList(pool, Runnable::run, query, 10, 2, null).fetchPage(0);
+    }
+
+    private static String cell(String table, int id, String expression) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT " + expression + " FROM " + table + " WHERE ID = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset and OFFSET paging of PagedRowList. Pages are read synchronously with fetchPage, as the benchmarks do.
+ */
+class PagedRowListTest {
+
+    private static final int ROWS = 25;
+    private static final int PAGE_SIZE = 10;
+
+    private static ConnectionPool pool;
+    private static SchemaCache schemaCache;
+    private static TableQuery query;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        pool = H2Database.open("paged_test", 2);
+        List<String> columns;
+        try (Connection conn = pool.getConnection()) {
+            columns = H2Database.createTable(conn, "PAGED", 4, true);
+            H2Database.fill(conn, "PAGED", columns, 1, ROWS);
+        }
+        schemaCache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+        query = TableQuery.all(schemaCache.table("PAGED"), columns);
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void pagesInOrderContinueAfterTheLastKey() throws SQLException {
+        PagedRowList view = new PagedRowList(pool, Runnable::run, query, PAGE_SIZE, 3, null);
+        long keysetReads = executions(query.keysetPageSql(true));
+
+        assertEquals(ids(11, 20), ids(view.fetchPage(1)));
+        assertEquals(ids(21, 25), ids(view.fetchPage(2))); // The last page is short
+
+        assertEquals(keysetReads + 2, executions(query.keysetPageSql(true)));
+    }
+
+    @Test
+    void sizeGrowsWithFullPagesUntilAShortOne() throws SQLException {
+        PagedRowList view = new PagedRowList(pool, Runnable::run, query, PAGE_SIZE, 3, null);
+        assertEquals(2 * PAGE_SIZE, view.size()); // No statistics, so one page past the first
+        assertFalse(view.isSizeExact());
+        int[] added = new int[1];
+        view.addListener((ListChangeListener<CrudOperations.RowData>) c -> {
+            while (c.next()) {
+                added[0] += c.getAddedSize() - c.getRemovedSize();
+            }
+        });
+
+        view.pageArrived(1, view.fetchPage(1), true);
+        assertEquals(3 * PAGE_SIZE, view.size());
+        assertEquals(PAGE_SIZE, added[0]); // Placeholders replaced, and a page of rows added
+
+        view.pageArrived(2, view.fetchPage(2), true);
+        assertEquals(ROWS, view.size());
+        assertEquals(ROWS - 2 * PAGE_SIZE, added[0]);
+        assertTrue(view.isSizeExact());
+        assertEquals("25", view.get(ROWS - 1).get(0));
+    }
+
+    @Test
+    void sizeStartsFromTheStatisticsAndShrinksAtTheEnd() throws SQLException {
+        ConnectionPool stale = H2Database.open("paged_stats_test", 1);
+        try {
+            List<String> columns;
+            try (Connection conn = stale.getConnection(); Statement st = conn.createStatement()) {
+                columns = H2Database.createTable(conn, "PAGED", 4, true);
+                H2Database.fill(conn, "PAGED", columns, 1, ROWS);
+                st.execute("CREATE OR REPLACE VIEW USER_TABLES AS SELECT 'PAGED' AS TABLE_NAME, "
+                        + "CAST(40 AS NUMBER(19)) AS NUM_ROWS FROM DUAL"); // Statistics from before rows were deleted
+            }
+            SchemaCache.TableMeta meta = new SchemaCache(stale, Long.MAX_VALUE, 10).table("PAGED");
+            TableQuery all = TableQuery.all(meta, columns);
+            PagedRowList view = new PagedRowList(stale, Runnable::run, all, PAGE_SIZE, 3, null);
+            assertEquals(40, view.size());
+
+            view.pageArrived(3, view.fetchPage(3), true); // Jumped past the end
+            assertEquals(3 * PAGE_SIZE, view.size());
+            assertFalse(view.isSizeExact()); // Only known to end before page 3
+
+            view.pageArrived(2, view.fetchPage(2), true);
+            assertEquals(ROWS, view.size());
+            assertTrue(view.isSizeExact());
+
+            TableQuery filtered = new TableQuery(meta, columns, List.of(), "text", List.of(), 0);
+            assertEquals(2 * PAGE_SIZE, new PagedRowList(stale, Runnable::run, filtered, PAGE_SIZE, 3, null).size());
+        } finally {
+            stale.close();
+        }
+    }
+
+    @Test
+    void limitEndsTheView() throws SQLException {
+        TableQuery limited = new TableQuery(schemaCache.table("PAGED"), query.columns(), List.of(), null, List.of(), 15);
+        PagedRowList view = new PagedRowList(pool, Runnable::run, limited, PAGE_SIZE, 3, null);
+        assertEquals(15, view.size());
+        assertFalse(view.isSizeExact());
+        view.pageArrived(1, view.fetchPage(1), true);
+        assertEquals(15, view.size());
+        assertTrue(view.isSizeExact());
+    }
+
+    @Test
+    void jumpedToPageUsesOffset() throws SQLException {
+        PagedRowList view = new PagedRowList(pool, Runnable::run, query, PAGE_SIZE, 3, null);
+        long offsetReads = executions(query.offsetPageSql());
+
+        assertEquals(ids(21, 25), ids(view.fetchPage(2))); // Page 1 was never read, so its last key is unknown
+
+        assertEquals(offsetReads + 1, executions(query.offsetPageSql()));
+    }
+
+    @Test
+    void rowsCarryTheirRowId() throws SQLException {
+        PagedRowList view = new PagedRowList(pool, Runnable::run, query, PAGE_SIZE, 3, null);
+        CrudOperations.RowData first = view.get(0);
+        assertEquals("1", first.get(0));
+        assertEquals("Row 1 text 1", first.get(1));
+        assertEquals(H2Database.rowId("000000000000000001"), first.getRowId());
+    }
+
+    @Test
+    void unreadableFirstPageFailsTheConstructor() throws SQLException {
+        TableQuery gone;
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            List<String> columns = H2Database.createTable(conn, "GONE", 2, true);
+            gone = TableQuery.all(schemaCache.table("GONE"), columns);
+            st.execute("DROP TABLE GONE"); // Dropped after the query was built
+        }
+        assertThrows(SQLException.class, () -> new PagedRowList(pool, Runnable::run, gone, PAGE_SIZE, 3, null));
+    }
+
+    private static long executions(String sql) {
+        String shape = StatementCache.normalize(sql);
+        for (QueryMetrics.Shape s : pool.getMetrics().shapes()) {
+            if (s.sql.equals(shape)) {
+                return s.executions();
+            }
+        }
+        return 0;
+    }
+
+    private static List<String> ids(int first, int last) {
+        List<String> ids = new ArrayList<>();
+        for (int id = first; id <= last; id++) {
+            ids.add(Integer.toString(id));
+        }
+        return ids;
+    }
+
+    private static List<String> ids(List<CrudOperations.RowData> rows) {
+        List<String> ids = new ArrayList<>();
+        for (CrudOperations.RowData row : rows) {
+            ids.add(row.get(0));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Range planning by integer key (H2 has no extents), and reading the ranges concurrently and in order.
+ */
+class ParallelScannerTest {
+
+    private static final int ROWS = 10_000;
+
+    private static ConnectionPool pool;
+    private static ParallelScanner scanner;
+
+    @BeforeAll
+    static void createTables() throws SQLException {
+        pool = H2Database.open("scan_test", 4);
+        try (Connection conn = pool.getConnection()) {
+            H2Database.fill(conn, "KEYED", H2Database.createTable(conn, "KEYED", 3, true), 1, ROWS);
+            H2Database.fill(conn, "SMALL", H2Database.createTable(conn, "SMALL", 3, true), 1, 1500);
+            H2Database.fill(conn, "HEAP", H2Database.createTable(conn, "HEAP", 3, false), 1, ROWS);
+        }
+        scanner = new ParallelScanner(pool, new SchemaCache(pool, Long.MAX_VALUE, 10));
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void integerKeyIsCutIntoEqualWidthRanges() throws SQLException {
+        List<ParallelScanner.Range> ranges = scanner.split("KEYED", 4);
+        assertEquals(4, ranges.size());
+        assertEquals("ID < ? [2501]", ranges.get(0).toString());
+        assertEquals("ID >= ? AND ID < ? [2501, 5001]", ranges.get(1).toString());
+        assertEquals("ID >= ? [7501]", ranges.get(3).toString()); // Open-ended, for rows inserted since
+    }
+
+    @Test
+    void tablesNotWorthSplittingAreOneRange() throws SQLException {
+        assertSame(ParallelScanner.Range.ALL, scanner.split("KEYED", 1).get(0));
+        assertEquals(List.of(ParallelScanner.Range.ALL), scanner.split("HEAP", 4)); // No primary key
+        assertEquals(1, scanner.split("SMALL", 4).size()); // Fewer than MIN_KEYS_PER_RANGE per part
+        assertEquals("", ParallelScanner.Range.ALL.where());
+    }
+
+    @Test
+    void scanReadsEveryRowOnce() throws Exception {
+        List<ParallelScanner.Range> ranges = scanner.split("KEYED", 3);
+        List<long[]> counts = scanner.scan("KEYED", "t.ID", ranges, (range, rs) -> {
+            long[] countAndSum = new long[2];
+            while (rs.next()) {
+                countAndSum[0]++;
+                countAndSum[1] += rs.getLong(1);
+            }
+            return countAndSum;
+        });
+        assertEquals(3, counts.size());
+        assertEquals(ROWS, counts.stream().mapToLong(c -> c[0]).sum());
+        assertEquals((long) ROWS * (ROWS + 1) / 2, counts.stream().mapToLong(c -> c[1]).sum());
+    }
+
+    @Test
+    void scanInOrderKeepsRangeOrder() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        scanner.<Integer>scanInOrder("KEYED", "t.ID", scanner.split("KEYED", 4), (rs, out) -> {
+            List<Integer> batch = new ArrayList<>();
+            while (rs.next()) {
+                batch.add(rs.getInt(1));
+                if (batch.size() == 100) {
+                    out.accept(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                out.accept(batch);
+            }
+        }, ids::addAll);
+        assertEquals(ROWS, ids.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(i + 1, ids.get(i)); // Each range is read in key order by H2's primary key index
+        }
+    }
+
+    @Test
+    void failingRangeFailsTheScan() throws SQLException {
+        List<ParallelScanner.Range> ranges = scanner.split("KEYED", 2);
+        SQLException ex = assertThrows(SQLException.class, () -> scanner.scan("KEYED", "t.ID", ranges, (range, rs) -> {
+            if (range == ranges.get(1)) {
+                throw new SQLException("Range failed");
+            }
+            while (rs.next()) {
+                // Read the whole range
+            }
+            return null;
+        }));
+        assertEquals("Range failed", ex.getMessage());
+        assertTrue(ranges.get(0).where().startsWith(" WHERE ID"));
+    }
+}
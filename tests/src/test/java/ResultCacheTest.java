@@ -0,0 +1,92 @@
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Stamps that do not read the table's rows, and the cache's bounds.
+ */
+class ResultCacheTest {
+
+    private static ConnectionPool pool;
+    private static SchemaCache schemaCache;
+    private static List<String> columns;
+
+    @BeforeAll
+    static void createTables() throws SQLException {
+        pool = H2Database.open("result_cache_test", 1);
+        try (Connection conn = pool.getConnection()) {
+            columns = H2Database.createTable(conn, "KEYED", 2, true);
+            H2Database.fill(conn, "KEYED", columns, 1, 10);
+            H2Database.createTable(conn, "HEAP", 2, false);
+        }
+        schemaCache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void keyedTableIsStampedByItsKeyCount() throws SQLException {
+        ResultCache cache = new ResultCache(pool, schemaCache, 4, Long.MAX_VALUE, 60_000, rows -> { });
+        String before = cache.probe("keyed");
+        assertNotNull(before);
+        assertEquals(before, cache.probe("KEYED"));
+        try (Connection conn = pool.getConnection()) {
+            H2Database.fill(conn, "KEYED", columns, 11, 1);
+        }
+        assertNotEquals(before, cache.probe("KEYED"));
+    }
+
+    @Test
+    void tableWithoutKeyHasNoStamp() throws SQLException {
+        ResultCache cache = new ResultCache(pool, schemaCache, 4, Long.MAX_VALUE, 60_000, rows -> { });
+        assertNull(cache.probe("HEAP")); // Counting it would read the whole table
+    }
+
+    @Test
+    void expiredAndInvalidatedResultsAreDropped() throws Exception {
+        List<ObservableList<CrudOperations.RowData>> dropped = new ArrayList<>();
+        ResultCache cache = new ResultCache(pool, schemaCache, 4, Long.MAX_VALUE, 20, dropped::add);
+        ObservableList<CrudOperations.RowData> a = FXCollections.observableArrayList();
+        ObservableList<CrudOperations.RowData> b = FXCollections.observableArrayList();
+        cache.put(new ResultCache.Entry("a", "keyed", a, "1", 100));
+        cache.put(new ResultCache.Entry("b", "keyed", b, null, 100));
+        assertSame(a, cache.get("a").rows);
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(List.of(a), dropped);
+
+        Thread.sleep(50);
+        assertNull(cache.get("b")); // Past the TTL
+        assertEquals(2, dropped.size());
+        assertSame(b, dropped.get(1));
+    }
+
+    @Test
+    void leastRecentlyUsedResultIsEvictedOverWeight() {
+        ResultCache cache = new ResultCache(pool, schemaCache, 4, 250, 60_000, rows -> { });
+        cache.put(new ResultCache.Entry("a", "keyed", FXCollections.observableArrayList(), null, 100));
+        cache.put(new ResultCache.Entry("b", "keyed", FXCollections.observableArrayList(), null, 100));
+        cache.get("a");
+        cache.put(new ResultCache.Entry("c", "heap", FXCollections.observableArrayList(), null, 100));
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+}
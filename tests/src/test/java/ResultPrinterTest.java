@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The three output formats, and limiting and sampling rows.
+ */
+class ResultPrinterTest {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    static void openDatabase() throws SQLException {
+        pool = H2Database.open("printer_test", 1);
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE PRINTED (ID NUMBER(10), NAME VARCHAR2(100), AMOUNT NUMBER(8,2))");
+            st.execute("INSERT INTO PRINTED VALUES (1, 'plain', 12.5)");
+            st.execute("INSERT INTO PRINTED VALUES (22, 'a, \"b\"', NULL)");
+            st.execute("INSERT INTO PRINTED VALUES (333, 'tab\there' || CHR(10) || 'next\\', 0)");
+            st.execute("INSERT INTO PRINTED VALUES (4, NULL, 1000)");
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void tableAlignsColumnsAndRightAlignsNumbers() throws Exception {
+        StringWriter out = new StringWriter();
+        print(new ResultPrinter(out, ResultPrinter.Format.TABLE));
+        assertEquals(
+                " ID | NAME           | AMOUNT\n"
+                + "----+----------------+-------\n"
+                + "  1 | plain          |   12.5\n"
+                + "  4 | NULL           |   1000\n"
+                + " 22 | a, \"b\"         | NULL\n"
+                + "333 | tab here next\\ |      0\n", out.toString());
+    }
+
+    @Test
+    void csvQuotesWhereNeededAndLeavesNullEmpty() throws Exception {
+        StringWriter out = new StringWriter();
+        print(new ResultPrinter(out, ResultPrinter.Format.CSV));
+        assertEquals("ID,NAME,AMOUNT\n"
+                + "1,plain,12.5\n"
+                + "4,,1000\n"
+                + "22,\"a, \"\"b\"\"\",\n"
+                + "333,\"tab\there\nnext\\\",0\n", out.toString());
+    }
+
+    @Test
+    void tsvEscapesSeparatorsAndBackslashes() throws Exception {
+        StringWriter out = new StringWriter();
+        print(new ResultPrinter(out, ResultPrinter.Format.TSV));
+        assertEquals("ID\tNAME\tAMOUNT\n"
+                + "1\tplain\t12.5\n"
+                + "4\t\t1000\n"
+                + "22\ta, \"b\"\t\n"
+                + "333\ttab\\there\\nnext\\\\\t0\n", out.toString());
+    }
+
+    @Test
+    void limitStopsReading() throws Exception {
+        StringWriter out = new StringWriter();
+        ResultPrinter printer = new ResultPrinter(out, ResultPrinter.Format.CSV).setLimit(2);
+        assertEquals(2, print(printer));
+        assertEquals(2, printer.rowsRead());
+        assertEquals("ID,NAME,AMOUNT\n1,plain,12.5\n4,,1000\n", out.toString());
+    }
+
+    @Test
+    void sampleIsReproducibleForASeed() throws Exception {
+        StringWriter first = new StringWriter();
+        ResultPrinter printer = new ResultPrinter(first, ResultPrinter.Format.TSV).setSample(0.5, 42);
+        long printed = print(printer);
+        assertEquals(4, printer.rowsRead()); // Skipped rows are read, not printed
+        assertEquals(printed + 1, first.toString().lines().count());
+        StringWriter second = new StringWriter();
+        print(new ResultPrinter(second, ResultPrinter.Format.TSV).setSample(0.5, 42));
+        assertEquals(first.toString(), second.toString());
+        assertThrows(IllegalArgumentException.class, () -> new ResultPrinter(second, ResultPrinter.Format.TSV).setSample(0, 1));
+    }
+
+    @Test
+    void formatNames() {
+        assertEquals(ResultPrinter.Format.TSV, ResultPrinter.Format.parse(" tsv "));
+        assertEquals(ResultPrinter.Format.TABLE, ResultPrinter.Format.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> ResultPrinter.Format.parse("xml"));
+    }
+
+    @Test
+    void statementIsTunedBeforeItRuns() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT ID, NAME, AMOUNT FROM PRINTED")) {
+            ResultDecoder.tune(ps, 1);
+            assertEquals(new ResultDecoder(ps.getMetaData(), 1).fetchSize(), ps.getFetchSize());
+            ps.setMaxRows(2);
+            ResultDecoder.tune(ps, 1);
+            assertEquals(2, ps.getFetchSize()); // Never above the max rows
+        }
+    }
+
+    private static long print(ResultPrinter printer) throws Exception {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ID, NAME, AMOUNT FROM PRINTED ORDER BY ID")) {
+            return printer.print(rs);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import javafx.beans.property.BooleanProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The selected count and rows of RowSelection, in both modes and while the list changes.
+ */
+class RowSelectionTest {
+
+    private final ObservableList<CrudOperations.RowData> rows = FXCollections.observableArrayList(rows(5));
+    private final AtomicInteger changes = new AtomicInteger();
+    private final RowSelection selection = new RowSelection(rows, changes::incrementAndGet);
+
+    @Test
+    void singleRowsAreCounted() {
+        selection.setSelected(rows.get(1), true);
+        selection.setSelected(rows.get(3), true);
+        selection.setSelected(rows.get(3), true); // No change
+        assertEquals(2, selection.count());
+        assertEquals(List.of(rows.get(1), rows.get(3)), selected());
+        assertEquals(2, changes.get());
+    }
+
+    @Test
+    void selectAllThenDeselectSome() {
+        selection.setAllSelected(true);
+        assertEquals(5, selection.count());
+        selection.setSelected(rows.get(0), false);
+        assertEquals(4, selection.count());
+        assertFalse(selection.isSelected(rows.get(0)));
+        assertTrue(selection.isSelected(rows.get(4)));
+
+        selection.setAllSelected(false);
+        assertEquals(0, selection.count());
+        assertTrue(selected().isEmpty());
+    }
+
+    @Test
+    void rowsAreComparedByIdentity() {
+        CrudOperations.RowData twin = new CrudOperations.RowData(List.of("0"));
+        rows.add(twin); // Same values as the first row
+        selection.setSelected(rows.get(0), true);
+        assertFalse(selection.isSelected(twin));
+    }
+
+    @Test
+    void removedRowsLeaveTheSelection() {
+        selection.setSelected(rows.get(2), true);
+        selection.setAllSelected(true);
+        selection.setSelected(rows.get(1), false);
+        rows.remove(1); // The only unselected row
+        assertEquals(4, selection.count());
+        assertEquals(rows, selected());
+
+        selection.setAllSelected(false);
+        selection.setSelected(rows.get(0), true);
+        rows.remove(0);
+        assertEquals(0, selection.count());
+    }
+
+    @Test
+    void selectionIsTheModePlusTheExceptions() {
+        selection.setSelected(rows.get(2), true);
+        assertFalse(selection.isAllMode());
+        assertEquals(Set.of(rows.get(2)), selection.exceptions());
+        selection.setAllSelected(true);
+        selection.setSelected(rows.get(0), false);
+        assertTrue(selection.isAllMode());
+        assertEquals(Set.of(rows.get(0)), selection.exceptions());
+    }
+
+    @Test
+    void addedRowsStartUnselected() {
+        selection.setAllSelected(true);
+        int before = changes.get();
+        rows.addAll(rows(2));
+        assertEquals(5, selection.count());
+        assertFalse(selection.isSelected(rows.get(6)));
+        assertTrue(changes.get() > before); // "All selected" is no longer true
+    }
+
+    @Test
+    void sortingKeepsTheSelection() {
+        selection.setSelected(rows.get(4), true);
+        CrudOperations.RowData selected = rows.get(4);
+        FXCollections.sort(rows, Comparator.comparing((CrudOperations.RowData row) -> row.get(0)).reversed());
+        assertEquals(selected, rows.get(0));
+        assertEquals(List.of(selected), selected());
+    }
+
+    @Test
+    void checkboxPropertyUpdatesTheSelection() {
+        BooleanProperty property = selection.property(rows.get(2));
+        assertFalse(property.get());
+        property.set(true);
+        assertTrue(selection.isSelected(rows.get(2)));
+        assertTrue(selection.property(rows.get(2)).get());
+    }
+
+    @Test
+    void detachedSelectionIgnoresTheList() {
+        selection.setSelected(rows.get(0), true);
+        selection.detach();
+        int before = changes.get();
+        rows.clear();
+        assertEquals(before, changes.get());
+    }
+
+    private static List<CrudOperations.RowData> rows(int count) {
+        List<CrudOperations.RowData> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new CrudOperations.RowData(List.of(Integer.toString(i))));
+        }
+        return rows;
+    }
+
+    private List<CrudOperations.RowData> selected() {
+        List<CrudOperations.RowData> selected = new ArrayList<>();
+        for (CrudOperations.RowData row : rows) {
+            if (selection.isSelected(row)) {
+                selected.add(row);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Table descriptions read from the dictionary views, and when they are read again.
+ */
+class SchemaCacheTest {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    static void createTables() throws SQLException {
+        pool = H2Database.open("schema_test", 2);
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE ORDERS (REGION VARCHAR2(10) NOT NULL, ORDER_NO NUMBER(10) NOT NULL, "
+                    + "AMOUNT NUMBER(12,2), PRIMARY KEY (REGION, ORDER_NO))");
+            st.execute("CREATE TABLE NOTES (TEXT VARCHAR2(100))");
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void describesColumnsAndPrimaryKey() throws SQLException {
+        SchemaCache cache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+        SchemaCache.TableMeta orders = cache.table("orders"); // Unquoted names are upper case
+        assertEquals(List.of("REGION", "ORDER_NO", "AMOUNT"), orders.columnNames());
+        assertEquals(List.of("REGION", "ORDER_NO"), orders.primaryKey);
+        SchemaCache.ColumnMeta amount = orders.column("amount");
+        assertEquals("NUMBER", amount.dataType);
+        assertEquals(12, amount.precision);
+        assertEquals(2, amount.scale);
+        assertTrue(amount.nullable);
+        assertFalse(orders.column("REGION").nullable);
+
+        assertTrue(cache.table("NOTES").primaryKey.isEmpty());
+        assertTrue(cache.table("MISSING").columns.isEmpty());
+    }
+
+    @Test
+    void onlyEnforcedConstraintsAreKeys() throws SQLException {
+        ConnectionPool unenforced = H2Database.open("schema_unenforced_test", 1);
+        try {
+            try (Connection conn = unenforced.getConnection(); Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE CODES (CODE VARCHAR2(10) CONSTRAINT CODES_PK PRIMARY KEY, "
+                        + "NAME VARCHAR2(10) CONSTRAINT CODES_NAME_UK UNIQUE, ALIAS VARCHAR2(10) CONSTRAINT CODES_ALIAS_UK UNIQUE)");
+                // As Oracle reports a constraint that was disabled, and one enabled with NOVALIDATE
+                st.execute("CREATE OR REPLACE VIEW USER_CONSTRAINTS AS SELECT CONSTRAINT_NAME, TABLE_NAME, "
+                        + "CASE CONSTRAINT_TYPE WHEN 'PRIMARY KEY' THEN 'P' ELSE 'U' END AS CONSTRAINT_TYPE, "
+                        + "CASE CONSTRAINT_NAME WHEN 'CODES_PK' THEN 'DISABLED' ELSE 'ENABLED' END AS STATUS, "
+                        + "CASE CONSTRAINT_NAME WHEN 'CODES_NAME_UK' THEN 'NOT VALIDATED' ELSE 'VALIDATED' END AS VALIDATED "
+                        + "FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS WHERE TABLE_SCHEMA = 'PUBLIC'");
+            }
+            SchemaCache.TableMeta codes = new SchemaCache(unenforced, Long.MAX_VALUE, 10).table("CODES");
+            assertTrue(codes.primaryKey.isEmpty());
+            assertEquals(List.of(List.of("ALIAS")), codes.uniqueKeys);
+        } finally {
+            unenforced.close();
+        }
+    }
+
+    @Test
+    void lookupsAreCachedUntilInvalidated() throws SQLException {
+        SchemaCache cache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+        SchemaCache.TableMeta first = cache.table("NOTES");
+        assertSame(first, cache.table("NOTES"));
+        List<String> names = cache.tableNames();
+        assertSame(names, cache.tableNames());
+
+        cache.invalidate("notes");
+        assertNotSame(first, cache.table("NOTES"));
+        assertNotSame(names, cache.tableNames());
+    }
+
+    @Test
+    void expiredEntryIsReadAgain() throws Exception {
+        SchemaCache cache = new SchemaCache(pool, 10, 10);
+        SchemaCache.TableMeta first = cache.table("NOTES");
+        Thread.sleep(20);
+        assertNotSame(first, cache.table("NOTES"));
+    }
+
+    @Test
+    void warmLoadsEveryTableUpToTheLimit() throws SQLException {
+        SchemaCache cache = new SchemaCache(pool, Long.MAX_VALUE, 1);
+        cache.warm();
+        assertTrue(cache.tableNames().containsAll(List.of("NOTES", "ORDERS")));
+        SchemaCache.TableMeta notes = cache.table("NOTES"); // The first table in name order was warmed
+        assertSame(notes, cache.table("NOTES"));
+        cache.table("ORDERS");
+        assertNotSame(notes, cache.table("NOTES")); // Evicted by ORDERS, as only one description is kept
+    }
+}
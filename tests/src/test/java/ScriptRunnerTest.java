@@ -0,0 +1,176 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Splitting scripts into statements, taking literals out of DML, and batching and rollback when running.
+ */
+class ScriptRunnerTest {
+
+    private static ConnectionPool pool;
+
+    @BeforeAll
+    static void openDatabase() throws SQLException {
+        pool = H2Database.open("script_test", 1);
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void valuesLiteralsBecomeParameters() {
+        ScriptRunner.Parameterized p = ScriptRunner.parameterize(
+                "INSERT  INTO t (a, b, c)\n  VALUES ('it''s', 12.50,\n 3)");
+        assertEquals("INSERT INTO t (a, b, c) VALUES (?, ?, ?)", p.shape);
+        assertEquals(List.of("it's", new BigDecimal("12.50"), new BigDecimal("3")), p.params);
+    }
+
+    @Test
+    void literalsThatAreNotPlainValuesStayInTheText() {
+        String sql = "INSERT INTO t (a, b, c, d) VALUES (DATE '2024-01-31', N'x', q'[it's; done]', 1.5f)";
+        ScriptRunner.Parameterized p = ScriptRunner.parameterize(sql);
+        assertEquals(sql, p.shape);
+        assertEquals(List.of(), p.params);
+    }
+
+    @Test
+    void onlyLiteralsWhoseMeaningCannotChangeAreBound() {
+        ScriptRunner.Parameterized p = ScriptRunner.parameterize(
+                "UPDATE t SET a = 'x', b = b + 1 WHERE id = -7 AND ROWNUM <= 10 AND c IN (SELECT d FROM u WHERE e = 2)");
+        assertEquals("UPDATE t SET a = ?, b = b + 1 WHERE id = ? AND ROWNUM <= 10 AND c IN (SELECT d FROM u WHERE e = 2)",
+                p.shape);
+        assertEquals(List.of("x", new BigDecimal("-7")), p.params);
+
+        p = ScriptRunner.parameterize("INSERT INTO t SELECT 1, 'a' FROM dual ORDER BY 1");
+        assertEquals("INSERT INTO t SELECT 1, 'a' FROM dual ORDER BY 1", p.shape);
+        assertEquals(List.of(), p.params);
+
+        p = ScriptRunner.parameterize("INSERT INTO t VALUES (1 + 2, UPPER('b'), 3)");
+        assertEquals("INSERT INTO t VALUES (1 + 2, UPPER('b'), ?)", p.shape);
+        assertEquals(List.of(new BigDecimal("3")), p.params);
+    }
+
+    @Test
+    void readerSplitsOnSemicolonsAndSlashes() throws IOException {
+        ScriptRunner.ScriptReader reader = new ScriptRunner.ScriptReader(new StringReader(
+                "-- setup\n"
+                + "INSERT INTO t VALUES ('a;b'); INSERT INTO t\n"
+                + "  VALUES (2);\n"
+                + "/* ; */ DELETE FROM t;\n"
+                + ";\n"
+                + "BEGIN\n"
+                + "  NULL;\n"
+                + "END;\n"
+                + "/\n"));
+        List<String> statements = new ArrayList<>();
+        List<Integer> lines = new ArrayList<>();
+        ScriptRunner.ScriptReader.Entry entry;
+        while ((entry = reader.next()) != null) {
+            statements.add(entry.sql);
+            lines.add(entry.line);
+        }
+        assertEquals(List.of("INSERT INTO t VALUES ('a;b')", "INSERT INTO t\n  VALUES (2)", "/* ; */ DELETE FROM t",
+                "BEGIN\n  NULL;\nEND;"), statements);
+        assertEquals(List.of(2, 2, 4, 6), lines);
+    }
+
+    @Test
+    void unterminatedStatementIsAnError() throws IOException {
+        ScriptRunner.ScriptReader reader = new ScriptRunner.ScriptReader(new StringReader("COMMIT;\n\nDELETE FROM t\n"));
+        assertEquals("COMMIT", reader.next().sql);
+        IOException ex = assertThrows(IOException.class, reader::next);
+        assertTrue(ex.getMessage().startsWith("Line 3:"), ex.getMessage());
+    }
+
+    @Test
+    void repeatedDmlRunsAsOneBatch() throws Exception {
+        List<ScriptRunner.Step> steps = run(
+                "CREATE TABLE batched (id NUMBER(10), name VARCHAR2(20));\n"
+                + "INSERT INTO batched VALUES (1, 'one');\n"
+                + "INSERT INTO batched VALUES (2, 'two');\n"
+                + "INSERT INTO batched VALUES (3, 'three');\n"
+                + "UPDATE batched SET name = 'TWO' WHERE id = 2;\n"
+                + "COMMIT;\n");
+        assertEquals(4, steps.size());
+        ScriptRunner.Step batch = steps.get(1);
+        assertEquals(2, batch.line());
+        assertEquals(3, batch.statements());
+        assertEquals(3, batch.rows());
+        assertEquals("INSERT batched", batch.label());
+        assertEquals(1, steps.get(2).rows()); // The UPDATE's shape does not repeat: it runs with its own text
+        assertEquals(1, steps.get(2).statements());
+        assertEquals("one,TWO,three", names("batched"));
+    }
+
+    @Test
+    void failureRollsBackTheOpenTransaction() throws Exception {
+        run("CREATE TABLE rolled (id NUMBER(10) PRIMARY KEY, name VARCHAR2(20));\n"
+                + "INSERT INTO rolled VALUES (1, 'kept');\n"
+                + "COMMIT;\n");
+        ScriptRunner runner;
+        try (Connection conn = pool.getConnection()) {
+            runner = new ScriptRunner(conn, 10, 0);
+            SQLException ex = assertThrows(SQLException.class, () -> runner.run(new StringReader(
+                    "INSERT INTO rolled VALUES (2, 'lost');\n"
+                    + "INSERT INTO rolled VALUES (3, 'lost');\n"
+                    + "INSERT INTO missing VALUES (4, 'x');\n")));
+            assertTrue(ex.getMessage().startsWith("Line 3:"), ex.getMessage());
+            assertTrue(conn.getAutoCommit()); // Restored
+        }
+        assertEquals("kept", names("rolled"));
+    }
+
+    @Test
+    void unterminatedLastStatementRollsBackTheRun() throws Exception {
+        run("CREATE TABLE unterminated (id NUMBER(10), name VARCHAR2(20));\n"
+                + "CREATE TABLE unterminated_log (id NUMBER(10));\n");
+        try (Connection conn = pool.getConnection()) {
+            ScriptRunner runner = new ScriptRunner(conn, 10, 0);
+            IOException ex = assertThrows(IOException.class, () -> runner.run(new StringReader(
+                    "INSERT INTO unterminated VALUES (1, 'lost');\n"
+                    + "INSERT INTO unterminated_log VALUES (1);\n" // A different shape, so the first one runs
+                    + "DELETE FROM unterminated\n")));
+            assertTrue(ex.getMessage().startsWith("Line 3:"), ex.getMessage());
+            assertTrue(ex.getMessage().contains("2 statement(s) since the last commit not applied"), ex.getMessage());
+            assertTrue(conn.getAutoCommit()); // Restored without committing the executed INSERT
+        }
+        assertEquals("", names("unterminated"));
+    }
+
+    private static List<ScriptRunner.Step> run(String script) throws Exception {
+        try (Connection conn = pool.getConnection()) {
+            return new ScriptRunner(conn, 10, 0).run(new StringReader(script));
+        }
+    }
+
+    private static String names(String table) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM " + table + " ORDER BY id")) {
+            StringBuilder names = new StringBuilder();
+            while (rs.next()) {
+                if (names.length() > 0) names.append(',');
+                names.append(rs.getString(1));
+            }
+            assertNull(rs.getWarnings());
+            return names.toString();
+        }
+    }
+}
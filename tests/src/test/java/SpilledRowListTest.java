@@ -0,0 +1,171 @@
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spilling rows past the heap budget, and sorting and removing across heap and spilled rows.
+ */
+class SpilledRowListTest {
+
+    private static final int ROWS = 500;
+
+    private final SpilledRowList list = new SpilledRowList(2, 2000); // About ten rows stay on the heap
+
+    @AfterEach
+    void closeList() {
+        list.close();
+    }
+
+    @Test
+    void rowsPastTheBudgetAreSpilled() throws Exception {
+        load();
+        assertEquals(ROWS, list.size());
+        assertTrue(list.spilledRows() > 0 && list.spilledRows() < ROWS, "Spilled " + list.spilledRows());
+        for (int i = 0; i < ROWS; i++) {
+            CrudOperations.RowData row = list.get(i);
+            assertEquals(Integer.toString(i), row.get(0));
+            assertEquals(name(i), row.get(1));
+            assertEquals("RID" + i, row.getRowId());
+        }
+        assertSame(list.get(ROWS - 1), list.get(ROWS - 1)); // One instance per spilled row while it is held
+    }
+
+    @Test
+    void rowsAreShownOnlyWhenTheFxThreadSaysSo() throws Exception {
+        int stored = list.store(batch(0, 20));
+        assertEquals(0, list.size());
+        List<Integer> added = new ArrayList<>();
+        list.addListener((ListChangeListener<CrudOperations.RowData>) c -> {
+            while (c.next()) {
+                added.add(c.getAddedSize());
+            }
+        });
+        list.showStored(stored);
+        list.showStored(stored); // Nothing new
+        assertEquals(List.of(20), added);
+    }
+
+    @Test
+    void sortIsStableAndCoversSpilledRows() throws Exception {
+        load();
+        SpilledRowList.SortJob job = list.sortJob(new int[]{1, 0}, new boolean[]{true, false});
+        assertTrue(list.isSorting());
+        job.run();
+        assertTrue(list.applySort(job));
+        assertFalse(list.isSorting());
+        List<String> previous = null;
+        for (int i = 0; i < ROWS; i++) {
+            List<String> row = Arrays.asList(list.get(i).get(1), list.get(i).get(0));
+            if (previous != null) {
+                int byName = SpilledRowList.compareText(previous.get(0), row.get(0));
+                assertTrue(byName > 0 || (byName == 0 && SpilledRowList.compareText(previous.get(1), row.get(1)) < 0),
+                        previous + " before " + row);
+            }
+            previous = row;
+        }
+        assertEquals(null, list.get(ROWS - 1).get(1)); // NULL sorts first, so last when descending
+    }
+
+    @Test
+    void removeKeepsTheOrderOfTheOtherRows() throws Exception {
+        load();
+        List<CrudOperations.RowData> removed = new ArrayList<>();
+        for (int i = 0; i < ROWS; i += 3) {
+            removed.add(list.get(i)); // Heap and spilled rows
+        }
+        int[] removedInEvent = {0};
+        list.addListener((ListChangeListener<CrudOperations.RowData>) c -> {
+            while (c.next()) {
+                removedInEvent[0] += c.getRemovedSize();
+            }
+        });
+        assertTrue(list.removeAll(removed));
+        assertFalse(list.removeAll(removed)); // Already gone
+        assertEquals(removed.size(), removedInEvent[0]);
+        assertEquals(ROWS - removed.size(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            int id = Integer.parseInt(list.get(i).get(0));
+            assertEquals(i / 2 * 3 + i % 2 + 1, id);
+        }
+    }
+
+    @Test
+    void sortStartedBeforeARemovalIsDropped() throws Exception {
+        load();
+        SpilledRowList.SortJob job = list.sortJob(new int[]{0}, new boolean[]{true});
+        list.removeAll(List.of(list.get(0)));
+        job.run();
+        assertFalse(list.applySort(job));
+        assertEquals("1", list.get(0).get(0));
+    }
+
+    @Test
+    void pickedRowsStayReadableAfterTheListIsClosed() throws Exception {
+        load();
+        SpilledRowList.StoredRows picked = list.pick(true, List.of(list.get(0), list.get(ROWS - 1)));
+        assertEquals(ROWS - 2, picked.size());
+        assertTrue(list.removeAll(picked));
+        assertEquals(List.of("0", Integer.toString(ROWS - 1)), List.of(list.get(0).get(0), list.get(1).get(0)));
+        list.close();
+        int expected = 1;
+        for (CrudOperations.RowData row : picked) {
+            assertEquals(Integer.toString(expected++), row.get(0)); // Storage order, spilled rows included
+        }
+        assertEquals(ROWS - 1, expected);
+        picked.close();
+
+        SpilledRowList other = new SpilledRowList(2, 2000);
+        try {
+            other.showStored(other.store(batch(0, 3)));
+            try (SpilledRowList.StoredRows only = other.pick(false, List.of(other.get(1)))) {
+                assertEquals("1", only.iterator().next().get(0));
+                assertEquals(1, only.size());
+            }
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void textIsComparedByCodePoint() {
+        assertTrue(SpilledRowList.compareText(null, "") < 0);
+        assertTrue(SpilledRowList.compareText("a", "ab") < 0);
+        assertTrue(SpilledRowList.compareText("�", "😀") < 0); // U+FFFD before U+1F600
+        assertEquals(0, SpilledRowList.compareText("x", "x"));
+    }
+
+    private void load() throws Exception {
+        int stored = 0;
+        for (int from = 0; from < ROWS; from += 100) {
+            stored = list.store(batch(from, 100));
+        }
+        list.showStored(stored);
+    }
+
+    private static List<CrudOperations.RowData> batch(int from, int count) {
+        String[] cells = new String[2 * count];
+        List<CrudOperations.RowData> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cells[2 * i] = Integer.toString(from + i);
+            cells[2 * i + 1] = name(from + i);
+            batch.add(new CrudOperations.RowData(cells, 2 * i, 2, "RID" + (from + i)));
+        }
+        return batch;
+    }
+
+    /**
+     * @return Names with duplicates, non-ASCII text and NULLs, so sorting has ties to keep stable.
+     */
+    private static String name(int id) {
+        return id % 7 == 0 ? null : "né" + (id % 13);
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The single-producer single-consumer queue, on one thread and between a producer and a consumer thread.
+ */
+class SpscDoubleRingBufferTest {
+
+    private static final int COUNT = 200_000; // Values sent from the producer thread
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new SpscDoubleRingBuffer(5).capacity());
+        assertEquals(1, new SpscDoubleRingBuffer(1).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new SpscDoubleRingBuffer(0));
+    }
+
+    @Test
+    void fullAndEmptyQueue() {
+        SpscDoubleRingBuffer queue = new SpscDoubleRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4)); // Wraps around
+        StringBuilder drained = new StringBuilder();
+        assertEquals(2, queue.drain(v -> drained.append(v).append(' '), 2));
+        assertEquals("1.0 2.0 ", drained.toString());
+        assertEquals(2, queue.size());
+        assertEquals(3, queue.poll());
+        assertEquals(4, queue.poll());
+        assertTrue(queue.isEmpty());
+        assertThrows(NoSuchElementException.class, queue::poll);
+        assertEquals(0, queue.drain(v -> { }, 10));
+    }
+
+    @Test
+    void drainToFeedsTheWindow() {
+        SpscDoubleRingBuffer queue = new SpscDoubleRingBuffer(8);
+        queue.put(new double[]{5, 1, 4, 2}, 0, 4);
+        DoubleRingBuffer window = new DoubleRingBuffer(3);
+        assertEquals(4, queue.drainTo(window, 10));
+        assertEquals(4, window.max());
+        assertEquals(1, window.min());
+    }
+
+    @Test
+    void negativeLimitIsRejected() {
+        SpscDoubleRingBuffer queue = new SpscDoubleRingBuffer(4);
+        queue.offer(1);
+        assertThrows(IllegalArgumentException.class, () -> queue.drain(v -> { }, -1));
+        assertEquals(0, queue.drain(v -> { }, 0));
+        assertEquals(1, queue.size()); // Untouched
+        assertEquals(1, queue.poll());
+    }
+
+    @Test
+    void consumerSeesEveryValueInOrder() throws Exception {
+        assertEquals(COUNT, consume(round -> 17));
+    }
+
+    @Test
+    void anyLimitKeepsTheOrderAcrossThreads() throws Exception {
+        assertEquals(COUNT, consume(round -> round % 70)); // Includes 0 and more than the capacity
+    }
+
+    /**
+     * Sends COUNT values from a producer thread (offered one at a time and put in chunks) and drains them
+     * on this thread, checking their order.
+     * @param limit The drain limit for each round.
+     * @return The number of values received.
+     */
+    private static double consume(IntUnaryOperator limit) throws Exception {
+        SpscDoubleRingBuffer queue = new SpscDoubleRingBuffer(64); // Small, so both sides wait on each other
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            double[] chunk = new double[10];
+            int next = 0;
+            while (next < COUNT) {
+                if (next % 3 == 0) {
+                    while (!queue.offer(next)) {
+                        Thread.yield();
+                    }
+                    next++;
+                } else {
+                    int n = Math.min(chunk.length, COUNT - next);
+                    for (int k = 0; k < n; k++) {
+                        chunk[k] = next + k;
+                    }
+                    queue.put(chunk, 0, n);
+                    next += n;
+                }
+            }
+        }, "spsc-producer");
+        producer.setUncaughtExceptionHandler((t, ex) -> failure.set(ex));
+
+        double[] expected = {0};
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        producer.start();
+        for (int round = 0; expected[0] < COUNT && System.nanoTime() < deadline; round++) {
+            if (queue.drain(v -> {
+                if (v != expected[0]) {
+                    throw new AssertionError("Expected " + expected[0] + " but got " + v);
+                }
+                expected[0]++;
+            }, limit.applyAsInt(round)) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertTrue(queue.isEmpty());
+        return expected[0];
+    }
+}
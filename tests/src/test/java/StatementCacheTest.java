@@ -0,0 +1,159 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cache keys, reuse and reset of cached statements, and eviction.
+ */
+class StatementCacheTest {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final List<SQLException> errors = new ArrayList<>();
+    private Connection conn;
+    private StatementCache cache;
+
+    @BeforeEach
+    void open() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:statement_test;MODE=Oracle", "sa", "");
+        cache = new StatementCache(conn, 2, hits, misses, evictions, errors::add);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void layoutOutsideLiteralsDoesNotMatter() {
+        assertEquals("SELECT a, b FROM t WHERE c = ?", StatementCache.normalize("  SELECT a,\n\tb  FROM t\r\nWHERE c = ?  "));
+        assertEquals("SELECT 'a  b', \"x  y\" FROM t", StatementCache.normalize("SELECT  'a  b',  \"x  y\"  FROM t"));
+        assertEquals("SELECT 'it''s  here' FROM t", StatementCache.normalize("SELECT 'it''s  here'   FROM t"));
+        assertEquals("SELECT 1 -- note\n  FROM t", StatementCache.normalize(" SELECT 1 -- note\n  FROM t ")); // Only trimmed
+    }
+
+    @Test
+    void alternativeQuotingIsALiteral() {
+        assertEquals("SELECT q'[it's  -- here]', a FROM t",
+                StatementCache.normalize("SELECT  q'[it's  -- here]',  a\n FROM t"));
+        assertEquals("SELECT NQ'{a ' b}' FROM t", StatementCache.normalize("SELECT NQ'{a ' b}'   FROM t"));
+        assertEquals("SELECT q'!x  y!' FROM t", StatementCache.normalize("SELECT q'!x  y!'\tFROM t"));
+        assertEquals("SELECT seq 'a  b' FROM t", StatementCache.normalize("SELECT seq   'a  b' FROM t")); // Not a prefix
+    }
+
+    @Test
+    void statementIsPreparedFromTheCallersText() throws SQLException {
+        List<String> prepared = new ArrayList<>();
+        Connection recording = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        prepared.add((String) args[0]);
+                    }
+                    return method.invoke(conn, args);
+                });
+        StatementCache recorded = new StatementCache(recording, 2, hits, misses, evictions, errors::add);
+        try (PreparedStatement ps = recorded.prepare("SELECT 1\n  FROM DUAL")) {
+            ps.executeQuery().close();
+        }
+        try (PreparedStatement ps = recorded.prepare("SELECT 1 FROM DUAL")) {
+            ps.executeQuery().close();
+        }
+        assertEquals(List.of("SELECT 1\n  FROM DUAL"), prepared); // The key is only for lookups
+    }
+
+    @Test
+    void maxRowsIsResetBeforeTheFetchSize() throws SQLException {
+        try (PreparedStatement ps = cache.prepare("SELECT 1 FROM DUAL")) {
+            ps.setMaxRows(5);
+            ps.setFetchSize(5); // H2 rejects a fetch size above the max rows
+        }
+        try (PreparedStatement ps = cache.prepare("SELECT 1 FROM DUAL")) {
+            assertEquals(0, ps.getMaxRows());
+            assertEquals(100, ps.getFetchSize());
+        }
+        assertEquals(1, hits.get()); // Reset without error, so reused
+    }
+
+    @Test
+    void returnedStatementIsReusedWithItsSettingsReset() throws SQLException {
+        try (PreparedStatement ps = cache.prepare("SELECT ? FROM DUAL")) {
+            ps.setInt(1, 1);
+            ps.setFetchSize(7);
+            ps.setQueryTimeout(5);
+            ps.executeQuery().next(); // Left open; closed when the statement is returned
+        }
+        try (PreparedStatement ps = cache.prepare("SELECT ?\n  FROM DUAL")) {
+            assertEquals(100, ps.getFetchSize()); // H2's default
+            assertEquals(0, ps.getQueryTimeout());
+            assertThrows(SQLException.class, ps::executeQuery); // The parameter was cleared
+            ps.setInt(1, 2);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+        assertEquals(1, misses.get());
+        assertEquals(1, hits.get());
+        assertEquals(1, cache.size());
+        assertEquals(1, errors.size()); // The missing parameter was reported to the listener
+    }
+
+    @Test
+    void closedHandleCannotBeUsed() throws SQLException {
+        PreparedStatement ps = cache.prepare("SELECT 1 FROM DUAL");
+        ps.close();
+        ps.close();
+        assertTrue(ps.isClosed());
+        assertThrows(SQLException.class, ps::executeQuery);
+        try (PreparedStatement again = cache.prepare("SELECT 1 FROM DUAL")) {
+            assertFalse(again.isClosed()); // The first handle's second close did not release it twice
+            assertTrue(again.executeQuery().next());
+        }
+    }
+
+    @Test
+    void busyStatementIsNotShared() throws SQLException {
+        try (PreparedStatement first = cache.prepare("SELECT ? FROM DUAL");
+             PreparedStatement second = cache.prepare("SELECT ? FROM DUAL")) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            try (ResultSet a = first.executeQuery(); ResultSet b = second.executeQuery()) {
+                a.next();
+                b.next();
+                assertEquals(1, a.getInt(1));
+                assertEquals(2, b.getInt(1));
+            }
+        }
+        assertEquals(2, misses.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        PreparedStatement held = cache.prepare("SELECT 1 FROM DUAL");
+        cache.prepare("SELECT 2 FROM DUAL").close();
+        cache.prepare("SELECT 3 FROM DUAL").close(); // Pushes out the first, which is still in use
+        assertEquals(1, evictions.get());
+        assertEquals(2, cache.size());
+        assertTrue(held.executeQuery().next()); // Still usable until it is returned
+        held.close();
+        cache.prepare("SELECT 1 FROM DUAL").close();
+        assertEquals(4, misses.get());
+    }
+}
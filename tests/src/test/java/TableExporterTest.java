@@ -0,0 +1,148 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * CSV and columnar exports, read sequentially and as parallel key ranges.
+ */
+class TableExporterTest {
+
+    private static final int ROWS = 20_000; // More than two columnar row groups
+
+    private static ConnectionPool pool;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        pool = H2Database.open("export_test", 4);
+        try (Connection conn = pool.getConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE QUOTED (ID NUMBER(10), NAME VARCHAR2(40))");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO QUOTED VALUES (?, ?)")) {
+                String[] names = {"plain", "a, b", "say \"hi\"", "two\nlines", null, "café"};
+                for (int i = 0; i < names.length; i++) {
+                    ps.setInt(1, i + 1);
+                    ps.setString(2, names[i]);
+                    ps.executeUpdate();
+                }
+            }
+            List<String> columns = H2Database.createTable(conn, "EXPORTED", 4, true);
+            H2Database.fill(conn, "EXPORTED", columns, 1, ROWS);
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    private static TableExporter exporter() {
+        return new TableExporter(pool, new ParallelScanner(pool, new SchemaCache(pool, Long.MAX_VALUE, 10)));
+    }
+
+    @Test
+    void csvQuotesOnlyWhatNeedsIt() throws Exception {
+        Path file = dir.resolve("quoted.csv");
+        assertEquals(6, exporter().export("QUOTED", file, TableExporter.Format.CSV, 1, null));
+        assertEquals("ID,NAME\n1,plain\n2,\"a, b\"\n3,\"say \"\"hi\"\"\"\n4,\"two\nlines\"\n5,\n6,café\n",
+                Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parallelRangesProduceTheSameFile() throws Exception {
+        Path sequential = dir.resolve("sequential.csv");
+        Path parallel = dir.resolve("parallel.csv");
+        TableExporter exporter = exporter();
+        assertEquals(ROWS, exporter.export("EXPORTED", sequential, TableExporter.Format.CSV, 1, null));
+        assertEquals(ROWS, exporter.export("EXPORTED", parallel, TableExporter.Format.CSV, 3, null));
+        assertArrayEquals(Files.readAllBytes(sequential), Files.readAllBytes(parallel));
+        try (var files = Files.list(dir)) {
+            assertEquals(2, files.count()); // The part files are gone
+        }
+    }
+
+    @Test
+    void columnarFileHoldsGroupsOfColumns() throws Exception {
+        for (int partitions : new int[]{1, 3}) {
+            Path file = dir.resolve("exported" + partitions + ".tcol");
+            assertEquals(TableExporter.Format.COLUMNAR, TableExporter.Format.forFile(file));
+            assertEquals(ROWS, exporter().export("EXPORTED", file, TableExporter.Format.COLUMNAR, partitions, null));
+
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals("TCOL", text(in, 4));
+            assertEquals(1, in.get());
+            int columnCount = in.getInt();
+            List<String> names = new ArrayList<>();
+            byte[] encodings = new byte[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                names.add(text(in, in.getShort()));
+                encodings[c] = in.get();
+                in.getInt(); // JDBC type
+            }
+            assertEquals(List.of("ID", "C1", "C2", "C3"), names);
+            assertArrayEquals(new byte[]{1, 0, 0, 0}, encodings); // NUMBER(10) as a varint, the rest as text
+
+            long ids = 0;
+            int groups = 0;
+            while (in.remaining() > 16) {
+                int rows = in.getInt();
+                groups++;
+                for (int c = 0; c < columnCount; c++) {
+                    int end = in.getInt() + in.position();
+                    in.position(in.position() + (rows + 7) / 8); // No NULLs in this table
+                    for (int r = 0; r < rows; r++) {
+                        if (c == 0) {
+                            long zigZag = varLong(in);
+                            ids += (zigZag >>> 1) ^ -(zigZag & 1);
+                        } else {
+                            int length = (int) varLong(in);
+                            in.position(in.position() + length);
+                        }
+                    }
+                    assertEquals(end, in.position(), "column " + c + " of group " + groups);
+                }
+            }
+            assertEquals("TEND", text(in, 4));
+            assertEquals(ROWS, in.getLong());
+            assertEquals(groups, in.getInt());
+            assertEquals((long) ROWS * (ROWS + 1) / 2, ids); // Every row exactly once
+        }
+    }
+
+    private static String text(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long varLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+    }
+}
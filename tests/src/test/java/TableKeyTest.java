@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Choice of the row key from the constraints, and binding of keys and values with their native types.
+ */
+class TableKeyTest {
+
+    private static ConnectionPool pool;
+    private static SchemaCache schemaCache;
+
+    @BeforeAll
+    static void createTables() throws SQLException {
+        pool = H2Database.open("key_test", 2);
+        schemaCache = new SchemaCache(pool, Long.MAX_VALUE, 10);
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE COMPOSITE (REGION VARCHAR2(10), NO NUMBER(10), NAME VARCHAR2(20), "
+                    + "PRIMARY KEY (REGION, NO))");
+            st.execute("CREATE TABLE UNIQUE_NOT_NULL (CODE VARCHAR2(10) NOT NULL UNIQUE, NAME VARCHAR2(20))");
+            st.execute("CREATE TABLE UNIQUE_NULLABLE (CODE VARCHAR2(10) UNIQUE, NAME VARCHAR2(20))");
+            st.execute("CREATE TABLE TYPED (N NUMBER(10), D NUMBER(12,2), T DATE, S VARCHAR2(20))");
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void primaryKeyComesFirst() throws SQLException {
+        TableKey key = TableKey.resolve(schemaCache.table("COMPOSITE"));
+        assertFalse(key.isRowId());
+        assertEquals("REGION = ? AND NO = ?", key.whereClause());
+        assertEquals("primary key (REGION, NO)", key.describe());
+    }
+
+    @Test
+    void uniqueKeyOnlyWhenItsColumnsAreNotNull() throws SQLException {
+        TableKey unique = TableKey.resolve(schemaCache.table("UNIQUE_NOT_NULL"));
+        assertEquals("CODE = ?", unique.whereClause());
+        assertEquals("unique key (CODE)", unique.describe());
+
+        TableKey nullable = TableKey.resolve(schemaCache.table("UNIQUE_NULLABLE"));
+        assertTrue(nullable.isRowId());
+        assertEquals("ROWID = CHARTOROWID(?)", nullable.whereClause());
+    }
+
+    @Test
+    void keyIsBoundFromTheRowsColumns() throws SQLException {
+        TableKey key = TableKey.resolve(schemaCache.table("COMPOSITE"));
+        // The row was loaded with its columns in another order than the key
+        List<String> rowColumns = List.of("NAME", "NO", "REGION");
+        CrudOperations.RowData row = new CrudOperations.RowData(List.of("x", "42", "EU"));
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT ?, ? FROM DUAL")) {
+            assertEquals(3, key.bindKey(ps, 1, row, rowColumns));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals("EU", rs.getObject(1));
+                assertEquals(42L, rs.getObject(2)); // NUMBER(10) is bound as a long, not as text
+            }
+            SQLException ex = assertThrows(SQLException.class, () -> key.bindKey(ps, 1, row, List.of("NAME", "NO")));
+            assertTrue(ex.getMessage().contains("REGION"), ex.getMessage());
+        }
+    }
+
+    @Test
+    void rowWithoutRowIdCannotBeKeyedByRowId() throws SQLException {
+        TableKey key = TableKey.resolve(schemaCache.table("UNIQUE_NULLABLE"));
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT ? FROM DUAL")) {
+            CrudOperations.RowData read = new CrudOperations.RowData(new String[]{"a", "b"}, 0, 2, "000000000000000007");
+            assertEquals(2, key.bindKey(ps, 1, read, List.of("CODE", "NAME")));
+            CrudOperations.RowData typed = new CrudOperations.RowData(List.of("a", "b"));
+            assertThrows(SQLException.class, () -> key.bindKey(ps, 1, typed, List.of("CODE", "NAME")));
+        }
+    }
+
+    @Test
+    void valuesAreBoundWithTheColumnsType() throws SQLException {
+        SchemaCache.TableMeta typed = schemaCache.table("TYPED");
+        try (Connection conn = pool.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT ?, ?, ?, ?, ? FROM DUAL")) {
+            TableKey.bindValue(ps, 1, typed.column("N"), " 7 ");
+            TableKey.bindValue(ps, 2, typed.column("D"), "12.50");
+            TableKey.bindValue(ps, 3, typed.column("T"), "2024-03-01");
+            TableKey.bindValue(ps, 4, typed.column("S"), " kept as typed ");
+            TableKey.bindValue(ps, 5, typed.column("N"), "");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                assertEquals(7L, rs.getObject(1));
+                assertEquals(new BigDecimal("12.50"), rs.getObject(2));
+                assertEquals(Timestamp.valueOf("2024-03-01 00:00:00"), rs.getObject(3)); // A bare date is midnight
+                assertEquals(" kept as typed ", rs.getObject(4));
+                assertNull(rs.getObject(5)); // Empty is NULL
+            }
+            SQLException ex = assertThrows(SQLException.class, () -> TableKey.bindValue(ps, 1, typed.column("N"), "seven"));
+            assertEquals("22018", ex.getSQLState());
+            assertEquals("22018", assertThrows(SQLException.class,
+                    () -> TableKey.bindValue(ps, 1, typed.column("T"), "01/03/2024")).getSQLState());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The SQL generated for filters, search, sort and limit, and the rows it reads.
+ */
+class TableQueryTest {
+
+    private static ConnectionPool pool;
+    private static SchemaCache.TableMeta items;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        pool = H2Database.open("query_test", 2);
+        try (Connection conn = pool.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE SEQUENCE ITEMS_RID");
+            st.execute("CREATE TABLE ITEMS (\"ROWID\" CHAR(18) INVISIBLE " // Emulated as H2Database.createTable does
+                    + "DEFAULT LPAD(CAST(NEXT VALUE FOR ITEMS_RID AS VARCHAR), 18, '0') NOT NULL, "
+                    + "ID NUMBER(10) PRIMARY KEY, NAME VARCHAR2(20), NOTE VARCHAR2(20), QTY NUMBER(10))");
+            st.execute("INSERT INTO ITEMS (ID, NAME, NOTE, QTY) VALUES (1, 'Apple', '50% off', 3), (2, 'apricot', NULL, 10), "
+                    + "(3, 'Banana', 'A_B', 7), (4, 'Cherry', 'fresh', NULL), (5, 'Damson', 'x', 3)");
+        }
+        items = new SchemaCache(pool, Long.MAX_VALUE, 10).table("ITEMS");
+    }
+
+    @AfterAll
+    static void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void allRowsInStorageOrder() {
+        TableQuery query = TableQuery.all(items, List.of("ID", "NAME"));
+        assertFalse(query.isFiltered());
+        assertEquals("SELECT ROWIDTOCHAR(ROWID) AS ROW_KEY_, ID, NAME FROM ITEMS ORDER BY ROWID FETCH FIRST ? ROWS ONLY",
+                query.keysetPageSql(false));
+        assertEquals("SELECT ROWIDTOCHAR(ROWID) AS ROW_KEY_, ID, NAME FROM ITEMS WHERE ROWID > CHARTOROWID(?) "
+                + "ORDER BY ROWID FETCH FIRST ? ROWS ONLY", query.keysetPageSql(true));
+    }
+
+    @Test
+    void filtersSortAndLimitAreInTheStatement() {
+        TableQuery query = new TableQuery(items, List.of("ID", "NAME"),
+                List.of(new TableQuery.Filter("qty", TableQuery.Op.GE, "3"),
+                        new TableQuery.Filter("NOTE", TableQuery.Op.IS_NOT_NULL, null)),
+                null, List.of(new TableQuery.Sort("QTY", true)), 2);
+        assertTrue(query.isFiltered());
+        assertEquals("SELECT ROWIDTOCHAR(ROWID) AS ROW_KEY_, ID, NAME FROM ITEMS WHERE QTY >= ? AND NOTE IS NOT NULL "
+                + "ORDER BY QTY DESC, ROWID OFFSET ? ROWS FETCH NEXT ? ROWS ONLY", query.offsetPageSql());
+    }
+
+    @Test
+    void queriesOfTheSameShapeShareTheirText() {
+        TableQuery a = new TableQuery(items, List.of("ID"), List.of(new TableQuery.Filter("ID", TableQuery.Op.EQ, "1")),
+                null, List.of(), 0);
+        TableQuery b = new TableQuery(items, List.of("ID"), List.of(new TableQuery.Filter("ID", TableQuery.Op.EQ, "2")),
+                null, List.of(), 0);
+        assertSame(a.offsetPageSql(), b.offsetPageSql());
+        assertEquals(a.toString(), b.toString());
+        assertNotEquals(a.resultKey(), b.resultKey()); // Same statement, different rows
+    }
+
+    @Test
+    void filtersSelectTheRows() throws SQLException {
+        assertEquals(List.of("2", "3"), ids(filter("QTY", TableQuery.Op.GT, "5")));
+        assertEquals(List.of("1", "2"), ids(filter("NAME", TableQuery.Op.CONTAINS, "AP")));
+        assertEquals(List.of("2"), ids(filter("NAME", TableQuery.Op.STARTS_WITH, "ap"))); // Case-sensitive prefix
+        assertEquals(List.of("4"), ids(filter("QTY", TableQuery.Op.IS_NULL, null)));
+        // LIKE wildcards in the value are matched literally
+        assertEquals(List.of("1"), ids(filter("NOTE", TableQuery.Op.CONTAINS, "0%")));
+        assertEquals(List.of("3"), ids(filter("NOTE", TableQuery.Op.STARTS_WITH, "A_")));
+    }
+
+    @Test
+    void searchLooksInEveryTextColumn() throws SQLException {
+        TableQuery query = new TableQuery(items, List.of("ID", "NAME", "NOTE", "QTY"), List.of(), " RES ", List.of(), 0);
+        assertEquals(List.of("4"), ids(query)); // "fresh"
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableQuery(items, List.of("ID", "QTY"), List.of(), "x", List.of(), 0));
+    }
+
+    @Test
+    void sortAndLimit() throws SQLException {
+        TableQuery query = new TableQuery(items, List.of("ID"), List.of(new TableQuery.Filter("QTY", TableQuery.Op.IS_NOT_NULL, null)),
+                null, List.of(new TableQuery.Sort("QTY", false), new TableQuery.Sort("ID", true)), 3);
+        assertEquals(List.of("5", "1", "3"), ids(query)); // Equal quantities ordered by the second key
+    }
+
+    @Test
+    void invalidQueriesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> TableQuery.all(items, List.of("ID", "PRICE")));
+        assertThrows(IllegalArgumentException.class, () -> filter("ID", TableQuery.Op.EQ, ""));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableQuery(items, List.of("ID"), List.of(), null, List.of(new TableQuery.Sort("ID; DROP", false)), 0));
+        assertThrows(IllegalArgumentException.class, () -> new TableQuery(items, List.of("ID"), List.of(), null, List.of(), -1));
+    }
+
+    private static TableQuery filter(String column, TableQuery.Op op, String value) {
+        return new TableQuery(items, List.of("ID"), List.of(new TableQuery.Filter(column, op, value)), null, List.of(), 0);
+    }
+
+    private static List<String> ids(TableQuery query) throws SQLException {
+        PagedRowList view = new PagedRowList(pool, Runnable::run, query, 10, 2, null);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < view.size(); i++) {
+            ids.add(view.get(i).get(0)); // One page, read by the constructor
+        }
+        return ids;
+    }
+}